@@ -345,6 +345,23 @@ requireSubstring "$SAMPLE" "{\"event\":\"create\",\"key\":\"Qm"
 CID=$(echo "$SAMPLE" | cut -d \" -f 8)
 STRUCT=$(curl --cookie "$COOKIES2" --cookie-jar "$COOKIES2" --no-progress-meter -XGET -L "http://127.0.0.1:8002/server/postStruct/$CID/OPTIONAL")
 requireSubstring "$STRUCT" "{\"name\":\"explicit\",\"description\":\"post on explicit list\","
+# The post is now cached locally so asking again with its ETag should report that it is unchanged.
+ETAG=$(curl --cookie "$COOKIES2" --cookie-jar "$COOKIES2" --no-progress-meter -XGET -L --dump-header - --output /dev/null "http://127.0.0.1:8002/server/postStruct/$CID/OPTIONAL" | grep -i "^ETag:" | cut -d " " -f 2 | tr -d "\r")
+requireSubstring "$ETAG" "\"$CID-"
+STATUS=$(curl --cookie "$COOKIES2" --cookie-jar "$COOKIES2" --no-progress-meter -XGET -L --header "If-None-Match: $ETAG" --output /dev/null --write-out "%{http_code}" "http://127.0.0.1:8002/server/postStruct/$CID/OPTIONAL")
+requireSubstring "$STATUS" "304"
+# The batch version should return the same struct, along with the CID and status.
+BATCH=$(curl --cookie "$COOKIES2" --cookie-jar "$COOKIES2" --no-progress-meter -XGET -L "http://127.0.0.1:8002/server/postStructBatch/$CID/OPTIONAL")
+requireSubstring "$BATCH" "{\"cid\":\"$CID\",\"status\":200,\"post\":{\"name\":\"explicit\",\"description\":\"post on explicit list\","
+# An invalid CID in the batch is reported on its own, without stopping the rest of the batch.
+BATCH=$(curl --cookie "$COOKIES2" --cookie-jar "$COOKIES2" --no-progress-meter -XGET -L "http://127.0.0.1:8002/server/postStructBatch/bogus,$CID/OPTIONAL")
+requireSubstring "$BATCH" "{\"cid\":\"bogus\",\"status\":400,\"post\":null}"
+requireSubstring "$BATCH" "{\"cid\":\"$CID\",\"status\":200,\"post\":{\"name\":\"explicit\",\"description\":\"post on explicit list\","
+# The batch also has an ETag, since all of its posts are known locally.
+ETAG=$(curl --cookie "$COOKIES2" --cookie-jar "$COOKIES2" --no-progress-meter -XGET -L --dump-header - --output /dev/null "http://127.0.0.1:8002/server/postStructBatch/bogus,$CID/OPTIONAL" | grep -i "^ETag:" | cut -d " " -f 2 | tr -d "\r")
+requireSubstring "$ETAG" "\"batch-"
+STATUS=$(curl --cookie "$COOKIES2" --cookie-jar "$COOKIES2" --no-progress-meter -XGET -L --header "If-None-Match: $ETAG" --output /dev/null --write-out "%{http_code}" "http://127.0.0.1:8002/server/postStructBatch/bogus,$CID/OPTIONAL")
+requireSubstring "$STATUS" "304"
 
 # The explicit cache should still give us results.
 USER_INFO=$(curl --cookie "$COOKIES2" --cookie-jar "$COOKIES2"  --no-progress-meter -XGET "http://127.0.0.1:8002/server/unknownUser/$PUBLIC1")
@@ -430,7 +430,7 @@ requireSubstring "$FOLLOWEE_KEYS" "[]"
 
 echo "Check that we can read the preferences"
 PREFS=$(curl --cookie "$COOKIES1" --cookie-jar "$COOKIES1"  --no-progress-meter -XGET "http://127.0.0.1:8000/server/prefs")
-requireSubstring "$PREFS" "{\"videoEdgePixelMax\":1280,\"republishIntervalMillis\":43200000,\"explicitCacheTargetBytes\":1000000000,\"explicitUserInfoRefreshMillis\":86400000,\"followeeCacheTargetBytes\":10000000000,\"followeeRefreshMillis\":3600000,\"followeeRecordThumbnailMaxBytes\":10000000,\"followeeRecordAudioMaxBytes\":200000000,\"followeeRecordVideoMaxBytes\":2000000000}"
+requireSubstring "$PREFS" "{\"videoEdgePixelMax\":1280,\"republishIntervalMillis\":43200000,\"explicitCacheTargetBytes\":1000000000,\"explicitUserInfoRefreshMillis\":86400000,\"followeeCacheTargetBytes\":10000000000,\"followeeRefreshMillis\":3600000,\"followeeRecordThumbnailMaxBytes\":10000000,\"followeeRecordAudioMaxBytes\":200000000,\"followeeRecordVideoMaxBytes\":2000000000,\"followeeCacheEvictionPolicy\":\"RANDOM\",\"globalCacheBudgetBytes\":0,\"prefetchHopDepth\":0,\"prefetchBudgetBytes\":50000000}"
 
 echo "Check that we can edit the preferences"
 curl --cookie "$COOKIES1" --cookie-jar "$COOKIES1" --no-progress-meter --fail -XPOST -H  "Content-Type: application/x-www-form-urlencoded;charset=UTF-8" --data "edgeSize=500&followerCacheBytes=2000000000&republishIntervalMillis=70000&followeeRefreshMillis=80000" http://127.0.0.1:8000/server/prefs >& /dev/null
@@ -438,9 +438,9 @@ curl --cookie "$COOKIES1" --cookie-jar "$COOKIES1" --no-progress-meter --fail -X
 if [ $? != 22 ]; then
 	exit 1
 fi
-curl --cookie "$COOKIES1" --cookie-jar "$COOKIES1" --no-progress-meter --fail -XPOST -H  "Content-Type: application/x-www-form-urlencoded;charset=UTF-8" --data "videoEdgePixelMax=500&republishIntervalMillis=70000&explicitCacheTargetBytes=1000000001&explicitUserInfoRefreshMillis=60001&followeeCacheTargetBytes=2000000000&followeeRefreshMillis=80000&followeeRecordThumbnailMaxBytes=10000000&followeeRecordAudioMaxBytes=200000000&followeeRecordVideoMaxBytes=2000000002" http://127.0.0.1:8000/server/prefs
+curl --cookie "$COOKIES1" --cookie-jar "$COOKIES1" --no-progress-meter --fail -XPOST -H  "Content-Type: application/x-www-form-urlencoded;charset=UTF-8" --data "videoEdgePixelMax=500&republishIntervalMillis=70000&explicitCacheTargetBytes=1000000001&explicitUserInfoRefreshMillis=60001&followeeCacheTargetBytes=2000000000&followeeRefreshMillis=80000&followeeRecordThumbnailMaxBytes=10000000&followeeRecordAudioMaxBytes=200000000&followeeRecordVideoMaxBytes=2000000002&followeeCacheEvictionPolicy=LRU&globalCacheBudgetBytes=0&prefetchHopDepth=1&prefetchBudgetBytes=50000000" http://127.0.0.1:8000/server/prefs
 PREFS=$(curl --cookie "$COOKIES1" --cookie-jar "$COOKIES1"  --no-progress-meter -XGET "http://127.0.0.1:8000/server/prefs")
-requireSubstring "$PREFS" "{\"videoEdgePixelMax\":500,\"republishIntervalMillis\":70000,\"explicitCacheTargetBytes\":1000000001,\"explicitUserInfoRefreshMillis\":60001,\"followeeCacheTargetBytes\":2000000000,\"followeeRefreshMillis\":80000,\"followeeRecordThumbnailMaxBytes\":10000000,\"followeeRecordAudioMaxBytes\":200000000,\"followeeRecordVideoMaxBytes\":2000000002}"
+requireSubstring "$PREFS" "{\"videoEdgePixelMax\":500,\"republishIntervalMillis\":70000,\"explicitCacheTargetBytes\":1000000001,\"explicitUserInfoRefreshMillis\":60001,\"followeeCacheTargetBytes\":2000000000,\"followeeRefreshMillis\":80000,\"followeeRecordThumbnailMaxBytes\":10000000,\"followeeRecordAudioMaxBytes\":200000000,\"followeeRecordVideoMaxBytes\":2000000002,\"followeeCacheEvictionPolicy\":\"LRU\",\"globalCacheBudgetBytes\":0,\"prefetchHopDepth\":1,\"prefetchBudgetBytes\":50000000}"
 
 echo "Check that we can read the version"
 VERSION=$(curl --cookie "$COOKIES1" --cookie-jar "$COOKIES1"  --no-progress-meter -XGET "http://127.0.0.1:8000/server/status")
@@ -76,35 +76,19 @@ var GLOBAL_PostLoader = {
 			let tuple = this.map[postHash];
 			if (undefined === tuple)
 			{
-				// Load this from server.
-				API_getPost(postHash, false).then(elt => {
-					if (null !== elt)
-					{
-						let object = {
-							// Direct data from server.
-							"name": elt["name"],
-							"description": elt["description"],
-							"publishedSecondsUtc": elt["publishedSecondsUtc"],
-							"discussionUrl": elt["discussionUrl"],
-							"publisherKey": elt["publisherKey"],
-							"replyTo": elt["replyTo"],
-							"hasDataToCache": elt["hasDataToCache"],
-							"thumbnailUrl": elt["thumbnailUrl"],
-							"videoUrl": elt["videoUrl"],
-							"audioUrl": elt["audioUrl"],
-							// Injected elements.
-							"elementHash": postHash,
-							"readableDate": new Date(elt["publishedSecondsUtc"] * 1000).toLocaleString(),
-						}
-						// Store this in the shared map.
-						this.map[postHash] = object;
-						resolve(object);
-					}
-					else
-					{
-						resolve(null);
-					}
-				});
+				// Queue this to be loaded from the server with any other posts requested before the next event loop iteration.
+				let waiters = this.pending[postHash];
+				if (undefined === waiters)
+				{
+					waiters = [];
+					this.pending[postHash] = waiters;
+					this.queued.push(postHash);
+				}
+				waiters.push(resolve);
+				if (1 === this.queued.length)
+				{
+					window.setTimeout(() => this.flushQueue());
+				}
 			}
 			else
 			{
@@ -113,6 +97,55 @@ var GLOBAL_PostLoader = {
 			}
 		});
 	},
+	// Internal state and helpers for batching requests - these are not part of the loader's interface.
+	pending: {},
+	queued: [],
+	flushQueue: function()
+	{
+		// The server limits the size of a batch (see GET_PostStructBatch.java).
+		const kMaxBatchSize = 100;
+		let hashes = this.queued;
+		this.queued = [];
+		for (let i = 0; i < hashes.length; i += kMaxBatchSize)
+		{
+			let batch = hashes.slice(i, i + kMaxBatchSize);
+			API_getPostBatch(batch, false, (postHash, elt) => this.completeTuple(postHash, elt)).then(() => {
+				// Anything the server didn't report (a dropped connection, for example) is treated as not found.
+				batch.forEach(postHash => this.completeTuple(postHash, null));
+			});
+		}
+	},
+	completeTuple: function(postHash, elt)
+	{
+		let waiters = this.pending[postHash];
+		if (undefined !== waiters)
+		{
+			delete this.pending[postHash];
+			let object = null;
+			if (null !== elt)
+			{
+				object = {
+					// Direct data from server.
+					"name": elt["name"],
+					"description": elt["description"],
+					"publishedSecondsUtc": elt["publishedSecondsUtc"],
+					"discussionUrl": elt["discussionUrl"],
+					"publisherKey": elt["publisherKey"],
+					"replyTo": elt["replyTo"],
+					"hasDataToCache": elt["hasDataToCache"],
+					"thumbnailUrl": elt["thumbnailUrl"],
+					"videoUrl": elt["videoUrl"],
+					"audioUrl": elt["audioUrl"],
+					// Injected elements.
+					"elementHash": postHash,
+					"readableDate": new Date(elt["publishedSecondsUtc"] * 1000).toLocaleString(),
+				}
+				// Store this in the shared map.
+				this.map[postHash] = object;
+			}
+			waiters.forEach(resolve => resolve(object));
+		}
+	},
 };
 
 // Define the factory methods for dependency injection.
@@ -3,9 +3,10 @@
 // The events are structured as such, expressed in terms of how the given callbacks will receive data (note that key and value types are use-case specific):
 // -onSocketOpen(socket)
 //	-not part of our event API but called with the socket when the connection opens
-// -onCreate(key, value, isNewest)
+// -onCreate(key, value, isNewest, newerKey)
 //	-creates a new key with the given value
 //  -isNewest means that this key is should be treated as the most recently added, otherwise it should be treated as the oldest
+//  -newerKey is usually undefined but, if set, it is the existing key immediately newer than this one (for ordered lists where this belongs in the middle)
 // -onUpdate(key, value)
 //	-updates an existing key with the given value
 // -onDelete(key)
@@ -26,66 +27,239 @@ function createWebSocketStateEventListener(url, protocol, onSocketOpen, onCreate
 	{
 		// This format is defined in SocketEventHelpers.java.
 		let object = JSON.parse(event.data);
-		if ('create' === object.event)
+		dispatchStateEvent(object, onCreate, onUpdate, onDelete, onSpecial, null);
+	});
+	socket.onclose = function(e)
+	{
+		onSocketClose(e);
+	}
+	return socket;
+}
+
+// The delays between reconnection attempts, doubling after each failure.
+let RESUME_MIN_RETRY_MILLIS = 500;
+let RESUME_MAX_RETRY_MILLIS = 30000;
+
+// Like createWebSocketStateEventListener but, if the connection drops unexpectedly (sleep, network blip, or the server
+// dropping us for falling behind), it reconnects and asks to resume from the last sequence number it saw, so that the
+// server only sends the events we missed.
+// The keys are tracked here, in order, so we can tell the server the oldest one we have (which is where scrolling back
+// continues from) and so that we can handle the "resync" event, sent when the server can't resume:
+// -onResync()
+//	-optional:  called when everything previously created must be discarded (the current state will follow)
+//	-if not given, we call onDelete for every key we know about (newest first) and onSpecial(null), if there was one
+// onSocketOpen is called with the new socket on every reconnect while onSocketClose is only called when we stop
+// (explicitly closed, a normal close, or an error such as the resource not being found).
+// Returns an object with a close() method to stop the listener.
+function createResumableStateEventListener(url, protocol, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose, onResync)
+{
+	let keys = [];
+	let hasSpecial = false;
+	let lastSequence = undefined;
+	let isClosed = false;
+	let retryMillis = RESUME_MIN_RETRY_MILLIS;
+	let socket = null;
+	
+	let trackedCreate = function(key, value, isNewest, newerKey)
+	{
+		if (undefined !== newerKey)
 		{
-			// Note that the "isNewest" is attached to all of these event objects but it is only meaningful for "create".
-			onCreate(object.key, object.value, object.isNewest);
+			keys.splice(keys.indexOf(newerKey), 0, key);
 		}
-		else if ('update' === object.event)
+		else if (isNewest)
 		{
-			onUpdate(object.key, object.value);
+			keys.push(key);
 		}
-		else if ('delete' === object.event)
+		else
 		{
-			onDelete(object.key);
+			keys.unshift(key);
 		}
-		else if ('special' === object.event)
+		onCreate(key, value, isNewest, newerKey);
+	};
+	let trackedDelete = function(key)
+	{
+		keys.splice(keys.indexOf(key), 1);
+		onDelete(key);
+	};
+	let trackedSpecial = function(string)
+	{
+		hasSpecial = (null !== string);
+		onSpecial(string);
+	};
+	let trackedResync = function()
+	{
+		let oldKeys = keys;
+		let oldHasSpecial = hasSpecial;
+		keys = [];
+		hasSpecial = false;
+		if (onResync)
 		{
-			onSpecial(object.key);
+			onResync();
 		}
 		else
 		{
-			console.log("unknown event type: " + object.event);
+			for (let i = oldKeys.length - 1; i >= 0; --i)
+			{
+				onDelete(oldKeys[i]);
+			}
+			if (oldHasSpecial)
+			{
+				onSpecial(null);
+			}
 		}
-	});
-	socket.onclose = function(e)
+	};
+	let connect = function()
 	{
-		onSocketClose(e);
+		let fullUrl = url;
+		if (undefined !== lastSequence)
+		{
+			// These parameters are defined in SocketEventHelpers.java.
+			fullUrl += "?resumeSequence=" + lastSequence;
+			if (keys.length > 0)
+			{
+				fullUrl += "&oldestKey=" + encodeURIComponent(keys[0]);
+			}
+		}
+		socket = new WebSocket(fullUrl, protocol);
+		socket.onopen = function()
+		{
+			console.log("State event listener open: " + protocol);
+			retryMillis = RESUME_MIN_RETRY_MILLIS;
+			onSocketOpen(socket);
+		}
+		socket.addEventListener('message', function(event)
+		{
+			let object = JSON.parse(event.data);
+			if (undefined !== object.seq)
+			{
+				lastSequence = object.seq;
+			}
+			dispatchStateEvent(object, trackedCreate, onUpdate, trackedDelete, trackedSpecial, trackedResync);
+		});
+		socket.onclose = function(e)
+		{
+			socket = null;
+			// We only reconnect if this wasn't our choice, a normal close, or something which will just fail again (codes from WebSocketCodes.java).
+			let isFatal = (1000 === e.code) || ((e.code >= 4000) && (4006 !== e.code));
+			if (isClosed || isFatal)
+			{
+				onSocketClose(e);
+			}
+			else
+			{
+				console.log("State event listener dropped (" + e.code + "), reconnecting in " + retryMillis + " ms: " + protocol);
+				setTimeout(function() { if (!isClosed) { connect(); } }, retryMillis);
+				retryMillis = Math.min(2 * retryMillis, RESUME_MAX_RETRY_MILLIS);
+			}
+		}
+	};
+	connect();
+	return {
+		close: function()
+		{
+			isClosed = true;
+			if (null !== socket)
+			{
+				socket.close();
+			}
+		},
+	};
+}
+
+// The video processing sockets can't resume but their state is just a few sizes, which are all sent again on
+// registration, so we just reconnect to the running process (reconnectUrl) if the server drops us for falling behind.
+// Returns an object with a send() method, to send commands to the current socket.
+function createVideoProcessingListener(url, reconnectUrl, protocol, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose)
+{
+	let listener = {
+		socket: null,
+		send: function(message)
+		{
+			listener.socket.send(message);
+		},
+	};
+	let connect = function(connectUrl)
+	{
+		listener.socket = createWebSocketStateEventListener(connectUrl, protocol, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, function(e)
+		{
+			// RESYNC_REQUIRED is defined in WebSocketCodes.java.
+			if (4006 === e.code)
+			{
+				console.log("Video processing listener dropped for falling behind, reconnecting: " + protocol);
+				connect(reconnectUrl);
+			}
+			else
+			{
+				onSocketClose(e);
+			}
+		});
+	};
+	connect(url);
+	return listener;
+}
+
+// Calls the callback corresponding to the parsed event object (this format is defined in SocketEventHelpers.java).
+function dispatchStateEvent(object, onCreate, onUpdate, onDelete, onSpecial, onResync)
+{
+	if ('create' === object.event)
+	{
+		// Note that the "isNewest" is attached to all of these event objects but it is only meaningful for "create".
+		onCreate(object.key, object.value, object.isNewest, object.newerKey);
+	}
+	else if ('update' === object.event)
+	{
+		onUpdate(object.key, object.value);
+	}
+	else if ('delete' === object.event)
+	{
+		onDelete(object.key);
+	}
+	else if ('special' === object.event)
+	{
+		onSpecial(object.key);
+	}
+	else if (('resync' === object.event) && (null !== onResync))
+	{
+		onResync();
+	}
+	else
+	{
+		console.log("unknown event type: " + object.event);
 	}
-	return socket;
 }
 
 
 // To namespace these, since we can't use _actual_ module semantics (since a file with this name is exported for both http and file - file can't use modules for some bogus reason), we will attach these methods to an object for export.
 // This also gives us a single point where we can associate the URL and protocol name to the definitions in InteractiveServer.java.
 var EVENTS_API = {
-	backgroundStatus: function(onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createWebSocketStateEventListener("ws://127.0.0.1:8000/server/events/status", "event_api"
-		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose
+	backgroundStatus: function(onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createResumableStateEventListener("ws://127.0.0.1:8000/server/events/status", "event_api"
+		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose, undefined
 	); },
 	processVideo: function(id, command, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) {
 		let url = "ws://127.0.0.1:8000/draft/processedVideo/process/" + id + "/" + encodeURIComponent(command);
-		return createWebSocketStateEventListener(url, "event_api"
+		return createVideoProcessingListener(url, "ws://127.0.0.1:8000/draft/processedVideo/reconnect/" + id, "event_api"
 			, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose
 	); },
 	existingVideo: function(id, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) {
 		let url = "ws://127.0.0.1:8000/draft/processedVideo/reconnect/" + id;
-		return createWebSocketStateEventListener(url, "event_api"
+		return createVideoProcessingListener(url, url, "event_api"
 			, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose
 	); },
-	followeeRefresh: function(onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createWebSocketStateEventListener("ws://127.0.0.1:8000/followee/events/refreshTime", "event_api"
-		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose
+	followeeRefresh: function(onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createResumableStateEventListener("ws://127.0.0.1:8000/followee/events/refreshTime", "event_api"
+		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose, undefined
 	); },
-	userEntries: function(userKey, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createWebSocketStateEventListener("ws://127.0.0.1:8000/server/events/entries/" + userKey, "event_api"
-		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose
+	userEntries: function(userKey, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createResumableStateEventListener("ws://127.0.0.1:8000/server/events/entries/" + userKey, "event_api"
+		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose, undefined
 	); },
-	combinedEntries: function(onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createWebSocketStateEventListener("ws://127.0.0.1:8000/server/events/combined/entries", "event_api"
-		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose
+	combinedEntries: function(onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createResumableStateEventListener("ws://127.0.0.1:8000/server/events/combined/entries", "event_api"
+		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose, undefined
 	); },
-	replies: function(onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createWebSocketStateEventListener("ws://127.0.0.1:8000/server/events/replies", "event_api"
-		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose
+	replies: function(onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createResumableStateEventListener("ws://127.0.0.1:8000/server/events/replies", "event_api"
+		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose, undefined
 	); },
-	replyTree: function(rootCid, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose) { return createWebSocketStateEventListener("ws://127.0.0.1:8000/server/events/replyTree/" + rootCid, "event_api"
-		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose
+	// The reply tree can't be rebuilt by deleting its keys so it takes an onResync callback.
+	replyTree: function(rootCid, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose, onResync) { return createResumableStateEventListener("ws://127.0.0.1:8000/server/events/replyTree/" + rootCid, "event_api"
+		, onSocketOpen, onCreate, onUpdate, onDelete, onSpecial, onSocketClose, onResync
 	); },
 };
 
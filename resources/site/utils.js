@@ -26,7 +26,7 @@ function UTILS_readGetVar(name)
 // "isDeleting"
 // "thumbnailUrl"
 // "publisherKey"
-function UTILS_addElementHashToArray(array, hash, isNewest, updateCallback)
+function UTILS_addElementHashToArray(array, hash, isNewest, updateCallback, newerHash)
 {
 	// Add empty objects to the array since we will replace them asynchronously.
 	let placeholder = {
@@ -41,7 +41,15 @@ function UTILS_addElementHashToArray(array, hash, isNewest, updateCallback)
 		"replyTo": null,
 	};
 	// We want to build this backward so that the most recent additions are at the top of the screen.
-	if (isNewest)
+	// If we were given the newer neighbour (only in ordered lists), this goes right after it.
+	let newerIndex = (undefined !== newerHash)
+		? array.findIndex((elt) => (elt.elementHash === newerHash))
+		: -1;
+	if (newerIndex >= 0)
+	{
+		array.splice(newerIndex + 1, 0, placeholder);
+	}
+	else if (isNewest)
 	{
 		array.unshift(placeholder);
 	}
@@ -234,6 +242,60 @@ function API_getPost(hash, forceCache)
 	});
 }
 
+// Resolves many posts in one request, calling onPost(hash, struct) for each post as the server reports it (struct is null on error), in whatever order they resolve.  Returns a promise which resolves once the response is complete (true if every post was reported).  Implementation of this is in GET_PostStructBatch.java, which returns the same struct as API_getPost, one post per line.
+function API_getPostBatch(hashes, forceCache, onPost)
+{
+	return new Promise(resolve => {
+		REST.GET("/server/postStructBatch/" + hashes.join(",") + "/" + (forceCache ? "FORCE" : "OPTIONAL"))
+			.then(result => {
+				if (!result.ok)
+				{
+					throw result.status;
+				}
+				let reader = result.body.getReader();
+				let decoder = new TextDecoder();
+				let buffer = "";
+				let reportedCount = 0;
+				let handleLine = function(line)
+				{
+					// Skip the array brackets and separators since each element is on its own line.
+					line = line.trim();
+					if (line.endsWith(","))
+					{
+						line = line.slice(0, -1);
+					}
+					if ((line.length > 0) && ("[" !== line) && ("]" !== line))
+					{
+						let element = JSON.parse(line);
+						onPost(element["cid"], (200 === element["status"]) ? element["post"] : null);
+						reportedCount += 1;
+					}
+				};
+				let readNext = function()
+				{
+					return reader.read().then(({done, value}) => {
+						if (done)
+						{
+							handleLine(buffer);
+							resolve(reportedCount === hashes.length);
+						}
+						else
+						{
+							buffer += decoder.decode(value, {stream: true});
+							let lines = buffer.split("\n");
+							buffer = lines.pop();
+							lines.forEach(handleLine);
+							return readNext();
+						}
+					});
+				};
+				return readNext();
+			})
+			.catch((errorCode) => resolve(false))
+		;
+	});
+}
+
 // NOTE:  We need to call this "cookie" page to set the cookie to defeat some XSRF cases (we mostly rely on SameSite to make this safe).
 function API_getXsrf()
 {
@@ -109,7 +109,7 @@ public class Cacophony {
 					LongSupplier currentTimeMillisGenerator = () -> System.currentTimeMillis();
 					// Create the default explicit cache manager (could be over-ridden by the interactive server, in its Context).
 					// The default manager runs in synchronous mode, since that makes more sense for command-line usage.
-					ExplicitCacheManager explicitCacheManager = new ExplicitCacheManager(localDataModel, connection, scheduler, logger, currentTimeMillisGenerator, false);
+					ExplicitCacheManager explicitCacheManager = new ExplicitCacheManager(localDataModel, connection, scheduler, logger, currentTimeMillisGenerator, 0);
 					Context context = _createContext(keyName
 							, draftManager
 							, localDataModel
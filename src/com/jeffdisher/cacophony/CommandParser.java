@@ -430,6 +430,22 @@ public class CommandParser
 						, "The maximum size, in bytes, a followee record's video attachment can be before it will be"
 							+ " skipped during automatic caching"
 					)
+					, new ArgParameter("--followeeEvictionPolicy", ParameterType.STRING
+						, "The policy used to choose what to evict when the followee cache needs to shrink (one of"
+							+ " RANDOM, LRU, LFU, GDSF)"
+					)
+					, new ArgParameter("--globalCacheBudgetBytes", ParameterType.LONG_BYTES
+						, "The total size shared by all local caches, in bytes (accepts k, m, g suffixes), where the"
+							+ " followee and explicit cache targets become minimum reservations (0 disables this)"
+					)
+					, new ArgParameter("--prefetchHopDepth", ParameterType.INT
+						, "How many recommendation hops away from your channels and followees the idle-time"
+							+ " prefetcher will warm the explicit cache (0 disables this)"
+					)
+					, new ArgParameter("--prefetchBudgetBytes", ParameterType.LONG_BYTES
+						, "The maximum size, in bytes, the idle-time prefetcher will load into the explicit cache in"
+							+ " a single pass (accepts k, m, g suffixes)"
+					)
 				}
 				, "Updates preferences related to the Cacophony installation."
 				, null, (PreParse[] required, PreParse[] optional, List<ICommand<?>> subElements) ->
@@ -443,6 +459,10 @@ public class CommandParser
 			long followeeThumbnailMaxBytes = _optionalLong(optional[6], 0L);
 			long followeeAudioMaxBytes = _optionalLong(optional[7], 0L);
 			long followeeVideoMaxBytes = _optionalLong(optional[8], 0L);
+			String followeeEvictionPolicy = _optionalString(optional[9]);
+			long globalCacheBudgetBytes = _optionalLong(optional[10], -1L);
+			int prefetchHopDepth = _optionalInt(optional[11], -1);
+			long prefetchBudgetBytes = _optionalLong(optional[12], -1L);
 			return new SetGlobalPrefsCommand(edgeMaxPixels
 					, republishIntervalMillis
 					, explicitCacheTargetBytes
@@ -452,6 +472,10 @@ public class CommandParser
 					, followeeThumbnailMaxBytes
 					, followeeAudioMaxBytes
 					, followeeVideoMaxBytes
+					, followeeEvictionPolicy
+					, globalCacheBudgetBytes
+					, prefetchHopDepth
+					, prefetchBudgetBytes
 			);
 		}),
 		CANONICALIZE_KEY(true, "--canonicalizeKey"
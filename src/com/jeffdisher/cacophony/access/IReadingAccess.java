@@ -2,6 +2,7 @@ package com.jeffdisher.cacophony.access;
 
 import java.util.List;
 
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.IExplicitCacheReading;
 import com.jeffdisher.cacophony.projection.IFavouritesReading;
 import com.jeffdisher.cacophony.projection.IFolloweeReading;
@@ -112,6 +113,13 @@ public interface IReadingAccess extends AutoCloseable, IBasicNetworkOps
 	 */
 	IExplicitCacheReading readableExplicitCache();
 
+	/**
+	 * The access tracker is internally synchronized so it can be updated even when only holding read access.
+	 * 
+	 * @return The shared tracker of which CIDs the user has recently viewed.
+	 */
+	AccessTrackerData accessTracker();
+
 	/**
 	 * Checks the status of the underlying IPFS daemon.
 	 * 
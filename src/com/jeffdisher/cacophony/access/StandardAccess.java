@@ -12,6 +12,7 @@ import com.jeffdisher.cacophony.data.IReadOnlyLocalData;
 import com.jeffdisher.cacophony.data.IReadWriteLocalData;
 import com.jeffdisher.cacophony.data.LocalDataModel;
 import com.jeffdisher.cacophony.data.global.AbstractIndex;
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.ChannelData;
 import com.jeffdisher.cacophony.projection.ExplicitCacheData;
 import com.jeffdisher.cacophony.projection.FavouritesCacheData;
@@ -149,6 +150,7 @@ public class StandardAccess implements IWritingAccess
 	private boolean _writeFavouritesCache;
 	private final ExplicitCacheData _explicitCache;
 	private boolean _didAccessExplicitCache;
+	private final AccessTrackerData _accessTracker;
 
 	private StandardAccess(IConnection connection, INetworkScheduler scheduler, ILogger logger, IReadOnlyLocalData readOnly, IReadWriteLocalData readWrite, String keyName, IpfsKey publicKey)
 	{
@@ -182,6 +184,7 @@ public class StandardAccess implements IWritingAccess
 		_channelData = localIndex;
 		_favouritesCache = favouritesCache;
 		_explicitCache = readOnly.readExplicitCache();
+		_accessTracker = readOnly.readAccessTracker();
 	}
 
 	@Override
@@ -363,6 +366,13 @@ public class StandardAccess implements IWritingAccess
 		return _explicitCache;
 	}
 
+	@Override
+	public AccessTrackerData accessTracker()
+	{
+		Assert.assertTrue(null != _accessTracker);
+		return _accessTracker;
+	}
+
 	@Override
 	public boolean isIpfsOnline()
 	{
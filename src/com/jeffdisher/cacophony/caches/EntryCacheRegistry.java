@@ -1,9 +1,6 @@
 package com.jeffdisher.cacophony.caches;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -15,7 +12,10 @@ import com.jeffdisher.cacophony.utils.Assert;
 
 /**
  * A container of all HandoffConnector instances for entries for the local user and all followees.
- * Also exposes a "combined" connector which contains a union of this information.
+ * Also exposes a "combined" connector which contains a union of this information, ordered by publication time.
+ * The combined connector is a merge of the per-user streams:  each element is inserted at its publication time (in
+ * O(log n)), no matter when it arrives, so posts back-filled by an incremental refresh appear at their place in the
+ * history, not as the newest.  Listeners scrolling back just walk this order backward from where they are.
  * Internally, each call is synchronized (and the connectors all use a common dispatcher), so this can be accessed
  * across the system, concurrently.
  */
@@ -25,15 +25,13 @@ public class EntryCacheRegistry implements IEntryCacheRegistry
 	private final Consumer<Runnable> _dispatcher;
 	// The connectors for entries associated with each user (home and followee), individually.
 	private final Map<IpfsKey, HandoffConnector<IpfsFile, Void>> _perUserConnectors;
-	// The combined connector for the union of all known posts.
-	// Note that this doesn't exist until initializeCombinedView() is called (_bootstrapElements populated before then).
-	private HandoffConnector<IpfsFile, Void> _combinedConnector;
-	// The list of elements added during startup, before initializeCombinedView() is called.  This is so they can be
-	// sorted correctly as the elements are not added to the combined connector in the order they were created or first
-	// seen during start-up.
-	private List<BootstrapTuple> _bootstrapElements;
-	// The refcounts of all of the elements in _combinedConnector (not populated until initializeCombinedView()).
-	private Map<IpfsFile, Integer> _combinedRefCounts;
+	// The combined connector for the union of all known posts, ordered by publication time.
+	// Note that this can't be read until initializeCombinedView() is called (since it is incomplete during start-up).
+	private final HandoffConnector<IpfsFile, Void> _combinedConnector;
+	// The refcounts of all of the elements in _combinedConnector.
+	private final Map<IpfsFile, Integer> _combinedRefCounts;
+	// True until initializeCombinedView() is called.
+	private boolean _isBootstrapping;
 
 	/**
 	 * Creates the registry with the given dispatcher, using it to run changes against the HandofConnector instances
@@ -45,7 +43,9 @@ public class EntryCacheRegistry implements IEntryCacheRegistry
 	{
 		_dispatcher = dispatcher;
 		_perUserConnectors = new HashMap<>();
-		_bootstrapElements = new ArrayList<>();
+		_combinedConnector = new HandoffConnector<IpfsFile, Void>(_dispatcher);
+		_combinedRefCounts = new HashMap<>();
+		_isBootstrapping = true;
 	}
 
 	/**
@@ -69,7 +69,7 @@ public class EntryCacheRegistry implements IEntryCacheRegistry
 	public synchronized void addFolloweeElement(IpfsKey user, IpfsFile elementHash, long publishedSecondsUtc)
 	{
 		_perUserConnectors.get(user).create(elementHash, null);
-		_addCombinedOrBuffer(elementHash, publishedSecondsUtc);
+		_addCombined(elementHash, publishedSecondsUtc);
 	}
 
 	/**
@@ -94,7 +94,7 @@ public class EntryCacheRegistry implements IEntryCacheRegistry
 	public synchronized void addLocalElement(IpfsKey homeUserPublicKey, IpfsFile elementHash, long publishedSecondsUtc)
 	{
 		_perUserConnectors.get(homeUserPublicKey).create(elementHash, null);
-		_addCombinedOrBuffer(elementHash, publishedSecondsUtc);
+		_addCombined(elementHash, publishedSecondsUtc);
 	}
 
 	/**
@@ -152,24 +152,14 @@ public class EntryCacheRegistry implements IEntryCacheRegistry
 	}
 
 	/**
-	 * Ends the bootstrapping phase of the receiver by creating the combined connector, with the time-sorted entries
-	 * from the data fed in during the bootstrap phase.
+	 * Ends the bootstrapping phase of the receiver, making the combined connector available.  Since the combined
+	 * connector is ordered by publication time, the elements fed in during the bootstrap phase are already in order.
 	 * This MUST be called before getCombinedConnector().
 	 */
 	public synchronized void initializeCombinedView()
 	{
-		Assert.assertTrue(null != _bootstrapElements);
-		_combinedConnector = new HandoffConnector<IpfsFile, Void>(_dispatcher);
-		_combinedRefCounts = new HashMap<>();
-		
-		// Sort the list in publication order, then walk it to build the connector and combined refcounts.
-		_bootstrapElements.sort(Comparator.comparingLong((BootstrapTuple tuple) -> tuple.publishedSecondsUtc));
-		for (BootstrapTuple tuple : _bootstrapElements)
-		{
-			_addCombined(tuple.elt);
-		}
-		// Now, complete the bootstrap mode.
-		_bootstrapElements = null;
+		Assert.assertTrue(_isBootstrapping);
+		_isBootstrapping = false;
 	}
 
 	@Override
@@ -179,26 +169,14 @@ public class EntryCacheRegistry implements IEntryCacheRegistry
 	}
 
 	@Override
-	public HandoffConnector<IpfsFile, Void> getCombinedConnector()
+	public synchronized HandoffConnector<IpfsFile, Void> getCombinedConnector()
 	{
-		Assert.assertTrue(null != _combinedConnector);
+		Assert.assertTrue(!_isBootstrapping);
 		return _combinedConnector;
 	}
 
 
-	private void _addCombinedOrBuffer(IpfsFile elt, long publishedSecondsUtc)
-	{
-		if (null != _bootstrapElements)
-		{
-			_bootstrapElements.add(new BootstrapTuple(elt, publishedSecondsUtc));
-		}
-		else
-		{
-			_addCombined(elt);
-		}
-	}
-
-	private void _addCombined(IpfsFile elt)
+	private void _addCombined(IpfsFile elt, long publishedSecondsUtc)
 	{
 		// This may be (1) something we already have referenced or (3) something new.
 		int refCount = 0;
@@ -216,7 +194,7 @@ public class EntryCacheRegistry implements IEntryCacheRegistry
 		_combinedRefCounts.put(elt, refCount + 1);
 		if (shouldCreate)
 		{
-			_combinedConnector.create(elt, null);
+			_combinedConnector.create(elt, null, publishedSecondsUtc);
 		}
 	}
 
@@ -235,7 +213,4 @@ public class EntryCacheRegistry implements IEntryCacheRegistry
 			_combinedConnector.destroy(elt);
 		}
 	}
-
-
-	private static record BootstrapTuple(IpfsFile elt, long publishedSecondsUtc) {}
 }
@@ -1,11 +1,16 @@
 package com.jeffdisher.cacophony.commands;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 import com.jeffdisher.cacophony.types.CacophonyException;
 import com.jeffdisher.cacophony.utils.Assert;
 
 
 /**
  * Describes the asynchronous result of a Command, passing back its result/error and context where it was executed.
+ * The result can either be waited for, with get(), or observed with a completion callback, with registerCompletion().
  * 
  * @param <T> The return type of the command.
  */
@@ -14,6 +19,8 @@ public class FutureCommand<T>
 	public final Context context;
 	private T _result;
 	private CacophonyException _error;
+	// The callbacks to run on completion (null once complete, since later callbacks are run immediately).
+	private List<Consumer<FutureCommand<T>>> _completionCallbacks;
 
 	/**
 	 * Creates the future, with the given context as an attribute which can be pulled from it.
@@ -24,6 +31,7 @@ public class FutureCommand<T>
 	{
 		Assert.assertTrue(null != context);
 		this.context = context;
+		_completionCallbacks = new ArrayList<>();
 	}
 
 	/**
@@ -54,30 +62,85 @@ public class FutureCommand<T>
 	}
 
 	/**
-	 * Sets the future's state to success, notifying anyone blocked.
+	 * Registers a callback to be run once the future completes, instead of blocking a thread in get().  The callback is
+	 * passed this future, so it can call get() (which will not block).
+	 * If the future has already completed, the callback is run immediately, on the calling thread.  Otherwise, it is run
+	 * on the thread which completes the future (typically a CommandRunner thread) so it shouldn't do much work.
+	 * 
+	 * @param callback The callback to run on completion.
+	 */
+	public void registerCompletion(Consumer<FutureCommand<T>> callback)
+	{
+		boolean isComplete;
+		synchronized (this)
+		{
+			isComplete = (null == _completionCallbacks);
+			if (!isComplete)
+			{
+				_completionCallbacks.add(callback);
+			}
+		}
+		if (isComplete)
+		{
+			callback.accept(this);
+		}
+	}
+
+	/**
+	 * Sets the future's state to success, notifying anyone blocked or waiting for completion.
 	 * 
 	 * @param result The result of the command.
 	 */
-	public synchronized void success(T result)
+	public void success(T result)
 	{
-		// Can only be set once and must be valid.
-		Assert.assertTrue(null != result);
-		Assert.assertTrue(null == _result);
-		_result = result;
-		this.notifyAll();
+		List<Consumer<FutureCommand<T>>> callbacks;
+		synchronized (this)
+		{
+			// Can only be set once and must be valid.
+			Assert.assertTrue(null != result);
+			Assert.assertTrue(null == _result);
+			_result = result;
+			callbacks = _complete();
+		}
+		_runCallbacks(callbacks);
 	}
 
 	/**
-	 * Sets the future's state to failure, notifying anyone blocked.
+	 * Sets the future's state to failure, notifying anyone blocked or waiting for completion.
 	 * 
 	 * @param error The error which caused the command to fail.
 	 */
-	public synchronized void failure(CacophonyException error)
+	public void failure(CacophonyException error)
 	{
-		// Can only be set once and must be valid.
-		Assert.assertTrue(null != error);
-		Assert.assertTrue(null == _error);
-		_error = error;
+		List<Consumer<FutureCommand<T>>> callbacks;
+		synchronized (this)
+		{
+			// Can only be set once and must be valid.
+			Assert.assertTrue(null != error);
+			Assert.assertTrue(null == _error);
+			_error = error;
+			callbacks = _complete();
+		}
+		_runCallbacks(callbacks);
+	}
+
+
+	private List<Consumer<FutureCommand<T>>> _complete()
+	{
+		// Called under monitor (and the future can only complete once).
+		Assert.assertTrue(null != _completionCallbacks);
+		List<Consumer<FutureCommand<T>>> callbacks = _completionCallbacks;
+		_completionCallbacks = null;
 		this.notifyAll();
+		return callbacks;
+	}
+
+	private void _runCallbacks(List<Consumer<FutureCommand<T>>> callbacks)
+	{
+		// We run these outside of the monitor since they will call back into get().
+		for (Consumer<FutureCommand<T>> callback : callbacks)
+		{
+			callback.accept(this);
+		}
 	}
 }
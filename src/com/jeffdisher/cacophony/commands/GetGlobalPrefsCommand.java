@@ -19,6 +19,9 @@ public record GetGlobalPrefsCommand() implements ICommand<None>
 			PrefsData prefs = access.readPrefs();
 			log.logOperation("Video preferred bounds: " + prefs.videoEdgePixelMax + " x " + prefs.videoEdgePixelMax);
 			log.logOperation("Followee cache target size: " + MiscHelpers.humanReadableBytes(prefs.followeeCacheTargetBytes));
+			log.logOperation("Followee cache eviction policy: " + prefs.followeeCacheEvictionPolicy);
+			log.logOperation("Global cache budget: " + ((prefs.globalCacheBudgetBytes > 0L) ? MiscHelpers.humanReadableBytes(prefs.globalCacheBudgetBytes) : "disabled"));
+			log.logOperation("Recommendation prefetch: " + ((prefs.prefetchHopDepth > 0) ? (prefs.prefetchHopDepth + " hops, up to " + MiscHelpers.humanReadableBytes(prefs.prefetchBudgetBytes)) : "disabled"));
 			log.logFinish("");
 		}
 		return None.NONE;
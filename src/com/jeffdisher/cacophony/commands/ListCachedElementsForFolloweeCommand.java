@@ -18,6 +18,7 @@ import com.jeffdisher.cacophony.types.IpfsKey;
 import com.jeffdisher.cacophony.types.ProtocolDataException;
 import com.jeffdisher.cacophony.types.UsageException;
 import com.jeffdisher.cacophony.utils.Assert;
+import com.jeffdisher.cacophony.utils.MiscHelpers;
 
 
 public record ListCachedElementsForFolloweeCommand(IpfsKey _followeeKey) implements ICommand<None>
@@ -40,7 +41,7 @@ public record ListCachedElementsForFolloweeCommand(IpfsKey _followeeKey) impleme
 	private void _runCore(ILogger logger, IReadingAccess access) throws IpfsConnectionException, UsageException
 	{
 		IFolloweeReading followees = access.readableFolloweeData();
-		Map<IpfsFile, FollowingCacheElement> cachedElements = followees.snapshotAllElementsForFollowee(_followeeKey);
+		Map<IpfsFile, FollowingCacheElement> cachedElements = followees.readElementsForFollowee(_followeeKey);
 		if (null != cachedElements)
 		{
 			// We know that all the meta-data reachable from this root is cached locally, but not all the leaf data elements, so we will check the FollowRecord.
@@ -58,7 +59,8 @@ public record ListCachedElementsForFolloweeCommand(IpfsKey _followeeKey) impleme
 				throw Assert.unexpected(e);
 			}
 			List<IpfsFile> recordList = records.getRecordList();
-			ILogger log = logger.logStart("Followee has " + recordList.size() + " elements:");
+			long cachedBytes = followees.getCacheSizeBytesForFollowee(_followeeKey);
+			ILogger log = logger.logStart("Followee has " + recordList.size() + " elements (" + MiscHelpers.humanReadableBytes(cachedBytes) + " cached):");
 			for(IpfsFile elementCid : recordList)
 			{
 				FollowingCacheElement element = cachedElements.get(elementCid);
@@ -2,6 +2,7 @@ package com.jeffdisher.cacophony.commands;
 
 import com.jeffdisher.cacophony.access.IWritingAccess;
 import com.jeffdisher.cacophony.commands.results.Incremental;
+import com.jeffdisher.cacophony.logic.CommandHelpers;
 import com.jeffdisher.cacophony.logic.ConcurrentFolloweeRefresher;
 import com.jeffdisher.cacophony.projection.FolloweeData;
 import com.jeffdisher.cacophony.types.ILogger;
@@ -69,7 +70,9 @@ public record RefreshNextFolloweeCommand() implements ICommand<Incremental>
 				, false
 		);
 		
-		// Clean the cache and setup state for the refresh.
+		// Run any pending cache maintenance (normally done in the background, when interactive, so this is usually a
+		// trivial check) and then setup state for the refresh.
+		CommandHelpers.shrinkCacheIfAboveHighWater(logger, access);
 		refresher.setupRefresh(access, followees);
 		return refresher;
 	}
@@ -0,0 +1,168 @@
+package com.jeffdisher.cacophony.commands;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import com.jeffdisher.cacophony.access.IReadingAccess;
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
+import com.jeffdisher.cacophony.projection.CachedRecordInfo;
+import com.jeffdisher.cacophony.types.CacophonyException;
+import com.jeffdisher.cacophony.types.IpfsFile;
+
+
+/**
+ * Wraps ShowPostCommand or ShowPostBatchCommand on behalf of the REST end-points which support conditional requests,
+ * so that the local cache state of the posts is read on the thread running the command, instead of the request thread.
+ * A post's meta-data can never change, so the response is entirely determined by the entries describing which of its
+ * leaves are cached locally (in the record cache, favourites cache, and explicit cache).
+ * Before running _command, the cache state of each of _elementCids is described and passed to _isUnmodified (as null
+ * if any of them isn't known locally).  If that returns true, the caller already has the response so _command is NOT
+ * run and we only record that the user viewed the posts.  Otherwise, _command is run and the cache state is read again
+ * so that the caller knows if the response describes a specific state.
+ */
+public record RevalidatePostsCommand<T extends ICommand.Result>(IpfsFile[] _elementCids, Predicate<String[]> _isUnmodified, ICommand<T> _command) implements ICommand<RevalidatePostsCommand.Revalidated<T>>
+{
+	@Override
+	public Revalidated<T> runInContext(Context context) throws CacophonyException
+	{
+		String[] statesBefore;
+		boolean isUnmodified;
+		try (IReadingAccess access = Context.readAccess(context))
+		{
+			CachedRecordInfo[][] infos = _readLocalInfos(context, access);
+			statesBefore = _describeCacheStates(infos);
+			isUnmodified = _isUnmodified.test(statesBefore);
+			if (isUnmodified)
+			{
+				// The caller already has this exact response so we just need to note that the user viewed these.
+				_recordLocalAccess(context, access.accessTracker(), infos);
+			}
+		}
+		
+		Revalidated<T> result;
+		if (isUnmodified)
+		{
+			result = new Revalidated<>(null, statesBefore);
+		}
+		else
+		{
+			T output = _command.runInContext(context);
+			String[] statesAfter;
+			try (IReadingAccess access = Context.readAccess(context))
+			{
+				statesAfter = _describeCacheStates(_readLocalInfos(context, access));
+			}
+			// We can only say which state the response describes if the command didn't change it.
+			String[] cacheStates = Arrays.equals(statesBefore, statesAfter)
+					? statesAfter
+					: null
+			;
+			result = new Revalidated<>(output, cacheStates);
+		}
+		return result;
+	}
+
+
+	private CachedRecordInfo[][] _readLocalInfos(Context context, IReadingAccess access)
+	{
+		// We read the same caches the post commands consult.
+		CachedRecordInfo[][] infos = new CachedRecordInfo[_elementCids.length][];
+		for (int i = 0; i < _elementCids.length; ++i)
+		{
+			IpfsFile elementCid = _elementCids[i];
+			infos[i] = new CachedRecordInfo[] {
+					(null != context.recordCache) ? context.recordCache.get(elementCid) : null,
+					access.readableFavouritesCache().getRecordInfo(elementCid),
+					access.readableExplicitCache().getRecordInfo(elementCid),
+			};
+		}
+		return infos;
+	}
+
+	private static String[] _describeCacheStates(CachedRecordInfo[][] infos)
+	{
+		String[] states = new String[infos.length];
+		boolean isKnown = true;
+		for (int i = 0; isKnown && (i < infos.length); ++i)
+		{
+			states[i] = _describeCacheState(infos[i]);
+			isKnown = (null != states[i]);
+		}
+		return isKnown
+				? states
+				: null
+		;
+	}
+
+	private static String _describeCacheState(CachedRecordInfo[] infos)
+	{
+		String description = null;
+		if ((null != infos[0]) || (null != infos[1]) || (null != infos[2]))
+		{
+			StringBuilder state = new StringBuilder();
+			for (CachedRecordInfo info : infos)
+			{
+				state.append((null != info)
+						? ("|" + info.thumbnailCid() + "," + info.videoCid() + "," + info.audioCid())
+						: "|-"
+				);
+			}
+			description = state.toString();
+		}
+		return description;
+	}
+
+	private void _recordLocalAccess(Context context, AccessTrackerData tracker, CachedRecordInfo[][] infos)
+	{
+		// This is the same as what the post commands record, except that we don't know which of the entries they would
+		// use, so we record the leaves of all of them.
+		long nowMillis = context.currentTimeMillisGenerator.getAsLong();
+		for (int i = 0; i < _elementCids.length; ++i)
+		{
+			tracker.recordAccess(_elementCids[i], nowMillis);
+			for (CachedRecordInfo info : infos[i])
+			{
+				if (null != info)
+				{
+					for (IpfsFile leaf : new IpfsFile[] { info.thumbnailCid(), info.videoCid(), info.audioCid() })
+					{
+						if (null != leaf)
+						{
+							tracker.recordAccess(leaf, nowMillis);
+						}
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * The result of the revalidation.
+	 * The result is null if _isUnmodified returned true, meaning the wrapped command wasn't run.
+	 * The cacheStates describe the state of each post, in the order they were requested, and are null if the response
+	 * doesn't describe a specific state (some post wasn't known locally or the wrapped command changed the state).
+	 */
+	public static record Revalidated<T extends ICommand.Result>(T result, String[] cacheStates) implements ICommand.Result
+	{
+		@Override
+		public IpfsFile getIndexToPublish()
+		{
+			// This command is read-only.
+			return null;
+		}
+		@Override
+		public void writeHumanReadable(PrintStream output)
+		{
+			if (null != this.result)
+			{
+				this.result.writeHumanReadable(output);
+			}
+			else
+			{
+				output.println("Not modified");
+			}
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.jeffdisher.cacophony.commands;
 
 import com.jeffdisher.cacophony.access.IWritingAccess;
 import com.jeffdisher.cacophony.commands.results.None;
+import com.jeffdisher.cacophony.logic.CacheAlgorithm;
 import com.jeffdisher.cacophony.projection.PrefsData;
 import com.jeffdisher.cacophony.types.ILogger;
 import com.jeffdisher.cacophony.types.IpfsConnectionException;
@@ -18,6 +19,10 @@ public record SetGlobalPrefsCommand(int _edgeMax
 		, long _followeeThumbnailMaxBytes
 		, long _followeeAudioMaxBytes
 		, long _followeeVideoMaxBytes
+		, String _followeeEvictionPolicy
+		, long _globalCacheBudgetBytes
+		, int _prefetchHopDepth
+		, long _prefetchBudgetBytes
 ) implements ICommand<None>
 {
 	@Override
@@ -81,6 +86,33 @@ public record SetGlobalPrefsCommand(int _edgeMax
 			prefs.followeeRecordVideoMaxBytes = _followeeVideoMaxBytes;
 			didChange = true;
 		}
+		if (null != _followeeEvictionPolicy)
+		{
+			CacheAlgorithm.EvictionPolicy policy = CacheAlgorithm.EvictionPolicy.fromName(_followeeEvictionPolicy);
+			if (null == policy)
+			{
+				throw new UsageException("Unknown eviction policy: \"" + _followeeEvictionPolicy + "\"");
+			}
+			prefs.followeeCacheEvictionPolicy = policy;
+			didChange = true;
+		}
+		// Since 0 disables the global budget, negative values are how "unchanged" is expressed, here.
+		if (_globalCacheBudgetBytes >= 0L)
+		{
+			prefs.globalCacheBudgetBytes = _globalCacheBudgetBytes;
+			didChange = true;
+		}
+		// The same applies to the prefetch depth, since 0 disables prefetching.
+		if (_prefetchHopDepth >= 0)
+		{
+			prefs.prefetchHopDepth = _prefetchHopDepth;
+			didChange = true;
+		}
+		if (_prefetchBudgetBytes >= 0L)
+		{
+			prefs.prefetchBudgetBytes = _prefetchBudgetBytes;
+			didChange = true;
+		}
 		if (didChange)
 		{
 			access.writePrefs(prefs);
@@ -93,6 +125,9 @@ public record SetGlobalPrefsCommand(int _edgeMax
 			log.logOperation("Followee record thumbnail max bytes: " + MiscHelpers.humanReadableBytes(prefs.followeeRecordThumbnailMaxBytes));
 			log.logOperation("Followee record audio max bytes: " + MiscHelpers.humanReadableBytes(prefs.followeeRecordAudioMaxBytes));
 			log.logOperation("Followee record video max bytes: " + MiscHelpers.humanReadableBytes(prefs.followeeRecordVideoMaxBytes));
+			log.logOperation("Followee cache eviction policy: " + prefs.followeeCacheEvictionPolicy);
+			log.logOperation("Global cache budget: " + ((prefs.globalCacheBudgetBytes > 0L) ? MiscHelpers.humanReadableBytes(prefs.globalCacheBudgetBytes) : "disabled"));
+			log.logOperation("Recommendation prefetch: " + ((prefs.prefetchHopDepth > 0) ? (prefs.prefetchHopDepth + " hops, up to " + MiscHelpers.humanReadableBytes(prefs.prefetchBudgetBytes)) : "disabled"));
 			log.logFinish("Update saved");
 		}
 		else
@@ -0,0 +1,171 @@
+package com.jeffdisher.cacophony.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.jeffdisher.cacophony.access.IReadingAccess;
+import com.jeffdisher.cacophony.commands.results.None;
+import com.jeffdisher.cacophony.data.global.AbstractRecord;
+import com.jeffdisher.cacophony.logic.ExplicitCacheManager;
+import com.jeffdisher.cacophony.projection.CachedRecordInfo;
+import com.jeffdisher.cacophony.scheduler.FutureRead;
+import com.jeffdisher.cacophony.types.CacophonyException;
+import com.jeffdisher.cacophony.types.FailedDeserializationException;
+import com.jeffdisher.cacophony.types.IpfsConnectionException;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.types.ProtocolDataException;
+import com.jeffdisher.cacophony.utils.Assert;
+
+
+/**
+ * The batched version of ShowPostCommand, used by the web UI to resolve all of the posts it is about to display in one
+ * request.
+ * Each post is handed to _resultConsumer as soon as it is resolved, either with its details or with the exception which
+ * ShowPostCommand would have thrown for it, so one bad post doesn't fail the whole batch.  The consumer is always
+ * called on the thread running the command, once for every CID, but NOT necessarily in the order of _elementCids.
+ * Posts which are already available locally (in the record cache, favourites cache, or explicit cache) are resolved
+ * first, all under a single read access with their reads issued in parallel.  The remaining posts (including those
+ * with uncached leaves, if _forceCache is set) are requested from the explicit cache all at once, so their network
+ * loads proceed in parallel, and are then reported in order as each one finishes.  We can't hold the read access while
+ * waiting for those, since the explicit cache needs write access to store them.
+ */
+public record ShowPostBatchCommand(IpfsFile[] _elementCids, boolean _forceCache, Consumer<ShowPostBatchCommand.PostResult> _resultConsumer) implements ICommand<None>
+{
+	@Override
+	public None runInContext(Context context)
+	{
+		// We don't report the local results until we release the access, since the consumer may block on the client.
+		List<PostResult> localResults = new ArrayList<>();
+		boolean[] needsNetwork = new boolean[_elementCids.length];
+		try (IReadingAccess access = Context.readAccess(context))
+		{
+			long nowMillis = context.currentTimeMillisGenerator.getAsLong();
+			// Start all of the local reads before waiting on any of them.
+			CachedRecordInfo[] infos = new CachedRecordInfo[_elementCids.length];
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			FutureRead<AbstractRecord>[] reads = new FutureRead[_elementCids.length];
+			for (int i = 0; i < _elementCids.length; ++i)
+			{
+				infos[i] = _findLocalInfo(context, access, _elementCids[i]);
+				if (null != infos[i])
+				{
+					reads[i] = access.loadCached(infos[i].streamCid(), AbstractRecord.DESERIALIZER);
+				}
+				else
+				{
+					needsNetwork[i] = true;
+				}
+			}
+			for (int i = 0; i < _elementCids.length; ++i)
+			{
+				if (null != reads[i])
+				{
+					PostResult result;
+					try
+					{
+						ShowPostCommand.PostDetails post = ShowPostCommand.buildPostDetails(_elementCids[i], reads[i].get(), infos[i]);
+						// If this is a partially-cached post and we were asked to force the cache, we need the explicit cache.
+						if (_forceCache && post.hasDataToCache())
+						{
+							needsNetwork[i] = true;
+							result = null;
+						}
+						else
+						{
+							ShowPostCommand.recordAccess(access.accessTracker(), nowMillis, post);
+							result = new PostResult(_elementCids[i], post, null);
+						}
+					}
+					catch (FailedDeserializationException e)
+					{
+						// If this is something in one of our caches, we already must have deserialized it in this past.
+						throw Assert.unexpected(e);
+					}
+					catch (IpfsConnectionException e)
+					{
+						result = new PostResult(_elementCids[i], null, e);
+					}
+					if (null != result)
+					{
+						localResults.add(result);
+					}
+				}
+			}
+		}
+		
+		// Request everything else from the explicit cache before waiting on any of it, so the loads run in parallel.
+		ExplicitCacheManager.FutureRecord[] records = new ExplicitCacheManager.FutureRecord[_elementCids.length];
+		for (int i = 0; i < _elementCids.length; ++i)
+		{
+			if (needsNetwork[i])
+			{
+				records[i] = context.explicitCacheManager.loadRecord(_elementCids[i], _forceCache);
+			}
+		}
+		for (PostResult result : localResults)
+		{
+			_resultConsumer.accept(result);
+		}
+		for (int i = 0; i < _elementCids.length; ++i)
+		{
+			if (null != records[i])
+			{
+				PostResult result;
+				try
+				{
+					CachedRecordInfo info = records[i].get();
+					result = new PostResult(_elementCids[i], _readExplicitlyCached(context, _elementCids[i], info), null);
+				}
+				catch (ProtocolDataException | IpfsConnectionException e)
+				{
+					result = new PostResult(_elementCids[i], null, e);
+				}
+				_resultConsumer.accept(result);
+			}
+		}
+		return None.NONE;
+	}
+
+
+	private static ShowPostCommand.PostDetails _readExplicitlyCached(Context context, IpfsFile elementCid, CachedRecordInfo info) throws IpfsConnectionException
+	{
+		// Everything in the explicit cache is cached, so this is just a local read.
+		try (IReadingAccess access = Context.readAccess(context))
+		{
+			AbstractRecord record = access.loadCached(info.streamCid(), AbstractRecord.DESERIALIZER).get();
+			ShowPostCommand.PostDetails post = ShowPostCommand.buildPostDetails(elementCid, record, info);
+			ShowPostCommand.recordAccess(access.accessTracker(), context.currentTimeMillisGenerator.getAsLong(), post);
+			return post;
+		}
+		catch (FailedDeserializationException e)
+		{
+			// The explicit cache already deserialized this when loading it.
+			throw Assert.unexpected(e);
+		}
+	}
+
+	private static CachedRecordInfo _findLocalInfo(Context context, IReadingAccess access, IpfsFile elementCid)
+	{
+		// We prefer the caches which are known to have everything cached, only using the record cache as a fallback
+		// since it might only have the meta-data.
+		CachedRecordInfo info = access.readableFavouritesCache().getRecordInfo(elementCid);
+		if (null == info)
+		{
+			info = access.readableExplicitCache().getRecordInfo(elementCid);
+		}
+		if ((null == info) && (null != context.recordCache))
+		{
+			info = context.recordCache.get(elementCid);
+		}
+		return info;
+	}
+
+
+	/**
+	 * The result of resolving a single post in the batch.  Exactly one of post or error will be non-null.
+	 */
+	public static record PostResult(IpfsFile elementCid, ShowPostCommand.PostDetails post, CacophonyException error)
+	{
+	}
+}
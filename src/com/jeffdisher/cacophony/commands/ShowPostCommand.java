@@ -6,6 +6,7 @@ import com.jeffdisher.cacophony.access.IReadingAccess;
 import com.jeffdisher.cacophony.access.IWritingAccess;
 import com.jeffdisher.cacophony.data.global.AbstractRecord;
 import com.jeffdisher.cacophony.logic.LeafFinder;
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.CachedRecordInfo;
 import com.jeffdisher.cacophony.projection.IFavouritesReading;
 import com.jeffdisher.cacophony.types.FailedDeserializationException;
@@ -26,16 +27,13 @@ public record ShowPostCommand(IpfsFile _elementCid, boolean _forceCache) impleme
 	@Override
 	public PostDetails runInContext(Context context) throws IpfsConnectionException, KeyException, ProtocolDataException
 	{
+		// Note that each path records the view of the post it returns (and any leaves it hands back), within the access
+		// it used to build it, so the cache policies can favour them.
 		PostDetails post = null;
 		// First, check if we have a record cache and if it contains this.
 		if (null != context.recordCache)
 		{
 			post = _checkKnownCache(context);
-			// If we found the post, we want to force cached data, and we know that this post isn't cached, ignore the non-cached reference.
-			if ((null != post) && _forceCache && post.hasDataToCache)
-			{
-				post = null;
-			}
 		}
 		
 		// If we didn't have a cache or didn't find it, try the expensive path through the explicit cache.
@@ -43,22 +41,62 @@ public record ShowPostCommand(IpfsFile _elementCid, boolean _forceCache) impleme
 		{
 			post = _checkHeavyCaches(context);
 		}
-		else if (post.hasDataToCache)
+		Assert.assertTrue(null != post);
+		return post;
+	}
+
+	/**
+	 * Builds the details of a post from its record and the description of what we have cached for it.
+	 * 
+	 * @param elementCid The CID of the record.
+	 * @param record The deserialized record.
+	 * @param info The information about what parts of the record are cached locally.
+	 * @return The details of the post.
+	 */
+	public static PostDetails buildPostDetails(IpfsFile elementCid, AbstractRecord record, CachedRecordInfo info)
+	{
+		// We will say that the post has data to cache if we determine that it has a thumbnail, video, or audio leaf,
+		// but we don't have the associated CID for that (since that means it is referenced in the meta-data, but not
+		// present in the local cache).
+		LeafFinder finder = LeafFinder.parseRecord(record);
+		boolean hasThumb = (null != finder.thumbnail);
+		boolean hasVideo = (finder.sortedVideos.length > 0);
+		boolean hasAudio = (null != finder.audio);
+		boolean hasDataToCache = (hasThumb != (null != info.thumbnailCid()))
+				|| (hasAudio != (null != info.audioCid()))
+				|| (hasVideo != (null != info.videoCid()))
+		;
+		return new PostDetails(elementCid
+				, hasDataToCache
+				, record.getName()
+				, record.getDescription()
+				, record.getPublishedSecondsUtc()
+				, record.getDiscussionUrl()
+				, record.getPublisherKey()
+				, record.getReplyTo()
+				, info.thumbnailCid()
+				, info.videoCid()
+				, info.audioCid()
+		);
+	}
+
+	/**
+	 * Notes that the user viewed the given post, and any leaves we handed back, so the cache policies can favour them.
+	 * 
+	 * @param tracker The access tracker to update.
+	 * @param nowMillis The current time, in milliseconds.
+	 * @param post The post which was viewed.
+	 */
+	public static void recordAccess(AccessTrackerData tracker, long nowMillis, PostDetails post)
+	{
+		tracker.recordAccess(post.elementCid, nowMillis);
+		for (IpfsFile leaf : new IpfsFile[] { post.cachedThumbnailCid, post.cachedVideoCid, post.cachedAudioCid })
 		{
-			// See if we can override this with a more concretely cached element from the explicit cache.
-			CachedRecordInfo existingInfo = context.explicitCacheManager.getExistingRecord(_elementCid);
-			// This can be null since we are just checking if it already has the info.
-			if (null != existingInfo)
+			if (null != leaf)
 			{
-				try (IReadingAccess access = Context.readAccess(context))
-				{
-					post = _buildDetailsWithCachedInfo(access, existingInfo);
-				}
-				// (if not, we will just default to the non-cached version).
+				tracker.recordAccess(leaf, nowMillis);
 			}
 		}
-		Assert.assertTrue(null != post);
-		return post;
 	}
 
 
@@ -73,6 +111,29 @@ public record ShowPostCommand(IpfsFile _elementCid, boolean _forceCache) impleme
 			try (IReadingAccess access = Context.readAccess(context))
 			{
 				post = _buildDetailsWithCachedInfo(access, info);
+				if (post.hasDataToCache)
+				{
+					if (_forceCache)
+					{
+						// We want to force cached data, and we know that this post isn't cached, so ignore the non-cached reference.
+						post = null;
+					}
+					else
+					{
+						// See if we can override this with a more concretely cached element from the explicit cache.
+						CachedRecordInfo existingInfo = access.readableExplicitCache().getRecordInfo(_elementCid);
+						// This can be null since we are just checking if it already has the info.
+						if (null != existingInfo)
+						{
+							post = _buildDetailsWithCachedInfo(access, existingInfo);
+						}
+						// (if not, we will just default to the non-cached version).
+					}
+				}
+				if (null != post)
+				{
+					recordAccess(access.accessTracker(), context.currentTimeMillisGenerator.getAsLong(), post);
+				}
 			}
 		}
 		return post;
@@ -86,6 +147,10 @@ public record ShowPostCommand(IpfsFile _elementCid, boolean _forceCache) impleme
 			// We will check the favourites cache here, too, as the explicit cache MUST be last.
 			// (we could use a read-only pass to check the favourites cache but no point in reading twice).
 			post = _checkFavouritesCache(access);
+			if (null != post)
+			{
+				recordAccess(access.accessTracker(), context.currentTimeMillisGenerator.getAsLong(), post);
+			}
 		}
 		
 		if (null == post)
@@ -117,7 +182,9 @@ public record ShowPostCommand(IpfsFile _elementCid, boolean _forceCache) impleme
 		try (IReadingAccess access = Context.readAccess(context))
 		{
 			// Everything in the explicit cache is cached.
-			return _buildDetailsWithCachedInfo(access, info);
+			PostDetails post = _buildDetailsWithCachedInfo(access, info);
+			recordAccess(access.accessTracker(), context.currentTimeMillisGenerator.getAsLong(), post);
+			return post;
 		}
 	}
 
@@ -133,29 +200,7 @@ public record ShowPostCommand(IpfsFile _elementCid, boolean _forceCache) impleme
 			// If this is something in one of our caches, we already must have deserialized it in this past.
 			throw Assert.unexpected(e);
 		}
-		// We will say that the post has data to cache if we determine that it has a thumbnail, video, or audio leaf,
-		// but we don't have the associated CID for that (since that means it is referenced in the meta-data, but not
-		// present in the local cache).
-		LeafFinder finder = LeafFinder.parseRecord(record);
-		boolean hasThumb = (null != finder.thumbnail);
-		boolean hasVideo = (finder.sortedVideos.length > 0);
-		boolean hasAudio = (null != finder.audio);
-		boolean hasDataToCache = (hasThumb != (null != info.thumbnailCid()))
-				|| (hasAudio != (null != info.audioCid()))
-				|| (hasVideo != (null != info.videoCid()))
-		;
-		return new PostDetails(_elementCid
-				, hasDataToCache
-				, record.getName()
-				, record.getDescription()
-				, record.getPublishedSecondsUtc()
-				, record.getDiscussionUrl()
-				, record.getPublisherKey()
-				, record.getReplyTo()
-				, info.thumbnailCid()
-				, info.videoCid()
-				, info.audioCid()
-		);
+		return buildPostDetails(_elementCid, record, info);
 	}
 
 
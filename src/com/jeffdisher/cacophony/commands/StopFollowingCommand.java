@@ -56,7 +56,7 @@ public record StopFollowingCommand(IpfsKey _publicKey) implements ICommand<None>
 	}
 
 
-	private ConcurrentFolloweeRefresher _setup(ILogger logger, IWritingAccess access) throws IpfsConnectionException, UsageException
+	private ConcurrentFolloweeRefresher _setup(ILogger logger, IWritingAccess access) throws UsageException
 	{
 		FolloweeData followees = access.writableFolloweeData();
 		IpfsFile lastRoot = followees.getLastFetchedRootForFollowee(_publicKey);
@@ -72,7 +72,7 @@ public record StopFollowingCommand(IpfsKey _publicKey) implements ICommand<None>
 				, true
 		);
 		
-		// Clean the cache and setup state for the refresh.
+		// Setup state for the refresh (we don't need cache maintenance since this will only shrink the cache).
 		refresher.setupRefresh(access, followees);
 		return refresher;
 	}
@@ -1,5 +1,6 @@
 package com.jeffdisher.cacophony.data;
 
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.ChannelData;
 import com.jeffdisher.cacophony.projection.ExplicitCacheData;
 import com.jeffdisher.cacophony.projection.FavouritesCacheData;
@@ -45,6 +46,13 @@ public interface IReadOnlyLocalData extends AutoCloseable
 	 * @return The explicit cache.
 	 */
 	ExplicitCacheData readExplicitCache();
+	/**
+	 * Note that the access tracker is internally synchronized and is expected to be updated, even when only read.  Its
+	 * updates are persisted whenever something else causes the local data to be written-back.
+	 * 
+	 * @return The access tracker.
+	 */
+	AccessTrackerData readAccessTracker();
 	/**
 	 * We implement AudoCloseable so we can use the try-with-resources idiom but we have no need for the exception so
 	 * we override the close() not to throw it.
@@ -1,5 +1,6 @@
 package com.jeffdisher.cacophony.data;
 
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.ChannelData;
 import com.jeffdisher.cacophony.projection.ExplicitCacheData;
 import com.jeffdisher.cacophony.projection.FavouritesCacheData;
@@ -26,11 +27,12 @@ public class LoadedStorage implements IReadWriteLocalData
 	 * @param globalPrefs The preferences.
 	 * @param favouritesCache The favourites data.
 	 * @param explicitCache The explicit cache.
+	 * @param accessTracker The access tracker.
 	 * @return A read-only view of the storage.
 	 */
-	public static IReadOnlyLocalData openReadOnly(UnlockRead readLock, ChannelData localIndex, PinCacheData globalPinCache, FolloweeData followIndex, PrefsData globalPrefs, FavouritesCacheData favouritesCache, ExplicitCacheData explicitCache)
+	public static IReadOnlyLocalData openReadOnly(UnlockRead readLock, ChannelData localIndex, PinCacheData globalPinCache, FolloweeData followIndex, PrefsData globalPrefs, FavouritesCacheData favouritesCache, ExplicitCacheData explicitCache, AccessTrackerData accessTracker)
 	{
-		return new LoadedStorage(readLock, null, localIndex, globalPinCache, followIndex, globalPrefs, favouritesCache, explicitCache);
+		return new LoadedStorage(readLock, null, localIndex, globalPinCache, followIndex, globalPrefs, favouritesCache, explicitCache, accessTracker);
 	}
 
 	/**
@@ -43,11 +45,12 @@ public class LoadedStorage implements IReadWriteLocalData
 	 * @param globalPrefs The preferences.
 	 * @param favouritesCache The favourites data.
 	 * @param explicitCache The explicit cache.
+	 * @param accessTracker The access tracker.
 	 * @return A read-write view of the storage.
 	 */
-	public static IReadWriteLocalData openReadWrite(UnlockWrite writeLock, ChannelData localIndex, PinCacheData globalPinCache, FolloweeData followIndex, PrefsData globalPrefs, FavouritesCacheData favouritesCache, ExplicitCacheData explicitCache)
+	public static IReadWriteLocalData openReadWrite(UnlockWrite writeLock, ChannelData localIndex, PinCacheData globalPinCache, FolloweeData followIndex, PrefsData globalPrefs, FavouritesCacheData favouritesCache, ExplicitCacheData explicitCache, AccessTrackerData accessTracker)
 	{
-		return new LoadedStorage(null, writeLock, localIndex, globalPinCache, followIndex, globalPrefs, favouritesCache, explicitCache);
+		return new LoadedStorage(null, writeLock, localIndex, globalPinCache, followIndex, globalPrefs, favouritesCache, explicitCache, accessTracker);
 	}
 
 
@@ -65,8 +68,9 @@ public class LoadedStorage implements IReadWriteLocalData
 	private boolean _changed_favouritesCache;
 	private ExplicitCacheData _explicitCache;
 	private boolean _changed_explicitCache;
+	private AccessTrackerData _accessTracker;
 
-	private LoadedStorage(UnlockRead readLock, UnlockWrite writeLock, ChannelData localIndex, PinCacheData globalPinCache, FolloweeData followIndex, PrefsData globalPrefs, FavouritesCacheData favouritesCache, ExplicitCacheData explicitCache)
+	private LoadedStorage(UnlockRead readLock, UnlockWrite writeLock, ChannelData localIndex, PinCacheData globalPinCache, FolloweeData followIndex, PrefsData globalPrefs, FavouritesCacheData favouritesCache, ExplicitCacheData explicitCache, AccessTrackerData accessTracker)
 	{
 		_readLock = readLock;
 		_writeLock = writeLock;
@@ -78,6 +82,7 @@ public class LoadedStorage implements IReadWriteLocalData
 		_globalPrefs = globalPrefs;
 		_favouritesCache = favouritesCache;
 		_explicitCache = explicitCache;
+		_accessTracker = accessTracker;
 	}
 
 	@Override
@@ -122,6 +127,13 @@ public class LoadedStorage implements IReadWriteLocalData
 		return _explicitCache;
 	}
 
+	@Override
+	public AccessTrackerData readAccessTracker()
+	{
+		Assert.assertTrue(_isOpen);
+		return _accessTracker;
+	}
+
 	@Override
 	public void close()
 	{
@@ -17,6 +17,7 @@ import com.jeffdisher.cacophony.data.local.v3.OpcodeContextV3;
 import com.jeffdisher.cacophony.data.local.v4.FolloweeLoader;
 import com.jeffdisher.cacophony.data.local.v4.OpcodeCodec;
 import com.jeffdisher.cacophony.data.local.v4.OpcodeContext;
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.ChannelData;
 import com.jeffdisher.cacophony.projection.ExplicitCacheData;
 import com.jeffdisher.cacophony.projection.FavouritesCacheData;
@@ -76,6 +77,7 @@ public class LocalDataModel
 						, FolloweeData.createEmpty()
 						, new FavouritesCacheData()
 						, new ExplicitCacheData()
+						, new AccessTrackerData()
 				);
 			}
 			catch (IOException e)
@@ -147,12 +149,14 @@ public class LocalDataModel
 					, new FolloweeLoader(followees)
 					, new FavouritesCacheData()
 					, new ExplicitCacheData()
+					, new AccessTrackerData()
 			);
 			OpcodeCodec.decodeWholeStream(opcodeLog, context);
 			ChannelData channels = context.channelData();
 			PrefsData prefs = context.prefs();
 			FavouritesCacheData favouritesCache = context.favouritesCache();
 			ExplicitCacheData explicitCache = context.explicitCache();
+			AccessTrackerData accessTracker = context.accessTracker();
 			Set<String> channelKeyNames = channels.getKeyNames();
 			IpfsFile[] homeRoots = channelKeyNames.stream()
 					.map((String channelKeyName) -> channels.getLastPublishedIndex(channelKeyName))
@@ -166,6 +170,7 @@ public class LocalDataModel
 					, followees
 					, favouritesCache
 					, explicitCache
+					, accessTracker
 			);
 		}
 		catch (IOException e)
@@ -184,7 +189,7 @@ public class LocalDataModel
 		}
 		for (IpfsKey key : followees.getAllKnownFollowees())
 		{
-			builder.addFollowee(followees.getLastFetchedRootForFollowee(key), followees.snapshotAllElementsForFollowee(key));
+			builder.addFollowee(followees.getLastFetchedRootForFollowee(key), followees.readElementsForFollowee(key));
 		}
 		builder.addFavourites(favouritesCache);
 		builder.addExplicitCache(explicitCache);
@@ -227,7 +232,7 @@ public class LocalDataModel
 					// Load the records element so we can access the raw list of posts.
 					AbstractIndex index = scheduler.readData(followees.getLastFetchedRootForFollowee(followeeKey), AbstractIndex.DESERIALIZER).get();
 					AbstractRecords records = scheduler.readData(index.recordsCid, AbstractRecords.DESERIALIZER).get();
-					Map<IpfsFile, FollowingCacheElement> map = followees.snapshotAllElementsForFollowee(followeeKey);
+					Map<IpfsFile, FollowingCacheElement> map = followees.readElementsForFollowee(followeeKey);
 					for (IpfsFile cid : records.getRecordList())
 					{
 						// We are just looking at these to add the trivial records (those without pinned leaves).
@@ -270,7 +275,8 @@ public class LocalDataModel
 				
 			}
 			
-			_writeToDisk(fileSystem, channels, prefs, followees, favouritesCache, explicitCache);
+			// V3 had no access tracking so we start with an empty tracker.
+			_writeToDisk(fileSystem, channels, prefs, followees, favouritesCache, explicitCache, new AccessTrackerData());
 		}
 		catch (IOException e)
 		{
@@ -287,6 +293,7 @@ public class LocalDataModel
 	private final FolloweeData _followIndex;
 	private final FavouritesCacheData _favouritesCache;
 	private final ExplicitCacheData _explicitCache;
+	private final AccessTrackerData _accessTracker;
 	private final ReadWriteLock _readWriteLock;
 
 	private LocalDataModel(IConfigFileSystem fileSystem
@@ -296,6 +303,7 @@ public class LocalDataModel
 			, FolloweeData followIndex
 			, FavouritesCacheData favouritesCache
 			, ExplicitCacheData explicitCache
+			, AccessTrackerData accessTracker
 	)
 	{
 		_fileSystem = fileSystem;
@@ -305,6 +313,7 @@ public class LocalDataModel
 		_followIndex = followIndex;
 		_favouritesCache = favouritesCache;
 		_explicitCache = explicitCache;
+		_accessTracker = accessTracker;
 		_readWriteLock = new ReentrantReadWriteLock();
 	}
 
@@ -318,7 +327,7 @@ public class LocalDataModel
 	{
 		Lock lock = _readWriteLock.readLock();
 		lock.lock();
-		return LoadedStorage.openReadOnly(new ReadLock(lock), _localIndex, _globalPinCache, _followIndex, _globalPrefs, _favouritesCache, _explicitCache);
+		return LoadedStorage.openReadOnly(new ReadLock(lock), _localIndex, _globalPinCache, _followIndex, _globalPrefs, _favouritesCache, _explicitCache, _accessTracker);
 	}
 
 	/**
@@ -341,6 +350,7 @@ public class LocalDataModel
 				, _followIndex
 				, _favouritesCache
 				, _explicitCache
+				, _accessTracker
 		);
 	}
 
@@ -348,7 +358,7 @@ public class LocalDataModel
 	{
 		Lock lock = _readWriteLock.writeLock();
 		lock.lock();
-		return LoadedStorage.openReadWrite(new WriteLock(lock), _localIndex, _globalPinCache, _followIndex, _globalPrefs, _favouritesCache, _explicitCache);
+		return LoadedStorage.openReadWrite(new WriteLock(lock), _localIndex, _globalPinCache, _followIndex, _globalPrefs, _favouritesCache, _explicitCache, _accessTracker);
 	}
 
 	private static void _writeToDisk(IConfigFileSystem fileSystem
@@ -357,6 +367,7 @@ public class LocalDataModel
 			, FolloweeData followIndex
 			, FavouritesCacheData favouritesCache
 			, ExplicitCacheData explicitCache
+			, AccessTrackerData accessTracker
 	) throws IOException
 	{
 		// We will serialize directly to the file.  If there are any exceptions, we won't reach the commit.
@@ -369,6 +380,7 @@ public class LocalDataModel
 				followIndex.serializeToOpcodeWriter(writer);
 				favouritesCache.serializeToOpcodeWriter(writer);
 				explicitCache.serializeToOpcodeWriter(writer);
+				accessTracker.serializeToOpcodeWriter(writer);
 			}
 			atomic.commit();
 		}
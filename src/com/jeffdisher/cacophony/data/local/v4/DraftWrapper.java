@@ -137,7 +137,7 @@ public class DraftWrapper implements IDraftWrapper
 	}
 
 	@Override
-	public synchronized InputStream readOriginalVideo()
+	public synchronized FileInputStream readOriginalVideo()
 	{
 		return _readCase(_originalTracking);
 	}
@@ -155,7 +155,7 @@ public class DraftWrapper implements IDraftWrapper
 	}
 
 	@Override
-	public synchronized InputStream readProcessedVideo()
+	public synchronized FileInputStream readProcessedVideo()
 	{
 		return _readCase(_processedTracking);
 	}
@@ -173,7 +173,7 @@ public class DraftWrapper implements IDraftWrapper
 	}
 
 	@Override
-	public synchronized InputStream readAudio()
+	public synchronized FileInputStream readAudio()
 	{
 		return _readCase(_audioTracking);
 	}
@@ -216,7 +216,7 @@ public class DraftWrapper implements IDraftWrapper
 		return new File(_directory, JSON_DRAFT_NAME);
 	}
 
-	private InputStream _readCase(ReferenceTuple tracking)
+	private FileInputStream _readCase(ReferenceTuple tracking)
 	{
 		while (null != tracking.writer)
 		{
@@ -230,14 +230,14 @@ public class DraftWrapper implements IDraftWrapper
 				throw Assert.unexpected(e);
 			}
 		}
-		InputStream stream = null;
+		FileInputStream stream = null;
 		File file = _existingFile(tracking);
 		// We want to return null on missing file, not throw, since some cases use function objects to access this.
 		if (null != file)
 		{
 			try
 			{
-				stream = new ClosingInputStream(new FileInputStream(file), () -> {
+				stream = new ClosingInputStream(file, () -> {
 					tracking.readerCount -= 1;
 					// Make sure this didn't go negative.
 					Assert.assertTrue(tracking.readerCount >= 0);
@@ -383,14 +383,15 @@ public class DraftWrapper implements IDraftWrapper
 		}
 	}
 
-	private class ClosingInputStream extends InputStream
+	private class ClosingInputStream extends FileInputStream
 	{
-		private final InputStream _stream;
+		// We extend FileInputStream, instead of wrapping it, so that callers can use getChannel() (which will also call
+		// our close() when the channel is closed).
 		private final Runnable _closeHandler;
 		private boolean _isClosed;
-		public ClosingInputStream(InputStream stream, Runnable closeHandler)
+		public ClosingInputStream(File file, Runnable closeHandler) throws FileNotFoundException
 		{
-			_stream = stream;
+			super(file);
 			_closeHandler = closeHandler;
 		}
 		@Override
@@ -399,21 +400,11 @@ public class DraftWrapper implements IDraftWrapper
 			// Note that it is expected to be safe to close a stream multiple times so handle that case.
 			if (!_isClosed)
 			{
-				_internal_processNotifyHandler(_closeHandler);
-				_stream.close();
 				_isClosed = true;
+				_internal_processNotifyHandler(_closeHandler);
+				super.close();
 			}
 		}
-		@Override
-		public int read() throws IOException
-		{
-			return _stream.read();
-		}
-		@Override
-		public int read(byte[] b, int off, int len) throws IOException
-		{
-			return _stream.read(b, off, len);
-		}
 	}
 
 	private static class ReferenceTuple
@@ -1,5 +1,6 @@
 package com.jeffdisher.cacophony.data.local.v4;
 
+import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.function.Function;
@@ -61,9 +62,11 @@ public interface IDraftWrapper
 	/**
 	 * Blocks until there are no original video writers and then opens it for reading.  Doesn't change the draft data.
 	 * 
+	 * The stream reads the file directly so callers can use its FileChannel for random access.
+	 * 
 	 * @return The stream to read the original video (null if there is no original video).
 	 */
-	InputStream readOriginalVideo();
+	FileInputStream readOriginalVideo();
 
 	/**
 	 * Blocks until there are no original video readers or writers and then opens it for writing.  Doesn't change the
@@ -84,9 +87,11 @@ public interface IDraftWrapper
 	/**
 	 * Blocks until there are no processed video writers and then opens it for reading.  Doesn't change the draft data.
 	 * 
+	 * The stream reads the file directly so callers can use its FileChannel for random access.
+	 * 
 	 * @return The stream to read the processed video (null if there is no processed video).
 	 */
-	InputStream readProcessedVideo();
+	FileInputStream readProcessedVideo();
 
 	/**
 	 * Blocks until there are no processed video readers or writers and then opens it for writing.  Doesn't change the
@@ -107,9 +112,11 @@ public interface IDraftWrapper
 	/**
 	 * Blocks until there are no audio writers and then opens it for reading.  Doesn't change the draft data.
 	 * 
+	 * The stream reads the file directly so callers can use its FileChannel for random access.
+	 * 
 	 * @return The stream to read the audio (null if there is no audio).
 	 */
-	InputStream readAudio();
+	FileInputStream readAudio();
 
 	/**
 	 * Blocks until there are no audio readers or writers and then opens it for writing.  Doesn't change the draft data.
@@ -1,5 +1,6 @@
 package com.jeffdisher.cacophony.data.local.v4;
 
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.ChannelData;
 import com.jeffdisher.cacophony.projection.ExplicitCacheData;
 import com.jeffdisher.cacophony.projection.FavouritesCacheData;
@@ -14,6 +15,7 @@ public record OpcodeContext(ChannelData channelData
 		, FolloweeLoader followeeLoader
 		, FavouritesCacheData favouritesCache
 		, ExplicitCacheData explicitCache
+		, AccessTrackerData accessTracker
 )
 {
 }
@@ -29,5 +29,7 @@ public enum OpcodeType
 	ADD_FOLLOWEE_ELEMENT,
 	SKIP_FOLLOWEE_RECORD,
 	
+	RECORD_ACCESS,
+	
 	END_OF_LIST,
 }
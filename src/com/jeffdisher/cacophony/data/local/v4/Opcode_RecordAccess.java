@@ -0,0 +1,57 @@
+package com.jeffdisher.cacophony.data.local.v4;
+
+import java.util.function.Function;
+
+import com.jeffdisher.cacophony.data.local.v3.OpcodeContextV3;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.utils.Assert;
+
+
+/**
+ * This opcode describes the access history of a single CID, as tracked by AccessTrackerData.
+ * The count is the decayed access count as of lastAccessMillis (stored as the raw bits of a double).
+ */
+public record Opcode_RecordAccess(IpfsFile cid, long lastAccessMillis, double count) implements IDataOpcode
+{
+	public static final OpcodeType TYPE = OpcodeType.RECORD_ACCESS;
+
+	public static void register(Function<OpcodeDeserializer, IDataOpcode>[] opcodeTable)
+	{
+		opcodeTable[TYPE.ordinal()] = (OpcodeDeserializer deserializer) -> {
+			IpfsFile cid = deserializer.readCid();
+			long lastAccessMillis = deserializer.readLong();
+			double count = Double.longBitsToDouble(deserializer.readLong());
+			return new Opcode_RecordAccess(cid, lastAccessMillis, count);
+		};
+	}
+
+
+	@Override
+	public OpcodeType type()
+	{
+		return TYPE;
+	}
+
+	@Override
+	public void applyV3(OpcodeContextV3 context)
+	{
+		// This opcode does NOT appear in V3 data streams.
+		throw Assert.unreachable();
+	}
+
+	@Override
+	public void apply(OpcodeContext context)
+	{
+		context.accessTracker().restoreAccess(this.cid, this.lastAccessMillis, this.count);
+	}
+
+	@Override
+	public void write(OpcodeSerializer serializer)
+	{
+		Assert.assertTrue(null != this.cid);
+		
+		serializer.writeCid(this.cid);
+		serializer.writeLong(this.lastAccessMillis);
+		serializer.writeLong(Double.doubleToLongBits(this.count));
+	}
+}
@@ -3,6 +3,7 @@ package com.jeffdisher.cacophony.data.local.v4;
 import java.util.function.Function;
 
 import com.jeffdisher.cacophony.data.local.v3.OpcodeContextV3;
+import com.jeffdisher.cacophony.logic.CacheAlgorithm;
 import com.jeffdisher.cacophony.projection.PrefsData;
 import com.jeffdisher.cacophony.utils.Assert;
 
@@ -50,6 +51,23 @@ public record Opcode_SetPrefsInt(String key, int value) implements IDataOpcode
 		{
 			context.prefs().videoEdgePixelMax = this.value;
 		}
+		else if (this.key.equals(PrefsData.INT_FOLLOWEE_EVICTION_POLICY))
+		{
+			CacheAlgorithm.EvictionPolicy policy = CacheAlgorithm.EvictionPolicy.fromCode(this.value);
+			if (null != policy)
+			{
+				context.prefs().followeeCacheEvictionPolicy = policy;
+			}
+			else
+			{
+				// Treat this like an unknown key, leaving the default.
+				System.err.println("WARNING:  Dropping unknown eviction policy: " + this.value);
+			}
+		}
+		else if (this.key.equals(PrefsData.INT_PREFETCH_HOP_DEPTH))
+		{
+			context.prefs().prefetchHopDepth = this.value;
+		}
 		else
 		{
 			// In version 4, we will allow unmatched prefs data - it will just default when the update, next.
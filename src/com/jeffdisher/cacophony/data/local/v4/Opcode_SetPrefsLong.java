@@ -110,6 +110,16 @@ public record Opcode_SetPrefsLong(String key, long value) implements IDataOpcode
 			prefs.followeeRecordVideoMaxBytes = this.value;
 		}
 		
+		else if (this.key.equals(PrefsData.LONG_GLOBAL_CACHE_BYTES))
+		{
+			prefs.globalCacheBudgetBytes = this.value;
+		}
+		
+		else if (this.key.equals(PrefsData.LONG_PREFETCH_BUDGET_BYTES))
+		{
+			prefs.prefetchBudgetBytes = this.value;
+		}
+		
 		else
 		{
 			// In version 4, we will allow unmatched prefs data - it will just default when the update, next.
@@ -1,15 +1,13 @@
 package com.jeffdisher.cacophony.interactive;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.function.LongSupplier;
 
 import com.jeffdisher.cacophony.logic.HandoffConnector;
+import com.jeffdisher.cacophony.projection.FolloweeSchedule;
 import com.jeffdisher.cacophony.scheduler.FuturePublish;
 import com.jeffdisher.cacophony.types.ILogger;
 import com.jeffdisher.cacophony.types.IpfsConnectionException;
@@ -32,17 +30,29 @@ public class BackgroundOperations
 	// Instance variables which are never written after construction (safe everywhere).
 	private final HandoffConnector<Integer, String> _connector;
 	private final Thread _background;
+	// 0 if the idle-time prefetch is disabled.
+	private final long _prefetchIntervalMillis;
 
 	// Instance variables which are shared between caller thread and background thread (can only be touched on monitor).
 	private boolean _handoff_keepRunning;
-	private final PriorityQueue<SchedulableFollowee> _handoff_knownFollowees;
+	// The followees, ordered by the next time they should be refreshed.
+	private final FolloweeSchedule _handoff_knownFollowees;
 	private final Map<IpfsKey, SchedulableRepublish> _handoff_localChannelsByKey;
 	private IpfsKey _handoff_currentlyPublishing;
+	private boolean _handoff_cacheMaintenanceRequested;
 	private long _republishIntervalMillis;
 	private long _followeeRefreshMillis;
+	// The prefetch is only run when there is nothing else to do:  A pass is started once this time has passed and then
+	// continues, one step at a time, until the runner reports that it is done.  Steps don't wait for their loads, so
+	// the next step is only run once the runner reports that the previous step's loads are ready.
+	private long _handoff_nextPrefetchMillis;
+	private boolean _handoff_prefetchInProgress;
+	private boolean _handoff_prefetchReady;
 
 	// Instance variables which are only used by the background thread (only safe for the background thread).
 	private int _background_nextOperationNumber;
+	// The whole prefetch pass is shown as one operation, so all of its steps share the number allocated when it started.
+	private int _background_prefetchPassNumber;
 
 	/**
 	 * Creates an instance of the background operation runner, but doesn't start it (call "startProcess()").
@@ -53,6 +63,7 @@ public class BackgroundOperations
 	 * @param connector The connector to notify when operations start/stop.
 	 * @param republishIntervalMillis The initial interval, in milliseconds, for root republish operations.
 	 * @param followeeRefreshMillis The initial interval, in milliseconds, for followee refresh operations.
+	 * @param prefetchIntervalMillis The interval, in milliseconds, between idle-time prefetch passes (0 to disable).
 	 */
 	public BackgroundOperations(LongSupplier currentTimeMillisGenerator
 			, ILogger logger
@@ -60,10 +71,12 @@ public class BackgroundOperations
 			, HandoffConnector<Integer, String> connector
 			, long republishIntervalMillis
 			, long followeeRefreshMillis
+			, long prefetchIntervalMillis
 	)
 	{
 		Assert.assertTrue(republishIntervalMillis > 0L);
 		Assert.assertTrue(followeeRefreshMillis > 0L);
+		Assert.assertTrue(prefetchIntervalMillis >= 0L);
 		
 		_connector = connector;
 		_background = MiscHelpers.createThread(() -> {
@@ -80,6 +93,15 @@ public class BackgroundOperations
 					Assert.assertTrue(null != publish);
 					_connector.create(operation.publishNumber, "Publish " + operation.publishTarget);
 				}
+				// If cache maintenance was requested, do that before any refresh so that the refresh has room to cache new data.
+				if (operation.maintenanceNumber > 0)
+				{
+					ILogger log = logger.logStart("Background start followee cache maintenance");
+					_connector.create(operation.maintenanceNumber, "Followee cache maintenance");
+					operations.shrinkFolloweeCache();
+					_connector.destroy(operation.maintenanceNumber);
+					log.logFinish("Background end followee cache maintenance");
+				}
 				// If we have a followee to refresh, do that work.
 				// We also want to handle the case of pending incremental work a bit differently, since we will prioritize its scheduling.
 				IpfsKey priorizedFolloweeRefresh = null;
@@ -94,6 +116,27 @@ public class BackgroundOperations
 					{
 						priorizedFolloweeRefresh = operation.followeeKey;
 					}
+					// The refresh may have pushed the followee cache over its high-water mark, in which case we want to
+					// schedule the maintenance as a separate operation.
+					if (operations.doesFolloweeCacheNeedShrinking())
+					{
+						requestFolloweeCacheMaintenance();
+					}
+				}
+				// The prefetch is only ever scheduled when there is nothing else to do.
+				if (operation.prefetchNumber > 0)
+				{
+					boolean isNewPass = _background_prefetchStepStarting();
+					if (isNewPass)
+					{
+						_connector.create(operation.prefetchNumber, "Prefetch recommended users");
+					}
+					boolean moreToDo = operations.runPrefetchStep(() -> _prefetchReady());
+					if (!moreToDo)
+					{
+						_connector.destroy(operation.prefetchNumber);
+					}
+					_background_prefetchStepDone(currentTimeMillisGenerator.getAsLong(), moreToDo);
 				}
 				// Now, we can wait for the publish before we go back for more work.
 				if (null != publish)
@@ -114,18 +157,13 @@ public class BackgroundOperations
 		}, "Background Operations");
 		_republishIntervalMillis = republishIntervalMillis;
 		_followeeRefreshMillis = followeeRefreshMillis;
+		_prefetchIntervalMillis = prefetchIntervalMillis;
+		// We don't want to prefetch right at start-up since that is when the user is most likely to be active.
+		_handoff_nextPrefetchMillis = currentTimeMillisGenerator.getAsLong() + prefetchIntervalMillis;
 		
 		_background_nextOperationNumber = 1;
 		
-		_handoff_knownFollowees = new PriorityQueue<>(1, new Comparator<>() {
-			@Override
-			public int compare(SchedulableFollowee arg0, SchedulableFollowee arg1)
-			{
-				// The documentation of Comparator does a terrible job of saying how the order is actually derived from the result here so "if positive -> arg0 comes AFTER arg1").
-				// In our case, we want the list to be sorted with the oldest refresh first.  Hence:  Ascending order on the last refresh millis.
-				return Long.signum(arg0.nextRefreshMillis - arg1.nextRefreshMillis);
-			}
-		});
+		_handoff_knownFollowees = new FolloweeSchedule();
 		_handoff_localChannelsByKey = new HashMap<>();
 	}
 
@@ -220,9 +258,10 @@ public class BackgroundOperations
 		
 		synchronized (this)
 		{
-			// We just add this to the priority list of followees and the background will decide what to do with it.
+			// We just add this to the schedule of followees and the background will decide what to do with it.
+			Assert.assertTrue(!_handoff_knownFollowees.contains(followeeKey));
 			long nextRefreshMillis = lastRefreshMillis + _followeeRefreshMillis;
-			_handoff_knownFollowees.add(new SchedulableFollowee(followeeKey, nextRefreshMillis));
+			_handoff_knownFollowees.put(followeeKey, nextRefreshMillis);
 			this.notifyAll();
 		}
 	}
@@ -256,18 +295,16 @@ public class BackgroundOperations
 			_handoff_localChannelsByKey.put(channel.publicKey, new SchedulableRepublish(channel.keyName, channel.publicKey, channel.rootElement, nextRepublishMillis));
 		}
 		
-		List<SchedulableFollowee> toFix = new ArrayList<>(_handoff_knownFollowees);
-		_handoff_knownFollowees.clear();
-		for (SchedulableFollowee followee : toFix)
+		for (IpfsKey followee : _handoff_knownFollowees.getAllFollowees())
 		{
 			// Subtract the old interval and add the new one.
-			long nextRefreshMillis = followee.nextRefreshMillis - _followeeRefreshMillis + followeeRefreshMillis;
+			long nextRefreshMillis = _handoff_knownFollowees.getTimeMillis(followee) - _followeeRefreshMillis + followeeRefreshMillis;
 			// If there is underflow, just say that this should be "now".
 			if (nextRefreshMillis < 0L)
 			{
 				nextRefreshMillis = 0L;
 			}
-			_handoff_knownFollowees.add(new SchedulableFollowee(followee.followee, nextRefreshMillis));
+			_handoff_knownFollowees.put(followee, nextRefreshMillis);
 		}
 		
 		// Now, update the stored values for future scheduling decisions.
@@ -293,6 +330,16 @@ public class BackgroundOperations
 		return didFindFollowee;
 	}
 
+	/**
+	 * Requests that the followee cache maintenance (shrinking the cache) be run as soon as possible.  This is a
+	 * separate operation from the followee refresh so that refreshes don't need to walk the cache.
+	 */
+	public synchronized void requestFolloweeCacheMaintenance()
+	{
+		_handoff_cacheMaintenanceRequested = true;
+		this.notifyAll();
+	}
+
 	/**
 	 * Removed the given followeeKey from internal tracking and scheduling.  The followee will not be refreshed after
 	 * this call returns although a refresh could be in-progress if it started before this.
@@ -304,19 +351,7 @@ public class BackgroundOperations
 	{
 		Assert.assertTrue(null != followeeKey);
 		
-		boolean didFindFollowee = false;
-		Iterator<SchedulableFollowee> iter = _handoff_knownFollowees.iterator();
-		while (iter.hasNext())
-		{
-			SchedulableFollowee elt = iter.next();
-			if (elt.followee.equals(followeeKey))
-			{
-				// Remove this since we will re-add it.
-				iter.remove();
-				didFindFollowee = true;
-				break;
-			}
-		}
+		boolean didFindFollowee = _handoff_knownFollowees.remove(followeeKey);
 		// Note that we don't bother with notification since this won't make anything schedule earlier.
 		return didFindFollowee;
 	}
@@ -374,6 +409,15 @@ public class BackgroundOperations
 				_background_nextOperationNumber += 1;
 			}
 			
+			// Check if we need to run the cache maintenance (we always do this ahead of anything else scheduled).
+			int maintenanceNumber = -1;
+			if (_handoff_cacheMaintenanceRequested)
+			{
+				_handoff_cacheMaintenanceRequested = false;
+				maintenanceNumber = _background_nextOperationNumber;
+				_background_nextOperationNumber += 1;
+			}
+			
 			// If we want to prioritize a followee, at this point, we will re-enqueue it.
 			if (null != priorizedFolloweeRefresh)
 			{
@@ -386,26 +430,44 @@ public class BackgroundOperations
 			int refreshNumber = -1;
 			if (!_handoff_knownFollowees.isEmpty())
 			{
-				long dueTimeRefreshMillis = _handoff_knownFollowees.peek().nextRefreshMillis;
+				long dueTimeRefreshMillis = _handoff_knownFollowees.getFirstTimeMillis();
 				if (dueTimeRefreshMillis <= currentTimeMillis)
 				{
-					// The refresh is due - remove this from the list and re-add a new schedulable at the end, with the current time.
-					SchedulableFollowee followee = _handoff_knownFollowees.remove();
+					// The refresh is due - re-schedule it at the end, based on the current time.
+					IpfsKey followee = _handoff_knownFollowees.getFirst();
 					long nextRefreshMillis = currentTimeMillis + _followeeRefreshMillis;
-					_handoff_knownFollowees.add(new SchedulableFollowee(followee.followee, nextRefreshMillis));
-					refresh = followee.followee;
+					_handoff_knownFollowees.put(followee, nextRefreshMillis);
+					refresh = followee;
 					refreshNumber = _background_nextOperationNumber;
 					_background_nextOperationNumber += 1;
 				}
 			}
 			
+			// The prefetch is the lowest priority work so we only consider it if there is nothing else to do.
+			int prefetchNumber = -1;
+			boolean isPrefetchEnabled = (_prefetchIntervalMillis > 0L);
+			if ((null == publishRoot) && (null == refresh) && (maintenanceNumber <= 0) && isPrefetchEnabled)
+			{
+				boolean canStartPass = !_handoff_prefetchInProgress && (_handoff_nextPrefetchMillis <= currentTimeMillis);
+				if (canStartPass)
+				{
+					_background_prefetchPassNumber = _background_nextOperationNumber;
+					_background_nextOperationNumber += 1;
+					prefetchNumber = _background_prefetchPassNumber;
+				}
+				else if (_handoff_prefetchInProgress && _handoff_prefetchReady)
+				{
+					prefetchNumber = _background_prefetchPassNumber;
+				}
+			}
+			
 			if (shouldNotify)
 			{
 				this.notifyAll();
 			}
 			
 			// If we don't have any work to do, figure out when something interesting might happen and wait.
-			if ((null != publishRoot) || (null != refresh))
+			if ((null != publishRoot) || (null != refresh) || (maintenanceNumber > 0) || (prefetchNumber > 0))
 			{
 				work = new RequestedOperation(publishKeyName
 						, publisherKey
@@ -413,6 +475,8 @@ public class BackgroundOperations
 						, publishNumber
 						, refresh
 						, refreshNumber
+						, maintenanceNumber
+						, prefetchNumber
 				);
 			}
 			else
@@ -420,7 +484,12 @@ public class BackgroundOperations
 				long nextDueMillis = nextDueRepublishMillis;
 				if (!_handoff_knownFollowees.isEmpty())
 				{
-					nextDueMillis = Math.min(nextDueMillis, _handoff_knownFollowees.peek().nextRefreshMillis);
+					nextDueMillis = Math.min(nextDueMillis, _handoff_knownFollowees.getFirstTimeMillis());
+				}
+				// If a pass is in progress, we are waiting for its loads so we will be notified when they are ready.
+				if (isPrefetchEnabled && !_handoff_prefetchInProgress)
+				{
+					nextDueMillis = Math.min(nextDueMillis, _handoff_nextPrefetchMillis);
 				}
 				Assert.assertTrue(currentTimeMillis < nextDueMillis);
 				long millisToWait = nextDueMillis - currentTimeMillis;
@@ -434,41 +503,47 @@ public class BackgroundOperations
 					throw Assert.unexpected(e);
 				}
 				// In this case, we don't want to terminate so we need to return something but we leave it empty so we just get called with an updated timer.
-				work = new RequestedOperation(null, null, null, -1, null, -1);
+				work = new RequestedOperation(null, null, null, -1, null, -1, -1, -1);
 			}
 		}
 		return work;
 	}
 
-	private boolean _locked_prioritizeFollowee(IpfsKey followeeKey, long scheduledTimeMillis)
+	private synchronized boolean _background_prefetchStepStarting()
 	{
-		Assert.assertTrue(null != followeeKey);
-		
-		// We will look for the followee and replace its entry in the scheduler with a last refresh time of 0L so it
-		// will be scheduled next.
-		boolean didFindFollowee = false;
-		boolean didChangeFollowee = false;
-		Iterator<SchedulableFollowee> iter = _handoff_knownFollowees.iterator();
-		while (iter.hasNext())
+		// The runner may report that the loads are ready before the step even returns, so we clear this first.
+		_handoff_prefetchReady = false;
+		// If a pass isn't already in progress, this step is starting a new one.
+		return !_handoff_prefetchInProgress;
+	}
+
+	private synchronized void _prefetchReady()
+	{
+		// Called by the runner, on any thread, once the loads of the last prefetch step have completed.
+		_handoff_prefetchReady = true;
+		this.notifyAll();
+	}
+
+	private synchronized void _background_prefetchStepDone(long currentTimeMillis, boolean moreToDo)
+	{
+		_handoff_prefetchInProgress = moreToDo;
+		if (!moreToDo)
 		{
-			SchedulableFollowee elt = iter.next();
-			if (elt.followee.equals(followeeKey))
-			{
-				// We will disregard this if the scheduled time is already sooner than the requested.
-				if (scheduledTimeMillis < elt.nextRefreshMillis)
-				{
-					// Remove this since we will re-add it.
-					iter.remove();
-					didChangeFollowee = true;
-				}
-				didFindFollowee = true;
-				break;
-			}
+			// The pass is done so schedule the next one relative to when this one finished.
+			_handoff_nextPrefetchMillis = currentTimeMillis + _prefetchIntervalMillis;
 		}
+	}
+
+	private boolean _locked_prioritizeFollowee(IpfsKey followeeKey, long scheduledTimeMillis)
+	{
+		Assert.assertTrue(null != followeeKey);
 		
-		if (didChangeFollowee)
+		// We will look up the followee and re-schedule it to the given time (this is O(log n) in the schedule).
+		boolean didFindFollowee = _handoff_knownFollowees.contains(followeeKey);
+		// We will disregard this if the scheduled time is already sooner than the requested.
+		if (didFindFollowee && (scheduledTimeMillis < _handoff_knownFollowees.getTimeMillis(followeeKey)))
 		{
-			_handoff_knownFollowees.add(new SchedulableFollowee(followeeKey, scheduledTimeMillis));
+			_handoff_knownFollowees.put(followeeKey, scheduledTimeMillis);
 		}
 		return didFindFollowee;
 	}
@@ -497,6 +572,27 @@ public class BackgroundOperations
 		 * @return A result describing how the operation completed.
 		 */
 		OperationResult refreshFollowee(IpfsKey followeeKey);
+		/**
+		 * Checks if the followee cache has grown beyond its high-water mark and needs to be shrunk.  This is expected
+		 * to be a cheap check.
+		 * 
+		 * @return True if shrinkFolloweeCache() should be called.
+		 */
+		boolean doesFolloweeCacheNeedShrinking();
+		/**
+		 * Runs the followee cache maintenance, synchronously on the calling thread, shrinking the followee cache if it
+		 * is above its high-water mark.
+		 */
+		void shrinkFolloweeCache();
+		/**
+		 * Runs a single step of the idle-time prefetch on the calling thread.  This is only called when there is no
+		 * other background work to do.  The step must not wait for the network:  It should only start its loads and
+		 * call onReady once they have completed, so that other work can be interleaved while they are in flight.
+		 * 
+		 * @param onReady Called, on any thread, once the next step can run (only if this returns true).
+		 * @return True if the current prefetch pass has more steps to run, false if it is done.
+		 */
+		boolean runPrefetchStep(Runnable onReady);
 	}
 
 
@@ -526,10 +622,10 @@ public class BackgroundOperations
 			, int publishNumber
 			, IpfsKey followeeKey
 			, int followeeNumber
+			, int maintenanceNumber
+			, int prefetchNumber
 	) {}
 
 
-	private static record SchedulableFollowee(IpfsKey followee, long nextRefreshMillis) {}
-
 	private static record SchedulableRepublish(String keyName, IpfsKey publicKey, IpfsFile rootElement, long nextPublishMillis) {}
 }
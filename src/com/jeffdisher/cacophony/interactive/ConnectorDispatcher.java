@@ -1,5 +1,9 @@
 package com.jeffdisher.cacophony.interactive;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 import com.jeffdisher.cacophony.utils.Assert;
@@ -12,19 +16,65 @@ import com.jeffdisher.cacophony.utils.MiscHelpers;
  * NOTE:  This is why the HandoffConnector listeners should only be for external listener notifications since we don't
  * want the system to evolve into one of those chaotic message queue executor pipelines (although arguably that is
  * chaotic due to overly-generalized notification mechanisms, not the message queue executor design, itself).
+ * The hand-off is a bounded lock-free multi-producer/single-consumer ring buffer:  producers claim a slot with a CAS on
+ * the tail and publish into it, so they only block when the queue is full (which is counted as an "overflow").  Tasks
+ * can't be dropped, since the listeners would then be out of sync, so an overflowing producer waits for space.  The
+ * background thread drains the queue in batches, freeing the slots before running the batch.
+ * Tasks are run in the order their slots were claimed, so the tasks from any one producer are run in the order they
+ * were enqueued.
  */
 public class ConnectorDispatcher implements Consumer<Runnable>
 {
+	/**
+	 * The default number of tasks which can be queued before producers need to wait.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+	/**
+	 * The maximum number of tasks the background thread will take from the queue at once.
+	 */
+	public static final int DRAIN_BATCH_SIZE = 64;
+	// How long an overflowing producer will sleep before checking for space, again.
+	private static final long OVERFLOW_PARK_NANOS = 100_000L;
+
 	private final Thread _backgroundThread;
-	private boolean _keepRunning;
-	private Runnable _nextTask;
+	private final int _capacity;
+	private final AtomicReferenceArray<Runnable> _slots;
+	// The next sequence number to be claimed by a producer.
+	private final AtomicLong _tail;
+	// The next sequence number to be consumed, only written by the background thread.
+	private volatile long _head;
+	// Set by the background thread before it parks, so producers know to unpark it.
+	private final AtomicBoolean _isConsumerParked;
+	private volatile boolean _keepRunning;
+	// Metrics.
+	private final AtomicLong _overflowCount;
+	private volatile int _maxObservedDepth;
 
 	/**
-	 * Creates a new dispatcher with a single background thread, but doesn't start it (call "start()").
+	 * Creates a new dispatcher with a single background thread and the default capacity, but doesn't start it (call
+	 * "start()").
 	 */
 	public ConnectorDispatcher()
 	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new dispatcher with a single background thread, but doesn't start it (call "start()").
+	 * 
+	 * @param capacity The number of tasks which can be queued before producers need to wait.
+	 */
+	public ConnectorDispatcher(int capacity)
+	{
+		Assert.assertTrue(capacity > 0);
 		_backgroundThread = MiscHelpers.createThread(() -> _backgroundMain(), "ConnectorDispatcher");
+		_capacity = capacity;
+		_slots = new AtomicReferenceArray<>(capacity);
+		_tail = new AtomicLong(0L);
+		_head = 0L;
+		_isConsumerParked = new AtomicBoolean(false);
+		_overflowCount = new AtomicLong(0L);
+		_maxObservedDepth = 0;
 	}
 
 	/**
@@ -41,11 +91,8 @@ public class ConnectorDispatcher implements Consumer<Runnable>
 	 */
 	public void shutdown()
 	{
-		synchronized (this)
-		{
-			_keepRunning = false;
-			this.notifyAll();
-		}
+		_keepRunning = false;
+		LockSupport.unpark(_backgroundThread);
 		try
 		{
 			_backgroundThread.join();
@@ -57,73 +104,118 @@ public class ConnectorDispatcher implements Consumer<Runnable>
 		}
 	}
 
+	/**
+	 * @return The number of times a producer found the queue full and had to wait for space.
+	 */
+	public long getOverflowCount()
+	{
+		return _overflowCount.get();
+	}
+
+	/**
+	 * @return The largest number of tasks the background thread has seen queued at once.
+	 */
+	public int getMaxObservedDepth()
+	{
+		return _maxObservedDepth;
+	}
+
 	@Override
-	public synchronized void accept(Runnable task)
+	public void accept(Runnable task)
 	{
 		Assert.assertTrue(null != task);
 		
-		boolean wasInterrupted = false;
-		// Make sure that we are still running and that we don't already have an operation.
-		while (_keepRunning && (null != _nextTask))
+		boolean didOverflow = false;
+		boolean isQueued = false;
+		// Note that we drop the task if we are no longer running (same as if it had been queued just before shutdown).
+		while (_keepRunning && !isQueued)
 		{
-			try
+			long tail = _tail.get();
+			if ((tail - _head) >= _capacity)
 			{
-				this.wait();
+				// The queue is full so we need to wait for the background thread to drain it.  We count this once per
+				// call, not once per check.
+				if (!didOverflow)
+				{
+					_overflowCount.incrementAndGet();
+					didOverflow = true;
+				}
+				// Interruption only wakes this up early and stays set on the thread so we don't need to handle it.
+				LockSupport.parkNanos(this, OVERFLOW_PARK_NANOS);
 			}
-			catch (InterruptedException e)
+			else if (_tail.compareAndSet(tail, tail + 1L))
 			{
-				// While few parts of our systems use interrupts, this mechanism can be called by anyone so we need to
-				// be sure we handle this.
-				// In this case, we will just record that the interrupt happened since this enqueue should be quick.
-				wasInterrupted = true;
+				// The background thread nulls the slot before advancing the head so this slot is now ours.
+				_slots.set(_indexOf(tail), task);
+				isQueued = true;
 			}
 		}
-		if (_keepRunning)
+		if (isQueued && _isConsumerParked.get())
 		{
-			_nextTask = task;
-			this.notifyAll();
-		}
-		if (wasInterrupted)
-		{
-			Thread.currentThread().interrupt();
+			LockSupport.unpark(_backgroundThread);
 		}
 	}
 
 
 	private void _backgroundMain()
 	{
-		Runnable toRun = _backgroundGetNextTask();
-		while (null != toRun)
+		Runnable[] batch = new Runnable[Math.min(DRAIN_BATCH_SIZE, _capacity)];
+		int count = _backgroundTakeBatch(batch);
+		while (count > 0)
 		{
-			toRun.run();
-			toRun = _backgroundGetNextTask();
+			for (int i = 0; i < count; ++i)
+			{
+				Runnable toRun = batch[i];
+				batch[i] = null;
+				toRun.run();
+			}
+			count = _backgroundTakeBatch(batch);
 		}
 	}
 
-	private synchronized Runnable _backgroundGetNextTask()
+	private int _backgroundTakeBatch(Runnable[] batch)
 	{
 		// Wait while we are running and there is nothing to do.
-		while (_keepRunning && (null == _nextTask))
+		while (_keepRunning && (_tail.get() == _head))
 		{
-			try
+			_isConsumerParked.set(true);
+			// Re-check after publishing that we are parked, since a producer may have missed the flag.
+			if (_keepRunning && (_tail.get() == _head))
 			{
-				this.wait();
-			}
-			catch (InterruptedException e)
-			{
-				// This thread doesn't use interruption.
-				throw Assert.unexpected(e);
+				LockSupport.park(this);
 			}
+			_isConsumerParked.set(false);
 		}
-		Runnable toRun = null;
-		// We return a task even if we are shutting down, so long as it was already here, in order to make tests more deterministic.
-		// This may delay shutdown, slightly, but we will already fail to accept new Runnables after shut-down so this isn't big.
-		if (null != _nextTask)
+		// We return tasks even if we are shutting down, so long as they were already claimed, in order to make tests
+		// more deterministic.  This may delay shutdown, slightly, but we will already fail to accept new Runnables
+		// after shut-down so this isn't big.
+		long head = _head;
+		long available = _tail.get() - head;
+		if (available > _maxObservedDepth)
 		{
-			toRun = _nextTask;
-			_nextTask = null;
-			this.notifyAll();
+			_maxObservedDepth = (int) available;
 		}
-		return toRun;
+		int count = (int) Math.min(available, batch.length);
+		for (int i = 0; i < count; ++i)
+		{
+			int index = _indexOf(head + i);
+			// A producer may have claimed this slot but not yet published into it, so wait for it.
+			Runnable task = _slots.get(index);
+			while (null == task)
+			{
+				Thread.onSpinWait();
+				task = _slots.get(index);
+			}
+			_slots.set(index, null);
+			batch[i] = task;
+		}
+		// Free the slots before running the batch so that producers aren't waiting on the batch.
+		_head = head + count;
+		return count;
+	}
+
+	private int _indexOf(long sequence)
+	{
+		return (int) (sequence % _capacity);
 	}
 }
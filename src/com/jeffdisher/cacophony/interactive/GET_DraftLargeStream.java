@@ -1,14 +1,21 @@
 package com.jeffdisher.cacophony.interactive;
 
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
 
+import org.eclipse.jetty.server.HttpOutput;
+
 import com.jeffdisher.cacophony.data.local.v4.Draft;
 import com.jeffdisher.cacophony.data.local.v4.DraftManager;
 import com.jeffdisher.cacophony.data.local.v4.IDraftWrapper;
-import com.jeffdisher.cacophony.utils.MiscHelpers;
 
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
@@ -17,15 +24,25 @@ import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * A generic GET handler for reading the large files from drafts for the web interface.
+ * Byte ranges (RFC 7233) are supported so that seeking in the preview player only reads the part of the file it needs:
+ * a single range is returned as 206 (Partial Content), multiple ranges as a multipart/byteranges 206, and unsatisfiable
+ * ranges as 416.  Since we don't send validators, any request with If-Range just receives the whole file.
+ * The data is sent directly from the file's channel:  when Jetty is writing the response, a single region is mapped in
+ * bounded chunks, each handed to Jetty, so it never passes through the Java heap.  Otherwise, it is sent with
+ * FileChannel.transferTo().
  */
 public class GET_DraftLargeStream implements ValidatedEntryPoints.GET
 {
+	// We map a large region one chunk at a time, so that we never hold a huge mapping while the client reads it.
+	private static final long MAX_MAPPED_BYTES = 16L * 1024L * 1024L;
+	private static final String CRLF = "\r\n";
+
 	private final DraftManager _draftManager;
-	private final Function<IDraftWrapper, InputStream> _fileLoader;
+	private final Function<IDraftWrapper, FileInputStream> _fileLoader;
 	private final Function<Draft, String> _mimeLoader;
 	private final Function<Draft, Long> _sizeLoader;
 
-	public GET_DraftLargeStream(DraftManager draftManager, Function<IDraftWrapper, InputStream> fileLoader, Function<Draft, String> mimeLoader, Function<Draft, Long> sizeLoader)
+	public GET_DraftLargeStream(DraftManager draftManager, Function<IDraftWrapper, FileInputStream> fileLoader, Function<Draft, String> mimeLoader, Function<Draft, Long> sizeLoader)
 	{
 		_draftManager = draftManager;
 		_fileLoader = fileLoader;
@@ -46,7 +63,7 @@ public class GET_DraftLargeStream implements ValidatedEntryPoints.GET
 			{
 				throw new FileNotFoundException();
 			}
-			try (InputStream input = _fileLoader.apply(wrapper))
+			try (FileInputStream input = _fileLoader.apply(wrapper))
 			{
 				if (null == input)
 				{
@@ -55,18 +72,124 @@ public class GET_DraftLargeStream implements ValidatedEntryPoints.GET
 				Draft draft = wrapper.loadDraft();
 				String mime = _mimeLoader.apply(draft);
 				long byteSize = _sizeLoader.apply(draft);
+				FileChannel channel = input.getChannel();
 				
-				response.setContentType(mime);
-				response.setContentLengthLong(byteSize);
-				response.setStatus(HttpServletResponse.SC_OK);
-				
-				MiscHelpers.copyToEndOfFile(input, output);
+				List<InteractiveHelpers.ByteRange> ranges = (null == request.getHeader("If-Range"))
+						? InteractiveHelpers.parseByteRanges(request.getHeader("Range"), byteSize)
+						: null
+				;
+				response.setHeader("Accept-Ranges", "bytes");
+				if (null == ranges)
+				{
+					response.setContentType(mime);
+					response.setContentLengthLong(byteSize);
+					response.setStatus(HttpServletResponse.SC_OK);
+					_sendSingleRegion(channel, 0L, byteSize, output);
+				}
+				else if (ranges.isEmpty())
+				{
+					response.setHeader("Content-Range", "bytes */" + byteSize);
+					response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				}
+				else if (1 == ranges.size())
+				{
+					InteractiveHelpers.ByteRange range = ranges.get(0);
+					response.setContentType(mime);
+					response.setContentLengthLong(range.length());
+					response.setHeader("Content-Range", _contentRange(range, byteSize));
+					response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+					_sendSingleRegion(channel, range.start(), range.length(), output);
+				}
+				else
+				{
+					_sendMultipleRanges(response, channel, mime, byteSize, ranges, output);
+				}
 			}
 		}
 		catch (FileNotFoundException e)
 		{
 			response.setStatus(HttpServletResponse.SC_NOT_FOUND);
 		}
+	}
+
+
+	private static void _sendMultipleRanges(HttpServletResponse response, FileChannel channel, String mime, long byteSize, List<InteractiveHelpers.ByteRange> ranges, ServletOutputStream output) throws IOException
+	{
+		String boundary = "CACOPHONY_BYTERANGES_" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+		// We build the part headers first so that we can send the exact length.
+		byte[][] partHeaders = new byte[ranges.size()][];
+		byte[] trailer = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.UTF_8);
+		long totalLength = trailer.length;
+		for (int i = 0; i < ranges.size(); ++i)
+		{
+			InteractiveHelpers.ByteRange range = ranges.get(i);
+			// Each part after the first starts with the CRLF ending the previous part's data.
+			String header = ((i > 0) ? CRLF : "")
+					+ "--" + boundary + CRLF
+					+ "Content-Type: " + mime + CRLF
+					+ "Content-Range: " + _contentRange(range, byteSize) + CRLF
+					+ CRLF
+			;
+			partHeaders[i] = header.getBytes(StandardCharsets.UTF_8);
+			totalLength += partHeaders[i].length + range.length();
+		}
+		response.setContentType("multipart/byteranges; boundary=" + boundary);
+		response.setContentLengthLong(totalLength);
+		response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
 		
+		WritableByteChannel target = Channels.newChannel(output);
+		for (int i = 0; i < ranges.size(); ++i)
+		{
+			InteractiveHelpers.ByteRange range = ranges.get(i);
+			output.write(partHeaders[i]);
+			_transfer(channel, range.start(), range.length(), target);
+		}
+		output.write(trailer);
+	}
+
+	private static void _sendSingleRegion(FileChannel channel, long start, long length, ServletOutputStream output) throws IOException
+	{
+		// (we never map past the end of the file since reading that would crash, instead of failing the request).
+		if ((output instanceof HttpOutput) && ((start + length) <= channel.size()))
+		{
+			// Jetty will write each mapped chunk directly to the socket (the write blocks until it is done with the
+			// chunk and the last one completes the response, since the content length is set).
+			HttpOutput httpOutput = (HttpOutput)output;
+			long position = start;
+			long remaining = length;
+			while (remaining > 0L)
+			{
+				long chunk = Math.min(remaining, MAX_MAPPED_BYTES);
+				httpOutput.write(channel.map(FileChannel.MapMode.READ_ONLY, position, chunk));
+				position += chunk;
+				remaining -= chunk;
+			}
+		}
+		else
+		{
+			_transfer(channel, start, length, Channels.newChannel(output));
+		}
+	}
+
+	private static void _transfer(FileChannel channel, long start, long length, WritableByteChannel target) throws IOException
+	{
+		long position = start;
+		long remaining = length;
+		while (remaining > 0L)
+		{
+			long sent = channel.transferTo(position, remaining, target);
+			if (0L == sent)
+			{
+				// The file is shorter than the draft claims so we can't finish the response.
+				throw new IOException("Draft file truncated");
+			}
+			position += sent;
+			remaining -= sent;
+		}
+	}
+
+	private static String _contentRange(InteractiveHelpers.ByteRange range, long byteSize)
+	{
+		return "bytes " + range.start() + "-" + range.end() + "/" + byteSize;
 	}
 }
@@ -5,6 +5,7 @@ import java.net.URL;
 import com.eclipsesource.json.JsonObject;
 import com.jeffdisher.cacophony.commands.CommandRunner;
 import com.jeffdisher.cacophony.commands.Context;
+import com.jeffdisher.cacophony.commands.RevalidatePostsCommand;
 import com.jeffdisher.cacophony.commands.ShowPostCommand;
 import com.jeffdisher.cacophony.types.IpfsFile;
 
@@ -28,17 +29,28 @@ import jakarta.servlet.http.HttpServletResponse;
  * -thumbnailUrl (string) - can be null (null if hasDataToCache)
  * -videoUrl (string) - can be null (null if hasDataToCache)
  * -audioUrl (string) - can be null (null if hasDataToCache)
+ * 
+ * A post's meta-data can never change but the struct also describes which of its leaves are cached locally, so the
+ * response is sent with an ETag derived from the CID and the local cache state for that post.  If the client sends a
+ * matching If-None-Match, we respond with 304 (Not Modified) without loading the post.  Since leaves can be cached or
+ * evicted at any time, clients must still revalidate every time they use the response.
+ * The cache state is read by RevalidatePostsCommand, on the command runner, so the request thread never takes access.
  */
 public class GET_PostStruct implements ValidatedEntryPoints.GET
 {
 	public static final String CACHE_FORCE = "FORCE";
 	public static final String CACHE_OPTIONAL = "OPTIONAL";
+	// The response can change whenever leaves are cached or evicted so the client must revalidate each time.
+	static final String CACHE_CONTROL = "private, no-cache";
 
+	private final Context _context;
 	private final CommandRunner _runner;
 	
-	public GET_PostStruct(CommandRunner runner
+	public GET_PostStruct(Context context
+			, CommandRunner runner
 	)
 	{
+		_context = context;
 		_runner = runner;
 	}
 	
@@ -50,7 +62,7 @@ public class GET_PostStruct implements ValidatedEntryPoints.GET
 		boolean forceCache = cacheOption.equals(CACHE_FORCE);
 		if (forceCache || cacheOption.equals(CACHE_OPTIONAL))
 		{
-			_handle(response, postToResolve, forceCache);
+			_handle(request, response, postToResolve, forceCache);
 		}
 		else
 		{
@@ -59,40 +71,77 @@ public class GET_PostStruct implements ValidatedEntryPoints.GET
 		}
 	}
 
+	/**
+	 * Builds the JSON struct describing a post, as documented in the class comment.  This is also used by
+	 * GET_PostStructBatch.
+	 * 
+	 * @param baseUrl The base URL of the IPFS gateway, used to build the leaf URLs.
+	 * @param result The details of the post.
+	 * @return The JSON struct.
+	 */
+	public static JsonObject buildPostStruct(URL baseUrl, ShowPostCommand.PostDetails result)
+	{
+		JsonObject postStruct = new JsonObject();
+		postStruct.set("name", result.name());
+		postStruct.set("description", result.description());
+		postStruct.set("publishedSecondsUtc", result.publishedSecondsUtc());
+		postStruct.set("discussionUrl", result.discussionUrl());
+		postStruct.set("publisherKey", result.publisherKey().toPublicKey());
+		String replyToString = (null != result.replyToCid())
+				? result.replyToCid().toSafeString()
+				: null
+		;
+		postStruct.set("replyTo", replyToString);
+		postStruct.set("hasDataToCache", result.hasDataToCache());
+		postStruct.set("thumbnailUrl", _urlOrNull(baseUrl, result.cachedThumbnailCid()));
+		postStruct.set("videoUrl", _urlOrNull(baseUrl, result.cachedVideoCid()));
+		postStruct.set("audioUrl", _urlOrNull(baseUrl, result.cachedAudioCid()));
+		return postStruct;
+	}
+
 
-	private void _handle(HttpServletResponse response, IpfsFile postToResolve, boolean forceCache) throws Throwable
+	private void _handle(HttpServletRequest request, HttpServletResponse response, IpfsFile postToResolve, boolean forceCache)
 	{
-		ShowPostCommand command = new ShowPostCommand(postToResolve, forceCache);
-		InteractiveHelpers.SuccessfulCommand<ShowPostCommand.PostDetails> success = InteractiveHelpers.runCommandAndHandleErrors(response
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		// We can only generate an ETag if the post is already known locally.
+		RevalidatePostsCommand<ShowPostCommand.PostDetails> command = new RevalidatePostsCommand<>(new IpfsFile[] { postToResolve }
+				, (String[] states) -> (null != states) && InteractiveHelpers.doesEtagMatch(ifNoneMatch, _buildEtag(postToResolve, states[0]))
+				, new ShowPostCommand(postToResolve, forceCache)
+		);
+		// This may need to fetch the post from the network so we don't block the request thread while it runs.
+		InteractiveHelpers.runCommandAsync(request
+				, response
 				, _runner
 				, null
 				, command
 				, null
-		);
-		if (null != success)
-		{
-			ShowPostCommand.PostDetails result = success.result();
-			Context context = success.context();
-			JsonObject postStruct = new JsonObject();
-			postStruct.set("name", result.name());
-			postStruct.set("description", result.description());
-			postStruct.set("publishedSecondsUtc", result.publishedSecondsUtc());
-			postStruct.set("discussionUrl", result.discussionUrl());
-			postStruct.set("publisherKey", result.publisherKey().toPublicKey());
-			String replyToString = (null != result.replyToCid())
-					? result.replyToCid().toSafeString()
-					: null
-			;
-			postStruct.set("replyTo", replyToString);
-			postStruct.set("hasDataToCache", result.hasDataToCache());
-			postStruct.set("thumbnailUrl", _urlOrNull(context.baseUrl, result.cachedThumbnailCid()));
-			postStruct.set("videoUrl", _urlOrNull(context.baseUrl, result.cachedVideoCid()));
-			postStruct.set("audioUrl", _urlOrNull(context.baseUrl, result.cachedAudioCid()));
-			
-			response.setContentType("application/json");
-			response.setStatus(HttpServletResponse.SC_OK);
-			response.getWriter().print(postStruct.toString());
-		}
+				, (InteractiveHelpers.SuccessfulCommand<RevalidatePostsCommand.Revalidated<ShowPostCommand.PostDetails>> success) -> {
+			RevalidatePostsCommand.Revalidated<ShowPostCommand.PostDetails> revalidated = success.result();
+			// The states are only returned if the response describes a specific state (the post was known locally and
+			// the command didn't change it).
+			if (null != revalidated.cacheStates())
+			{
+				response.setHeader("ETag", _buildEtag(postToResolve, revalidated.cacheStates()[0]));
+			}
+			response.setHeader("Cache-Control", CACHE_CONTROL);
+			if (null != revalidated.result())
+			{
+				JsonObject postStruct = buildPostStruct(success.context().baseUrl, revalidated.result());
+				response.setContentType("application/json");
+				response.setStatus(HttpServletResponse.SC_OK);
+				response.getWriter().print(postStruct.toString());
+			}
+			else
+			{
+				// The client already has this response.
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			}
+		});
+	}
+
+	private String _buildEtag(IpfsFile postToResolve, String cacheState)
+	{
+		return InteractiveHelpers.buildEtag(postToResolve.toSafeString(), _context.baseUrl + cacheState);
 	}
 
 	private static String _urlOrNull(URL baseUrl, IpfsFile cid)
@@ -0,0 +1,312 @@
+package com.jeffdisher.cacophony.interactive;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import com.jeffdisher.cacophony.commands.CommandRunner;
+import com.jeffdisher.cacophony.commands.Context;
+import com.jeffdisher.cacophony.commands.FutureCommand;
+import com.jeffdisher.cacophony.commands.RevalidatePostsCommand;
+import com.jeffdisher.cacophony.commands.ShowPostBatchCommand;
+import com.jeffdisher.cacophony.commands.results.None;
+import com.jeffdisher.cacophony.types.CacophonyException;
+import com.jeffdisher.cacophony.types.IpfsFile;
+
+import io.ipfs.multibase.Base58;
+import io.ipfs.multihash.Multihash;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+
+/**
+ * URL parameters:
+ * [0] - postsToResolve (String - comma-separated list of CIDs, at most MAX_BATCH_SIZE)
+ * [1] - cacheOption (String - "FORCE" or "OPTIONAL")
+ * 
+ * Returns a JSON array with one object for each of the requested posts, written as each post is resolved (so NOT
+ * necessarily in the order requested).  The array is written with each element on its own line, so the client can
+ * start using the posts before the response is complete.  Each element contains:
+ * -cid (string)
+ * -status (int) - the HTTP status GET_PostStruct would have returned for this post (400 if the CID is invalid, in which
+ *  case cid is the string as it was requested)
+ * -post (object) - the struct GET_PostStruct would have returned for this post (null if the status isn't 200)
+ * 
+ * Like GET_PostStruct, if every requested post is already known locally (and the cache isn't being forced), the
+ * response is sent with an ETag derived from the requested CIDs and the local cache state of each of those posts.  If
+ * the client sends a matching If-None-Match, we respond with 304 (Not Modified) without resolving the posts.  Since
+ * the ETag is sent in the headers, the response is buffered in this case (the posts can all be resolved locally, so
+ * this is quick) and the ETag is only sent if none of the posts failed, since those failures may be transient.
+ * Otherwise, the response is streamed without an ETag.
+ * The cache state is read by RevalidatePostsCommand, on the command runner, so the request thread never takes access.
+ */
+public class GET_PostStructBatch implements ValidatedEntryPoints.GET
+{
+	/**
+	 * The maximum number of posts which can be requested at once.
+	 */
+	public static final int MAX_BATCH_SIZE = 100;
+	// The requested CIDs are too long to use as the identity in the ETag so they are only part of the hashed state.
+	private static final String ETAG_IDENTITY = "batch";
+
+	private final Context _context;
+	private final CommandRunner _runner;
+
+	public GET_PostStructBatch(Context context
+			, CommandRunner runner
+	)
+	{
+		_context = context;
+		_runner = runner;
+	}
+
+	@Override
+	public void handle(HttpServletRequest request, HttpServletResponse response, Object[] path) throws Throwable
+	{
+		String[] rawCids = ((String)path[2]).split(",");
+		String cacheOption = (String)path[3];
+		boolean forceCache = cacheOption.equals(GET_PostStruct.CACHE_FORCE);
+		if ((rawCids.length <= MAX_BATCH_SIZE) && (forceCache || cacheOption.equals(GET_PostStruct.CACHE_OPTIONAL)))
+		{
+			IpfsFile[] cids = new IpfsFile[rawCids.length];
+			for (int i = 0; i < rawCids.length; ++i)
+			{
+				cids[i] = _parseCid(rawCids[i]);
+			}
+			_handle(request, response, rawCids, cids, forceCache);
+		}
+		else
+		{
+			// One of the parameters is incorrect.
+			response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+		}
+	}
+
+
+	private void _handle(HttpServletRequest request, HttpServletResponse response, String[] rawCids, IpfsFile[] cids, boolean forceCache) throws IOException
+	{
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		ResponseArray array = new ResponseArray(response, response.getWriter());
+		List<IpfsFile> postsToResolve = new ArrayList<>();
+		for (IpfsFile cid : cids)
+		{
+			if (null != cid)
+			{
+				postsToResolve.add(cid);
+			}
+		}
+		IpfsFile[] validCids = postsToResolve.toArray((int size) -> new IpfsFile[size]);
+		ShowPostBatchCommand batch = new ShowPostBatchCommand(validCids, forceCache, (ShowPostBatchCommand.PostResult result) -> {
+				JsonObject element = (null != result.post())
+						? _buildElement(result.elementCid().toSafeString(), HttpServletResponse.SC_OK, GET_PostStruct.buildPostStruct(_context.baseUrl, result.post()))
+						: _buildElement(result.elementCid().toSafeString(), InteractiveHelpers.getErrorStatus(result.error()), Json.NULL)
+				;
+				array.write(element, (null != result.error()));
+			});
+		RevalidatePostsCommand<None> command = new RevalidatePostsCommand<>(validCids, (String[] states) -> {
+				// This is called before any posts are resolved.  We can only generate an ETag if all the posts are
+				// already known locally.
+				String etag = (!forceCache && (null != states))
+						? _buildEtag(rawCids, cids, states)
+						: null
+				;
+				boolean isNotModified = (null != etag) && InteractiveHelpers.doesEtagMatch(ifNoneMatch, etag);
+				if (!isNotModified)
+				{
+					// Errors are reported per-post so the response is always successful.
+					array.start(null != etag);
+					// Invalid CIDs are reported immediately, since they can't be resolved, and don't stop us resolving the rest.
+					for (int i = 0; i < cids.length; ++i)
+					{
+						if (null == cids[i])
+						{
+							array.write(_buildElement(rawCids[i], HttpServletResponse.SC_BAD_REQUEST, Json.NULL), false);
+						}
+					}
+				}
+				return isNotModified;
+			}, batch);
+		
+		// Some of these posts may need to be fetched from the network so we don't block the request thread.
+		AsyncContext async = request.startAsync();
+		async.setTimeout(0L);
+		FutureCommand<RevalidatePostsCommand.Revalidated<None>> future = _runner.runCommand(command, null);
+		future.registerCompletion((FutureCommand<RevalidatePostsCommand.Revalidated<None>> done) -> {
+			try
+			{
+				RevalidatePostsCommand.Revalidated<None> revalidated = done.get();
+				String etag = (!forceCache && (null != revalidated.cacheStates()))
+						? _buildEtag(rawCids, cids, revalidated.cacheStates())
+						: null
+				;
+				if (null != revalidated.result())
+				{
+					array.finish(etag);
+				}
+				else
+				{
+					// The client already has this response.
+					response.setHeader("ETag", etag);
+					response.setHeader("Cache-Control", GET_PostStruct.CACHE_CONTROL);
+					response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				}
+			}
+			catch (CacophonyException e)
+			{
+				// The command only fails if the runner is shutting down, in which case we just end the array early.
+				array.abort(InteractiveHelpers.getErrorStatus(e));
+			}
+			async.complete();
+		});
+	}
+
+	private String _buildEtag(String[] rawCids, IpfsFile[] cids, String[] validStates)
+	{
+		// The response is determined by the requested CIDs and the cache state of each of them (invalid CIDs always get
+		// the same response).
+		StringBuilder state = new StringBuilder();
+		state.append(_context.baseUrl);
+		int nextValid = 0;
+		for (int i = 0; i < rawCids.length; ++i)
+		{
+			String description;
+			if (null != cids[i])
+			{
+				description = validStates[nextValid];
+				nextValid += 1;
+			}
+			else
+			{
+				description = "|invalid";
+			}
+			state.append("\n").append(rawCids[i]).append(description);
+		}
+		return InteractiveHelpers.buildEtag(ETAG_IDENTITY, state.toString());
+	}
+
+
+	private static IpfsFile _parseCid(String raw)
+	{
+		// IpfsFile.fromIpfsCid() returns null when the decoder throws IllegalStateException (invalid base58 or an unknown
+		// or mis-sized multihash) but a truncated multihash fails with an IOException wrapped in a RuntimeException.  One
+		// bad CID shouldn't fail the batch so we read the multihash first, to reject those before decoding.
+		IpfsFile cid;
+		try
+		{
+			Multihash.deserialize(new ByteArrayInputStream(Base58.decode(raw)));
+			cid = IpfsFile.fromIpfsCid(raw);
+		}
+		catch (IllegalStateException | IOException e)
+		{
+			cid = null;
+		}
+		return cid;
+	}
+
+	private static JsonObject _buildElement(String cid, int status, JsonValue post)
+	{
+		JsonObject element = new JsonObject();
+		element.set("cid", cid);
+		element.set("status", status);
+		element.set("post", post);
+		return element;
+	}
+
+
+	/**
+	 * Writes the JSON array to the response.  If we may send an ETag, the array is buffered until it is complete, since
+	 * we only know if we can send it once every post is resolved.  Otherwise, the array is streamed, flushing each
+	 * element so the client sees it immediately.
+	 */
+	private static class ResponseArray
+	{
+		private final HttpServletResponse _response;
+		private final PrintWriter _output;
+		// Null if we are streaming.
+		private StringWriter _buffer;
+		// Null until we start.
+		private PrintWriter _writer;
+		private boolean _isFirst;
+		private boolean _didFail;
+		
+		public ResponseArray(HttpServletResponse response, PrintWriter output)
+		{
+			_response = response;
+			_output = output;
+		}
+		
+		public synchronized void start(boolean shouldBuffer)
+		{
+			if (shouldBuffer)
+			{
+				_buffer = new StringWriter();
+				_writer = new PrintWriter(_buffer);
+			}
+			else
+			{
+				_sendHeaders(null);
+				_writer = _output;
+			}
+			_isFirst = true;
+			_writer.print("[");
+		}
+		
+		public synchronized void write(JsonObject element, boolean isFailure)
+		{
+			_writer.print(_isFirst ? "\n" : ",\n");
+			_writer.print(element.toString());
+			if (null == _buffer)
+			{
+				_writer.flush();
+			}
+			_isFirst = false;
+			_didFail |= isFailure;
+		}
+		
+		public synchronized void finish(String etag)
+		{
+			_writer.print("\n]\n");
+			if (null != _buffer)
+			{
+				// A failure may be transient so we don't want the client to keep reusing it.
+				_writer.flush();
+				_sendHeaders(_didFail ? null : etag);
+				_output.print(_buffer.toString());
+			}
+			_output.flush();
+		}
+		
+		public synchronized void abort(int errorStatus)
+		{
+			if (null == _writer)
+			{
+				// We never started so we can still report the error.
+				_response.setStatus(errorStatus);
+			}
+			else
+			{
+				// We can't send the ETag for an incomplete response.
+				_didFail = true;
+				finish(null);
+			}
+		}
+		
+		private void _sendHeaders(String etag)
+		{
+			if (null != etag)
+			{
+				_response.setHeader("ETag", etag);
+			}
+			_response.setHeader("Cache-Control", GET_PostStruct.CACHE_CONTROL);
+			_response.setContentType("application/json");
+			_response.setStatus(HttpServletResponse.SC_OK);
+		}
+	}
+}
@@ -22,6 +22,10 @@ import jakarta.servlet.http.HttpServletResponse;
  * -followeeRecordThumbnailMaxBytes (long)
  * -followeeRecordAudioMaxBytes (long)
  * -followeeRecordVideoMaxBytes (long)
+ * -followeeCacheEvictionPolicy (string - RANDOM, LRU, LFU, or GDSF)
+ * -globalCacheBudgetBytes (long - 0 if disabled)
+ * -prefetchHopDepth (int - 0 if disabled)
+ * -prefetchBudgetBytes (long)
  */
 public class GET_Prefs implements ValidatedEntryPoints.GET
 {
@@ -30,14 +30,14 @@ public class GET_RecommendedKeys implements ValidatedEntryPoints.GET
 		// While this could be a home user, we don't bother specializing that case, here.
 		ListRecommendationsCommand command = new ListRecommendationsCommand(userToResolve);
 		// This is just a reading case so we don't bother with blocking key.
-		InteractiveHelpers.SuccessfulCommand<KeyList> result = InteractiveHelpers.runCommandAndHandleErrors(response
+		// This may need to resolve the key on the network so we don't block the request thread while it runs.
+		InteractiveHelpers.runCommandAsync(request
+				, response
 				, _runner
 				, null
 				, command
 				, null
-		);
-		if (null != result)
-		{
+				, (InteractiveHelpers.SuccessfulCommand<KeyList> result) -> {
 			JsonArray array = new JsonArray();
 			for (IpfsKey key : result.result().keys)
 			{
@@ -45,6 +45,6 @@ public class GET_RecommendedKeys implements ValidatedEntryPoints.GET
 			}
 			response.setContentType("application/json");
 			response.getWriter().print(array.toString());
-		}
+		});
 	}
 }
@@ -6,7 +6,6 @@ import com.eclipsesource.json.JsonObject;
 import com.jeffdisher.cacophony.access.IReadingAccess;
 import com.jeffdisher.cacophony.commands.Context;
 import com.jeffdisher.cacophony.commands.Version;
-import com.jeffdisher.cacophony.logic.CacheHelpers;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -16,6 +15,7 @@ import jakarta.servlet.http.HttpServletResponse;
  * Returns miscellaneous information about the status of the server.
  * -"hash" (string) - the git hash of the current build
  * -"version" (string) - the human-readable version name of the current build
+ * -"explicitNegativeCacheEntries" (int) - the number of recently failed explicit look-ups being remembered
  * -"followeeCacheBytes" (long)
  * -"explicitCacheBytes" (long)
  * -"favouritesCacheBytes" (long)
@@ -38,11 +38,12 @@ public class GET_ServerStatus implements ValidatedEntryPoints.GET
 		
 		serverStatus.add("hash", Version.HASH);
 		serverStatus.add("version", Version.TAG);
+		serverStatus.add("explicitNegativeCacheEntries", _context.explicitCacheManager.getNegativeCacheSize());
 		long explicitCacheBytes = _context.explicitCacheManager.getExplicitCacheSize();
 		serverStatus.add("explicitCacheBytes", explicitCacheBytes);
 		try (IReadingAccess access = Context.readAccess(_context))
 		{
-			long followeeCacheBytes = CacheHelpers.getCurrentCacheSizeBytes(access.readableFolloweeData());
+			long followeeCacheBytes = access.readableFolloweeData().getCurrentCacheSizeBytes();
 			long favouritesSizeBytes = access.readableFavouritesCache().getFavouritesSizeBytes();
 			serverStatus.add("followeeCacheBytes", followeeCacheBytes);
 			serverStatus.add("favouritesCacheBytes", favouritesSizeBytes);
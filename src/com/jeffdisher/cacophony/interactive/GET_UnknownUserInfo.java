@@ -38,14 +38,14 @@ public class GET_UnknownUserInfo implements ValidatedEntryPoints.GET
 		// While this could be a home user, we don't bother specializing that case, here.
 		ReadDescriptionCommand command = new ReadDescriptionCommand(userToResolve);
 		// This is just a reading case so we don't bother with blocking key.
-		InteractiveHelpers.SuccessfulCommand<ChannelDescription> success = InteractiveHelpers.runCommandAndHandleErrors(response
+		// This may need to resolve the key on the network so we don't block the request thread while it runs.
+		InteractiveHelpers.runCommandAsync(request
+				, response
 				, _runner
 				, null
 				, command
 				, null
-		);
-		if (null != success)
-		{
+				, (InteractiveHelpers.SuccessfulCommand<ChannelDescription> success) -> {
 			ChannelDescription result = success.result();
 			JsonObject userInfo = JsonGenerationHelpers.userDescription(result.name
 					, result.description
@@ -56,6 +56,6 @@ public class GET_UnknownUserInfo implements ValidatedEntryPoints.GET
 			);
 			response.setContentType("application/json");
 			response.getWriter().print(userInfo.toString());
-		}
+		});
 	}
 }
@@ -4,6 +4,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -28,6 +32,7 @@ import com.jeffdisher.cacophony.types.VersionException;
 import com.jeffdisher.cacophony.utils.Assert;
 import com.jeffdisher.cacophony.utils.MiscHelpers;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -41,6 +46,12 @@ public class InteractiveHelpers
 {
 	private static final String XSRF = "XSRF";
 	private static final String LOCAL_IP = "127.0.0.1";
+	private static final String WEAK_ETAG_PREFIX = "W/";
+	// The number of bytes of the state hash we include in an ETag.
+	private static final int ETAG_HASH_BYTES = 8;
+	private static final String BYTES_UNIT_PREFIX = "bytes=";
+	// We ignore Range headers with more than this many ranges, instead of doing that much work for a single request.
+	private static final int MAX_BYTE_RANGES = 16;
 
 	/**
 	 * Updates the information about the original video in the given draft.  This is called after the video has been
@@ -479,6 +490,161 @@ public class InteractiveHelpers
 		return xsrf.equals(value);
 	}
 
+	/**
+	 * Builds a strong ETag for a response which is entirely determined by the given identity and state strings.  The
+	 * identity is included directly (so it must be safe to use in a header) while the state is hashed.
+	 * 
+	 * @param identity The identity of the resource (a CID, for example).
+	 * @param state A description of all other information which determines the response.
+	 * @return The ETag, including its quotes.
+	 */
+	public static String buildEtag(String identity, String state)
+	{
+		byte[] hash;
+		try
+		{
+			hash = MessageDigest.getInstance("SHA-256").digest(state.getBytes(StandardCharsets.UTF_8));
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// SHA-256 is required to exist in all Java implementations.
+			throw Assert.unexpected(e);
+		}
+		StringBuilder builder = new StringBuilder();
+		builder.append('"').append(identity).append('-');
+		for (int i = 0; i < ETAG_HASH_BYTES; ++i)
+		{
+			builder.append(String.format("%02x", hash[i]));
+		}
+		builder.append('"');
+		return builder.toString();
+	}
+
+	/**
+	 * Checks if the given If-None-Match header value matches the ETag of the current response, meaning that the
+	 * client already has it.  Note that, as this is only used for GET requests, we use the weak comparison.
+	 * 
+	 * @param ifNoneMatch The value of the If-None-Match header (can be null).
+	 * @param etag The ETag of the current response.
+	 * @return True if the client already has this response (so it can be sent a 304).
+	 */
+	public static boolean doesEtagMatch(String ifNoneMatch, String etag)
+	{
+		boolean doesMatch = false;
+		if (null != ifNoneMatch)
+		{
+			for (String candidate : ifNoneMatch.split(","))
+			{
+				candidate = candidate.trim();
+				if (candidate.startsWith(WEAK_ETAG_PREFIX))
+				{
+					candidate = candidate.substring(WEAK_ETAG_PREFIX.length());
+				}
+				doesMatch |= candidate.equals("*") || candidate.equals(etag);
+			}
+		}
+		return doesMatch;
+	}
+
+	/**
+	 * Parses the value of an HTTP Range header (RFC 7233) for a resource of the given size.
+	 * Any overlapping or adjacent ranges are coalesced (which means the ranges are returned sorted), and any ranges
+	 * which start past the end of the resource are dropped.
+	 * 
+	 * @param rangeHeader The value of the Range header (can be null).
+	 * @param size The total size of the resource, in bytes.
+	 * @return The list of ranges to send (empty if none can be satisfied) or null if the header should be ignored (it
+	 * was missing, malformed, used a unit other than bytes, contained no ranges, or requested too many ranges).
+	 */
+	public static List<ByteRange> parseByteRanges(String rangeHeader, long size)
+	{
+		List<ByteRange> ranges = null;
+		if ((null != rangeHeader) && rangeHeader.regionMatches(true, 0, BYTES_UNIT_PREFIX, 0, BYTES_UNIT_PREFIX.length()))
+		{
+			ranges = new ArrayList<>();
+			boolean hasSpec = false;
+			String[] specs = rangeHeader.substring(BYTES_UNIT_PREFIX.length()).split(",");
+			if (specs.length > MAX_BYTE_RANGES)
+			{
+				ranges = null;
+			}
+			for (int i = 0; (null != ranges) && (i < specs.length); ++i)
+			{
+				String spec = specs[i].trim();
+				int dash = spec.indexOf('-');
+				try
+				{
+					hasSpec |= !spec.isEmpty();
+					if (spec.isEmpty())
+					{
+						// Empty list elements are allowed, and ignored.
+					}
+					else if (0 == dash)
+					{
+						// This is a suffix range, describing the last N bytes.
+						long suffixLength = _parseRangeNumber(spec.substring(1));
+						if ((suffixLength > 0L) && (size > 0L))
+						{
+							ranges.add(new ByteRange(Math.max(0L, size - suffixLength), size - 1L));
+						}
+					}
+					else if (dash > 0)
+					{
+						long start = _parseRangeNumber(spec.substring(0, dash));
+						String rawEnd = spec.substring(dash + 1);
+						long end = rawEnd.isEmpty()
+								? Long.MAX_VALUE
+								: _parseRangeNumber(rawEnd)
+						;
+						if (end < start)
+						{
+							// A range which ends before it starts makes the whole header invalid.
+							ranges = null;
+						}
+						else if (start < size)
+						{
+							ranges.add(new ByteRange(start, Math.min(end, size - 1L)));
+						}
+					}
+					else
+					{
+						ranges = null;
+					}
+				}
+				catch (NumberFormatException e)
+				{
+					ranges = null;
+				}
+			}
+			if (!hasSpec)
+			{
+				// The header must contain at least one range so an empty list is malformed (not unsatisfiable).
+				ranges = null;
+			}
+		}
+		if ((null != ranges) && (ranges.size() > 1))
+		{
+			ranges.sort((ByteRange one, ByteRange two) -> Long.compare(one.start(), two.start()));
+			List<ByteRange> coalesced = new ArrayList<>();
+			ByteRange current = ranges.get(0);
+			for (ByteRange next : ranges.subList(1, ranges.size()))
+			{
+				if (next.start() <= (current.end() + 1L))
+				{
+					current = new ByteRange(current.start(), Math.max(current.end(), next.end()));
+				}
+				else
+				{
+					coalesced.add(current);
+					current = next;
+				}
+			}
+			coalesced.add(current);
+			ranges = coalesced;
+		}
+		return ranges;
+	}
+
 	/**
 	 * A complex helper which handles all of the processing of an ICommand instance within a REST end-point.  This will
 	 * run the command, handling any exceptions as the appropriate HTTP errors, and will return the given result object
@@ -498,56 +664,177 @@ public class InteractiveHelpers
 		SuccessfulCommand<T> result = null;
 		try
 		{
-			FutureCommand<T> future = (null != blockingKey)
-					? runner.runBlockedCommand(blockingKey, command, overrideKey)
-					: runner.runCommand(command, overrideKey)
-			;
-			// These always return a future.
-			Assert.assertTrue(null != future);
+			FutureCommand<T> future = _startCommand(runner, blockingKey, command, overrideKey);
 			T output = future.get();
 			// The commands should only fail with exceptions, always returning non-null on success.
 			Assert.assertTrue(null != output);
 			result = new SuccessfulCommand<T>(output, future.context);
 			response.setStatus(HttpServletResponse.SC_OK);
 		}
-		catch (IpfsConnectionException e)
+		catch (CacophonyException e)
+		{
+			_setErrorStatus(response, e);
+		}
+		return result;
+	}
+
+	/**
+	 * The asynchronous version of runCommandAndHandleErrors():  instead of blocking the calling (Jetty request) thread
+	 * until the command completes, this puts the request into asynchronous mode and returns immediately, so slow
+	 * commands don't tie up the HTTP thread pool.  When the command completes, the status is set the same way as in
+	 * runCommandAndHandleErrors() and, on success, onSuccess is called to write the response before the request is
+	 * completed.
+	 * Note that onSuccess is called on the thread which completed the command so it should only write the response.
+	 * 
+	 * @param <T> The return value of the command.
+	 * @param request The request to put into asynchronous mode.
+	 * @param response Used for setting HTTP result codes and writing the response.
+	 * @param runner The CommandRunner to execute the command.
+	 * @param blockingKey The key to use as the blocking key for this command (null for no blocking).
+	 * @param command The command to run.
+	 * @param overrideKey If non-null, will be used to find the key name for the command's context.
+	 * @param onSuccess Called to write the response if the command succeeds.
+	 */
+	public static <T extends ICommand.Result> void runCommandAsync(HttpServletRequest request, HttpServletResponse response, CommandRunner runner, IpfsKey blockingKey, ICommand<T> command, IpfsKey overrideKey, ISuccessWriter<T> onSuccess)
+	{
+		FutureCommand<T> future = _startCommand(runner, blockingKey, command, overrideKey);
+		// We must start the async context before registering the callback, since it may run immediately.
+		AsyncContext async = request.startAsync();
+		// The synchronous version never timed out (the command may be waiting on the network) so we don't, either.
+		async.setTimeout(0L);
+		future.registerCompletion((FutureCommand<T> done) -> {
+			try
+			{
+				T output = done.get();
+				// The commands should only fail with exceptions, always returning non-null on success.
+				Assert.assertTrue(null != output);
+				response.setStatus(HttpServletResponse.SC_OK);
+				onSuccess.write(new SuccessfulCommand<T>(output, done.context));
+			}
+			catch (CacophonyException e)
+			{
+				_setErrorStatus(response, e);
+			}
+			catch (IOException e)
+			{
+				// This usually means that the client disconnected so we will just complete the request.
+			}
+			finally
+			{
+				async.complete();
+			}
+		});
+	}
+
+
+	/**
+	 * Maps an exception thrown by a command to the HTTP status code we use to report it.
+	 * 
+	 * @param e The exception thrown by the command.
+	 * @return The HTTP status code.
+	 */
+	public static int getErrorStatus(CacophonyException e)
+	{
+		int status;
+		if (e instanceof IpfsConnectionException)
 		{
 			// An internal network error.
-			response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
 		}
-		catch (UsageException e)
+		else if (e instanceof UsageException)
 		{
 			// The parameters were wrong.
-			response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+			status = HttpServletResponse.SC_BAD_REQUEST;
 		}
-		catch (KeyException e)
+		else if (e instanceof KeyException)
 		{
 			// We couldn't resolve the key.
-			response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+			status = HttpServletResponse.SC_NOT_FOUND;
 		}
-		catch (ProtocolDataException e)
+		else if (e instanceof ProtocolDataException)
 		{
 			// We found the requeste data but it was corrupt or otherwise not obeying protocol rules.
-			response.setStatus(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+			status = HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE;
 		}
-		catch (VersionException e)
+		else if (e instanceof VersionException)
 		{
 			// This should never appear at the top-level.
 			throw Assert.unexpected(e);
 		}
-		catch (CacophonyException e)
+		else
 		{
 			// We should have hit one of the above cases.  This would mean we added another exception type but didn't handle it.
 			throw Assert.unexpected(e);
 		}
-		return result;
+		return status;
+	}
+
+
+	private static long _parseRangeNumber(String raw)
+	{
+		// The grammar only allows digits (parseLong would also accept a sign).
+		if (raw.isEmpty() || !raw.chars().allMatch((int c) -> ((c >= '0') && (c <= '9'))))
+		{
+			throw new NumberFormatException(raw);
+		}
+		return Long.parseLong(raw);
+	}
+
+	private static <T extends ICommand.Result> FutureCommand<T> _startCommand(CommandRunner runner, IpfsKey blockingKey, ICommand<T> command, IpfsKey overrideKey)
+	{
+		FutureCommand<T> future = (null != blockingKey)
+				? runner.runBlockedCommand(blockingKey, command, overrideKey)
+				: runner.runCommand(command, overrideKey)
+		;
+		// These always return a future.
+		Assert.assertTrue(null != future);
+		return future;
+	}
+
+	private static void _setErrorStatus(HttpServletResponse response, CacophonyException e)
+	{
+		response.setStatus(getErrorStatus(e));
 	}
 
 
 	/**
 	 * A common class used to communicate back the result of an internal command to the caller.
-	 *
+	 * 
 	 * @param <T> The type of data returned by the underlying command being run.
 	 */
 	public static record SuccessfulCommand<T extends ICommand.Result>(T result, Context context) {}
+
+	/**
+	 * Writes the response for a command run with runCommandAsync(), when it succeeds.
+	 * 
+	 * @param <T> The type of data returned by the underlying command being run.
+	 */
+	public static interface ISuccessWriter<T extends ICommand.Result>
+	{
+		/**
+		 * Called to write the response (the status has already been set to SC_OK).
+		 * 
+		 * @param success The result of the command and the context where it executed.
+		 * @throws IOException There was an error writing the response.
+		 */
+		void write(SuccessfulCommand<T> success) throws IOException;
+	}
+
+
+	/**
+	 * A single range of bytes within a resource, as requested by an HTTP Range header.
+	 * 
+	 * @param start The offset of the first byte in the range.
+	 * @param end The offset of the last byte in the range (inclusive, as in the header).
+	 */
+	public static record ByteRange(long start, long end)
+	{
+		/**
+		 * @return The number of bytes in the range.
+		 */
+		public long length()
+		{
+			return end - start + 1L;
+		}
+	}
 }
@@ -23,9 +23,11 @@ import com.jeffdisher.cacophony.commands.results.Incremental;
 import com.jeffdisher.cacophony.data.local.v4.Draft;
 import com.jeffdisher.cacophony.data.local.v4.DraftManager;
 import com.jeffdisher.cacophony.data.local.v4.IDraftWrapper;
+import com.jeffdisher.cacophony.logic.CommandHelpers;
 import com.jeffdisher.cacophony.logic.ExplicitCacheManager;
 import com.jeffdisher.cacophony.logic.HandoffConnector;
 import com.jeffdisher.cacophony.logic.LocalRecordCacheBuilder;
+import com.jeffdisher.cacophony.logic.RecommendationPrefetcher;
 import com.jeffdisher.cacophony.projection.FolloweeData;
 import com.jeffdisher.cacophony.projection.IFolloweeReading;
 import com.jeffdisher.cacophony.projection.PrefsData;
@@ -50,6 +52,12 @@ public class InteractiveServer
 	public  static final String EVENT_API_PROTOCOL = "event_api";
 	// The number of threads to use in the CommandRunner.  Most of these operations are simple but may block so we enable lots.
 	public static final int COMMAND_RUNNER_THREAD_COUNT = 16;
+	// The number of background workers in the ExplicitCacheManager.  Each one loads a single user or record at a time,
+	// mostly waiting on the network, so this bounds how many unknown keys we will look up concurrently.
+	public static final int EXPLICIT_CACHE_WORKER_COUNT = 4;
+	// How often we walk the recommendations of home users and followees to warm the explicit cache (only done when the
+	// background operations are otherwise idle).
+	public static final long PREFETCH_INTERVAL_MILLIS = 60L * 60L * 1000L;
 
 	/**
 	 * Sets up, starts, and runs the interactive server.  Only returns once the server has shut down.
@@ -110,7 +118,7 @@ public class InteractiveServer
 				, startingContext.scheduler
 				, startingContext.logger
 				, startingContext.currentTimeMillisGenerator
-				, true
+				, EXPLICIT_CACHE_WORKER_COUNT
 		);
 		
 		// Create the context object which we will use for any command invocation from the interactive server.
@@ -136,9 +144,18 @@ public class InteractiveServer
 			}
 		}
 		CommandRunner runner = new CommandRunner(serverContext, COMMAND_RUNNER_THREAD_COUNT);
+		RecommendationPrefetcher prefetcher = new RecommendationPrefetcher(serverContext.sharedDataModel
+				, serverContext.basicConnection
+				, serverContext.scheduler
+				, serverContext.logger
+				, explicitCacheManager
+				, RecommendationPrefetcher.RECENT_RECORD_COUNT
+		);
 		
 		// We will create a handoff connector for the status operations from the background operations.
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(dispatcher);
+		// The explicit cache reports the progress of purges here, too.
+		explicitCacheManager.attachStatusConnector(statusHandoff);
 		// We need to create an instance of the shared BackgroundOperations (which will eventually move higher in the stack).
 		BackgroundOperations background = new BackgroundOperations(serverContext.currentTimeMillisGenerator, serverContext.logger, new BackgroundOperations.IOperationRunner()
 		{
@@ -196,7 +213,34 @@ public class InteractiveServer
 				}
 				return operationResult;
 			}
-		}, statusHandoff, prefs.republishIntervalMillis, prefs.followeeRefreshMillis);
+			@Override
+			public boolean doesFolloweeCacheNeedShrinking()
+			{
+				// This check is based on the running occupancy count so it is cheap, unlike the shrink, itself.
+				try (IReadingAccess access = Context.readAccess(serverContext))
+				{
+					return CommandHelpers.isFolloweeCacheAboveHighWater(access);
+				}
+			}
+			@Override
+			public void shrinkFolloweeCache()
+			{
+				try (IWritingAccess access = Context.writeAccess(serverContext))
+				{
+					CommandHelpers.shrinkCacheIfAboveHighWater(serverContext.logger, access);
+				}
+				catch (IpfsConnectionException e)
+				{
+					// This just means that some of the unpins failed so we will try again, after the next refresh.
+					serverContext.logger.logError("Followee cache maintenance failed: " + e.getLocalizedMessage());
+				}
+			}
+			@Override
+			public boolean runPrefetchStep(Runnable onReady)
+			{
+				return prefetcher.runStep(onReady);
+			}
+		}, statusHandoff, prefs.republishIntervalMillis, prefs.followeeRefreshMillis, PREFETCH_INTERVAL_MILLIS);
 		
 		try (IReadingAccess access = Context.readAccess(serverContext))
 		{
@@ -253,9 +297,10 @@ public class InteractiveServer
 		validated.addWebSocketFactory("/server/events/combined/entries", EVENT_API_PROTOCOL, new WS_CombinedEntries(serverContext));
 		validated.addWebSocketFactory("/server/events/entries/{KEY}", EVENT_API_PROTOCOL, new WS_UserEntries(serverContext, dispatcher));
 		validated.addWebSocketFactory("/server/events/replies", EVENT_API_PROTOCOL, new WS_Replies(replyCacheConnector));
-		validated.addWebSocketFactory("/server/events/replyTree/{CID}", EVENT_API_PROTOCOL, new WS_ReplyTree(dispatcher, replyForest));
+		validated.addWebSocketFactory("/server/events/replyTree/{CID}", EVENT_API_PROTOCOL, new WS_ReplyTree(serverContext, dispatcher, replyForest));
 		validated.addGetHandler("/server/recommendedKeys/{KEY}", new GET_RecommendedKeys(runner));
-		validated.addGetHandler("/server/postStruct/{CID}/{string}", new GET_PostStruct(runner));
+		validated.addGetHandler("/server/postStruct/{CID}/{string}", new GET_PostStruct(serverContext, runner));
+		validated.addGetHandler("/server/postStructBatch/{string}/{string}", new GET_PostStructBatch(serverContext, runner));
 		validated.addGetHandler("/server/unknownUser/{KEY}", new GET_UnknownUserInfo(runner));
 		validated.addPostRawHandler("/server/clearExplicitCache", new POST_Raw_ClearExplicitCache(runner));
 		
@@ -356,6 +401,7 @@ public class InteractiveServer
 		// The connector dispatcher just responds to changes in explicit cache and commands so it can now come down.
 		serverLog.logOperation("Shutting down connector dispatcher...");
 		dispatcher.shutdown();
+		serverLog.logOperation("Connector dispatcher overflows: " + dispatcher.getOverflowCount() + ", max queue depth: " + dispatcher.getMaxObservedDepth());
 		// The server can now shut down since we shouldn't be blocked in any of our synchronization primitives.
 		serverLog.logOperation("Shutting down Breakwater server...");
 		server.stop();
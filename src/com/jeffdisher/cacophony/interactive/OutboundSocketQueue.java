@@ -0,0 +1,242 @@
+package com.jeffdisher.cacophony.interactive;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.BiConsumer;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import com.jeffdisher.cacophony.utils.Assert;
+
+
+/**
+ * The outbound side of a single WebSocket, used by the HandoffConnector listeners so that a slow client can't hold up
+ * the ConnectorDispatcher thread (and, therefore, every other listener and connector).
+ * Messages are appended to a bounded queue and written using Jetty's non-blocking send, one at a time, with each write
+ * completion starting the next.  If the client falls so far behind that the queue fills, the queued messages are
+ * discarded and the socket is closed with WebSocketCodes.RESYNC_REQUIRED:  the client can reconnect to receive the
+ * current state, which is much smaller than the backlog of changes it missed.  Once this happens (or a write fails), the
+ * queue refuses all further messages so the listener will be unregistered from its connector.
+ * The initial state sent on registration is exempt from the limit (see startBootstrap()), since it is exactly what a
+ * reconnecting client would be sent, anyway:  Counting it would mean that a client of a large enough connector would
+ * overflow, reconnect, and overflow again, forever.
+ */
+public class OutboundSocketQueue implements WriteCallback
+{
+	/**
+	 * The default number of messages which can be waiting to be written before we give up on the client.
+	 */
+	public static final int DEFAULT_MAX_QUEUED_MESSAGES = 1000;
+
+	private final RemoteEndpoint _endpoint;
+	private final BiConsumer<Integer, String> _closer;
+	private final int _maxQueuedMessages;
+	private final Queue<String> _pending;
+	private boolean _isWriting;
+	private boolean _isBroken;
+	private boolean _closeWhenDrained;
+	// While bootstrapping, queued messages are counted here instead of against the limit (they are always at the front
+	// of _pending, so this is decremented as they are written).
+	private boolean _isBootstrapping;
+	private int _bootstrapPending;
+	// Used to detect writes which complete before sendString() returns.
+	private boolean _isInsideSend;
+	private boolean _didCompleteInsideSend;
+
+	/**
+	 * Creates the queue on top of the given session, using the default limit.
+	 * 
+	 * @param session The WebSocket session.
+	 */
+	public OutboundSocketQueue(Session session)
+	{
+		this(session.getRemote(), (Integer code, String reason) -> {
+			if (null != code)
+			{
+				session.close(code, reason);
+			}
+			else
+			{
+				session.close();
+			}
+		}, DEFAULT_MAX_QUEUED_MESSAGES);
+	}
+
+	/**
+	 * Creates the queue on top of the given endpoint, using the closer to close the socket.
+	 * 
+	 * @param endpoint The endpoint to write to.
+	 * @param closer Called to close the socket with a code and reason (both null for a normal close).
+	 * @param maxQueuedMessages The number of messages which can be waiting to be written before we give up.
+	 */
+	public OutboundSocketQueue(RemoteEndpoint endpoint, BiConsumer<Integer, String> closer, int maxQueuedMessages)
+	{
+		Assert.assertTrue(maxQueuedMessages > 0);
+		_endpoint = endpoint;
+		_closer = closer;
+		_maxQueuedMessages = maxQueuedMessages;
+		_pending = new ArrayDeque<>();
+	}
+
+	/**
+	 * Adds a message to be written to the socket.  This never blocks on the network.
+	 * 
+	 * @param message The message to write.
+	 * @return True if the message was queued, false if the socket has failed or fallen too far behind (in which case
+	 * the caller should stop sending to it).
+	 */
+	public boolean send(String message)
+	{
+		boolean shouldClose = false;
+		boolean shouldStart = false;
+		boolean didQueue;
+		synchronized (this)
+		{
+			if (!_isBroken && !_closeWhenDrained && !_isBootstrapping && ((_pending.size() - _bootstrapPending) >= _maxQueuedMessages))
+			{
+				// The client can't keep up so drop everything and tell it to resync.
+				_isBroken = true;
+				_pending.clear();
+				_bootstrapPending = 0;
+				shouldClose = true;
+			}
+			didQueue = !_isBroken && !_closeWhenDrained;
+			if (didQueue)
+			{
+				_pending.add(message);
+				if (_isBootstrapping)
+				{
+					_bootstrapPending += 1;
+				}
+				shouldStart = !_isWriting;
+				_isWriting = true;
+			}
+		}
+		// We interact with the socket outside of our monitor since Jetty may call back into us on a different thread.
+		if (shouldClose)
+		{
+			_closer.accept(WebSocketCodes.RESYNC_REQUIRED, "Too far behind");
+		}
+		if (shouldStart)
+		{
+			_writeNext();
+		}
+		return didQueue;
+	}
+
+	/**
+	 * Starts sending the initial state of the socket:  Until endBootstrap() is called, queued messages don't count
+	 * against the limit.  This is only needed by sockets which are sent an unbounded initial state (those which
+	 * register without a limit) and should be ended once that state has been delivered (see
+	 * HandoffConnector.runAfterPendingDeliveries()).
+	 */
+	public synchronized void startBootstrap()
+	{
+		_isBootstrapping = true;
+	}
+
+	/**
+	 * Ends the initial state started by startBootstrap():  Later messages count against the limit, although the
+	 * initial state messages which are still waiting to be written don't.
+	 */
+	public synchronized void endBootstrap()
+	{
+		_isBootstrapping = false;
+	}
+
+	/**
+	 * Requests that the socket be closed normally once everything already queued has been written.  Any later messages
+	 * will be refused.
+	 */
+	public void closeWhenDrained()
+	{
+		boolean shouldClose;
+		synchronized (this)
+		{
+			shouldClose = !_closeWhenDrained && !_isWriting && !_isBroken;
+			_closeWhenDrained = true;
+		}
+		if (shouldClose)
+		{
+			_closer.accept(null, null);
+		}
+	}
+
+	@Override
+	public void writeSuccess()
+	{
+		boolean isInsideSend;
+		synchronized (this)
+		{
+			// If this completed while we were still inside sendString(), that loop will write the next message.
+			isInsideSend = _isInsideSend;
+			_didCompleteInsideSend = isInsideSend;
+		}
+		if (!isInsideSend)
+		{
+			_writeNext();
+		}
+	}
+
+	@Override
+	public void writeFailed(Throwable x)
+	{
+		// The socket is probably closing so just drop everything (the listener will be unregistered on close).
+		synchronized (this)
+		{
+			_isBroken = true;
+			_isWriting = false;
+			_pending.clear();
+			_bootstrapPending = 0;
+		}
+	}
+
+
+	private void _writeNext()
+	{
+		// We loop, instead of recursing through writeSuccess(), since Jetty may complete writes before returning.
+		boolean keepWriting = true;
+		while (keepWriting)
+		{
+			String next;
+			boolean shouldClose = false;
+			synchronized (this)
+			{
+				next = _isBroken ? null : _pending.poll();
+				if (null != next)
+				{
+					if (_bootstrapPending > 0)
+					{
+						_bootstrapPending -= 1;
+					}
+					_isInsideSend = true;
+					_didCompleteInsideSend = false;
+				}
+				else
+				{
+					_isWriting = false;
+					shouldClose = _closeWhenDrained && !_isBroken;
+				}
+			}
+			if (null != next)
+			{
+				_endpoint.sendString(next, this);
+				synchronized (this)
+				{
+					_isInsideSend = false;
+					keepWriting = _didCompleteInsideSend;
+				}
+			}
+			else
+			{
+				if (shouldClose)
+				{
+					_closer.accept(null, null);
+				}
+				keepWriting = false;
+			}
+		}
+	}
+}
@@ -3,6 +3,7 @@ package com.jeffdisher.cacophony.interactive;
 import com.jeffdisher.breakwater.StringMultiMap;
 import com.jeffdisher.cacophony.access.IWritingAccess;
 import com.jeffdisher.cacophony.commands.Context;
+import com.jeffdisher.cacophony.logic.CacheAlgorithm;
 import com.jeffdisher.cacophony.projection.PrefsData;
 import com.jeffdisher.cacophony.types.UsageException;
 
@@ -41,6 +42,10 @@ public class POST_Prefs implements ValidatedEntryPoints.POST_Form
 		long followeeRecordThumbnailMaxBytes = _parseLong(formVariables, "followeeRecordThumbnailMaxBytes");
 		long followeeRecordAudioMaxBytes = _parseLong(formVariables, "followeeRecordAudioMaxBytes");
 		long followeeRecordVideoMaxBytes = _parseLong(formVariables, "followeeRecordVideoMaxBytes");
+		CacheAlgorithm.EvictionPolicy followeeCacheEvictionPolicy = CacheAlgorithm.EvictionPolicy.fromName(formVariables.getIfSingle("followeeCacheEvictionPolicy"));
+		long globalCacheBudgetBytes = _parseLong(formVariables, "globalCacheBudgetBytes");
+		int prefetchHopDepth = _parseInt(formVariables, "prefetchHopDepth");
+		long prefetchBudgetBytes = _parseLong(formVariables, "prefetchBudgetBytes");
 		// Check parameters.
 		if ((videoEdgePixelMax < 0)
 				|| (republishIntervalMillis < 60_000L)
@@ -51,16 +56,24 @@ public class POST_Prefs implements ValidatedEntryPoints.POST_Form
 				|| (followeeRecordThumbnailMaxBytes < 1_000_000L)
 				|| (followeeRecordAudioMaxBytes < 1_000_000L)
 				|| (followeeRecordVideoMaxBytes < 1_000_000L)
+				|| (null == followeeCacheEvictionPolicy)
+				// The global budget is either disabled (0) or must be big enough to be meaningful.
+				|| ((0L != globalCacheBudgetBytes) && (globalCacheBudgetBytes < 1_000_000L))
+				|| (prefetchHopDepth < 0)
+				|| (prefetchBudgetBytes < 0L)
 		)
 		{
 			// We will basically consider this a usage error (caught as general bad request, below).
 			throw new UsageException("Invalid parameter");
 		}
 		boolean didChangeIntervals = false;
+		boolean didShrinkFolloweeCache = false;
 		try (IWritingAccess access = Context.writeAccess(_context))
 		{
 			PrefsData prefs = access.readPrefs();
 			didChangeIntervals = ((prefs.republishIntervalMillis != republishIntervalMillis) || (prefs.followeeRefreshMillis != followeeRefreshMillis));
+			// Any change to the global budget can shrink the followee share so we treat that the same way.
+			didShrinkFolloweeCache = (followeeCacheTargetBytes < prefs.followeeCacheTargetBytes) || (globalCacheBudgetBytes != prefs.globalCacheBudgetBytes);
 			prefs.videoEdgePixelMax = videoEdgePixelMax;
 			prefs.republishIntervalMillis = republishIntervalMillis;
 			prefs.explicitCacheTargetBytes = explicitCacheTargetBytes;
@@ -70,6 +83,10 @@ public class POST_Prefs implements ValidatedEntryPoints.POST_Form
 			prefs.followeeRecordThumbnailMaxBytes = followeeRecordThumbnailMaxBytes;
 			prefs.followeeRecordAudioMaxBytes = followeeRecordAudioMaxBytes;
 			prefs.followeeRecordVideoMaxBytes = followeeRecordVideoMaxBytes;
+			prefs.followeeCacheEvictionPolicy = followeeCacheEvictionPolicy;
+			prefs.globalCacheBudgetBytes = globalCacheBudgetBytes;
+			prefs.prefetchHopDepth = prefetchHopDepth;
+			prefs.prefetchBudgetBytes = prefetchBudgetBytes;
 			access.writePrefs(prefs);
 		}
 		response.setStatus(HttpServletResponse.SC_OK);
@@ -78,6 +95,11 @@ public class POST_Prefs implements ValidatedEntryPoints.POST_Form
 		{
 			_operations.intervalsWereUpdated(republishIntervalMillis, followeeRefreshMillis);
 		}
+		if (didShrinkFolloweeCache)
+		{
+			// The cache may now be above its high-water mark so let the background decide if it needs maintenance.
+			_operations.requestFolloweeCacheMaintenance();
+		}
 	}
 
 
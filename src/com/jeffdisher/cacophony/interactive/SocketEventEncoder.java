@@ -0,0 +1,148 @@
+package com.jeffdisher.cacophony.interactive;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonValue;
+
+
+/**
+ * Encodes HandoffConnector events into the messages described in SocketEventHelpers, remembering the most recent
+ * message so that an event fanned out to many listeners is only built and serialized once.
+ * A single instance is meant to be shared by all of the listeners created by one WebSocket factory, since they all
+ * encode their events the same way.  A connector tells all of its listeners about an event before moving on to the next
+ * one so, in the common case, only the first listener misses.  The returned messages are immutable Strings so they can
+ * be queued on every listener's OutboundSocketQueue without copying.
+ * Keys are compared with equals() while values are compared by identity, since a connector passes the same value
+ * instance to each of its listeners and some value types don't define equals().  Each message also includes the
+ * connector's sequence number (which is the same for every listener of an event).
+ * 
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class SocketEventEncoder<K, V>
+{
+	// Distinguishes the positioned create from a normal one, in the cache (never sent).
+	private static final String EVENT_CREATE_BEFORE = "createBefore";
+
+	private final Function<K, JsonValue> _keyEncoder;
+	private final Function<V, JsonValue> _valueEncoder;
+	// The last event encoded (guarded by the monitor, since listeners of different connectors may use different threads).
+	private String _lastEvent;
+	private Object _lastKey;
+	private Object _lastValue;
+	private boolean _lastIsNewest;
+	private long _lastSequence;
+	private String _lastMessage;
+
+	/**
+	 * Creates the encoder with the given converters.
+	 * 
+	 * @param keyEncoder Converts a key into its JSON representation.
+	 * @param valueEncoder Converts a value into its JSON representation.
+	 */
+	public SocketEventEncoder(Function<K, JsonValue> keyEncoder, Function<V, JsonValue> valueEncoder)
+	{
+		_keyEncoder = keyEncoder;
+		_valueEncoder = valueEncoder;
+	}
+
+	/**
+	 * @param key The key being created.
+	 * @param value The initial value.
+	 * @param isNewest True if this should be considered the newest key, false for the oldest.
+	 * @param sequence The connector's sequence number for this event.
+	 * @return The serialized "create" message.
+	 */
+	public synchronized String create(K key, V value, boolean isNewest, long sequence)
+	{
+		if (!_isLast(SocketEventHelpers.EVENT_CREATE, key, value, isNewest, sequence))
+		{
+			_remember(SocketEventHelpers.EVENT_CREATE, key, value, isNewest, sequence, SocketEventHelpers.encode(SocketEventHelpers.EVENT_CREATE, _keyEncoder.apply(key), _valueEncoder.apply(value), isNewest, sequence));
+		}
+		return _lastMessage;
+	}
+
+	/**
+	 * @param key The key being created.
+	 * @param value The initial value.
+	 * @param newerKey The existing key which is immediately newer than this one.
+	 * @param sequence The connector's sequence number for this event.
+	 * @return The serialized "create" message, positioned before newerKey.
+	 */
+	public synchronized String createBefore(K key, V value, K newerKey, long sequence)
+	{
+		// We only remember the key (not the neighbour) since the neighbour is the same for every listener.
+		if (!_isLast(EVENT_CREATE_BEFORE, key, value, false, sequence))
+		{
+			_remember(EVENT_CREATE_BEFORE, key, value, false, sequence, SocketEventHelpers.encodeCreateBefore(_keyEncoder.apply(key), _valueEncoder.apply(value), _keyEncoder.apply(newerKey), sequence));
+		}
+		return _lastMessage;
+	}
+
+	/**
+	 * @param key The key being updated.
+	 * @param value The new value.
+	 * @param sequence The connector's sequence number for this event.
+	 * @return The serialized "update" message.
+	 */
+	public synchronized String update(K key, V value, long sequence)
+	{
+		if (!_isLast(SocketEventHelpers.EVENT_UPDATE, key, value, false, sequence))
+		{
+			_remember(SocketEventHelpers.EVENT_UPDATE, key, value, false, sequence, SocketEventHelpers.encode(SocketEventHelpers.EVENT_UPDATE, _keyEncoder.apply(key), _valueEncoder.apply(value), false, sequence));
+		}
+		return _lastMessage;
+	}
+
+	/**
+	 * @param key The key being deleted.
+	 * @param sequence The connector's sequence number for this event.
+	 * @return The serialized "delete" message.
+	 */
+	public synchronized String delete(K key, long sequence)
+	{
+		if (!_isLast(SocketEventHelpers.EVENT_DELETE, key, null, false, sequence))
+		{
+			_remember(SocketEventHelpers.EVENT_DELETE, key, null, false, sequence, SocketEventHelpers.encode(SocketEventHelpers.EVENT_DELETE, _keyEncoder.apply(key), Json.NULL, false, sequence));
+		}
+		return _lastMessage;
+	}
+
+	/**
+	 * @param special The new special string.
+	 * @param sequence The connector's sequence number for this event.
+	 * @return The serialized "special" message.
+	 */
+	public synchronized String special(String special, long sequence)
+	{
+		if (!_isLast(SocketEventHelpers.EVENT_SPECIAL, special, null, false, sequence))
+		{
+			_remember(SocketEventHelpers.EVENT_SPECIAL, special, null, false, sequence, SocketEventHelpers.encode(SocketEventHelpers.EVENT_SPECIAL, Json.value(special), Json.NULL, false, sequence));
+		}
+		return _lastMessage;
+	}
+
+
+	private boolean _isLast(String event, Object key, Object value, boolean isNewest, long sequence)
+	{
+		// Events are interned constants so we can compare them by identity.
+		return (event == _lastEvent)
+				&& Objects.equals(key, _lastKey)
+				&& (value == _lastValue)
+				&& (isNewest == _lastIsNewest)
+				&& (sequence == _lastSequence)
+		;
+	}
+
+	private void _remember(String event, Object key, Object value, boolean isNewest, long sequence, String message)
+	{
+		_lastEvent = event;
+		_lastKey = key;
+		_lastValue = value;
+		_lastIsNewest = isNewest;
+		_lastSequence = sequence;
+		_lastMessage = message;
+	}
+}
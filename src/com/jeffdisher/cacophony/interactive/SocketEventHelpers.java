@@ -1,21 +1,32 @@
 package com.jeffdisher.cacophony.interactive;
 
-import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
 
 import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
+import com.jeffdisher.cacophony.logic.HandoffConnector;
 
 
 /**
  * These helpers write standard WebSocket state event listener events.  These all have the top-level form:
- * -"event" : (one of "create", "update", "delete", or "special")
+ * -"event" : (one of "create", "update", "delete", "special", or "resync")
  * -"key" : (some user-defined key type)
- * -"value" : (some user-defined value type) - ALWAYS NULL IN "delete" or "special"
+ * -"value" : (some user-defined value type) - ALWAYS NULL IN "delete", "special", or "resync"
  * -"isNewest" : true or false - true meaning that the value is the newest to be observed, false meaning it is the
  * oldest or doesn't matter (this is only relevant for "create" events).
+ * -"newerKey" : (only in some "create" events) - the existing key which is immediately newer than the created key, when
+ * it belongs between existing keys instead of at either end (isNewest is false, in this case).
+ * -"seq" : (only in messages built by SocketEventEncoder) - the connector's sequence number for the state this message
+ * brings the client up to.  A client which reconnects can pass the last one it saw, along with its oldest key, as the
+ * "resumeSequence" and "oldestKey" query parameters, to only be sent what it missed (see registerOrResume()).
+ * A "resync" message means that resuming wasn't possible so the client must discard its keys (and special) since it is
+ * about to be sent the current state, as though it were a new connection.
+ * Messages are written through the socket's OutboundSocketQueue, so these calls never block on the network.
  * While create-update-delete represent a simple key-value projection, "special" is intended to be for out-of-band state
  * setting.  This is a single value used to describe something different ("special") in these otherwise simple cases.
  */
@@ -29,17 +40,22 @@ public class SocketEventHelpers
 	public static final String KEY = "key";
 	public static final String VALUE = "value";
 	public static final String IS_NEWEST = "isNewest";
+	public static final String NEWER_KEY = "newerKey";
+	public static final String SEQUENCE = "seq";
+	public static final String EVENT_RESYNC = "resync";
+	public static final String PARAM_RESUME_SEQUENCE = "resumeSequence";
+	public static final String PARAM_OLDEST_KEY = "oldestKey";
 
 	/**
 	 * Sends a "create" message.
 	 * 
-	 * @param endpoint The socket.
+	 * @param endpoint The outbound queue of the socket.
 	 * @param key The key (user-defined).
 	 * @param value The value (user-defined).
 	 * @param isNewest True if this should be considered the newest key, false for the oldest.
-	 * @return True if the message was sent, or false if there was a network error.
+	 * @return True if the message was queued, or false if the socket has failed or fallen too far behind.
 	 */
-	public static boolean sendCreate(RemoteEndpoint endpoint, JsonValue key, JsonValue value, boolean isNewest)
+	public static boolean sendCreate(OutboundSocketQueue endpoint, JsonValue key, JsonValue value, boolean isNewest)
 	{
 		return _sendCommon(endpoint, EVENT_CREATE, key, value, isNewest);
 	}
@@ -47,12 +63,12 @@ public class SocketEventHelpers
 	/**
 	 * Sends an "update" message.
 	 * 
-	 * @param endpoint The socket.
+	 * @param endpoint The outbound queue of the socket.
 	 * @param key The key (user-defined).
 	 * @param value The value (user-defined).
-	 * @return True if the message was sent, or false if there was a network error.
+	 * @return True if the message was queued, or false if the socket has failed or fallen too far behind.
 	 */
-	public static boolean sendUpdate(RemoteEndpoint endpoint, JsonValue key, JsonValue value)
+	public static boolean sendUpdate(OutboundSocketQueue endpoint, JsonValue key, JsonValue value)
 	{
 		return _sendCommon(endpoint, EVENT_UPDATE, key, value, false);
 	}
@@ -60,11 +76,11 @@ public class SocketEventHelpers
 	/**
 	 * Sends a "delete" message.
 	 * 
-	 * @param endpoint The socket.
+	 * @param endpoint The outbound queue of the socket.
 	 * @param key The key (user-defined).
-	 * @return True if the message was sent, or false if there was a network error.
+	 * @return True if the message was queued, or false if the socket has failed or fallen too far behind.
 	 */
-	public static boolean sendDelete(RemoteEndpoint endpoint, JsonValue key)
+	public static boolean sendDelete(OutboundSocketQueue endpoint, JsonValue key)
 	{
 		return _sendCommon(endpoint, EVENT_DELETE, key, Json.NULL, false);
 	}
@@ -72,34 +88,133 @@ public class SocketEventHelpers
 	/**
 	 * Sends a "special" message.
 	 * 
-	 * @param endpoint The socket.
+	 * @param endpoint The outbound queue of the socket.
 	 * @param special The special value (user-defined).
-	 * @return True if the message was sent, or false if there was a network error.
+	 * @return True if the message was queued, or false if the socket has failed or fallen too far behind.
 	 */
-	public static boolean sendSpecial(RemoteEndpoint endpoint, JsonValue special)
+	public static boolean sendSpecial(OutboundSocketQueue endpoint, JsonValue special)
 	{
 		return _sendCommon(endpoint, EVENT_SPECIAL, special, Json.NULL, false);
 	}
 
 
-	private static boolean _sendCommon(RemoteEndpoint endpoint, String event, JsonValue key, JsonValue value, boolean isBackward)
+	/**
+	 * Serializes a message in the common form.  This is exposed so that SocketEventEncoder can build a message once and
+	 * share it across many sockets.
+	 * 
+	 * @param event The event type (one of the EVENT_* constants).
+	 * @param key The key (user-defined).
+	 * @param value The value (user-defined).
+	 * @param isNewest True if this should be considered the newest key, false for the oldest.
+	 * @param sequence The connector's sequence number for this message.
+	 * @return The serialized message.
+	 */
+	public static String encode(String event, JsonValue key, JsonValue value, boolean isNewest, long sequence)
 	{
-		JsonObject root = new JsonObject();
-		root.set(EVENT, event);
-		root.set(KEY, key);
-		root.set(VALUE, value);
-		root.set(IS_NEWEST, isBackward);
-		String serialized = root.toString();
-		boolean success;
-		try
+		JsonObject root = _build(event, key, value, isNewest);
+		root.set(SEQUENCE, sequence);
+		return root.toString();
+	}
+
+	/**
+	 * Serializes a "create" message for a key which belongs immediately before (older than) an existing key.
+	 * 
+	 * @param key The key (user-defined).
+	 * @param value The value (user-defined).
+	 * @param newerKey The existing key which is immediately newer than this one.
+	 * @param sequence The connector's sequence number for this message.
+	 * @return The serialized message.
+	 */
+	public static String encodeCreateBefore(JsonValue key, JsonValue value, JsonValue newerKey, long sequence)
+	{
+		JsonObject root = _build(EVENT_CREATE, key, value, false);
+		root.set(NEWER_KEY, newerKey);
+		root.set(SEQUENCE, sequence);
+		return root.toString();
+	}
+
+	/**
+	 * Serializes a "resync" message.
+	 * 
+	 * @return The serialized message.
+	 */
+	public static String encodeResync()
+	{
+		return _build(EVENT_RESYNC, Json.NULL, Json.NULL, false).toString();
+	}
+
+	/**
+	 * Registers the listener for a newly-connected socket with the connector, resuming from where the client left off
+	 * if it passed the "resumeSequence" (and, optionally, "oldestKey") query parameters and the connector can still
+	 * replay from there.  Invalid parameters are treated as though they weren't given.
+	 * 
+	 * @param <K> The key type.
+	 * @param <V> The value type.
+	 * @param session The newly-connected session.
+	 * @param connector The connector to register with.
+	 * @param listener The listener to register.
+	 * @param limit The limit to use when registering (see HandoffConnector.registerListener()).
+	 * @param keyParser Converts the "oldestKey" parameter into a key, returning null if it isn't valid.
+	 */
+	public static <K, V> void registerOrResume(Session session, HandoffConnector<K, V> connector, HandoffConnector.IHandoffListener<K, V> listener, int limit, Function<String, K> keyParser)
+	{
+		Map<String, List<String>> parameters = session.getUpgradeRequest().getParameterMap();
+		String rawSequence = _getParameter(parameters, PARAM_RESUME_SEQUENCE);
+		String rawOldestKey = _getParameter(parameters, PARAM_OLDEST_KEY);
+		long resumeSequence = -1L;
+		if (null != rawSequence)
+		{
+			try
+			{
+				resumeSequence = Long.parseLong(rawSequence);
+			}
+			catch (NumberFormatException e)
+			{
+				// We will just treat this as missing.
+			}
+		}
+		K oldestKey = (null != rawOldestKey)
+				? keyParser.apply(rawOldestKey)
+				: null
+		;
+		if (resumeSequence >= 0L)
 		{
-			endpoint.sendString(serialized);
-			success = true;
+			// An oldest key we can't parse can't be in the connector so we pass a sequence which can never be resumed,
+			// meaning that the listener will be told to resync (since the client has state it must discard).
+			boolean isKeyValid = (null == rawOldestKey) || (null != oldestKey);
+			connector.resumeListener(listener, limit, isKeyValid ? resumeSequence : -1L, oldestKey);
 		}
-		catch (IOException e)
+		else
 		{
-			success = false;
+			connector.registerListener(listener, limit);
 		}
-		return success;
+	}
+
+
+	private static boolean _sendCommon(OutboundSocketQueue endpoint, String event, JsonValue key, JsonValue value, boolean isBackward)
+	{
+		return endpoint.send(_build(event, key, value, isBackward).toString());
+	}
+
+	private static JsonObject _build(String event, JsonValue key, JsonValue value, boolean isNewest)
+	{
+		JsonObject root = new JsonObject();
+		root.set(EVENT, event);
+		root.set(KEY, key);
+		root.set(VALUE, value);
+		root.set(IS_NEWEST, isNewest);
+		return root;
+	}
+
+	private static String _getParameter(Map<String, List<String>> parameters, String name)
+	{
+		List<String> values = (null != parameters)
+				? parameters.get(name)
+				: null
+		;
+		return ((null != values) && !values.isEmpty())
+				? values.get(0)
+				: null
+		;
 	}
 }
@@ -13,7 +13,7 @@ import com.jeffdisher.cacophony.utils.Assert;
  */
 public class VideoProcessorCallbackHandler implements HandoffConnector.IHandoffListener<String, Long>
 {
-	private final Session _session;
+	private final OutboundSocketQueue _outbound;
 
 	/**
 	 * Creates the handler on top of the given WebSocket session.
@@ -22,30 +22,30 @@ public class VideoProcessorCallbackHandler implements HandoffConnector.IHandoffL
 	 */
 	public VideoProcessorCallbackHandler(Session session)
 	{
-		_session = session;
+		_outbound = new OutboundSocketQueue(session);
 	}
 
 	@Override
 	public boolean create(String key, Long value, boolean isNewest)
 	{
-		return SocketEventHelpers.sendCreate(_session.getRemote(), Json.value(key), Json.value(value.longValue()), isNewest);
+		return SocketEventHelpers.sendCreate(_outbound, Json.value(key), Json.value(value.longValue()), isNewest);
 	}
 
 	@Override
 	public boolean update(String key, Long value)
 	{
-		return SocketEventHelpers.sendUpdate(_session.getRemote(), Json.value(key), Json.value(value.longValue()));
+		return SocketEventHelpers.sendUpdate(_outbound, Json.value(key), Json.value(value.longValue()));
 	}
 
 	@Override
 	public boolean destroy(String key)
 	{
-		boolean didSend = SocketEventHelpers.sendDelete(_session.getRemote(), Json.value(key));
+		boolean didSend = SocketEventHelpers.sendDelete(_outbound, Json.value(key));
 		// If we are destroying the key related to final output, we are ready to close this socket.
 		if (didSend && (key.equals(VideoProcessContainer.KEY_OUTPUT_BYTES)))
 		{
-			// We also want to disconnect the socket in this case since we are done processing.
-			_session.close();
+			// We also want to disconnect the socket in this case since we are done processing (once the delete is written).
+			_outbound.closeWhenDrained();
 		}
 		return didSend;
 	}
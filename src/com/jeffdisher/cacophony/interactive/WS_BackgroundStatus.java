@@ -2,7 +2,6 @@ package com.jeffdisher.cacophony.interactive;
 
 import java.time.Duration;
 
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 
@@ -18,13 +17,16 @@ import com.jeffdisher.cacophony.utils.Assert;
  * -COMMAND_REPUBLISH - tells the server to republish this user's root element
  * Messages:
  * -create key(action_id) -> value(action_description)
- * -NO update
+ * -update key(action_id) -> value(action_description)
  * -delete key(action_id)
  * -NO special
+ * A reconnecting client can resume from where it left off (see SocketEventHelpers).
  */
 public class WS_BackgroundStatus implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 {
 	private final HandoffConnector<Integer, String> _statusHandoff;
+	// All listeners share the encoder so each event is only serialized once.
+	private final SocketEventEncoder<Integer, String> _encoder = new SocketEventEncoder<>((Integer key) -> Json.value(key), (String value) -> Json.value(value));
 	
 	public WS_BackgroundStatus(HandoffConnector<Integer, String> statusHandoff
 	)
@@ -41,7 +43,9 @@ public class WS_BackgroundStatus implements ValidatedEntryPoints.WEB_SOCKET_FACT
 
 	private class StatusListener implements WebSocketListener, HandoffConnector.IHandoffListener<Integer, String>
 	{
-		private RemoteEndpoint _endPoint;
+		private OutboundSocketQueue _endPoint;
+		// The connector's sequence number for the events we are about to send.
+		private long _sequence;
 		
 		@Override
 		public void onWebSocketClose(int statusCode, String reason)
@@ -52,30 +56,47 @@ public class WS_BackgroundStatus implements ValidatedEntryPoints.WEB_SOCKET_FACT
 		@Override
 		public void onWebSocketConnect(Session session)
 		{
-			_endPoint = session.getRemote();
-			// Note that this call to registerListener will likely involves calls back into us, relying on the _endPoint.
-			_statusHandoff.registerListener(this, 0);
+			_endPoint = new OutboundSocketQueue(session);
+			// We register without a limit so the initial state is exempt from the queue limit, until it is delivered.
+			_endPoint.startBootstrap();
+			// Note that this call to register will likely involves calls back into us, relying on the _endPoint.
+			// If this is a client reconnecting, it may only need the events it missed.
+			SocketEventHelpers.registerOrResume(session, _statusHandoff, this, 0, (String raw) -> _parseKey(raw));
+			_statusHandoff.runAfterPendingDeliveries(() -> _endPoint.endBootstrap());
 			// Set a 1-day idle timeout, just to avoid this constantly dropping when looking at it.
 			session.setIdleTimeout(Duration.ofDays(1));
 		}
 		
+		@Override
+		public void beforeEvents(long sequence)
+		{
+			_sequence = sequence;
+		}
+		
+		@Override
+		public boolean resync()
+		{
+			// We couldn't resume so the client needs to discard what it has before we send the current state.
+			return _endPoint.send(SocketEventHelpers.encodeResync());
+		}
+		
 		@Override
 		public boolean create(Integer key, String value, boolean isNewest)
 		{
-			return SocketEventHelpers.sendCreate(_endPoint, Json.value(key), Json.value(value), isNewest);
+			return _endPoint.send(_encoder.create(key, value, isNewest, _sequence));
 		}
 		
 		@Override
 		public boolean update(Integer key, String value)
 		{
-			// We don't have updates for this event.
-			throw Assert.unreachable();
+			// Long-running operations (like explicit cache purges) update their description with their progress.
+			return _endPoint.send(_encoder.update(key, value, _sequence));
 		}
 		
 		@Override
 		public boolean destroy(Integer key)
 		{
-			return SocketEventHelpers.sendDelete(_endPoint, Json.value(key));
+			return _endPoint.send(_encoder.delete(key, _sequence));
 		}
 		
 		@Override
@@ -85,4 +106,20 @@ public class WS_BackgroundStatus implements ValidatedEntryPoints.WEB_SOCKET_FACT
 			throw Assert.unreachable();
 		}
 	}
+
+
+	private static Integer _parseKey(String raw)
+	{
+		// The oldest key is ignored since we register without a limit but we still need to parse it.
+		Integer key;
+		try
+		{
+			key = Integer.valueOf(raw);
+		}
+		catch (NumberFormatException e)
+		{
+			key = null;
+		}
+		return key;
+	}
 }
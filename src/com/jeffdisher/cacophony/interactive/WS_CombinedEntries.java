@@ -2,7 +2,6 @@ package com.jeffdisher.cacophony.interactive;
 
 import java.time.Duration;
 
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 
@@ -21,6 +20,7 @@ import com.jeffdisher.cacophony.utils.Assert;
  * -NO update
  * -delete key(record_cid)
  * -special is not used
+ * A reconnecting client can resume (see SocketEventHelpers).
  */
 public class WS_CombinedEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 {
@@ -30,6 +30,8 @@ public class WS_CombinedEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTO
 	private static final String COMMAND_SCROLL_BACK = "COMMAND_SCROLL_BACK";
 
 	private final Context _context;
+	// All listeners share the encoder so each event is only serialized once.
+	private final SocketEventEncoder<IpfsFile, Void> _encoder = new SocketEventEncoder<>((IpfsFile key) -> Json.value(key.toSafeString()), (Void value) -> Json.NULL);
 
 	public WS_CombinedEntries(Context context
 	)
@@ -47,7 +49,9 @@ public class WS_CombinedEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTO
 	private class Listener implements WebSocketListener, HandoffConnector.IHandoffListener<IpfsFile, Void>
 	{
 		private HandoffConnector<IpfsFile, Void> _connector;
-		private RemoteEndpoint _endPoint;
+		private OutboundSocketQueue _endPoint;
+		// The connector's sequence number for the events we are about to send.
+		private long _sequence;
 		
 		@Override
 		public void onWebSocketClose(int statusCode, String reason)
@@ -64,9 +68,10 @@ public class WS_CombinedEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTO
 			_connector = _context.entryRegistry.getCombinedConnector();
 			if (null != _connector)
 			{
-				_endPoint = session.getRemote();
-				// Note that this call to registerListener will likely involves calls back into us, relying on the _endPoint.
-				_connector.registerListener(this, START_ENTRY_LIMIT);
+				_endPoint = new OutboundSocketQueue(session);
+				// Note that this call to register will likely involves calls back into us, relying on the _endPoint.
+				// If this is a client reconnecting, it may only need the events it missed.
+				SocketEventHelpers.registerOrResume(session, _connector, this, START_ENTRY_LIMIT, (String raw) -> IpfsFile.fromIpfsCid(raw));
 				// Set a 1-day idle timeout, just to avoid this constantly dropping when looking at it.
 				session.setIdleTimeout(Duration.ofDays(1));
 			}
@@ -84,11 +89,31 @@ public class WS_CombinedEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTO
 			_connector.requestOlderElements(this, START_ENTRY_LIMIT);
 		}
 		
+		@Override
+		public void beforeEvents(long sequence)
+		{
+			_sequence = sequence;
+		}
+		
+		@Override
+		public boolean resync()
+		{
+			// We couldn't resume so the client needs to discard what it has before we send the current state.
+			return _endPoint.send(SocketEventHelpers.encodeResync());
+		}
+		
 		@Override
 		public boolean create(IpfsFile key, Void value, boolean isNewest)
 		{
 			// Added.
-			return SocketEventHelpers.sendCreate(_endPoint, Json.value(key.toSafeString()), Json.NULL, isNewest);
+			return _endPoint.send(_encoder.create(key, value, isNewest, _sequence));
+		}
+		
+		@Override
+		public boolean createBefore(IpfsFile key, Void value, IpfsFile newerKey)
+		{
+			// Added in the middle (since this connector is ordered by publication time).
+			return _endPoint.send(_encoder.createBefore(key, value, newerKey, _sequence));
 		}
 		
 		@Override
@@ -102,7 +127,7 @@ public class WS_CombinedEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTO
 		public boolean destroy(IpfsFile key)
 		{
 			// Removed.
-			return SocketEventHelpers.sendDelete(_endPoint, Json.value(key.toSafeString()));
+			return _endPoint.send(_encoder.delete(key, _sequence));
 		}
 		
 		@Override
@@ -2,7 +2,6 @@ package com.jeffdisher.cacophony.interactive;
 
 import java.time.Duration;
 
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 
@@ -21,10 +20,13 @@ import com.jeffdisher.cacophony.utils.Assert;
  * -update key(public_key) -> value({poll_millis,success_millis})
  * -delete key(public_key)
  * -NO special
+ * A reconnecting client can resume from where it left off (see SocketEventHelpers).
  */
 public class WS_FolloweeRefreshTimes implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 {
 	private final HandoffConnector<IpfsKey, FolloweeData.TimePair> _followeeRefreshConnector;
+	// All listeners share the encoder so each event is only serialized once.
+	private final SocketEventEncoder<IpfsKey, FolloweeData.TimePair> _encoder = new SocketEventEncoder<>((IpfsKey key) -> Json.value(key.toPublicKey()), (FolloweeData.TimePair value) -> _timeJson(value));
 	
 	public WS_FolloweeRefreshTimes(HandoffConnector<IpfsKey, FolloweeData.TimePair> followeeRefreshConnector)
 	{
@@ -40,7 +42,9 @@ public class WS_FolloweeRefreshTimes implements ValidatedEntryPoints.WEB_SOCKET_
 
 	private class Listener implements WebSocketListener, HandoffConnector.IHandoffListener<IpfsKey, FolloweeData.TimePair>
 	{
-		private RemoteEndpoint _endPoint;
+		private OutboundSocketQueue _endPoint;
+		// The connector's sequence number for the events we are about to send.
+		private long _sequence;
 		
 		@Override
 		public void onWebSocketClose(int statusCode, String reason)
@@ -51,32 +55,49 @@ public class WS_FolloweeRefreshTimes implements ValidatedEntryPoints.WEB_SOCKET_
 		@Override
 		public void onWebSocketConnect(Session session)
 		{
-			_endPoint = session.getRemote();
-			// Note that this call to registerListener will likely involves calls back into us, relying on the _endPoint.
-			_followeeRefreshConnector.registerListener(this, 0);
+			_endPoint = new OutboundSocketQueue(session);
+			// We register without a limit so the initial state is exempt from the queue limit, until it is delivered.
+			_endPoint.startBootstrap();
+			// Note that this call to register will likely involves calls back into us, relying on the _endPoint.
+			// If this is a client reconnecting, it may only need the events it missed.
+			SocketEventHelpers.registerOrResume(session, _followeeRefreshConnector, this, 0, (String raw) -> IpfsKey.fromPublicKey(raw));
+			_followeeRefreshConnector.runAfterPendingDeliveries(() -> _endPoint.endBootstrap());
 			// Set a 1-day idle timeout, just to avoid this constantly dropping when looking at it.
 			session.setIdleTimeout(Duration.ofDays(1));
 		}
 		
+		@Override
+		public void beforeEvents(long sequence)
+		{
+			_sequence = sequence;
+		}
+		
+		@Override
+		public boolean resync()
+		{
+			// We couldn't resume so the client needs to discard what it has before we send the current state.
+			return _endPoint.send(SocketEventHelpers.encodeResync());
+		}
+		
 		@Override
 		public boolean create(IpfsKey key, FolloweeData.TimePair value, boolean isNewest)
 		{
 			// Initial value.
-			return SocketEventHelpers.sendCreate(_endPoint, Json.value(key.toPublicKey()), _timeJson(value), isNewest);
+			return _endPoint.send(_encoder.create(key, value, isNewest, _sequence));
 		}
 		
 		@Override
 		public boolean update(IpfsKey key, FolloweeData.TimePair value)
 		{
 			// When refresh operations complete.
-			return SocketEventHelpers.sendUpdate(_endPoint, Json.value(key.toPublicKey()), _timeJson(value));
+			return _endPoint.send(_encoder.update(key, value, _sequence));
 		}
 		
 		@Override
 		public boolean destroy(IpfsKey key)
 		{
 			// Happens when the followee is deleted from the FolloweeData.
-			return SocketEventHelpers.sendDelete(_endPoint, Json.value(key.toPublicKey()));
+			return _endPoint.send(_encoder.delete(key, _sequence));
 		}
 		
 		@Override
@@ -85,13 +106,14 @@ public class WS_FolloweeRefreshTimes implements ValidatedEntryPoints.WEB_SOCKET_
 			// This case doesn't use meta-data.
 			throw Assert.unreachable();
 		}
-		
-		private JsonObject _timeJson(FolloweeData.TimePair value)
-		{
-			JsonObject obj = new JsonObject();
-			obj.add("poll_millis", value.pollMillis());
-			obj.add("success_millis", value.successMillis());
-			return obj;
-		}
+	}
+
+
+	private static JsonObject _timeJson(FolloweeData.TimePair value)
+	{
+		JsonObject obj = new JsonObject();
+		obj.add("poll_millis", value.pollMillis());
+		obj.add("success_millis", value.successMillis());
+		return obj;
 	}
 }
@@ -2,7 +2,6 @@ package com.jeffdisher.cacophony.interactive;
 
 import java.time.Duration;
 
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 
@@ -18,6 +17,7 @@ import com.jeffdisher.cacophony.utils.Assert;
  * -key is the CID of the followee reply
  * -value is the CID of the home user post
  * Destroy just sends the CID of the followee reply.
+ * A reconnecting client can resume from where it left off (see SocketEventHelpers).
  */
 public class WS_Replies implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 {
@@ -27,6 +27,8 @@ public class WS_Replies implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 	private static final String COMMAND_SCROLL_BACK = "COMMAND_SCROLL_BACK";
 
 	private final HandoffConnector<IpfsFile, IpfsFile> _replyCacheConnector;
+	// All listeners share the encoder so each event is only serialized once.
+	private final SocketEventEncoder<IpfsFile, IpfsFile> _encoder = new SocketEventEncoder<>((IpfsFile key) -> Json.value(key.toSafeString()), (IpfsFile value) -> Json.value(value.toSafeString()));
 	
 	public WS_Replies(HandoffConnector<IpfsFile, IpfsFile> replyCacheConnector)
 	{
@@ -42,7 +44,9 @@ public class WS_Replies implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 
 	private class Listener implements WebSocketListener, HandoffConnector.IHandoffListener<IpfsFile, IpfsFile>
 	{
-		private RemoteEndpoint _endPoint;
+		private OutboundSocketQueue _endPoint;
+		// The connector's sequence number for the events we are about to send.
+		private long _sequence;
 		
 		@Override
 		public void onWebSocketClose(int statusCode, String reason)
@@ -52,9 +56,10 @@ public class WS_Replies implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 		@Override
 		public void onWebSocketConnect(Session session)
 		{
-			_endPoint = session.getRemote();
-			// Note that this call to registerListener will likely involves calls back into us, relying on the _endPoint.
-			_replyCacheConnector.registerListener(this, START_ENTRY_LIMIT);
+			_endPoint = new OutboundSocketQueue(session);
+			// Note that this call to register will likely involves calls back into us, relying on the _endPoint.
+			// If this is a client reconnecting, it may only need the events it missed.
+			SocketEventHelpers.registerOrResume(session, _replyCacheConnector, this, START_ENTRY_LIMIT, (String raw) -> IpfsFile.fromIpfsCid(raw));
 			// Set a 1-day idle timeout, just to avoid this constantly dropping when looking at it.
 			session.setIdleTimeout(Duration.ofDays(1));
 		}
@@ -66,10 +71,21 @@ public class WS_Replies implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 			_replyCacheConnector.requestOlderElements(this, START_ENTRY_LIMIT);
 		}
 		@Override
+		public void beforeEvents(long sequence)
+		{
+			_sequence = sequence;
+		}
+		@Override
+		public boolean resync()
+		{
+			// We couldn't resume so the client needs to discard what it has before we send the current state.
+			return _endPoint.send(SocketEventHelpers.encodeResync());
+		}
+		@Override
 		public boolean create(IpfsFile key, IpfsFile value, boolean isNewest)
 		{
 			// Added.
-			return SocketEventHelpers.sendCreate(_endPoint, Json.value(key.toSafeString()), Json.value(value.toSafeString()), isNewest);
+			return _endPoint.send(_encoder.create(key, value, isNewest, _sequence));
 		}
 		@Override
 		public boolean update(IpfsFile key, IpfsFile value)
@@ -81,7 +97,7 @@ public class WS_Replies implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 		public boolean destroy(IpfsFile key)
 		{
 			// Removed.
-			return SocketEventHelpers.sendDelete(_endPoint, Json.value(key.toSafeString()));
+			return _endPoint.send(_encoder.delete(key, _sequence));
 		}
 		@Override
 		public boolean specialChanged(String special)
@@ -2,12 +2,13 @@ package com.jeffdisher.cacophony.interactive;
 
 import java.time.Duration;
 
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 
 import com.eclipsesource.json.Json;
+import com.jeffdisher.cacophony.access.IReadingAccess;
 import com.jeffdisher.cacophony.caches.ReplyForest;
+import com.jeffdisher.cacophony.commands.Context;
 import com.jeffdisher.cacophony.logic.HandoffConnector;
 import com.jeffdisher.cacophony.types.IpfsFile;
 import com.jeffdisher.cacophony.utils.Assert;
@@ -20,14 +21,20 @@ import com.jeffdisher.cacophony.utils.Assert;
  * -key is the message CID being added/removed
  * -value is the CID of the parent of the added message
  * Note that there are no updates or special strings.
+ * Each socket builds its own connector so a reconnecting client which asks to resume (see SocketEventHelpers) is
+ * always told to resync.
  */
 public class WS_ReplyTree implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 {
+	private final Context _context;
 	private final ConnectorDispatcher _dispatcher;
 	private final ReplyForest _replyForest;
+	// All listeners share the encoder so each event is only serialized once.
+	private final SocketEventEncoder<IpfsFile, IpfsFile> _encoder = new SocketEventEncoder<>((IpfsFile key) -> Json.value(key.toSafeString()), (IpfsFile value) -> Json.value(value.toSafeString()));
 
-	public WS_ReplyTree(ConnectorDispatcher dispatcher, ReplyForest replyForest)
+	public WS_ReplyTree(Context context, ConnectorDispatcher dispatcher, ReplyForest replyForest)
 	{
+		_context = context;
 		_dispatcher = dispatcher;
 		_replyForest = replyForest;
 	}
@@ -37,6 +44,11 @@ public class WS_ReplyTree implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 	{
 		HandoffConnector<IpfsFile, IpfsFile> handoffConnector = new HandoffConnector<IpfsFile, IpfsFile>(_dispatcher);
 		IpfsFile root = (IpfsFile)path[3];
+		// Opening a reply tree counts as an access of the root post.
+		try (IReadingAccess access = Context.readAccess(_context))
+		{
+			access.accessTracker().recordAccess(root, _context.currentTimeMillisGenerator.getAsLong());
+		}
 		return new Listener(handoffConnector, _replyForest, root);
 	}
 
@@ -46,7 +58,9 @@ public class WS_ReplyTree implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 		private final HandoffConnector<IpfsFile, IpfsFile> _handoffConnector;
 		private final ReplyForest _replyForest;
 		private final IpfsFile _root;
-		private RemoteEndpoint _endPoint;
+		private OutboundSocketQueue _endPoint;
+		// The connector's sequence number for the events we are about to send.
+		private long _sequence;
 		private ReplyForest.IAdapterToken _adapter;
 		
 		public Listener(HandoffConnector<IpfsFile, IpfsFile> handoffConnector, ReplyForest replyForest, IpfsFile root)
@@ -67,13 +81,18 @@ public class WS_ReplyTree implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 		{
 			// We capture the endpoint, first, since registering the connector will immediately result in calls back
 			// into this object to send messages over the endpoint.
-			_endPoint = session.getRemote();
+			_endPoint = new OutboundSocketQueue(session);
+			// The whole tree is sent up-front so it is exempt from the queue limit, until it is delivered.
+			_endPoint.startBootstrap();
 			
 			// WARNING:  We register this listener without a message limit since we want to build the entire tree, in-order.
 			// We also register the listener BEFORE we give the connector to the forest since we want it to immediately
 			// pass on all the data it receives to the client.  This also means that we do NOT handle the scroll back command.
-			_handoffConnector.registerListener(this, 0);
+			// Since the connector is new, a reconnecting client can't resume so it will be told to resync.
+			SocketEventHelpers.registerOrResume(session, _handoffConnector, this, 0, (String raw) -> IpfsFile.fromIpfsCid(raw));
 			_adapter = _replyForest.addListener(_handoffConnector, _root);
+			// The forest populated the connector synchronously so the tree is delivered before this runs.
+			_handoffConnector.runAfterPendingDeliveries(() -> _endPoint.endBootstrap());
 			
 			// Set a 1-day idle timeout, just to avoid this constantly dropping when looking at it.
 			session.setIdleTimeout(Duration.ofDays(1));
@@ -85,10 +104,21 @@ public class WS_ReplyTree implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 			throw Assert.unreachable();
 		}
 		@Override
+		public void beforeEvents(long sequence)
+		{
+			_sequence = sequence;
+		}
+		@Override
+		public boolean resync()
+		{
+			// We couldn't resume so the client needs to discard what it has before we send the current state.
+			return _endPoint.send(SocketEventHelpers.encodeResync());
+		}
+		@Override
 		public boolean create(IpfsFile key, IpfsFile value, boolean isNewest)
 		{
 			// Added.
-			return SocketEventHelpers.sendCreate(_endPoint, Json.value(key.toSafeString()), Json.value(value.toSafeString()), isNewest);
+			return _endPoint.send(_encoder.create(key, value, isNewest, _sequence));
 		}
 		@Override
 		public boolean update(IpfsFile key, IpfsFile value)
@@ -100,7 +130,7 @@ public class WS_ReplyTree implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 		public boolean destroy(IpfsFile key)
 		{
 			// Removed.
-			return SocketEventHelpers.sendDelete(_endPoint, Json.value(key.toSafeString()));
+			return _endPoint.send(_encoder.delete(key, _sequence));
 		}
 		@Override
 		public boolean specialChanged(String special)
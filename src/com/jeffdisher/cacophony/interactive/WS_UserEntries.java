@@ -2,7 +2,6 @@ package com.jeffdisher.cacophony.interactive;
 
 import java.time.Duration;
 
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 
@@ -29,6 +28,8 @@ import com.jeffdisher.cacophony.utils.Assert;
  * -NO update
  * -delete key(record_cid)
  * -special is set when the refresh for this user is active, set null when complete
+ * A reconnecting client can resume (see SocketEventHelpers), although only home users and followees have a connector
+ * which outlives the socket so other users always resync.
  */
 public class WS_UserEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 {
@@ -41,6 +42,8 @@ public class WS_UserEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 
 	private final Context _context;
 	private final ConnectorDispatcher _dispatcher;
+	// All listeners share the encoder so each event is only serialized once.
+	private final SocketEventEncoder<IpfsFile, Void> _encoder = new SocketEventEncoder<>((IpfsFile key) -> Json.value(key.toSafeString()), (Void value) -> Json.NULL);
 	
 	public WS_UserEntries(Context context
 			, ConnectorDispatcher dispatcher
@@ -62,7 +65,9 @@ public class WS_UserEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 	{
 		private final IpfsKey _key;
 		private HandoffConnector<IpfsFile, Void> _userConnector;
-		private RemoteEndpoint _endPoint;
+		private OutboundSocketQueue _endPoint;
+		// The connector's sequence number for the events we are about to send.
+		private long _sequence;
 		
 		public Listener(IpfsKey key)
 		{
@@ -85,9 +90,10 @@ public class WS_UserEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 			if (null != _userConnector)
 			{
 				// The connector is available so this is either a home user or a followee.
-				_endPoint = session.getRemote();
-				// Note that this call to registerListener will likely involves calls back into us, relying on the _endPoint.
-				_userConnector.registerListener(this, START_ENTRY_LIMIT);
+				_endPoint = new OutboundSocketQueue(session);
+				// Note that this call to register will likely involves calls back into us, relying on the _endPoint.
+				// If this is a client reconnecting, it may only need the events it missed.
+				SocketEventHelpers.registerOrResume(session, _userConnector, this, START_ENTRY_LIMIT, (String raw) -> IpfsFile.fromIpfsCid(raw));
 				// Set a 1-day idle timeout, just to avoid this constantly dropping when looking at it.
 				session.setIdleTimeout(Duration.ofDays(1));
 			}
@@ -119,8 +125,9 @@ public class WS_UserEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 					}
 					
 					// Do normal setup, but we use a smaller list of entries, since these aren't locally known and each hit will go to the explicit cache..
-					_endPoint = session.getRemote();
-					_userConnector.registerListener(this, UNKNOWN_ENTRY_LIMIT);
+					// (a reconnecting client can't resume with this new connector so it will be told to resync).
+					_endPoint = new OutboundSocketQueue(session);
+					SocketEventHelpers.registerOrResume(session, _userConnector, this, UNKNOWN_ENTRY_LIMIT, (String raw) -> IpfsFile.fromIpfsCid(raw));
 					session.setIdleTimeout(Duration.ofDays(1));
 				}
 				catch (KeyException | ProtocolDataException | IpfsConnectionException e1)
@@ -139,11 +146,24 @@ public class WS_UserEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 			_userConnector.requestOlderElements(this, START_ENTRY_LIMIT);
 		}
 		
+		@Override
+		public void beforeEvents(long sequence)
+		{
+			_sequence = sequence;
+		}
+		
+		@Override
+		public boolean resync()
+		{
+			// We couldn't resume so the client needs to discard what it has before we send the current state.
+			return _endPoint.send(SocketEventHelpers.encodeResync());
+		}
+		
 		@Override
 		public boolean create(IpfsFile key, Void value, boolean isNewest)
 		{
 			// Added.
-			return SocketEventHelpers.sendCreate(_endPoint, Json.value(key.toSafeString()), Json.NULL, isNewest);
+			return _endPoint.send(_encoder.create(key, value, isNewest, _sequence));
 		}
 		
 		@Override
@@ -157,14 +177,14 @@ public class WS_UserEntries implements ValidatedEntryPoints.WEB_SOCKET_FACTORY
 		public boolean destroy(IpfsFile key)
 		{
 			// Removed.
-			return SocketEventHelpers.sendDelete(_endPoint, Json.value(key.toSafeString()));
+			return _endPoint.send(_encoder.delete(key, _sequence));
 		}
 		
 		@Override
 		public boolean specialChanged(String special)
 		{
 			// This is used when describing that the refresh is running.
-			return SocketEventHelpers.sendSpecial(_endPoint, Json.value(special));
+			return _endPoint.send(_encoder.special(special, _sequence));
 		}
 	}
 }
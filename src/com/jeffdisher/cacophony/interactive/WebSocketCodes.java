@@ -33,4 +33,9 @@ public class WebSocketCodes
 	 * Used in cases where the socket requests an action to start but it failed to start.
 	 */
 	public final static int FAILED_TO_START = 4005;
+	/**
+	 * Used when the server has stopped sending events to a client which fell too far behind.  The client should
+	 * reconnect to receive the current state.
+	 */
+	public final static int RESYNC_REQUIRED = 4006;
 }
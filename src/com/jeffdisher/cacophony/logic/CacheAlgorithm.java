@@ -1,7 +1,11 @@
 package com.jeffdisher.cacophony.logic;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+
+import com.jeffdisher.cacophony.utils.Assert;
 
 
 /**
@@ -14,31 +18,78 @@ import java.util.List;
  * decisions, itself (although it can handle the cases where it asked to overflow).
  * Note that the cache actively avoids being less than 50% full (that is, if it is less full than that, it will always
  * choose to cache, without randomness).
+ * Which entries are evicted when resizing is decided by an IEvictionPolicy (random, by default), which can use the
+ * access information attached to each Candidate.
+ * All random decisions are drawn from a single Random instance which can be provided, with a known seed, so that
+ * decisions can be reproduced (as in the CacheSimulator).
  */
 public class CacheAlgorithm
 {
 	/**
 	 * The type used to communicate cache decisions through this API.
+	 * The lastAccessMillis and accessCount are only used by eviction policies which consider access history and are 0
+	 * if the entry has never been accessed (or this history isn't known).
 	 * 
 	 * @param <T> The type of arbitrary user data required by the user's implementation.
 	 */
-	public static record Candidate<T>(long byteSize, T data)
+	public static record Candidate<T>(long byteSize, T data, long lastAccessMillis, double accessCount)
 	{
+		/**
+		 * Creates a candidate with no access history.
+		 * 
+		 * @param byteSize The size of the entry, in bytes.
+		 * @param data The user data.
+		 */
+		public Candidate(long byteSize, T data)
+		{
+			this(byteSize, data, 0L, 0.0d);
+		}
 	}
 
 
 	private final long _maximumSizeBytes;
+	private final IEvictionPolicy _evictionPolicy;
+	private final Random _random;
 	private long _currentSizeBytes;
 
 	/**
-	 * Creates the cache algorithm with the given limit and initial state.
+	 * Creates the cache algorithm with the given limit and initial state, using random eviction.
 	 * 
 	 * @param maximumSizeBytes The maximum size the cache should be allowed to become, in bytes.
 	 * @param currentSizeBytes The current occupancy of the cache, in bytes.
 	 */
 	public CacheAlgorithm(long maximumSizeBytes, long currentSizeBytes)
 	{
+		this(maximumSizeBytes, currentSizeBytes, EvictionPolicy.RANDOM);
+	}
+
+	/**
+	 * Creates the cache algorithm with the given limit, initial state, and eviction policy.
+	 * 
+	 * @param maximumSizeBytes The maximum size the cache should be allowed to become, in bytes.
+	 * @param currentSizeBytes The current occupancy of the cache, in bytes.
+	 * @param evictionPolicy The policy used to decide which entries to evict in toRemoveInResize().
+	 */
+	public CacheAlgorithm(long maximumSizeBytes, long currentSizeBytes, IEvictionPolicy evictionPolicy)
+	{
+		this(maximumSizeBytes, currentSizeBytes, evictionPolicy, new Random());
+	}
+
+	/**
+	 * Creates the cache algorithm with the given limit, initial state, eviction policy, and source of randomness.
+	 * 
+	 * @param maximumSizeBytes The maximum size the cache should be allowed to become, in bytes.
+	 * @param currentSizeBytes The current occupancy of the cache, in bytes.
+	 * @param evictionPolicy The policy used to decide which entries to evict in toRemoveInResize().
+	 * @param random The source of all random decisions made by the algorithm and its policy.
+	 */
+	public CacheAlgorithm(long maximumSizeBytes, long currentSizeBytes, IEvictionPolicy evictionPolicy, Random random)
+	{
+		Assert.assertTrue(null != evictionPolicy);
+		Assert.assertTrue(null != random);
 		_maximumSizeBytes = maximumSizeBytes;
+		_evictionPolicy = evictionPolicy;
+		_random = random;
 		_currentSizeBytes = currentSizeBytes;
 	}
 
@@ -51,8 +102,8 @@ public class CacheAlgorithm
 	}
 
 	/**
-	 * Returns a subset of the given candidatesList which should be removed.  Selection is done at random until the
-	 * cache is back within its limits.
+	 * Returns a subset of the given candidatesList which should be removed.  Candidates are evicted in the order chosen
+	 * by the eviction policy until the cache is back within its limits.
 	 * 
 	 * @param candidatesList The list of cache eviction Candidates.
 	 * @return The list of cache Candidates which should be evicted.
@@ -60,11 +111,14 @@ public class CacheAlgorithm
 	public <T> List<Candidate<T>> toRemoveInResize(List<Candidate<T>> candidatesList)
 	{
 		List<Candidate<T>> candidates = new ArrayList<>(candidatesList);
+		_evictionPolicy.sortForEviction(candidates, _random);
 		List<Candidate<T>> evictions = new ArrayList<>();
-		while (!candidates.isEmpty() && (_currentSizeBytes > _maximumSizeBytes))
+		for (Candidate<T> candidate : candidates)
 		{
-			int index = (int)((double)candidates.size() * Math.random());
-			Candidate<T> candidate = candidates.remove(index);
+			if (_currentSizeBytes <= _maximumSizeBytes)
+			{
+				break;
+			}
 			evictions.add(candidate);
 			_currentSizeBytes -= candidate.byteSize;
 		}
@@ -112,7 +166,7 @@ public class CacheAlgorithm
 					double adjustedOccupancy = (cacheOccupancy - 0.5d) * 2.0d;
 					// Select a random number between 0.0 and 1.0:  If it is greater than the current adjusted occupancy, then we will select this for the cache.
 					// This approach means that we will be less likely to add an element to the cache as it becomes more full.
-					double randomDecision = Math.random();
+					double randomDecision = _random.nextDouble();
 					shouldSelect = randomDecision > adjustedOccupancy;
 				}
 				if (shouldSelect)
@@ -125,4 +179,145 @@ public class CacheAlgorithm
 		}
 		return additions;
 	}
+
+
+	/**
+	 * The interface for deciding the order in which cache entries should be evicted.
+	 */
+	public static interface IEvictionPolicy
+	{
+		/**
+		 * Sorts the given candidates, in-place, such that the candidates which should be evicted first are at the
+		 * beginning of the list.
+		 * 
+		 * @param <T> The type of arbitrary user data in the candidates.
+		 * @param candidates The list of candidates to sort (must be mutable).
+		 * @param random The source of randomness, for policies which need it.
+		 */
+		<T> void sortForEviction(List<Candidate<T>> candidates, Random random);
+	}
+
+
+	/**
+	 * The built-in eviction policies.  Each has a stable code, since this is how it is stored in the prefs.
+	 * Note that the sorts are stable so candidates which are otherwise equal are evicted in the order given.
+	 */
+	public static enum EvictionPolicy implements IEvictionPolicy
+	{
+		/**
+		 * Evicts entries at random, ignoring any access history.
+		 */
+		RANDOM(0)
+		{
+			@Override
+			public <T> void sortForEviction(List<Candidate<T>> candidates, Random random)
+			{
+				// We select at random, from those remaining, so every order is equally likely.
+				for (int i = candidates.size() - 1; i > 0; --i)
+				{
+					int index = random.nextInt(i + 1);
+					candidates.set(index, candidates.set(i, candidates.get(index)));
+				}
+			}
+		},
+		/**
+		 * Evicts the least recently accessed entries first.
+		 */
+		LRU(1)
+		{
+			@Override
+			public <T> void sortForEviction(List<Candidate<T>> candidates, Random random)
+			{
+				candidates.sort(Comparator.comparingLong((Candidate<T> candidate) -> candidate.lastAccessMillis));
+			}
+		},
+		/**
+		 * Evicts the least frequently accessed entries first, using recency to break ties.
+		 */
+		LFU(2)
+		{
+			@Override
+			public <T> void sortForEviction(List<Candidate<T>> candidates, Random random)
+			{
+				candidates.sort(Comparator.comparingDouble((Candidate<T> candidate) -> candidate.accessCount)
+						.thenComparingLong((Candidate<T> candidate) -> candidate.lastAccessMillis)
+				);
+			}
+		},
+		/**
+		 * Greedy-Dual-Size-Frequency:  Evicts the entries with the lowest frequency per byte first, using recency to
+		 * break ties.  This favours keeping many small, popular, entries over a few large ones.
+		 * Since these decisions are made in a single batch, the "inflation" value of the classic algorithm is the same
+		 * for all candidates so it is omitted (the aging of popular entries is expected to come from the decay of the
+		 * access counts, instead).
+		 */
+		GDSF(3)
+		{
+			@Override
+			public <T> void sortForEviction(List<Candidate<T>> candidates, Random random)
+			{
+				candidates.sort(Comparator.comparingDouble((Candidate<T> candidate) -> _gdsfPriority(candidate))
+						.thenComparingLong((Candidate<T> candidate) -> candidate.lastAccessMillis)
+				);
+			}
+		},
+		;
+
+		/**
+		 * Finds the policy with the given code.
+		 * 
+		 * @param code The code of the policy.
+		 * @return The policy or null, if the code is not known.
+		 */
+		public static EvictionPolicy fromCode(int code)
+		{
+			EvictionPolicy match = null;
+			for (EvictionPolicy policy : EvictionPolicy.values())
+			{
+				if (code == policy.code)
+				{
+					match = policy;
+					break;
+				}
+			}
+			return match;
+		}
+
+		/**
+		 * Finds the policy with the given name (case-insensitive).
+		 * 
+		 * @param name The name of the policy.
+		 * @return The policy or null, if the name is not known.
+		 */
+		public static EvictionPolicy fromName(String name)
+		{
+			EvictionPolicy match = null;
+			for (EvictionPolicy policy : EvictionPolicy.values())
+			{
+				if (policy.name().equalsIgnoreCase(name))
+				{
+					match = policy;
+					break;
+				}
+			}
+			return match;
+		}
+
+		private static <T> double _gdsfPriority(Candidate<T> candidate)
+		{
+			// We add 1 to the frequency so that never-accessed entries are still ordered by size.
+			return (candidate.accessCount + 1.0d) / (double)Math.max(1L, candidate.byteSize);
+		}
+
+
+		/**
+		 * The stable code used to store this policy.
+		 */
+		public final int code;
+
+		private EvictionPolicy(int code)
+		{
+			this.code = code;
+		}
+	}
 }
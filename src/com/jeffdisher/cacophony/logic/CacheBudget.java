@@ -0,0 +1,107 @@
+package com.jeffdisher.cacophony.logic;
+
+import com.jeffdisher.cacophony.access.IReadingAccess;
+import com.jeffdisher.cacophony.projection.PrefsData;
+import com.jeffdisher.cacophony.utils.Assert;
+
+
+/**
+ * Decides the effective size targets of the followee and explicit caches.
+ * By default (when PrefsData.globalCacheBudgetBytes is 0), each cache just uses its own target from the prefs.
+ * When a global budget is set, the caches share it:
+ * -the favourites cache is only changed by explicit user action, so its current size is taken off the top
+ * -the followee and explicit caches each have a minimum reservation, which is their own target from the prefs
+ * -any remaining headroom is split between them in proportion to their demand (their current occupancy), so an idle
+ *  cache gives its share to the busy one until it is used again
+ * If the budget can't satisfy the reservations, they are scaled down, proportionally, to fit.
+ * The caches enforce these targets through their existing pruning paths (CacheHelpers.pruneCache for the followee
+ * cache and the purge in ExplicitCacheManager for the explicit cache), the next time they run.
+ */
+public class CacheBudget
+{
+	/**
+	 * Computes the effective cache targets from the current state of the local data.
+	 *
+	 * @param access Read access.
+	 * @return The targets for the followee and explicit caches.
+	 */
+	public static Allocation allocate(IReadingAccess access)
+	{
+		PrefsData prefs = access.readPrefs();
+		return (prefs.globalCacheBudgetBytes > 0L)
+				? allocate(prefs.globalCacheBudgetBytes
+						, access.readableFavouritesCache().getFavouritesSizeBytes()
+						, prefs.followeeCacheTargetBytes
+						, access.readableFolloweeData().getCurrentCacheSizeBytes()
+						, prefs.explicitCacheTargetBytes
+						, access.readableExplicitCache().getCacheSizeBytes()
+				)
+				: new Allocation(prefs.followeeCacheTargetBytes, prefs.explicitCacheTargetBytes)
+		;
+	}
+
+	/**
+	 * Splits the given global budget between the followee and explicit caches.
+	 *
+	 * @param globalBudgetBytes The total budget for all caches.
+	 * @param favouritesBytes The current size of the favourites cache.
+	 * @param followeeReservationBytes The minimum size reserved for the followee cache.
+	 * @param followeeUsageBytes The current size of the followee cache.
+	 * @param explicitReservationBytes The minimum size reserved for the explicit cache.
+	 * @param explicitUsageBytes The current size of the explicit cache.
+	 * @return The targets for the followee and explicit caches.
+	 */
+	public static Allocation allocate(long globalBudgetBytes
+			, long favouritesBytes
+			, long followeeReservationBytes
+			, long followeeUsageBytes
+			, long explicitReservationBytes
+			, long explicitUsageBytes
+	)
+	{
+		Assert.assertTrue(globalBudgetBytes > 0L);
+		Assert.assertTrue(followeeReservationBytes >= 0L);
+		Assert.assertTrue(explicitReservationBytes >= 0L);
+
+		long remainingBytes = Math.max(0L, globalBudgetBytes - favouritesBytes);
+		long reservedBytes = followeeReservationBytes + explicitReservationBytes;
+		long followeeTargetBytes;
+		if (remainingBytes <= reservedBytes)
+		{
+			// We can't satisfy the reservations so scale them down to fit.
+			followeeTargetBytes = (reservedBytes > 0L)
+					? (long)((double)remainingBytes * ((double)followeeReservationBytes / (double)reservedBytes))
+					: 0L
+			;
+		}
+		else
+		{
+			// Split the headroom by demand.  If neither cache is using anything, fall back to the reservation ratio.
+			long headroomBytes = remainingBytes - reservedBytes;
+			double followeeWeight = (double)Math.max(0L, followeeUsageBytes);
+			double explicitWeight = (double)Math.max(0L, explicitUsageBytes);
+			if (0.0d == (followeeWeight + explicitWeight))
+			{
+				followeeWeight = (double)followeeReservationBytes;
+				explicitWeight = (double)explicitReservationBytes;
+			}
+			double followeeShare = ((followeeWeight + explicitWeight) > 0.0d)
+					? (followeeWeight / (followeeWeight + explicitWeight))
+					: 0.5d
+			;
+			followeeTargetBytes = followeeReservationBytes + (long)((double)headroomBytes * followeeShare);
+		}
+		// The explicit cache gets whatever is left so we never leave part of the budget unused.
+		long explicitTargetBytes = remainingBytes - followeeTargetBytes;
+		return new Allocation(followeeTargetBytes, explicitTargetBytes);
+	}
+
+
+	/**
+	 * The effective targets of the evictable caches.
+	 *
+	 * @param followeeTargetBytes The target size of the followee cache.
+	 * @param explicitTargetBytes The target size of the explicit cache.
+	 */
+	public static record Allocation(long followeeTargetBytes, long explicitTargetBytes) {}
+}
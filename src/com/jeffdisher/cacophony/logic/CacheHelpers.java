@@ -1,12 +1,15 @@
 package com.jeffdisher.cacophony.logic;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.jeffdisher.cacophony.access.IWritingAccess;
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.FolloweeData;
 import com.jeffdisher.cacophony.projection.FollowingCacheElement;
-import com.jeffdisher.cacophony.projection.IFolloweeReading;
 import com.jeffdisher.cacophony.types.IpfsConnectionException;
 import com.jeffdisher.cacophony.types.IpfsFile;
 import com.jeffdisher.cacophony.types.IpfsKey;
@@ -19,83 +22,123 @@ import com.jeffdisher.cacophony.utils.Pair;
  */
 public class CacheHelpers
 {
-	/**
-	 * Sums all the element data in the given followIndex.
-	 * 
-	 * @param followees The index to sum.
-	 * @return The sum of all bytes in the cache.
-	 */
-	public static long getCurrentCacheSizeBytes(IFolloweeReading followees)
-	{
-		long sizeBytes = 0L;
-		// Note that the cache allows for double-counting so we need to check every element from each followee, not just the raw list.
-		for (IpfsKey key : followees.getAllKnownFollowees())
-		{
-			for (FollowingCacheElement elt : followees.snapshotAllElementsForFollowee(key).values())
-			{
-				sizeBytes += elt.combinedSizeBytes();
-			}
-		}
-		return sizeBytes;
-	}
-
 	/**
 	 * Prunes the followee cache until it is under its limit.
 	 * 
 	 * @param access Write-access.
 	 * @param followees The followees data.
-	 * @param currentCacheSizeBytes The current size of followee data in the cache.
+	 * @param currentCacheSizeBytes The current size of unique followee leaf data in the cache.
 	 * @param limitSizeBytes The limit we want to fit under.
+	 * @param evictionPolicy The policy used to choose which cached leaves to evict.
 	 * @throws IpfsConnectionException There was a problem unpinning cached elements.
 	 */
-	public static void pruneCache(IWritingAccess access, FolloweeData followees, long currentCacheSizeBytes, long limitSizeBytes) throws IpfsConnectionException
+	public static void pruneCache(IWritingAccess access, FolloweeData followees, long currentCacheSizeBytes, long limitSizeBytes, CacheAlgorithm.IEvictionPolicy evictionPolicy) throws IpfsConnectionException
 	{
 		// This should only be called if the cache is above this limit.
 		Assert.assertTrue(currentCacheSizeBytes > limitSizeBytes);
 		
-		// Create the initial list of eviction candidates (this list doesn't favour any specific edge since eviction
-		// is random).
-		// Note that we don't handle duplicates across different followees, or even within the same followee, as
-		// being special - we allow them to be double-counted so they must be double-evicted.
-		List<CacheAlgorithm.Candidate<Pair<IpfsKey, FollowingCacheElement>>> evictionCandidates = new ArrayList<>();
+		// Group the cached elements by the leaves they reference since the cache size only counts each set of leaves
+		// once (rebroadcasts, for example, mean that multiple elements, across or within followees, cache the same
+		// leaves).  Evicting a set of leaves must then evict every element referencing it, or no space would be freed.
+		Map<Pair<IpfsFile, IpfsFile>, List<Pair<IpfsKey, FollowingCacheElement>>> referencesByLeaves = new HashMap<>();
+		Map<Pair<IpfsFile, IpfsFile>, Long> sizeByLeaves = new HashMap<>();
 		for (IpfsKey key : followees.getAllKnownFollowees())
 		{
-			for (FollowingCacheElement elt : followees.snapshotAllElementsForFollowee(key).values())
+			for (FollowingCacheElement elt : followees.readElementsForFollowee(key).values())
 			{
 				// We only consider this a candidate if it has attached leaves (a non-zero combined size).
 				long combinedSize = elt.combinedSizeBytes();
 				if (combinedSize > 0L)
 				{
-					evictionCandidates.add(new CacheAlgorithm.Candidate<>(combinedSize, new Pair<>(key, elt)));
+					Pair<IpfsFile, IpfsFile> leaves = new Pair<>(elt.imageHash(), elt.leafHash());
+					List<Pair<IpfsKey, FollowingCacheElement>> references = referencesByLeaves.get(leaves);
+					if (null == references)
+					{
+						references = new ArrayList<>();
+						referencesByLeaves.put(leaves, references);
+						sizeByLeaves.put(leaves, combinedSize);
+					}
+					references.add(new Pair<>(key, elt));
 				}
 			}
 		}
 		
-		// Now, see which elements we should evict.
-		CacheAlgorithm algorithm = new CacheAlgorithm(limitSizeBytes, currentCacheSizeBytes);
-		List<CacheAlgorithm.Candidate<Pair<IpfsKey, FollowingCacheElement>>> evictions = algorithm.toRemoveInResize(evictionCandidates);
+		// Create the list of eviction candidates (the order of eviction is decided by the policy).
+		// The policies are stable so the candidates are given to them oldest first, meaning that candidates without any
+		// access history are evicted oldest first.  Each set of leaves is as old as the first element which cached it
+		// (the followee data records the order elements were added so this doesn't need to load anything).
+		List<Map.Entry<Pair<IpfsFile, IpfsFile>, List<Pair<IpfsKey, FollowingCacheElement>>>> oldestFirst = new ArrayList<>(referencesByLeaves.entrySet());
+		Map<Pair<IpfsFile, IpfsFile>, Long> addedByLeaves = new HashMap<>();
+		for (Map.Entry<Pair<IpfsFile, IpfsFile>, List<Pair<IpfsKey, FollowingCacheElement>>> elt : oldestFirst)
+		{
+			long oldest = Long.MAX_VALUE;
+			for (Pair<IpfsKey, FollowingCacheElement> reference : elt.getValue())
+			{
+				oldest = Math.min(oldest, followees.getElementAddSequence(reference.first(), reference.second().elementHash()));
+			}
+			addedByLeaves.put(elt.getKey(), oldest);
+		}
+		oldestFirst.sort(Comparator.comparingLong((Map.Entry<Pair<IpfsFile, IpfsFile>, List<Pair<IpfsKey, FollowingCacheElement>>> elt) -> addedByLeaves.get(elt.getKey())));
 		
-		// We can walk this list once, doing the leaf unpinning and cache updates as we go (since we don't care about anything failing here).
-		for (CacheAlgorithm.Candidate<Pair<IpfsKey, FollowingCacheElement>> eviction : evictions)
+		// Each candidate is described by the most recently and most frequently accessed of its leaves or the elements
+		// referencing them.
+		AccessTrackerData tracker = access.accessTracker();
+		List<CacheAlgorithm.Candidate<List<Pair<IpfsKey, FollowingCacheElement>>>> evictionCandidates = new ArrayList<>();
+		for (Map.Entry<Pair<IpfsFile, IpfsFile>, List<Pair<IpfsKey, FollowingCacheElement>>> elt : oldestFirst)
 		{
-			IpfsKey followee = eviction.data().first();
-			FollowingCacheElement element = eviction.data().second();
-			
-			// Unpin the leaf elements.
-			IpfsFile imageHash = element.imageHash();
-			if (null != imageHash)
+			Pair<IpfsFile, IpfsFile> leaves = elt.getKey();
+			List<IpfsFile> accessedCids = new ArrayList<>();
+			accessedCids.add(leaves.first());
+			accessedCids.add(leaves.second());
+			for (Pair<IpfsKey, FollowingCacheElement> reference : elt.getValue())
 			{
-				access.unpin(imageHash);
+				accessedCids.add(reference.second().elementHash());
 			}
-			IpfsFile leafHash = element.leafHash();
-			if (null != leafHash)
+			long lastAccessMillis = 0L;
+			double accessCount = 0.0;
+			for (IpfsFile cid : accessedCids)
 			{
-				access.unpin(leafHash);
+				AccessTrackerData.AccessRecord record = (null != cid)
+						? tracker.getAccess(cid)
+						: null
+				;
+				if (null != record)
+				{
+					lastAccessMillis = Math.max(lastAccessMillis, record.lastAccessMillis());
+					accessCount = Math.max(accessCount, record.decayedCount());
+				}
+			}
+			evictionCandidates.add(new CacheAlgorithm.Candidate<>(sizeByLeaves.get(leaves), elt.getValue(), lastAccessMillis, accessCount));
+		}
+		
+		// Now, see which elements we should evict.
+		CacheAlgorithm algorithm = new CacheAlgorithm(limitSizeBytes, currentCacheSizeBytes, evictionPolicy);
+		List<CacheAlgorithm.Candidate<List<Pair<IpfsKey, FollowingCacheElement>>>> evictions = algorithm.toRemoveInResize(evictionCandidates);
+		
+		// We can walk this list once, doing the leaf unpinning and cache updates as we go (since we don't care about anything failing here).
+		for (CacheAlgorithm.Candidate<List<Pair<IpfsKey, FollowingCacheElement>>> eviction : evictions)
+		{
+			for (Pair<IpfsKey, FollowingCacheElement> reference : eviction.data())
+			{
+				IpfsKey followee = reference.first();
+				FollowingCacheElement element = reference.second();
+				
+				// Unpin the leaf elements (each element holds its own pin reference).
+				IpfsFile imageHash = element.imageHash();
+				if (null != imageHash)
+				{
+					access.unpin(imageHash);
+				}
+				IpfsFile leafHash = element.leafHash();
+				if (null != leafHash)
+				{
+					access.unpin(leafHash);
+				}
+				
+				// Clean up the cache - we want to remove the existing cache element and replace it with one which only has the meta-data.
+				followees.removeElement(followee, element.elementHash());
+				followees.addElement(followee, new FollowingCacheElement(element.elementHash(), null, null, 0L));
 			}
-			
-			// Clean up the cache - we want to remove the existing cache element and replace it with one which only has the meta-data.
-			followees.removeElement(followee, element.elementHash());
-			followees.addElement(followee, new FollowingCacheElement(element.elementHash(), null, null, 0L));
 		}
 	}
 }
@@ -0,0 +1,317 @@
+package com.jeffdisher.cacophony.logic;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.types.UsageException;
+import com.jeffdisher.cacophony.utils.Assert;
+import com.jeffdisher.cacophony.utils.MiscHelpers;
+
+
+/**
+ * A standalone simulator of the followee cache which replays a recorded trace through CacheAlgorithm and its eviction
+ * policies, so that cache sizes and policies can be compared offline.
+ * The simulation follows the same shape as the real system:
+ * -each refresh offers its new posts to CacheAlgorithm (newest-first), after shrinking the cache to its low-water
+ *  mark if it was above its high-water mark (see CommandHelpers)
+ * -each post view is recorded in an AccessTrackerData, which supplies the access history to the eviction policy
+ * All random decisions come from a single seeded Random so a run can be exactly reproduced.
+ * 
+ * The trace is a text file with one event per line (blank lines and lines starting with '#' are ignored):
+ * -"REFRESH <timeMillis> <postCid>:<leafBytes> ..." - a followee refresh which found these posts, oldest-first
+ * -"VIEW <timeMillis> <postCid>" - the user viewed this post
+ * 
+ * Usage:  java -cp Cacophony.jar com.jeffdisher.cacophony.logic.CacheSimulator <trace file> <cache bytes> [seed]
+ * This replays the trace under every built-in EvictionPolicy and prints the results for each.
+ */
+public class CacheSimulator
+{
+	public static final String EVENT_REFRESH = "REFRESH";
+	public static final String EVENT_VIEW = "VIEW";
+
+	public static void main(String[] args) throws IOException
+	{
+		if ((args.length < 2) || (args.length > 3))
+		{
+			System.err.println("Usage:  CacheSimulator <trace file> <cache bytes> [seed]");
+			System.exit(1);
+		}
+		try
+		{
+			long cacheLimitBytes = _parseLong(args[1], 0);
+			long seed = (3 == args.length)
+					? _parseLong(args[2], 0)
+					: 1L
+			;
+			List<Event> trace;
+			try (Reader reader = new FileReader(args[0]))
+			{
+				trace = parseTrace(reader);
+			}
+			runAllPolicies(System.out, trace, cacheLimitBytes, seed);
+		}
+		catch (UsageException e)
+		{
+			System.err.println("Usage error: " + e.getLocalizedMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Replays the trace under every built-in eviction policy, with the same seed, writing the results to output.
+	 * 
+	 * @param output Where the results should be written.
+	 * @param trace The trace to replay.
+	 * @param cacheLimitBytes The target size of the cache.
+	 * @param seed The seed for all random decisions.
+	 */
+	public static void runAllPolicies(PrintStream output, List<Event> trace, long cacheLimitBytes, long seed)
+	{
+		output.println("Replaying " + trace.size() + " events with a cache of " + MiscHelpers.humanReadableBytes(cacheLimitBytes) + " (seed " + seed + ")");
+		for (CacheAlgorithm.EvictionPolicy policy : CacheAlgorithm.EvictionPolicy.values())
+		{
+			long startNanos = System.nanoTime();
+			Result result = simulate(trace, cacheLimitBytes, policy, seed);
+			long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000L;
+			output.println(policy.name()
+					+ ": hitRatio=" + String.format("%.4f", result.hitRatio())
+					+ " (" + result.hits + "/" + result.views + ")"
+					+ ", fetched=" + MiscHelpers.humanReadableBytes(result.bytesFetched)
+					+ ", churn=" + MiscHelpers.humanReadableBytes(result.bytesEvicted) + " in " + result.evictions + " evictions"
+					+ ", time=" + elapsedMillis + " ms"
+			);
+		}
+	}
+
+	/**
+	 * Parses the text representation of a trace.
+	 * 
+	 * @param input The source of the trace text.
+	 * @return The events, in the order they appear.
+	 * @throws IOException There was an error reading the input.
+	 * @throws UsageException The trace was malformed.
+	 */
+	public static List<Event> parseTrace(Reader input) throws IOException, UsageException
+	{
+		List<Event> events = new ArrayList<>();
+		BufferedReader reader = new BufferedReader(input);
+		int lineNumber = 0;
+		String line = reader.readLine();
+		while (null != line)
+		{
+			lineNumber += 1;
+			String trimmed = line.trim();
+			if (!trimmed.isEmpty() && !trimmed.startsWith("#"))
+			{
+				String[] parts = trimmed.split("\\s+");
+				if (parts.length < 2)
+				{
+					throw new UsageException("Line " + lineNumber + ": Missing event time");
+				}
+				long timeMillis = _parseLong(parts[1], lineNumber);
+				if (EVENT_REFRESH.equals(parts[0]))
+				{
+					List<Post> posts = new ArrayList<>();
+					for (int i = 2; i < parts.length; ++i)
+					{
+						String[] pair = parts[i].split(":");
+						if (2 != pair.length)
+						{
+							throw new UsageException("Line " + lineNumber + ": Expected <postCid>:<leafBytes> but found \"" + parts[i] + "\"");
+						}
+						posts.add(new Post(_parseCid(pair[0], lineNumber), _parseLong(pair[1], lineNumber)));
+					}
+					events.add(new Event(timeMillis, null, Collections.unmodifiableList(posts)));
+				}
+				else if (EVENT_VIEW.equals(parts[0]))
+				{
+					if (3 != parts.length)
+					{
+						throw new UsageException("Line " + lineNumber + ": Expected VIEW <timeMillis> <postCid>");
+					}
+					events.add(new Event(timeMillis, _parseCid(parts[2], lineNumber), null));
+				}
+				else
+				{
+					throw new UsageException("Line " + lineNumber + ": Unknown event \"" + parts[0] + "\"");
+				}
+			}
+			line = reader.readLine();
+		}
+		return events;
+	}
+
+	/**
+	 * Replays the given trace through a simulated followee cache.
+	 * 
+	 * @param trace The events to replay.
+	 * @param cacheLimitBytes The target size of the cache.
+	 * @param evictionPolicy The policy to use when shrinking the cache.
+	 * @param seed The seed for all random decisions.
+	 * @return The results of the simulation.
+	 */
+	public static Result simulate(List<Event> trace, long cacheLimitBytes, CacheAlgorithm.IEvictionPolicy evictionPolicy, long seed)
+	{
+		Random random = new Random(seed);
+		AccessTrackerData tracker = new AccessTrackerData();
+		// We use a LinkedHashMap so the eviction candidates are given in the order they were cached, as in the real cache.
+		Map<IpfsFile, Long> cached = new LinkedHashMap<>();
+		Map<IpfsFile, Long> knownSizes = new LinkedHashMap<>();
+		long currentSizeBytes = 0L;
+		long views = 0L;
+		long hits = 0L;
+		long bytesFetched = 0L;
+		long bytesEvicted = 0L;
+		long evictions = 0L;
+		for (Event event : trace)
+		{
+			if (event.isView())
+			{
+				views += 1L;
+				tracker.recordAccess(event.viewedCid, event.timeMillis);
+				if (cached.containsKey(event.viewedCid))
+				{
+					hits += 1L;
+				}
+				else
+				{
+					// A miss needs to fetch the leaves from the network (we don't know how big that is for posts we never saw in a refresh).
+					Long size = knownSizes.get(event.viewedCid);
+					if (null != size)
+					{
+						bytesFetched += size;
+					}
+				}
+			}
+			else
+			{
+				// First, the same high-water check done before a real refresh.
+				long highWaterBytes = (long)(cacheLimitBytes * CommandHelpers.FOLLOWEE_CACHE_HIGH_WATER_FRACTION);
+				if (currentSizeBytes > highWaterBytes)
+				{
+					long lowWaterBytes = (long)(cacheLimitBytes * CommandHelpers.FOLLOWEE_CACHE_LOW_WATER_FRACTION);
+					List<CacheAlgorithm.Candidate<IpfsFile>> candidates = new ArrayList<>();
+					for (Map.Entry<IpfsFile, Long> elt : cached.entrySet())
+					{
+						AccessTrackerData.AccessRecord record = tracker.getAccess(elt.getKey());
+						candidates.add((null != record)
+								? new CacheAlgorithm.Candidate<>(elt.getValue(), elt.getKey(), record.lastAccessMillis(), record.decayedCount())
+								: new CacheAlgorithm.Candidate<>(elt.getValue(), elt.getKey())
+						);
+					}
+					CacheAlgorithm algorithm = new CacheAlgorithm(lowWaterBytes, currentSizeBytes, evictionPolicy, random);
+					for (CacheAlgorithm.Candidate<IpfsFile> eviction : algorithm.toRemoveInResize(candidates))
+					{
+						cached.remove(eviction.data());
+						currentSizeBytes -= eviction.byteSize();
+						bytesEvicted += eviction.byteSize();
+						evictions += 1L;
+					}
+				}
+
+				// Now, offer the new posts to the cache, newest-first, as FolloweeRefreshLogic does.
+				List<CacheAlgorithm.Candidate<IpfsFile>> newestFirst = new ArrayList<>();
+				for (Post post : event.refreshedPosts)
+				{
+					knownSizes.put(post.cid, post.leafBytes);
+					if ((post.leafBytes > 0L) && !cached.containsKey(post.cid))
+					{
+						newestFirst.add(new CacheAlgorithm.Candidate<>(post.leafBytes, post.cid));
+					}
+				}
+				Collections.reverse(newestFirst);
+				CacheAlgorithm algorithm = new CacheAlgorithm(cacheLimitBytes, currentSizeBytes, evictionPolicy, random);
+				for (CacheAlgorithm.Candidate<IpfsFile> addition : algorithm.toAddInNewAddition(newestFirst))
+				{
+					cached.put(addition.data(), addition.byteSize());
+					currentSizeBytes += addition.byteSize();
+					bytesFetched += addition.byteSize();
+				}
+			}
+		}
+		return new Result(views, hits, bytesFetched, bytesEvicted, evictions, currentSizeBytes);
+	}
+
+
+	private static long _parseLong(String value, int lineNumber) throws UsageException
+	{
+		try
+		{
+			return Long.parseLong(value);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new UsageException(((lineNumber > 0) ? ("Line " + lineNumber + ": ") : "") + "Not a number: \"" + value + "\"");
+		}
+	}
+
+	private static IpfsFile _parseCid(String value, int lineNumber) throws UsageException
+	{
+		IpfsFile cid = IpfsFile.fromIpfsCid(value);
+		if (null == cid)
+		{
+			throw new UsageException("Line " + lineNumber + ": Not a CID: \"" + value + "\"");
+		}
+		return cid;
+	}
+
+
+	/**
+	 * A single post offered by a refresh.
+	 * 
+	 * @param cid The post's CID.
+	 * @param leafBytes The combined size of the leaves which would be cached for this post (0 if none).
+	 */
+	public static record Post(IpfsFile cid, long leafBytes) {}
+
+	/**
+	 * A single event in the trace:  Either a view (viewedCid is non-null) or a refresh (refreshedPosts is non-null).
+	 * 
+	 * @param timeMillis The time of the event.
+	 * @param viewedCid The post viewed (null if this is a refresh).
+	 * @param refreshedPosts The posts found in a refresh, oldest-first (null if this is a view).
+	 */
+	public static record Event(long timeMillis, IpfsFile viewedCid, List<Post> refreshedPosts)
+	{
+		public Event
+		{
+			Assert.assertTrue((null == viewedCid) != (null == refreshedPosts));
+		}
+		public boolean isView()
+		{
+			return (null != this.viewedCid);
+		}
+	}
+
+	/**
+	 * The results of a single simulation.
+	 * 
+	 * @param views The number of views in the trace.
+	 * @param hits The number of views which found the post in the cache.
+	 * @param bytesFetched The bytes fetched from the network, both to populate the cache and for views which missed.
+	 * @param bytesEvicted The bytes evicted from the cache (the churn).
+	 * @param evictions The number of entries evicted from the cache.
+	 * @param finalSizeBytes The size of the cache at the end of the trace.
+	 */
+	public static record Result(long views, long hits, long bytesFetched, long bytesEvicted, long evictions, long finalSizeBytes)
+	{
+		public double hitRatio()
+		{
+			return (this.views > 0L)
+					? ((double)this.hits / (double)this.views)
+					: 0.0d
+			;
+		}
+	}
+}
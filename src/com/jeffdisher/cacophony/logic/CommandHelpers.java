@@ -1,5 +1,6 @@
 package com.jeffdisher.cacophony.logic;
 
+import com.jeffdisher.cacophony.access.IReadingAccess;
 import com.jeffdisher.cacophony.access.IWritingAccess;
 import com.jeffdisher.cacophony.projection.FolloweeData;
 import com.jeffdisher.cacophony.projection.PrefsData;
@@ -15,6 +16,16 @@ import com.jeffdisher.cacophony.utils.MiscHelpers;
  */
 public class CommandHelpers
 {
+	/**
+	 * Once the followee cache grows above this fraction of its target size, it needs maintenance.
+	 */
+	public static final double FOLLOWEE_CACHE_HIGH_WATER_FRACTION = 0.90;
+	/**
+	 * When the followee cache is shrunk as part of maintenance, this is the fraction of the target size it is shrunk
+	 * to (leaving room for new followee data before the high-water mark is reached again).
+	 */
+	public static final double FOLLOWEE_CACHE_LOW_WATER_FRACTION = 0.75;
+
 	/**
 	 * Waits for the publish operation in-flight in asyncPublish to complete or fail, logging the result.
 	 * 
@@ -37,8 +48,8 @@ public class CommandHelpers
 	}
 
 	/**
-	 * Walks the local data to determine the current cache size.  If the size is greater than the target size in the
-	 * prefs, it will unpin elements until it fits.
+	 * Checks the running cache size in the local data.  If the size is greater than the target size in the prefs (or
+	 * the followee share of the global cache budget, if there is one), it will unpin elements until it fits.
 	 * 
 	 * @param environment The execution environment.
 	 * @param access Write access.
@@ -50,12 +61,12 @@ public class CommandHelpers
 		ILogger log = logger.logStart("Checking is cache requires shrinking...");
 		FolloweeData followees = access.writableFolloweeData();
 		PrefsData prefs = access.readPrefs();
-		long currentCacheSizeBytes = CacheHelpers.getCurrentCacheSizeBytes(followees);
-		long targetSizeBytes = (long)(prefs.followeeCacheTargetBytes * fullnessFraction);
+		long currentCacheSizeBytes = followees.getCurrentCacheSizeBytes();
+		long targetSizeBytes = (long)(CacheBudget.allocate(access).followeeTargetBytes() * fullnessFraction);
 		if (currentCacheSizeBytes > targetSizeBytes)
 		{
-			log.logOperation("Pruning cache to " + MiscHelpers.humanReadableBytes(targetSizeBytes) + " from current size of " + MiscHelpers.humanReadableBytes(currentCacheSizeBytes) + "...");
-			CacheHelpers.pruneCache(access, followees, currentCacheSizeBytes, targetSizeBytes);
+			log.logOperation("Pruning cache to " + MiscHelpers.humanReadableBytes(targetSizeBytes) + " from current size of " + MiscHelpers.humanReadableBytes(currentCacheSizeBytes) + " (" + prefs.followeeCacheEvictionPolicy + " eviction)...");
+			CacheHelpers.pruneCache(access, followees, currentCacheSizeBytes, targetSizeBytes, prefs.followeeCacheEvictionPolicy);
 		}
 		else
 		{
@@ -63,4 +74,34 @@ public class CommandHelpers
 		}
 		log.logFinish("Cache clean finished without issue");
 	}
+
+	/**
+	 * Checks if the followee cache has grown above its high-water mark.  This is based on the running occupancy count
+	 * so it is cheap enough to call at any time.
+	 * 
+	 * @param access Read access.
+	 * @return True if the cache should be shrunk by calling shrinkCacheIfAboveHighWater().
+	 */
+	public static boolean isFolloweeCacheAboveHighWater(IReadingAccess access)
+	{
+		long highWaterBytes = (long)(CacheBudget.allocate(access).followeeTargetBytes() * FOLLOWEE_CACHE_HIGH_WATER_FRACTION);
+		return (access.readableFolloweeData().getCurrentCacheSizeBytes() > highWaterBytes);
+	}
+
+	/**
+	 * The followee cache maintenance operation:  If the cache has grown above its high-water mark, it will be shrunk to
+	 * its low-water mark.  If not, this does nothing.
+	 * 
+	 * @param logger The logger.
+	 * @param access Write access.
+	 * @throws IpfsConnectionException If something goes wrong interacting with the IPFS node.
+	 */
+	public static void shrinkCacheIfAboveHighWater(ILogger logger, IWritingAccess access) throws IpfsConnectionException
+	{
+		// We check this using the read-only accessor so we don't mark the followees as needing write-back, in the common case.
+		if (isFolloweeCacheAboveHighWater(access))
+		{
+			shrinkCacheToFitInPrefs(logger, access, FOLLOWEE_CACHE_LOW_WATER_FRACTION);
+		}
+	}
 }
@@ -31,8 +31,6 @@ import com.jeffdisher.cacophony.utils.Assert;
  */
 public class ConcurrentFolloweeRefresher
 {
-	public static final double NEW_FOLLOWEE_FULLNESS_FRACTION = 0.75;
-	public static final double EXISTING_FOLLOWEE_FULLNESS_FRACTION = 0.90;
 	public static final double NO_RESIZE_FOLLOWEE_FULLNESS_FRACTION = 1.0;
 
 	private final ILogger _logger;
@@ -46,6 +44,7 @@ public class ConcurrentFolloweeRefresher
 	private Map<IpfsFile, FollowingCacheElement> _cachedEntriesForFollowee;
 	private List<IpfsFile> _initialFailuresToRetry;
 	private Set<IpfsFile> _initialFailureSet;
+	private long _cacheTargetBytes;
 	private long _currentCacheUsageInBytes;
 	private FutureResolve _keyResolve;
 
@@ -89,33 +88,21 @@ public class ConcurrentFolloweeRefresher
 	}
 
 	/**
-	 * Step 1:  Setup the state of the object for the refresh while still holding write access.  This step is also
-	 * responsible for the pre-refresh cache cleaning.
+	 * Step 1:  Setup the state of the object for the refresh while still holding write access.
+	 * Note that this does NOT shrink the followee cache:  That is a separate maintenance operation (see
+	 * CommandHelpers.shrinkCacheIfAboveHighWater()) which should be run before this, if required.
 	 * 
 	 * @param access System write access.
 	 * @param followees The followees structure.
-	 * @throws IpfsConnectionException There was a failure unpinning during the cache cleaning operation.
 	 */
 	public void setupRefresh(IWritingAccess access
 			, FolloweeData followees
-	) throws IpfsConnectionException
+	)
 	{
 		Assert.assertTrue(!_didSetup);
 		
-		// We only want to shrink the cache if this isn't a delete (in that case, we will just make sure it isn't overflowing).
-		double fullnessFraction = ConcurrentFolloweeRefresher.NO_RESIZE_FOLLOWEE_FULLNESS_FRACTION;
-		if (!_isDelete)
-		{
-			// If this followee hasn't been refreshed before, that means it was only just added and its data hasn't been
-			// fetched, so we want to make extra room in the cache.
-			boolean isFirstRefresh = (null == followees.getLastFetchedRootForFollowee(_followeeKey));
-			fullnessFraction = isFirstRefresh
-					? ConcurrentFolloweeRefresher.NEW_FOLLOWEE_FULLNESS_FRACTION
-					: ConcurrentFolloweeRefresher.EXISTING_FOLLOWEE_FULLNESS_FRACTION
-			;
-		}
-		CommandHelpers.shrinkCacheToFitInPrefs(_logger, access, fullnessFraction);
 		_transaction = access.openConcurrentTransaction();
+		// NOTE:  This must be a copy, not a view, since runRefresh() reads it after we have released access.
 		_cachedEntriesForFollowee = (null != _previousRoot)
 				? followees.snapshotAllElementsForFollowee(_followeeKey)
 				: Collections.emptyMap()
@@ -132,7 +119,9 @@ public class ConcurrentFolloweeRefresher
 				: Collections.emptySet()
 		;
 		Assert.assertTrue(null != _cachedEntriesForFollowee);
-		_currentCacheUsageInBytes = CacheHelpers.getCurrentCacheSizeBytes(followees);
+		// The target may be larger or smaller than the prefs, if there is a global cache budget.
+		_cacheTargetBytes = CacheBudget.allocate(access).followeeTargetBytes();
+		_currentCacheUsageInBytes = followees.getCurrentCacheSizeBytes();
 		_keyResolve = _isDelete
 				? null
 				: access.resolvePublicKey(_followeeKey)
@@ -177,6 +166,7 @@ public class ConcurrentFolloweeRefresher
 						, _prefs
 						, _previousRoot
 						, null
+						, _cacheTargetBytes
 						, _currentCacheUsageInBytes
 				);
 				// There CANNOT be more to do if this was a delete.
@@ -192,6 +182,7 @@ public class ConcurrentFolloweeRefresher
 						, _prefs
 						, _previousRoot
 						, _newRoot
+						, _cacheTargetBytes
 						, _currentCacheUsageInBytes
 				);
 				refreshWasSuccess = true;
@@ -2,10 +2,14 @@ package com.jeffdisher.cacophony.logic;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.LongSupplier;
-import java.util.stream.Collectors;
 
 import com.jeffdisher.cacophony.access.ConcurrentTransaction;
 import com.jeffdisher.cacophony.access.IReadingAccess;
@@ -58,24 +62,54 @@ import com.jeffdisher.cacophony.utils.SizeLimits;
  * Note that this implementation will internally request whatever kind of data locking access is required for what it
  * needs to accomplish and will avoid doing heavy network operations under lock, relying on transactions for those cases
  * where it would need to write-back storage due to changes it has made to what is pinned on the local node.
- * Due to the need for potential background refreshes and a general interest to batch requests in fewer disk-write
- * calls, the actual logic is run on a background thread (if created with enableAsync=true) and the results are returned
- * via futures (where the call cannot be satisfied with a fully-synchronous local call).
+ * Due to the need for potential background refreshes, the actual logic is run on a pool of background worker threads
+ * (if created with a non-zero asyncWorkerCount) and the results are returned via futures (where the call cannot be
+ * satisfied with a fully-synchronous local call).
+ * Each worker loads a single user or record at a time, committing it to the cache on its own, so a slow resolve of one
+ * key doesn't hold up requests for the others.  A given key is only ever being loaded by one worker at a time:  new
+ * requests for a key already in-flight either piggy-back on that request or wait for it to finish.  In-flight entries
+ * are also protected from being purged, since their workers may be about to update them.
  */
 public class ExplicitCacheManager
 {
+	/**
+	 * The maximum number of entries removed by a single step of a full purge.  Each step holds the write lock, so this
+	 * bounds how long a purge can block loads.
+	 */
+	public static final int PURGE_BATCH_ENTRIES = 20;
+	/**
+	 * The minimum time between the steps of a full purge, when running asynchronously, so that the unpins don't saturate
+	 * the IPFS node while other requests are being served.
+	 */
+	public static final long PURGE_BATCH_INTERVAL_MILLIS = 100L;
+	/**
+	 * The key used to report purge progress to the status connector.  BackgroundOperations only uses positive keys and
+	 * there is only ever one purge in progress so this can be constant.
+	 */
+	public static final int PURGE_STATUS_KEY = -1;
+
 	private final LocalDataModel _sharedDataModel;
 	private final IConnection _basicConnection;
 	private final INetworkScheduler _scheduler;
 	private final ILogger _logger;
 	private final LongSupplier _currentTimeMillisSupplier;
-	private final Thread _background;
-	// We keep the pending requests for user data and record data in lists so that we can batch them.
+	// Recent failures are remembered so that repeated requests for them don't go back to the network.
+	private final ExplicitNegativeCache _negativeCache;
+	// This is null when running synchronously.
+	private final Thread[] _background;
+	// We keep the pending requests for user data and record data in maps, in the order they were requested.
 	// These are stored as maps since we don't want duplicated requests and this allows new calls to piggy-back.
 	private final Map<IpfsKey, FutureUserInfo> _userRequests;
 	private final Map<IpfsFile, FutureRecord> _recordRequests;
-	// We only keep at most a single purge request.
-	private FutureVoid _purgeRequest;
+	// The requests currently being loaded by a worker - a key is removed from the pending maps when it moves here.
+	private final Map<IpfsKey, FutureUserInfo> _inFlightUsers;
+	private final Map<IpfsFile, FutureRecord> _inFlightRecords;
+	// We only keep at most a single purge in progress.
+	private PurgeState _purge;
+	// The status connector is optional (only used in interactive mode) and is used to report the progress of purges.
+	private HandoffConnector<Integer, String> _statusConnector;
+	// We alternate between users and records when both are pending so neither can starve the other.
+	private boolean _preferRecords;
 
 	private boolean _isBackgroundRunning;
 
@@ -87,35 +121,49 @@ public class ExplicitCacheManager
 	 * @param scheduler The network scheduler.
 	 * @param logger The logger.
 	 * @param currentTimeMillisSupplier A supplier of the current system time in milliseconds.
-	 * @param enableAsync True if the manager should run in a truly asynchronous mode.
+	 * @param asyncWorkerCount The number of background workers to run in a truly asynchronous mode (0 means that all
+	 * operations are run synchronously on the calling thread).
 	 */
-	public ExplicitCacheManager(LocalDataModel sharedDataModel, IConnection basicConnection, INetworkScheduler scheduler, ILogger logger, LongSupplier currentTimeMillisSupplier, boolean enableAsync)
+	public ExplicitCacheManager(LocalDataModel sharedDataModel, IConnection basicConnection, INetworkScheduler scheduler, ILogger logger, LongSupplier currentTimeMillisSupplier, int asyncWorkerCount)
 	{
+		Assert.assertTrue(asyncWorkerCount >= 0);
 		_sharedDataModel = sharedDataModel;
 		_basicConnection = basicConnection;
 		_scheduler = scheduler;
 		_logger = logger;
 		_currentTimeMillisSupplier = currentTimeMillisSupplier;
-		if (enableAsync)
+		_negativeCache = new ExplicitNegativeCache(ExplicitNegativeCache.DEFAULT_MAX_ENTRIES);
+		if (asyncWorkerCount > 0)
 		{
-			_background = MiscHelpers.createThread(() -> {
-				Runnable runner = _backgroundGetNextRunnable();
-				while (null != runner)
-				{
-					runner.run();
-					runner = _backgroundGetNextRunnable();
-				}
-			}, "ExplicitCacheManager");
-			_userRequests = new HashMap<>();
-			_recordRequests = new HashMap<>();
+			_background = new Thread[asyncWorkerCount];
+			for (int i = 0; i < asyncWorkerCount; ++i)
+			{
+				_background[i] = MiscHelpers.createThread(() -> {
+					Runnable runner = _backgroundGetNextRunnable();
+					while (null != runner)
+					{
+						runner.run();
+						runner = _backgroundGetNextRunnable();
+					}
+				}, "ExplicitCacheManager-" + i);
+			}
+			_userRequests = new LinkedHashMap<>();
+			_recordRequests = new LinkedHashMap<>();
+			_inFlightUsers = new HashMap<>();
+			_inFlightRecords = new HashMap<>();
 			_isBackgroundRunning = true;
-			_background.start();
+			for (Thread thread : _background)
+			{
+				thread.start();
+			}
 		}
 		else
 		{
 			_background = null;
 			_userRequests = null;
 			_recordRequests = null;
+			_inFlightUsers = null;
+			_inFlightRecords = null;
 			_isBackgroundRunning = false;
 		}
 	}
@@ -136,7 +184,10 @@ public class ExplicitCacheManager
 			}
 			try
 			{
-				_background.join();
+				for (Thread thread : _background)
+				{
+					thread.join();
+				}
 			}
 			catch (InterruptedException e)
 			{
@@ -145,36 +196,69 @@ public class ExplicitCacheManager
 		}
 	}
 
+	/**
+	 * Loads user info for the user with the given public key, reading through to the network to find the info if it
+	 * isn't already in the cache.
+	 * This is the same as calling loadUserInfo(publicKey, false):  A stale entry will be returned immediately while it
+	 * is revalidated in the background.
+	 * 
+	 * @param publicKey The user to fetch.
+	 * @return The future containing the asynchronous result.
+	 */
+	public FutureUserInfo loadUserInfo(IpfsKey publicKey)
+	{
+		return loadUserInfo(publicKey, false);
+	}
+
 	/**
 	 * Loads user info for the user with the given public key, reading through to the network to find the info if it
 	 * isn't already in the cache.
 	 * If the info was already in the cache, or the network read was a success, this call will mark that entry as most
 	 * recently used.
-	 * WARNING:  As part of a transition to the background refresh mechanism, this call will currently always report a
-	 * cache hit if it sees an entry in the cache for this key, no matter how old it is.
+	 * If the cached entry is older than the explicitUserInfoRefreshMillis pref, it is "stale" and will be revalidated:
+	 * -if requireFresh is false, the stale entry is returned immediately (when running asynchronously, without waiting
+	 *  for a worker) and the revalidation happens in the background
+	 * -if requireFresh is true, the returned future will only complete once the revalidation is done (if the
+	 *  revalidation fails, the existing entry is returned)
+	 * If a recent attempt to load this user failed, the returned future will fail in the same way, without any network
+	 * access (see ExplicitNegativeCache).
 	 * 
 	 * @param publicKey The user to fetch.
+	 * @param requireFresh True if a stale entry must be revalidated before it is returned.
 	 * @return The future containing the asynchronous result.
 	 */
-	public synchronized FutureUserInfo loadUserInfo(IpfsKey publicKey)
+	public FutureUserInfo loadUserInfo(IpfsKey publicKey, boolean requireFresh)
 	{
+		long currentTimeMillis = _currentTimeMillisSupplier.getAsLong();
 		FutureUserInfo future;
-		if (null != _background)
+		Exception recentFailure = _negativeCache.checkUser(publicKey, currentTimeMillis);
+		if (null != recentFailure)
 		{
-			future = _userRequests.get(publicKey);
-			if (null == future)
-			{
-				future = new FutureUserInfo(publicKey);
-				_userRequests.put(publicKey, future);
-				this.notifyAll();
-				
-			}
+			future = new FutureUserInfo(publicKey);
+			_failUser(future, recentFailure);
 		}
 		else
 		{
-			future = new FutureUserInfo(publicKey);
-			FutureUserInfo[] usersToLoad = new FutureUserInfo[] { future };
-			_runFullLoad(usersToLoad, new FutureRecord[0], null);
+			// We check the cache directly, first, so that hits never wait for a worker.
+			// NOTE:  This must be done outside of our monitor since workers acquire it while holding the data lock.
+			CachedUser cached = _readCachedUser(publicKey, currentTimeMillis);
+			boolean canReturnImmediately = (null != cached)
+					&& (!cached.isStale() || (!requireFresh && (null != _background)))
+			;
+			if (canReturnImmediately)
+			{
+				future = new FutureUserInfo(publicKey);
+				future.success(cached.info());
+				if (cached.isStale())
+				{
+					// Revalidate in the background - nobody waits on this request.
+					_scheduleUserLoad(publicKey, false);
+				}
+			}
+			else
+			{
+				future = _scheduleUserLoad(publicKey, requireFresh);
+			}
 		}
 		return future;
 	}
@@ -186,6 +270,8 @@ public class ExplicitCacheManager
 	 * If the data is present in the cache, but requestLeaves is true and there are missing leaves, the leaves will be
 	 * fetched.
 	 * If the data is missing and requestLeaves is false, only the meta-data will be cached.
+	 * If a recent attempt to load this record failed, the returned future will fail in the same way, without any
+	 * network access (see ExplicitNegativeCache).
 	 * 
 	 * @param recordCid The record instance to load.
 	 * @param requestLeaves If true, will only return once the leaves are populated, as well.
@@ -194,9 +280,21 @@ public class ExplicitCacheManager
 	public synchronized FutureRecord loadRecord(IpfsFile recordCid, boolean requestLeaves)
 	{
 		FutureRecord future;
-		if (null != _background)
+		Exception recentFailure = _negativeCache.checkRecord(recordCid, requestLeaves, _currentTimeMillisSupplier.getAsLong());
+		if (null != recentFailure)
 		{
-			future = _recordRequests.get(recordCid);
+			future = new FutureRecord(recordCid, requestLeaves, null);
+			_failRecord(future, recentFailure);
+		}
+		else if (null != _background)
+		{
+			// We can piggy-back on an in-flight request only if it will give us everything we want.  Otherwise, we will
+			// queue a new request, which won't start until the in-flight one is done.
+			FutureRecord inFlight = _inFlightRecords.get(recordCid);
+			future = ((null != inFlight) && (inFlight.requestLeaves || !requestLeaves))
+					? inFlight
+					: _recordRequests.get(recordCid)
+			;
 			// If the request is here and we want leaves but the future isn't requesting them, we will replace it with a new instance.
 			FutureRecord flowThrough = null;
 			if ((null != future) && requestLeaves && !future.requestLeaves)
@@ -215,33 +313,125 @@ public class ExplicitCacheManager
 		{
 			future = new FutureRecord(recordCid, requestLeaves, null);
 			FutureRecord[] recordsToLoad = new FutureRecord[] { future };
-			_runFullLoad(new FutureUserInfo[0], recordsToLoad, null);
+			_runFullLoad(new FutureUserInfo[0], recordsToLoad);
+		}
+		return future;
+	}
+
+	/**
+	 * Loads user info for the user with the given public key, on behalf of a speculative prefetch.
+	 * This is the same as loadUserInfo(publicKey, false), except that an existing entry is returned without marking it
+	 * as most recently used or revalidating it, even if it is stale:  Speculative reads shouldn't keep an entry alive
+	 * ahead of what the user actually looked at.  Only a miss will read through to the network.
+	 * 
+	 * @param publicKey The user to fetch.
+	 * @return The future containing the asynchronous result.
+	 */
+	public FutureUserInfo prefetchUserInfo(IpfsKey publicKey)
+	{
+		ExplicitCacheData.UserInfo existing;
+		// NOTE:  This must be done outside of our monitor since workers acquire it while holding the data lock.
+		try (IReadingAccess access = StandardAccess.readAccess(_basicConnection, _scheduler, _logger, _sharedDataModel, null))
+		{
+			existing = access.readableExplicitCache().peekUserInfo(publicKey);
+		}
+		FutureUserInfo future;
+		if (null != existing)
+		{
+			future = new FutureUserInfo(publicKey);
+			future.markCacheHit();
+			future.success(existing);
+		}
+		else
+		{
+			future = loadUserInfo(publicKey, false);
 		}
 		return future;
 	}
 
+	/**
+	 * Loads the info describing the StreamRecord with the given recordCid, on behalf of a speculative prefetch.
+	 * This is the same as loadRecord(recordCid, false), except that an existing entry is returned without marking it as
+	 * most recently used.  Only a miss will read through to the network.
+	 * 
+	 * @param recordCid The record instance to load.
+	 * @return The future containing the asynchronous result.
+	 */
+	public FutureRecord prefetchRecord(IpfsFile recordCid)
+	{
+		CachedRecordInfo existing;
+		// NOTE:  This must be done outside of our monitor since workers acquire it while holding the data lock.
+		try (IReadingAccess access = StandardAccess.readAccess(_basicConnection, _scheduler, _logger, _sharedDataModel, null))
+		{
+			existing = access.readableExplicitCache().peekRecordInfo(recordCid);
+		}
+		FutureRecord future;
+		if (null != existing)
+		{
+			future = new FutureRecord(recordCid, false, null);
+			future.markCacheHit();
+			future.success(existing);
+		}
+		else
+		{
+			future = loadRecord(recordCid, false);
+		}
+		return future;
+	}
+
+	/**
+	 * Attaches the connector used to report the progress of long-running operations (currently just purges).
+	 * 
+	 * @param statusConnector The connector to notify (may be null to detach).
+	 */
+	public synchronized void attachStatusConnector(HandoffConnector<Integer, String> statusConnector)
+	{
+		_statusConnector = statusConnector;
+	}
+
 	/**
 	 * Purges everything from the explicit cache and requests a GC of the IPFS node.
+	 * This also forgets any recent failures, so the next requests will go back to the network.
+	 * The purge is run incrementally, PURGE_BATCH_ENTRIES at a time, so that it doesn't stop the cache from serving
+	 * other requests while it is running.  When running asynchronously, these batches are also rate-limited (see
+	 * PURGE_BATCH_INTERVAL_MILLIS) and interleaved with any other requests.  Only the entries which were in the cache
+	 * when the purge started are purged, so entries loaded between batches survive and concurrent loads can't keep it
+	 * running forever.
+	 * If a purge is already in progress, the returned future will be the one for that purge.
 	 * 
 	 * @return The future containing the asynchronous completion.
 	 */
 	public synchronized FutureVoid purgeCacheFullyAndGc()
 	{
+		_negativeCache.clear();
 		FutureVoid future;
-		if (null != _background)
+		if (null != _purge)
 		{
-			future = _purgeRequest;
-			if (null == future)
-			{
-				future = new FutureVoid();
-				_purgeRequest = future;
-				this.notifyAll();
-			}
+			future = _purge.future;
 		}
 		else
 		{
-			future = new FutureVoid();
-			_purgeCacheFullyAndGc(future);
+			PurgeState purge = new PurgeState(new FutureVoid(), _statusConnector);
+			_purge = purge;
+			future = purge.future;
+			if (null != purge.statusConnector)
+			{
+				purge.statusConnector.create(PURGE_STATUS_KEY, "Purging explicit cache");
+			}
+			if (null != _background)
+			{
+				this.notifyAll();
+			}
+			else
+			{
+				// We don't rate-limit the synchronous case since nothing else can run until we return.
+				boolean isDone = false;
+				while (!isDone)
+				{
+					isDone = _runPurgeBatch(purge);
+				}
+				_finishPurgeBatch(purge, true, 0L);
+			}
 		}
 		return future;
 	}
@@ -263,6 +453,14 @@ public class ExplicitCacheManager
 		}
 	}
 
+	/**
+	 * @return The number of recent failures being remembered to avoid repeated network requests.
+	 */
+	public int getNegativeCacheSize()
+	{
+		return _negativeCache.size();
+	}
+
 	/**
 	 * Just a helper to read the total size from ExplicitCacheData.
 	 * 
@@ -278,27 +476,120 @@ public class ExplicitCacheManager
 	}
 
 
-	private void _purgeCacheFullyAndGc(FutureVoid future)
+	private boolean _runPurgeBatch(PurgeState purge)
 	{
-		try
+		// Each batch takes the write lock only long enough to evict a bounded number of entries.
+		boolean isDone;
+		int purgedEntries;
+		int totalEntries;
+		try (IWritingAccess access = StandardAccess.writeAccess(_basicConnection, _scheduler, _logger, _sharedDataModel, null))
 		{
-			try (IWritingAccess access = StandardAccess.writeAccess(_basicConnection, _scheduler, _logger, _sharedDataModel, null))
+			ExplicitCacheData data = access.writableExplicitCache();
+			// We only purge the entries which existed when we started, so that entries loaded between batches survive
+			// and new loads can't starve us.
+			if (purge.totalEntries < 0)
+			{
+				purge.totalEntries = data.getEntryCount();
+				purge.beforeGeneration = data.getNextGeneration();
+			}
+			int limit = Math.min(PURGE_BATCH_ENTRIES, purge.totalEntries - purge.purgedEntries);
+			int removed = data.purgeOldestEntries(_unpinConsumer(access), limit, purge.beforeGeneration, _retainedUsers(), _retainedRecords());
+			purge.purgedEntries += removed;
+			// If we removed fewer than we asked for, everything else from the start is in-flight (or already gone).
+			isDone = (removed < limit) || (purge.purgedEntries >= purge.totalEntries);
+			purgedEntries = purge.purgedEntries;
+			totalEntries = purge.totalEntries;
+		}
+		if (null != purge.statusConnector)
+		{
+			purge.statusConnector.update(PURGE_STATUS_KEY, "Purging explicit cache: " + purgedEntries + " of " + totalEntries + " entries");
+		}
+		if (isDone)
+		{
+			// The GC can take a while but doesn't change anything we track so it only needs the read lock.
+			try (IReadingAccess access = StandardAccess.readAccess(_basicConnection, _scheduler, _logger, _sharedDataModel, null))
 			{
-				ExplicitCacheData data = access.writableExplicitCache();
-				_purgeExcess(access, data, 0L);
 				access.requestIpfsGc();
 			}
-			future.success();
+			catch (IpfsConnectionException e)
+			{
+				purge.gcException = e;
+			}
 		}
-		catch (IpfsConnectionException e)
+		return isDone;
+	}
+
+	private synchronized void _finishPurgeBatch(PurgeState purge, boolean isDone, long currentTimeMillis)
+	{
+		Assert.assertTrue(purge == _purge);
+		purge.isBatchRunning = false;
+		if (isDone)
 		{
-			future.failure(e);
+			_purge = null;
+			if (null != purge.statusConnector)
+			{
+				purge.statusConnector.destroy(PURGE_STATUS_KEY);
+			}
+			if (null != purge.gcException)
+			{
+				purge.future.failure(purge.gcException);
+			}
+			else
+			{
+				purge.future.success();
+			}
 		}
+		else
+		{
+			purge.nextBatchMillis = currentTimeMillis + PURGE_BATCH_INTERVAL_MILLIS;
+		}
+		this.notifyAll();
 	}
 
 	private void _purgeExcess(IWritingAccess access, ExplicitCacheData data, long cacheLimitInBytes)
 	{
-		data.purgeCacheToSize((IpfsFile evict) -> {
+		data.purgeCacheToSize(_unpinConsumer(access), cacheLimitInBytes, _retainedUsers(), _retainedRecords());
+	}
+
+	private Set<IpfsKey> _retainedUsers()
+	{
+		// When running asynchronously, other workers may be about to update entries they are loading, so leave those.
+		Set<IpfsKey> retainUsers;
+		if (null != _background)
+		{
+			synchronized (this)
+			{
+				retainUsers = new HashSet<>(_inFlightUsers.keySet());
+			}
+		}
+		else
+		{
+			retainUsers = Set.of();
+		}
+		return retainUsers;
+	}
+
+	private Set<IpfsFile> _retainedRecords()
+	{
+		// (see _retainedUsers())
+		Set<IpfsFile> retainRecords;
+		if (null != _background)
+		{
+			synchronized (this)
+			{
+				retainRecords = new HashSet<>(_inFlightRecords.keySet());
+			}
+		}
+		else
+		{
+			retainRecords = Set.of();
+		}
+		return retainRecords;
+	}
+
+	private static Consumer<IpfsFile> _unpinConsumer(IWritingAccess access)
+	{
+		return (IpfsFile evict) -> {
 			try
 			{
 				access.unpin(evict);
@@ -308,7 +599,7 @@ public class ExplicitCacheManager
 				// This is just a local contact problem so just log it.
 				System.err.println("WARNING:  Failure in unpin, will need to be removed manually: " + evict);
 			}
-		}, cacheLimitInBytes);
+		};
 	}
 
 	private ExplicitCacheData.UserInfo _loadUserInfo(ConcurrentTransaction transaction, IpfsFile root) throws ProtocolDataException, IpfsConnectionException
@@ -372,48 +663,237 @@ public class ExplicitCacheManager
 		return info;
 	}
 
-	private synchronized Runnable _backgroundGetNextRunnable()
+	private CachedUser _readCachedUser(IpfsKey publicKey, long currentTimeMillis)
 	{
-		// Wait for something to do.
-		while (_isBackgroundRunning
-				&& _userRequests.isEmpty()
-				&& _recordRequests.isEmpty()
-				&& (null == _purgeRequest)
-		)
+		try (IReadingAccess access = StandardAccess.readAccess(_basicConnection, _scheduler, _logger, _sharedDataModel, null))
 		{
-			try
+			long explicitUserInfoRefreshMillis = access.readPrefs().explicitUserInfoRefreshMillis;
+			ExplicitCacheData.UserInfo info = access.readableExplicitCache().getUserInfo(publicKey);
+			return (null != info)
+					? new CachedUser(info, (info.lastFetchAttemptMillis() + explicitUserInfoRefreshMillis) < currentTimeMillis)
+					: null
+			;
+		}
+	}
+
+	private synchronized FutureUserInfo _scheduleUserLoad(IpfsKey publicKey, boolean requireFresh)
+	{
+		FutureUserInfo future;
+		if (null != _background)
+		{
+			// If this is already being loaded, or waiting to be, just piggy-back on that request.
+			// An in-flight request which isn't required to be fresh may return a stale hit, so we can't use that if we
+			// need fresh data.  In that case, we queue a new request, which won't start until the in-flight one is done.
+			FutureUserInfo inFlight = _inFlightUsers.get(publicKey);
+			if ((null != inFlight) && (inFlight.isFreshRequired() || !requireFresh))
 			{
-				this.wait();
+				future = inFlight;
 			}
-			catch (InterruptedException e)
+			else
 			{
-				throw Assert.unexpected(e);
+				future = _userRequests.get(publicKey);
+				if (null == future)
+				{
+					future = new FutureUserInfo(publicKey);
+					_userRequests.put(publicKey, future);
+					this.notifyAll();
+				}
+				// A pending request hasn't started yet so we can just upgrade it.
+				if (requireFresh)
+				{
+					future.requireFresh();
+				}
+			}
+		}
+		else
+		{
+			future = new FutureUserInfo(publicKey);
+			if (requireFresh)
+			{
+				future.requireFresh();
 			}
+			FutureUserInfo[] usersToLoad = new FutureUserInfo[] { future };
+			_runFullLoad(usersToLoad, new FutureRecord[0]);
+		}
+		return future;
+	}
+
+	private static void _failUser(FutureUserInfo future, Exception exception)
+	{
+		if (exception instanceof KeyException)
+		{
+			future.keyException((KeyException) exception);
+		}
+		else if (exception instanceof ProtocolDataException)
+		{
+			future.dataException((ProtocolDataException) exception);
+		}
+		else
+		{
+			future.connectionException((IpfsConnectionException) exception);
 		}
+	}
+
+	private static void _failRecord(FutureRecord future, Exception exception)
+	{
+		if (exception instanceof ProtocolDataException)
+		{
+			future.dataException((ProtocolDataException) exception);
+		}
+		else
+		{
+			future.connectionException((IpfsConnectionException) exception);
+		}
+	}
+
+	private synchronized Runnable _backgroundGetNextRunnable()
+	{
+		// Wait for something to do.
 		Runnable toDo = null;
-		if (_isBackgroundRunning)
+		while (_isBackgroundRunning && (null == toDo))
 		{
-			// Drain the pending work and pass them into a runnable to perform the next batch.
-			FutureUserInfo[] usersToLoad = _userRequests.values().stream()
-					.collect(Collectors.toList())
-					.toArray((int size) -> new FutureUserInfo[size])
-			;
-			_userRequests.clear();
-			FutureRecord[] recordsToLoad = _recordRequests.values().stream()
-					.collect(Collectors.toList())
-					.toArray((int size) -> new FutureRecord[size])
-			;
-			_recordRequests.clear();
-			FutureVoid purgeRequest = _purgeRequest;
-			_purgeRequest = null;
+			toDo = _selectNextWork();
+			if (null == toDo)
+			{
+				try
+				{
+					// If there is a purge waiting for its next batch, we need to wake up when it is due.
+					if ((null != _purge) && !_purge.isBatchRunning)
+					{
+						long delayMillis = _purge.nextBatchMillis - _currentTimeMillisSupplier.getAsLong();
+						this.wait(Math.max(1L, delayMillis));
+					}
+					else
+					{
+						this.wait();
+					}
+				}
+				catch (InterruptedException e)
+				{
+					throw Assert.unexpected(e);
+				}
+			}
+		}
+		return toDo;
+	}
+
+	private Runnable _selectNextWork()
+	{
+		// We must hold the monitor.
+		Assert.assertTrue(Thread.holdsLock(this));
+		Runnable toDo = null;
+		// A purge batch is only run when it is due, so the purge is interleaved with any other pending work.
+		if ((null != _purge) && !_purge.isBatchRunning && (_purge.nextBatchMillis <= _currentTimeMillisSupplier.getAsLong()))
+		{
+			PurgeState purge = _purge;
+			purge.isBatchRunning = true;
 			toDo = () -> {
-				_runFullLoad(usersToLoad, recordsToLoad, purgeRequest);
+				boolean isDone = true;
+				try
+				{
+					isDone = _runPurgeBatch(purge);
+				}
+				finally
+				{
+					_finishPurgeBatch(purge, isDone, _currentTimeMillisSupplier.getAsLong());
+				}
 			};
 		}
+		else
+		{
+			FutureUserInfo firstUser = _preferRecords ? null : _takeNextUser();
+			FutureRecord record = (null == firstUser) ? _takeNextRecord() : null;
+			FutureUserInfo user = ((null == firstUser) && (null == record) && _preferRecords)
+					? _takeNextUser()
+					: firstUser
+			;
+			if (null != user)
+			{
+				FutureUserInfo[] usersToLoad = new FutureUserInfo[] { user };
+				toDo = () -> {
+					try
+					{
+						_runFullLoad(usersToLoad, new FutureRecord[0]);
+					}
+					finally
+					{
+						_finishUser(user);
+					}
+				};
+				_preferRecords = true;
+			}
+			else if (null != record)
+			{
+				FutureRecord[] recordsToLoad = new FutureRecord[] { record };
+				toDo = () -> {
+					try
+					{
+						_runFullLoad(new FutureUserInfo[0], recordsToLoad);
+					}
+					finally
+					{
+						_finishRecord(record);
+					}
+				};
+				_preferRecords = false;
+			}
+		}
 		return toDo;
 	}
 
-	private void _runFullLoad(FutureUserInfo[] usersToLoad, FutureRecord[] recordsToLoad, FutureVoid purgeRequest)
+	private FutureUserInfo _takeNextUser()
+	{
+		// We take the oldest pending request for a key which isn't already in-flight.
+		FutureUserInfo next = null;
+		Iterator<Map.Entry<IpfsKey, FutureUserInfo>> iterator = _userRequests.entrySet().iterator();
+		while ((null == next) && iterator.hasNext())
+		{
+			Map.Entry<IpfsKey, FutureUserInfo> elt = iterator.next();
+			if (!_inFlightUsers.containsKey(elt.getKey()))
+			{
+				next = elt.getValue();
+				iterator.remove();
+				_inFlightUsers.put(elt.getKey(), next);
+			}
+		}
+		return next;
+	}
+
+	private FutureRecord _takeNextRecord()
+	{
+		// We take the oldest pending request for a record which isn't already in-flight.
+		FutureRecord next = null;
+		Iterator<Map.Entry<IpfsFile, FutureRecord>> iterator = _recordRequests.entrySet().iterator();
+		while ((null == next) && iterator.hasNext())
+		{
+			Map.Entry<IpfsFile, FutureRecord> elt = iterator.next();
+			if (!_inFlightRecords.containsKey(elt.getKey()))
+			{
+				next = elt.getValue();
+				iterator.remove();
+				_inFlightRecords.put(elt.getKey(), next);
+			}
+		}
+		return next;
+	}
+
+	private synchronized void _finishUser(FutureUserInfo user)
+	{
+		FutureUserInfo removed = _inFlightUsers.remove(user.publicKey);
+		Assert.assertTrue(user == removed);
+		// Someone may have queued a request for this key while it was in-flight.
+		this.notifyAll();
+	}
+
+	private synchronized void _finishRecord(FutureRecord record)
+	{
+		FutureRecord removed = _inFlightRecords.remove(record.recordCid);
+		Assert.assertTrue(record == removed);
+		// Someone may have queued a request for this key while it was in-flight.
+		this.notifyAll();
+	}
+
+	private void _runFullLoad(FutureUserInfo[] usersToLoad, FutureRecord[] recordsToLoad)
 	{
 		// We will just assume that the entire refresh happens at the same time.
 		long currentTimeMillis = _currentTimeMillisSupplier.getAsLong();
@@ -436,7 +916,8 @@ public class ExplicitCacheManager
 		{
 			PrefsData prefs = access.readPrefs();
 			videoEdgePixelMax = prefs.videoEdgePixelMax;
-			explicitCacheTargetBytes = prefs.explicitCacheTargetBytes;
+			// The target may be larger or smaller than the prefs, if there is a global cache budget.
+			explicitCacheTargetBytes = CacheBudget.allocate(access).explicitTargetBytes();
 			long explicitUserInfoRefreshMillis = prefs.explicitUserInfoRefreshMillis;
 			
 			IExplicitCacheReading data = access.readableExplicitCache();
@@ -446,10 +927,20 @@ public class ExplicitCacheManager
 				ExplicitCacheData.UserInfo info = data.getUserInfo(user.publicKey);
 				if (null != info)
 				{
-					user.success(info);
-					usersToLoad[i] = null;
 					// Note that we will still refresh this if the entry is stale.
-					if ((info.lastFetchAttemptMillis() + explicitUserInfoRefreshMillis) < currentTimeMillis)
+					boolean isStale = ((info.lastFetchAttemptMillis() + explicitUserInfoRefreshMillis) < currentTimeMillis);
+					// If the caller needs fresh data, we will only complete this after the refresh.
+					FutureUserInfo waiter = null;
+					if (isStale && user.isFreshRequired())
+					{
+						waiter = user;
+					}
+					else
+					{
+						user.success(info);
+					}
+					usersToLoad[i] = null;
+					if (isStale)
 					{
 						// This is expired so add it to the refresh list, even though we already returned the "hit".
 						FutureResolve resolve = access.resolvePublicKey(user.publicKey);
@@ -459,6 +950,7 @@ public class ExplicitCacheManager
 						tuple.oldInfo = info;
 						tuple.resolve = resolve;
 						tuple.commitTransaction = refreshTransaction;
+						tuple.waiter = waiter;
 						userInfoRefreshes.add(tuple);
 					}
 				}
@@ -508,6 +1000,7 @@ public class ExplicitCacheManager
 				catch (KeyException e)
 				{
 					usersToLoad[i].keyException(e);
+					_negativeCache.userFailed(usersToLoad[i].publicKey, e, currentTimeMillis);
 					usersToLoad[i] = null;
 					transactionsToRollback.add(userTransactions[i]);
 					userTransactions[i] = null;
@@ -546,6 +1039,7 @@ public class ExplicitCacheManager
 				catch (ProtocolDataException e)
 				{
 					user.dataException(e);
+					_negativeCache.userFailed(user.publicKey, e, currentTimeMillis);
 					usersToLoad[i] = null;
 					transactionsToRollback.add(userTransactions[i]);
 					userTransactions[i] = null;
@@ -553,6 +1047,7 @@ public class ExplicitCacheManager
 				catch (IpfsConnectionException e)
 				{
 					user.connectionException(e);
+					_negativeCache.userFailed(user.publicKey, e, currentTimeMillis);
 					usersToLoad[i] = null;
 					transactionsToRollback.add(userTransactions[i]);
 					userTransactions[i] = null;
@@ -575,6 +1070,7 @@ public class ExplicitCacheManager
 				catch (ProtocolDataException e)
 				{
 					record.dataException(e);
+					_negativeCache.recordFailed(record.recordCid, record.requestLeaves, e, currentTimeMillis);
 					recordsToLoad[i] = null;
 					transactionsToRollback.add(recordTransactions[i]);
 					recordTransactions[i] = null;
@@ -582,6 +1078,7 @@ public class ExplicitCacheManager
 				catch (IpfsConnectionException e)
 				{
 					record.connectionException(e);
+					_negativeCache.recordFailed(record.recordCid, record.requestLeaves, e, currentTimeMillis);
 					recordsToLoad[i] = null;
 					transactionsToRollback.add(recordTransactions[i]);
 					recordTransactions[i] = null;
@@ -629,7 +1126,7 @@ public class ExplicitCacheManager
 		// Step 4:
 		// -commit the transaction
 		// -update the cache data
-		// -run any purge request
+		// -purge anything over the limit
 		try (IWritingAccess access = StandardAccess.writeAccess(_basicConnection, _scheduler, _logger, _sharedDataModel, null))
 		{
 			ExplicitCacheData data = access.writableExplicitCache();
@@ -683,9 +1180,10 @@ public class ExplicitCacheManager
 			}
 			for (UserRefreshTuple tuple : userInfoRefreshes)
 			{
+				ExplicitCacheData.UserInfo refreshedInfo;
 				if (null != tuple.commitTransaction)
 				{
-					data.successRefreshUserInfo(tuple.key
+					refreshedInfo = data.successRefreshUserInfo(tuple.key
 							, currentTimeMillis
 							, tuple.newInfo.indexCid()
 							, tuple.newInfo.recommendationsCid()
@@ -700,10 +1198,15 @@ public class ExplicitCacheManager
 				else
 				{
 					Assert.assertTrue(null != tuple.rollbackTransaction);
-					data.failedRefreshUserInfo(tuple.key, currentTimeMillis);
+					refreshedInfo = data.failedRefreshUserInfo(tuple.key, currentTimeMillis);
 					transactionsToRollback.add(tuple.rollbackTransaction);
 					tuple.rollbackTransaction = null;
 				}
+				if (null != tuple.waiter)
+				{
+					tuple.waiter.success(refreshedInfo);
+					tuple.waiter = null;
+				}
 			}
 			
 			ConcurrentTransaction.IStateResolver resolver = ConcurrentTransaction.buildCommonResolver(access);
@@ -716,26 +1219,8 @@ public class ExplicitCacheManager
 				rollback.rollback(resolver);
 			}
 			
-			if (null != purgeRequest)
-			{
-				// If we were given an explicit purge request, it actually means we need to clear the entire cache and complete the future.
-				_purgeExcess(access, data, 0L);
-				try
-				{
-					access.requestIpfsGc();
-					purgeRequest.success();
-				}
-				catch (IpfsConnectionException e)
-				{
-					purgeRequest.failure(e);
-				}
-				purgeRequest = null;
-			}
-			else
-			{
-				// If not, we just want to the basic purge of anything over limit.
-				_purgeExcess(access, data, explicitCacheTargetBytes);
-			}
+			// Purge anything over limit (full purges are handled incrementally, elsewhere).
+			_purgeExcess(access, data, explicitCacheTargetBytes);
 		}
 		
 		// Verify that everything is done from the lists.
@@ -759,8 +1244,8 @@ public class ExplicitCacheManager
 		{
 			Assert.assertTrue(null == tuple.commitTransaction);
 			Assert.assertTrue(null == tuple.rollbackTransaction);
+			Assert.assertTrue(null == tuple.waiter);
 		}
-		Assert.assertTrue(null == purgeRequest);
 	}
 
 
@@ -770,14 +1255,45 @@ public class ExplicitCacheManager
 	public static class FutureUserInfo
 	{
 		public final IpfsKey publicKey;
+		private boolean _requireFresh;
+		private boolean _cacheHit;
 		private ExplicitCacheData.UserInfo _info;
 		private KeyException _keyException;
 		private ProtocolDataException _protocolException;
 		private IpfsConnectionException _connectionException;
+		// The callbacks to run on completion (null once complete, since later callbacks are run immediately).
+		private List<Consumer<FutureUserInfo>> _completionCallbacks;
 		
 		public FutureUserInfo(IpfsKey publicKey)
 		{
 			this.publicKey = publicKey;
+			_completionCallbacks = new ArrayList<>();
+		}
+		
+		/**
+		 * Marks this request as needing fresh data:  A stale cache entry won't satisfy it until it is revalidated.
+		 */
+		public synchronized void requireFresh()
+		{
+			_requireFresh = true;
+		}
+		
+		public synchronized boolean isFreshRequired()
+		{
+			return _requireFresh;
+		}
+		
+		/**
+		 * Marks this result as having been satisfied by an existing cache entry, without reading the network.
+		 */
+		public synchronized void markCacheHit()
+		{
+			_cacheHit = true;
+		}
+		
+		public synchronized boolean isCacheHit()
+		{
+			return _cacheHit;
 		}
 		
 		public synchronized ExplicitCacheData.UserInfo get() throws KeyException, ProtocolDataException, IpfsConnectionException
@@ -810,48 +1326,108 @@ public class ExplicitCacheManager
 			return _info;
 		}
 		
-		public synchronized void success(ExplicitCacheData.UserInfo info)
+		/**
+		 * Registers a callback to be run once the future completes, instead of blocking a thread in get().  The
+		 * callback is passed this future, so it can call get() (which will not block).
+		 * If the future has already completed, the callback is run immediately, on the calling thread.  Otherwise, it
+		 * is run on the thread which completes the future (typically a worker) so it shouldn't do much work.
+		 * 
+		 * @param callback The callback to run on completion.
+		 */
+		public void registerCompletion(Consumer<FutureUserInfo> callback)
 		{
-			Assert.assertTrue(null != info);
-			Assert.assertTrue(null == _info);
-			Assert.assertTrue(null == _keyException);
-			Assert.assertTrue(null == _protocolException);
-			Assert.assertTrue(null == _connectionException);
-			_info = info;
-			this.notifyAll();
+			boolean isComplete;
+			synchronized (this)
+			{
+				isComplete = (null == _completionCallbacks);
+				if (!isComplete)
+				{
+					_completionCallbacks.add(callback);
+				}
+			}
+			if (isComplete)
+			{
+				callback.accept(this);
+			}
 		}
 		
-		public synchronized void keyException(KeyException e)
+		public void success(ExplicitCacheData.UserInfo info)
 		{
-			Assert.assertTrue(null != e);
-			Assert.assertTrue(null == _info);
-			Assert.assertTrue(null == _keyException);
-			Assert.assertTrue(null == _protocolException);
-			Assert.assertTrue(null == _connectionException);
-			_keyException = e;
-			this.notifyAll();
+			List<Consumer<FutureUserInfo>> callbacks;
+			synchronized (this)
+			{
+				Assert.assertTrue(null != info);
+				_assertNotComplete();
+				_info = info;
+				callbacks = _complete();
+			}
+			_runCallbacks(callbacks);
 		}
 		
-		public synchronized void dataException(ProtocolDataException e)
+		public void keyException(KeyException e)
 		{
-			Assert.assertTrue(null != e);
-			Assert.assertTrue(null == _info);
-			Assert.assertTrue(null == _keyException);
-			Assert.assertTrue(null == _protocolException);
-			Assert.assertTrue(null == _connectionException);
-			_protocolException = e;
-			this.notifyAll();
+			List<Consumer<FutureUserInfo>> callbacks;
+			synchronized (this)
+			{
+				Assert.assertTrue(null != e);
+				_assertNotComplete();
+				_keyException = e;
+				callbacks = _complete();
+			}
+			_runCallbacks(callbacks);
+		}
+		
+		public void dataException(ProtocolDataException e)
+		{
+			List<Consumer<FutureUserInfo>> callbacks;
+			synchronized (this)
+			{
+				Assert.assertTrue(null != e);
+				_assertNotComplete();
+				_protocolException = e;
+				callbacks = _complete();
+			}
+			_runCallbacks(callbacks);
+		}
+		
+		public void connectionException(IpfsConnectionException e)
+		{
+			List<Consumer<FutureUserInfo>> callbacks;
+			synchronized (this)
+			{
+				Assert.assertTrue(null != e);
+				_assertNotComplete();
+				_connectionException = e;
+				callbacks = _complete();
+			}
+			_runCallbacks(callbacks);
 		}
 		
-		public synchronized void connectionException(IpfsConnectionException e)
+		private void _assertNotComplete()
 		{
-			Assert.assertTrue(null != e);
 			Assert.assertTrue(null == _info);
 			Assert.assertTrue(null == _keyException);
 			Assert.assertTrue(null == _protocolException);
 			Assert.assertTrue(null == _connectionException);
-			_connectionException = e;
+		}
+		
+		private List<Consumer<FutureUserInfo>> _complete()
+		{
+			// Called under monitor (and the future can only complete once).
+			Assert.assertTrue(null != _completionCallbacks);
+			List<Consumer<FutureUserInfo>> callbacks = _completionCallbacks;
+			_completionCallbacks = null;
 			this.notifyAll();
+			return callbacks;
+		}
+		
+		private void _runCallbacks(List<Consumer<FutureUserInfo>> callbacks)
+		{
+			// We run these outside of the monitor since they will call back into get().
+			for (Consumer<FutureUserInfo> callback : callbacks)
+			{
+				callback.accept(this);
+			}
 		}
 	}
 
@@ -865,15 +1441,32 @@ public class ExplicitCacheManager
 		public final boolean requestLeaves;
 		// If we "upgraded" the request, we want to also keep the old copy (since someone is waiting on it) to notify on completion.
 		private final FutureRecord _flowThrough;
+		private boolean _cacheHit;
 		private CachedRecordInfo _info;
 		private ProtocolDataException _protocolException;
 		private IpfsConnectionException _connectionException;
+		// The callbacks to run on completion (null once complete, since later callbacks are run immediately).
+		private List<Consumer<FutureRecord>> _completionCallbacks;
 		
 		public FutureRecord(IpfsFile recordCid, boolean requestLeaves, FutureRecord flowThrough)
 		{
 			this.recordCid = recordCid;
 			this.requestLeaves = requestLeaves;
 			_flowThrough = flowThrough;
+			_completionCallbacks = new ArrayList<>();
+		}
+		
+		/**
+		 * Marks this result as having been satisfied by an existing cache entry, without reading the network.
+		 */
+		public synchronized void markCacheHit()
+		{
+			_cacheHit = true;
+		}
+		
+		public synchronized boolean isCacheHit()
+		{
+			return _cacheHit;
 		}
 		
 		public synchronized CachedRecordInfo get() throws ProtocolDataException, IpfsConnectionException
@@ -902,14 +1495,42 @@ public class ExplicitCacheManager
 			return _info;
 		}
 		
-		public synchronized void success(CachedRecordInfo info)
+		/**
+		 * Registers a callback to be run once the future completes, instead of blocking a thread in get().  The
+		 * callback is passed this future, so it can call get() (which will not block).
+		 * If the future has already completed, the callback is run immediately, on the calling thread.  Otherwise, it
+		 * is run on the thread which completes the future (typically a worker) so it shouldn't do much work.
+		 * 
+		 * @param callback The callback to run on completion.
+		 */
+		public void registerCompletion(Consumer<FutureRecord> callback)
 		{
-			Assert.assertTrue(null != info);
-			Assert.assertTrue(null == _info);
-			Assert.assertTrue(null == _protocolException);
-			Assert.assertTrue(null == _connectionException);
-			_info = info;
-			this.notifyAll();
+			boolean isComplete;
+			synchronized (this)
+			{
+				isComplete = (null == _completionCallbacks);
+				if (!isComplete)
+				{
+					_completionCallbacks.add(callback);
+				}
+			}
+			if (isComplete)
+			{
+				callback.accept(this);
+			}
+		}
+		
+		public void success(CachedRecordInfo info)
+		{
+			List<Consumer<FutureRecord>> callbacks;
+			synchronized (this)
+			{
+				Assert.assertTrue(null != info);
+				_assertNotComplete();
+				_info = info;
+				callbacks = _complete();
+			}
+			_runCallbacks(callbacks);
 			
 			if (null != _flowThrough)
 			{
@@ -917,14 +1538,17 @@ public class ExplicitCacheManager
 			}
 		}
 		
-		public synchronized void dataException(ProtocolDataException e)
+		public void dataException(ProtocolDataException e)
 		{
-			Assert.assertTrue(null != e);
-			Assert.assertTrue(null == _info);
-			Assert.assertTrue(null == _protocolException);
-			Assert.assertTrue(null == _connectionException);
-			_protocolException = e;
-			this.notifyAll();
+			List<Consumer<FutureRecord>> callbacks;
+			synchronized (this)
+			{
+				Assert.assertTrue(null != e);
+				_assertNotComplete();
+				_protocolException = e;
+				callbacks = _complete();
+			}
+			_runCallbacks(callbacks);
 			
 			if (null != _flowThrough)
 			{
@@ -932,18 +1556,47 @@ public class ExplicitCacheManager
 			}
 		}
 		
-		public synchronized void connectionException(IpfsConnectionException e)
+		public void connectionException(IpfsConnectionException e)
+		{
+			List<Consumer<FutureRecord>> callbacks;
+			synchronized (this)
+			{
+				Assert.assertTrue(null != e);
+				_assertNotComplete();
+				_connectionException = e;
+				callbacks = _complete();
+			}
+			_runCallbacks(callbacks);
+			
+			if (null != _flowThrough)
+			{
+				_flowThrough.connectionException(e);
+			}
+		}
+		
+		private void _assertNotComplete()
 		{
-			Assert.assertTrue(null != e);
 			Assert.assertTrue(null == _info);
 			Assert.assertTrue(null == _protocolException);
 			Assert.assertTrue(null == _connectionException);
-			_connectionException = e;
+		}
+		
+		private List<Consumer<FutureRecord>> _complete()
+		{
+			// Called under monitor (and the future can only complete once).
+			Assert.assertTrue(null != _completionCallbacks);
+			List<Consumer<FutureRecord>> callbacks = _completionCallbacks;
+			_completionCallbacks = null;
 			this.notifyAll();
-			
-			if (null != _flowThrough)
+			return callbacks;
+		}
+		
+		private void _runCallbacks(List<Consumer<FutureRecord>> callbacks)
+		{
+			// We run these outside of the monitor since they will call back into get().
+			for (Consumer<FutureRecord> callback : callbacks)
 			{
-				_flowThrough.connectionException(e);
+				callback.accept(this);
 			}
 		}
 	}
@@ -958,5 +1611,32 @@ public class ExplicitCacheManager
 		public ExplicitCacheData.UserInfo newInfo;
 		public ConcurrentTransaction commitTransaction;
 		public ConcurrentTransaction rollbackTransaction;
+		// Non-null if a caller requiring fresh data is waiting for this refresh.
+		public FutureUserInfo waiter;
+	}
+
+	private static record CachedUser(ExplicitCacheData.UserInfo info, boolean isStale) {}
+
+	private static class PurgeState
+	{
+		public final FutureVoid future;
+		// Captured when the purge starts so the purge reports to the same connector for its whole life.
+		public final HandoffConnector<Integer, String> statusConnector;
+		// The entries to purge are those the cache had when the first batch ran (totalEntries is -1 until then).
+		public int totalEntries;
+		public long beforeGeneration;
+		public int purgedEntries;
+		// The fields below are only accessed under the manager's monitor.
+		public boolean isBatchRunning;
+		public long nextBatchMillis;
+		// Only set by the last batch.
+		public IpfsConnectionException gcException;
+		
+		public PurgeState(FutureVoid future, HandoffConnector<Integer, String> statusConnector)
+		{
+			this.future = future;
+			this.statusConnector = statusConnector;
+			this.totalEntries = -1;
+		}
 	}
 }
@@ -0,0 +1,197 @@
+package com.jeffdisher.cacophony.logic;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.jeffdisher.cacophony.types.IpfsConnectionException;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.types.IpfsKey;
+import com.jeffdisher.cacophony.types.KeyException;
+import com.jeffdisher.cacophony.types.ProtocolDataException;
+import com.jeffdisher.cacophony.utils.Assert;
+
+
+/**
+ * A small in-memory cache of recently failed explicit cache look-ups, so that repeatedly asking for a dead key or a
+ * broken record fails quickly instead of going back to the network every time.
+ * Each failure is remembered for a time which depends on what kind of failure it was:
+ * -connection failures are often transient, so they are only remembered briefly
+ * -key resolution failures may be fixed when the user next publishes, so they are remembered for a few minutes
+ * -malformed or oversized data won't change for a CID (and rarely for a key), so it is remembered much longer
+ * The cache is bounded:  once full, the oldest failures (of whichever kind, user or record, has more entries) are
+ * dropped first.  It isn't persisted since it is only a short-term optimization.
+ * All methods are synchronized since this is used concurrently by the ExplicitCacheManager workers.
+ */
+public class ExplicitNegativeCache
+{
+	public static final long CONNECTION_FAILURE_TTL_MILLIS = 30_000L;
+	public static final long KEY_FAILURE_TTL_MILLIS = 5L * 60L * 1000L;
+	public static final long DATA_FAILURE_TTL_MILLIS = 60L * 60L * 1000L;
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	private final int _maxEntries;
+	// We keep these in insertion order so that we can drop the oldest entries when we hit the limit.
+	private final LinkedHashMap<IpfsKey, Failure> _users;
+	private final LinkedHashMap<IpfsFile, Failure> _records;
+
+	/**
+	 * Creates the empty cache.
+	 * 
+	 * @param maxEntries The maximum number of failures to remember, across both users and records.
+	 */
+	public ExplicitNegativeCache(int maxEntries)
+	{
+		Assert.assertTrue(maxEntries > 0);
+		_maxEntries = maxEntries;
+		_users = new LinkedHashMap<>();
+		_records = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Remembers that loading the given user failed.
+	 * 
+	 * @param publicKey The user which failed to load.
+	 * @param exception The exception describing the failure.
+	 * @param currentTimeMillis The current time.
+	 */
+	public synchronized void userFailed(IpfsKey publicKey, Exception exception, long currentTimeMillis)
+	{
+		Assert.assertTrue(null != publicKey);
+		// Re-insert so that this is now the newest entry.
+		_users.remove(publicKey);
+		_users.put(publicKey, new Failure(exception, false, currentTimeMillis + _ttlForException(exception)));
+		_trim();
+	}
+
+	/**
+	 * Remembers that loading the given record failed.
+	 * 
+	 * @param recordCid The record which failed to load.
+	 * @param requestedLeaves True if the failed load was also trying to load the leaves.
+	 * @param exception The exception describing the failure.
+	 * @param currentTimeMillis The current time.
+	 */
+	public synchronized void recordFailed(IpfsFile recordCid, boolean requestedLeaves, Exception exception, long currentTimeMillis)
+	{
+		Assert.assertTrue(null != recordCid);
+		// Re-insert so that this is now the newest entry.
+		_records.remove(recordCid);
+		_records.put(recordCid, new Failure(exception, requestedLeaves, currentTimeMillis + _ttlForException(exception)));
+		_trim();
+	}
+
+	/**
+	 * Checks if loading the given user recently failed.
+	 * 
+	 * @param publicKey The user to check.
+	 * @param currentTimeMillis The current time.
+	 * @return The exception from the failure, or null if there is no unexpired failure for this user.
+	 */
+	public synchronized Exception checkUser(IpfsKey publicKey, long currentTimeMillis)
+	{
+		Failure failure = _users.get(publicKey);
+		Exception exception = null;
+		if (null != failure)
+		{
+			if (failure.expiryMillis > currentTimeMillis)
+			{
+				exception = failure.exception;
+			}
+			else
+			{
+				_users.remove(publicKey);
+			}
+		}
+		return exception;
+	}
+
+	/**
+	 * Checks if loading the given record recently failed.  Note that failures which happened while loading the leaves
+	 * will only be returned if requestLeaves is true (as a request for just the meta-data might still work).
+	 * 
+	 * @param recordCid The record to check.
+	 * @param requestLeaves True if the request also wants the leaves.
+	 * @param currentTimeMillis The current time.
+	 * @return The exception from the failure, or null if there is no unexpired failure which applies.
+	 */
+	public synchronized Exception checkRecord(IpfsFile recordCid, boolean requestLeaves, long currentTimeMillis)
+	{
+		Failure failure = _records.get(recordCid);
+		Exception exception = null;
+		if (null != failure)
+		{
+			if (failure.expiryMillis > currentTimeMillis)
+			{
+				if (requestLeaves || !failure.requestedLeaves)
+				{
+					exception = failure.exception;
+				}
+			}
+			else
+			{
+				_records.remove(recordCid);
+			}
+		}
+		return exception;
+	}
+
+	/**
+	 * Forgets all remembered failures.
+	 */
+	public synchronized void clear()
+	{
+		_users.clear();
+		_records.clear();
+	}
+
+	/**
+	 * @return The number of failures currently remembered (some of which may have expired but not yet been dropped).
+	 */
+	public synchronized int size()
+	{
+		return _users.size() + _records.size();
+	}
+
+
+	private void _trim()
+	{
+		// We drop from whichever map is larger, since we don't track the relative age across the two maps.
+		while ((_users.size() + _records.size()) > _maxEntries)
+		{
+			Map<?, Failure> victim = (_users.size() >= _records.size())
+					? _users
+					: _records
+			;
+			Iterator<?> iterator = victim.keySet().iterator();
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	private static long _ttlForException(Exception exception)
+	{
+		long ttl;
+		if (exception instanceof IpfsConnectionException)
+		{
+			ttl = CONNECTION_FAILURE_TTL_MILLIS;
+		}
+		else if (exception instanceof KeyException)
+		{
+			ttl = KEY_FAILURE_TTL_MILLIS;
+		}
+		else if (exception instanceof ProtocolDataException)
+		{
+			// This includes SizeConstraintException.
+			ttl = DATA_FAILURE_TTL_MILLIS;
+		}
+		else
+		{
+			throw Assert.unreachable();
+		}
+		return ttl;
+	}
+
+
+	private static record Failure(Exception exception, boolean requestedLeaves, long expiryMillis) {}
+}
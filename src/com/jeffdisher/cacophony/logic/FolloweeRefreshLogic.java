@@ -59,6 +59,7 @@ public class FolloweeRefreshLogic
 	/**
 	 * Performs a refresh of the cached elements referenced by the given indices.  It can be used to start following,
 	 * refresh an existing followee, and stop following a given user.
+	 * The followee cache target size is taken directly from the prefs.
 	 * 
 	 * @param support The interface of external requirements used by the algorithm.
 	 * @param prefs The preferences object (used for leaf selection and cache limit checks).
@@ -76,6 +77,33 @@ public class FolloweeRefreshLogic
 			, IpfsFile newIndexElement
 			, long currentCacheUsageInBytes
 	) throws IpfsConnectionException, SizeConstraintException, FailedDeserializationException
+	{
+		Assert.assertTrue(null != prefs);
+		return refreshFollowee(support, prefs, oldIndexElement, newIndexElement, prefs.followeeCacheTargetBytes, currentCacheUsageInBytes);
+	}
+
+	/**
+	 * Performs a refresh of the cached elements referenced by the given indices.  It can be used to start following,
+	 * refresh an existing followee, and stop following a given user.
+	 * 
+	 * @param support The interface of external requirements used by the algorithm.
+	 * @param prefs The preferences object (used for leaf selection).
+	 * @param oldIndexElement The previous index of the user, from the last refresh attempt.
+	 * @param newIndexElement The new index of the user, to be used for this refresh attempt.
+	 * @param cacheTargetBytes The target size of the followee cache (see CacheBudget).
+	 * @param currentCacheUsageInBytes The current cache occupancy.
+	 * @return True if there is more work to do for this followee.
+	 * @throws IpfsConnectionException If there is a failure to fetch a meta-data element (means an abort).
+	 * @throws SizeConstraintException If a meta-data element is too big for our limits (means an abort).
+	 * @throws FailedDeserializationException Meta-data was considered invalid and couldn't be parsed (means an abort).
+	 */
+	public static boolean refreshFollowee(IRefreshSupport support
+			, PrefsData prefs
+			, IpfsFile oldIndexElement
+			, IpfsFile newIndexElement
+			, long cacheTargetBytes
+			, long currentCacheUsageInBytes
+	) throws IpfsConnectionException, SizeConstraintException, FailedDeserializationException
 	{
 		// Note that only the roots can be null (at most one).
 		Assert.assertTrue(null != support);
@@ -234,6 +262,7 @@ public class FolloweeRefreshLogic
 				_synchronizeNewRecordSelection(support
 						, prefs
 						, newestFirstSelection
+						, cacheTargetBytes
 						, currentCacheUsageInBytes
 						, forceSelectFirstElement
 				);
@@ -383,6 +412,7 @@ public class FolloweeRefreshLogic
 	private static void _synchronizeNewRecordSelection(IRefreshSupport support
 			, PrefsData prefs
 			, List<IpfsFile> newestFirstSelection
+			, long cacheTargetBytes
 			, long currentCacheUsageInBytes
 			, boolean forceSelectFirstElement
 	)
@@ -391,12 +421,13 @@ public class FolloweeRefreshLogic
 		List<IpfsFile> oldestFirstNewRecordsBeingProcessedInitial = new ArrayList<>(newestFirstSelection);
 		Collections.reverse(oldestFirstNewRecordsBeingProcessedInitial);
 		
-		_synchronizeRecords(support, prefs, oldestFirstNewRecordsBeingProcessedInitial, currentCacheUsageInBytes, forceSelectFirstElement);
+		_synchronizeRecords(support, prefs, oldestFirstNewRecordsBeingProcessedInitial, cacheTargetBytes, currentCacheUsageInBytes, forceSelectFirstElement);
 	}
 
 	private static void _synchronizeRecords(IRefreshSupport support
 			, PrefsData prefs
 			, List<IpfsFile> oldestFirstRecordCandidates
+			, long cacheTargetBytes
 			, long currentCacheUsageInBytes
 			, boolean forceSelectFirstElement
 	)
@@ -553,7 +584,7 @@ public class FolloweeRefreshLogic
 		}
 		newRecordsBeingProcessedCalculatingLeaves = null;
 		
-		List<CacheAlgorithm.Candidate<RawElementData>> finalSelection = _selectCandidatesForAddition(prefs, currentCacheUsageInBytes, forceSelectFirstElement, candidates);
+		List<CacheAlgorithm.Candidate<RawElementData>> finalSelection = _selectCandidatesForAddition(cacheTargetBytes, currentCacheUsageInBytes, forceSelectFirstElement, candidates);
 		// Note that we still need to produce a cached record decision for this, even if we don't want to cache the leaves.
 		if (finalSelection.size() != candidates.size())
 		{
@@ -679,7 +710,7 @@ public class FolloweeRefreshLogic
 		Assert.assertTrue(initialCandidateListSize == (permanentSkips + temporarySkips + elementsCached));
 	}
 
-	private static List<CacheAlgorithm.Candidate<RawElementData>> _selectCandidatesForAddition(PrefsData prefs
+	private static List<CacheAlgorithm.Candidate<RawElementData>> _selectCandidatesForAddition(long cacheTargetBytes
 			, long currentCacheUsageInBytes
 			, boolean forceSelectFirstElement
 			, List<CacheAlgorithm.Candidate<RawElementData>> oldestFirstCandidates
@@ -703,7 +734,7 @@ public class FolloweeRefreshLogic
 			effectiveCacheUsedBytes += firstElement.byteSize();
 			finalSelection.add(firstElement);
 		}
-		CacheAlgorithm algorithm = new CacheAlgorithm(prefs.followeeCacheTargetBytes, effectiveCacheUsedBytes);
+		CacheAlgorithm algorithm = new CacheAlgorithm(cacheTargetBytes, effectiveCacheUsedBytes);
 		List<CacheAlgorithm.Candidate<RawElementData>> newestFirstSelected = algorithm.toAddInNewAddition(newestFirstCandidates);
 		finalSelection.addAll(newestFirstSelected);
 		
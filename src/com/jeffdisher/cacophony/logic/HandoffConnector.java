@@ -1,14 +1,13 @@
 package com.jeffdisher.cacophony.logic;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.ArrayDeque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 
 import com.jeffdisher.cacophony.utils.Assert;
@@ -23,20 +22,50 @@ import com.jeffdisher.cacophony.utils.Assert;
  * it is required that it serializes all calls to Runnables from the same HandoffConnector.
  * The general idea is that all data change events can be reduced to a create/update/delete operation so we can cache
  * these simple projections of arbitrary data here.
+ * Each key has a position made of an optional sort key (given by the creator, such as a publication time) and an
+ * increasing sequence number assigned when created, and the keys are indexed by position, so the order can be walked
+ * from any point, and any key inserted or removed, in O(log n).  Connectors which only use create(key, value) are in
+ * creation order.
+ * Listeners are always sent a contiguous range of the newest keys (registration sends the newest, scrolling back
+ * extends the range toward the oldest) so the state of each listener is just a cursor:  the position of the oldest key
+ * it has been sent.  A listener has seen a key if, and only if, the key's position is at or after that cursor.  This
+ * means that a new key created before a listener's cursor isn't sent until the listener scrolls back to it, a new key
+ * which is the newest is sent with isNewest, and a new key between two keys the listener has seen is sent with
+ * createBefore().
+ * Every event (create, update, destroy, or special change) is also assigned the next number in a sequence and recorded
+ * in a bounded replay log.  Listeners are told the sequence number of the events they are about to receive so that a
+ * client which reconnects can resume from the last number it saw, receiving only the events it missed (filtered by the
+ * same cursor rules), instead of the whole window.  If the log no longer reaches back that far, the listener is told to
+ * resync and is then sent the current state, as a new listener would be.  The sequence starts at a random point for each
+ * connector so that a number from some other connector (or a previous run of the server) is almost certainly rejected.
  */
 public class HandoffConnector<K, V>
 {
+	/**
+	 * The default number of events kept for listeners which want to resume.
+	 */
+	public static final int DEFAULT_REPLAY_LOG_SIZE = 500;
+	// The random starting sequence is kept well within the range of integers which JavaScript can represent exactly.
+	private static final long MAX_INITIAL_SEQUENCE = 1L << 40;
+
 	private final Consumer<Runnable> _dispatcher;
+	private final int _replayLogSize;
 
 	// NOTE:  We only interact with the instance variables in the dispatcher's thread!
 	// The listeners which are attached to us - we will just use a HashSet, although technically this should be identity-based.
 	private final IdentityHashMap<IHandoffListener<K, V>, ListenerState<K, V>> _listeners;
 	// The cache of data.
-	private final Map<K, V> _cache;
-	// The order in which the keys were created (since some representations want to preserve order).
-	private final List<K> _order;
+	private final Map<K, Element<V>> _cache;
+	// The keys, indexed by their position (since some representations want to preserve order).
+	private final NavigableMap<Position, K> _order;
+	// The sequence number to assign to the next key created.
+	private long _nextSequence;
 	// A "special" string can be set in the connector for relaying out-of-band meta-data, but this is kept very simple.
 	private String _special;
+	// The sequence number of the most recent event.
+	private long _lastEventSequence;
+	// The most recent events, oldest first, with contiguous sequence numbers.
+	private final ArrayDeque<Event<K, V>> _replayLog;
 
 	/**
 	 * Creates a new connector, executing all of its state mutations through the given dispatcher.
@@ -46,10 +75,30 @@ public class HandoffConnector<K, V>
 	 */
 	public HandoffConnector(Consumer<Runnable> dispatcher)
 	{
+		this(dispatcher, DEFAULT_REPLAY_LOG_SIZE, ThreadLocalRandom.current().nextLong(MAX_INITIAL_SEQUENCE));
+	}
+
+	/**
+	 * Creates a new connector with an explicit replay log size and starting point for event sequence numbers (mostly
+	 * useful for tests).
+	 * 
+	 * @param dispatcher Responsible for running the actions applied to this connector.  Must serialize all runnables
+	 * from a given connector.
+	 * @param replayLogSize The maximum number of events to keep for listeners which want to resume.
+	 * @param initialSequence The sequence number "before" the first event (the first event will be 1 higher).
+	 */
+	public HandoffConnector(Consumer<Runnable> dispatcher, int replayLogSize, long initialSequence)
+	{
+		Assert.assertTrue(replayLogSize > 0);
+		Assert.assertTrue(initialSequence >= 0L);
 		_dispatcher = dispatcher;
+		_replayLogSize = replayLogSize;
 		_listeners = new IdentityHashMap<>();
 		_cache = new HashMap<>();
-		_order = new ArrayList<>();
+		_order = new TreeMap<>();
+		_nextSequence = 0L;
+		_lastEventSequence = initialSequence;
+		_replayLog = new ArrayDeque<>();
 	}
 
 	/**
@@ -62,53 +111,97 @@ public class HandoffConnector<K, V>
 	{
 		_dispatcher.accept(() ->
 		{
-			// Add to the set.
-			// (do a quick check that there are no duplicates).
+			_register(listener, limit);
+		});
+	}
+
+	/**
+	 * Adds a listener to the internal listener set, resuming from where an earlier listener (typically for the same
+	 * client, before it reconnected) left off.  The listener MUST NOT already be in the set.
+	 * If the replay log still contains every event after lastSequence, and the client's view can be reconstructed, only
+	 * those events are sent to the listener.  Otherwise, the listener is told to resync and is then registered as though
+	 * registerListener() had been called.
+	 * 
+	 * @param listener The listener to add.
+	 * @param limit The same limit the earlier listener was registered with (see registerListener()).
+	 * @param lastSequence The sequence number of the last event the client received (negative values can never be
+	 * resumed).
+	 * @param oldestKey The oldest key the client has (ignored if limit is 0), null if it has none.
+	 */
+	public void resumeListener(IHandoffListener<K, V> listener, int limit, long lastSequence, K oldestKey)
+	{
+		_dispatcher.accept(() ->
+		{
 			Assert.assertTrue(!_listeners.containsKey(listener));
 			
-			// Set the special, if not null.
-			if (null != _special)
+			// We need every event after lastSequence (note that a sequence from the future can't be from this connector).
+			long oldestReplayable = _replayLog.isEmpty()
+					? (_lastEventSequence + 1L)
+					: _replayLog.peekFirst().sequence()
+			;
+			boolean canResume = (lastSequence <= _lastEventSequence) && (lastSequence >= (oldestReplayable - 1L));
+			// We also need to reconstruct the cursor, which means the client's oldest key must still exist.
+			Position cursor = null;
+			if (canResume)
 			{
-				listener.specialChanged(_special);
+				if (0 == limit)
+				{
+					cursor = Position.FIRST;
+				}
+				else if (null != oldestKey)
+				{
+					Element<V> element = _cache.get(oldestKey);
+					if (null != element)
+					{
+						cursor = element.position;
+					}
+					else
+					{
+						canResume = false;
+					}
+				}
 			}
 			
-			ListenerState<K, V> state = new ListenerState<>(listener);
-			_listeners.put(listener, state);
-			if (limit > 0)
+			if (canResume)
 			{
-				List<K> reversed = new ArrayList<>(_order);
-				Collections.reverse(reversed);
-				int elementsSent = 0;
-				for (K key : reversed)
+				ListenerState<K, V> state = new ListenerState<>(listener);
+				state.oldestPositionSent = cursor;
+				_listeners.put(listener, state);
+				for (Event<K, V> event : _replayLog)
 				{
-					V value = _cache.get(key);
-					listener.create(key, value, false);
-					state.keysSent.add(key);
-					state.oldestKeySent = key;
-					elementsSent += 1;
-					if (elementsSent == limit)
+					if (event.sequence() > lastSequence)
 					{
-						break;
+						boolean ok = _deliver(state, event);
+						if (!ok)
+						{
+							_listeners.remove(listener);
+							break;
+						}
 					}
 				}
 			}
 			else
 			{
-				// We want everything so just walk the list, in-order.
-				if (!_order.isEmpty())
+				boolean ok = listener.resync();
+				if (ok)
 				{
-					state.oldestKeySent = _order.get(0);
-					for (K key : _order)
-					{
-						V value = _cache.get(key);
-						listener.create(key, value, true);
-						state.keysSent.add(key);
-					}
+					_register(listener, limit);
 				}
 			}
 		});
 	}
 
+	/**
+	 * Runs the given callback on the dispatcher thread, once everything already requested of this connector (such as a
+	 * registration and the initial state sent to the new listener) has been delivered to its listeners.
+	 * 
+	 * @param callback The callback to run.
+	 */
+	public void runAfterPendingDeliveries(Runnable callback)
+	{
+		_dispatcher.accept(callback);
+	}
+
 	/**
 	 * Removes a listener from the internal listener set.  The listener MUST be in the set.
 	 * 
@@ -124,35 +217,45 @@ public class HandoffConnector<K, V>
 
 	/**
 	 * A Create CRUD operation to define a new key-value pair.  The key MUST NOT have already been created.
+	 * The key is ordered after all existing keys with the same sort key (0), so a connector which only uses this method
+	 * is in creation order.
 	 * 
 	 * @param key The key to create (MUST NOT already exist).
 	 * @param value The initial value for the key.
 	 */
 	public void create(K key, V value)
+	{
+		create(key, value, 0L);
+	}
+
+	/**
+	 * A Create CRUD operation to define a new key-value pair, ordered by the given sort key.  The key MUST NOT have
+	 * already been created.
+	 * Keys with larger sort keys are newer and keys with the same sort key are ordered by creation.
+	 * 
+	 * @param key The key to create (MUST NOT already exist).
+	 * @param value The initial value for the key.
+	 * @param sortKey The value used to order this key relative to the others.
+	 */
+	public void create(K key, V value, long sortKey)
 	{
 		_dispatcher.accept(() ->
 		{
 			// No over-write in this path.
 			Assert.assertTrue(!_cache.containsKey(key));
-			_cache.put(key, value);
-			_order.add(key);
+			Position position = new Position(sortKey, _nextSequence);
+			_nextSequence += 1L;
+			_cache.put(key, new Element<>(position, value));
+			_order.put(position, key);
+			// If this isn't the newest, find the key it goes before, in case any listener has seen it.
+			Position newerPosition = _order.higherKey(position);
+			K newerKey = (null != newerPosition)
+					? _order.get(newerPosition)
+					: null
+			;
 			
-			// Tell everyone.
-			Iterator<ListenerState<K, V>> iter = _listeners.values().iterator();
-			while (iter.hasNext())
-			{
-				ListenerState<K, V> listenerState = iter.next();
-				boolean ok = listenerState.listener.create(key, value, true);
-				if (ok)
-				{
-					// Record that this listener knows about this key.
-					listenerState.keysSent.add(key);
-				}
-				else
-				{
-					iter.remove();
-				}
-			}
+			// Tell everyone who has seen, or is about to see, this position.
+			_publish(new Event<>(_nextEventSequence(), EventType.CREATE, key, value, position, newerKey, null));
 		});
 	}
 
@@ -167,24 +270,12 @@ public class HandoffConnector<K, V>
 		_dispatcher.accept(() ->
 		{
 			// We expect the element to be in the map (but it may have a null value).
-			Assert.assertTrue(_cache.containsKey(key));
-			_cache.put(key, value);
+			Element<V> element = _cache.get(key);
+			Assert.assertTrue(null != element);
+			element.value = value;
 			
-			// Tell everyone.
-			Iterator<ListenerState<K, V>> iter = _listeners.values().iterator();
-			while (iter.hasNext())
-			{
-				ListenerState<K, V> listenerState = iter.next();
-				// We only want to send this if this listener has actually seen this create.
-				if (listenerState.keysSent.contains(key))
-				{
-					boolean ok = listenerState.listener.update(key, value);
-					if (!ok)
-					{
-						iter.remove();
-					}
-				}
-			}
+			// Tell everyone who has seen this key.
+			_publish(new Event<>(_nextEventSequence(), EventType.UPDATE, key, value, element.position, null, null));
 		});
 	}
 
@@ -198,40 +289,14 @@ public class HandoffConnector<K, V>
 		_dispatcher.accept(() ->
 		{
 			// We expect the element to be in the map (but it may have a null value).
-			Assert.assertTrue(_cache.containsKey(key));
-			_cache.remove(key);
-			// Capture the more recent key than this one, in case any listeners need their oldest key bumped up.
-			int indexToRemove = _order.indexOf(key);
-			K moreRecentKey = ((indexToRemove + 1) < _order.size())
-					? _order.get(indexToRemove + 1)
-					: null
-			;
-			boolean didRemove = (null != _order.remove(indexToRemove));
+			Element<V> element = _cache.remove(key);
+			Assert.assertTrue(null != element);
+			boolean didRemove = (null != _order.remove(element.position));
 			// Must remove.
 			Assert.assertTrue(didRemove);
 			
-			// Tell everyone.
-			Iterator<ListenerState<K, V>> iter = _listeners.values().iterator();
-			
-			while (iter.hasNext())
-			{
-				ListenerState<K, V> listenerState = iter.next();
-				// We only want to send this if this listener has actually seen this create.
-				if (listenerState.keysSent.contains(key))
-				{
-					boolean ok = listenerState.listener.destroy(key);
-					if (!ok)
-					{
-						iter.remove();
-					}
-					// We also need to update the state of the listener's keys.
-					listenerState.keysSent.remove(key);
-					if (key.equals(listenerState.oldestKeySent))
-					{
-						listenerState.oldestKeySent = moreRecentKey;
-					}
-				}
-			}
+			// Tell everyone who has seen this key.  Note that the cursors don't need to change since they are positions, not keys.
+			_publish(new Event<>(_nextEventSequence(), EventType.DESTROY, key, null, element.position, null, null));
 		});
 	}
 
@@ -246,16 +311,7 @@ public class HandoffConnector<K, V>
 				_special = special;
 				
 				// Tell everyone.
-				Iterator<IHandoffListener<K, V>> iter = _listeners.keySet().iterator();
-				while (iter.hasNext())
-				{
-					IHandoffListener<K, V> listener = iter.next();
-					boolean ok = listener.specialChanged(_special);
-					if (!ok)
-					{
-						iter.remove();
-					}
-				}
+				_publish(new Event<>(_nextEventSequence(), EventType.SPECIAL, null, null, null, null, _special));
 			}
 		});
 	}
@@ -273,37 +329,146 @@ public class HandoffConnector<K, V>
 		_dispatcher.accept(() ->
 		{
 			ListenerState<K, V> state = _listeners.get(listener);
-			List<K> reversed = new ArrayList<>(_order);
-			Collections.reverse(reversed);
-			
-			boolean didFind = (null == state.oldestKeySent);
-			int elementsSent = 0;
-			for (K key : reversed)
+			// Walk backward from just before the cursor (if the listener has seen nothing, there is nothing to see).
+			if (null != state.oldestPositionSent)
 			{
-				if (didFind)
+				listener.beforeEvents(_lastEventSequence);
+				int elementsSent = 0;
+				Iterator<Map.Entry<Position, K>> iter = _order.headMap(state.oldestPositionSent, false).descendingMap().entrySet().iterator();
+				while ((elementsSent < elementsToRequest) && iter.hasNext())
 				{
-					V value = _cache.get(key);
-					listener.create(key, value, false);
+					Map.Entry<Position, K> elt = iter.next();
+					K key = elt.getValue();
+					listener.create(key, _cache.get(key).value, false);
+					state.oldestPositionSent = elt.getKey();
 					elementsSent += 1;
-					
-					// Update state.
-					state.keysSent.add(key);
-					state.oldestKeySent = key;
-					
-					if (elementsSent == elementsToRequest)
-					{
-						break;
-					}
-				}
-				else
-				{
-					didFind = state.oldestKeySent.equals(key);
 				}
 			}
 		});
 	}
 
 
+	private void _register(IHandoffListener<K, V> listener, int limit)
+	{
+		// Add to the set.
+		// (do a quick check that there are no duplicates).
+		Assert.assertTrue(!_listeners.containsKey(listener));
+		
+		// Everything this listener is sent reflects the state as of the most recent event.
+		listener.beforeEvents(_lastEventSequence);
+		
+		// Set the special, if not null.
+		if (null != _special)
+		{
+			listener.specialChanged(_special);
+		}
+		
+		ListenerState<K, V> state = new ListenerState<>(listener);
+		_listeners.put(listener, state);
+		if (limit > 0)
+		{
+			// Walk backward from the newest, moving the cursor as we go (if there is nothing to send, the cursor
+			// stays null until the first key is created).
+			int elementsSent = 0;
+			Iterator<Map.Entry<Position, K>> iter = _order.descendingMap().entrySet().iterator();
+			while ((elementsSent < limit) && iter.hasNext())
+			{
+				Map.Entry<Position, K> elt = iter.next();
+				K key = elt.getValue();
+				listener.create(key, _cache.get(key).value, false);
+				state.oldestPositionSent = elt.getKey();
+				elementsSent += 1;
+			}
+		}
+		else
+		{
+			// We want everything so just walk the list, in-order, and place the cursor before everything.
+			state.oldestPositionSent = Position.FIRST;
+			for (K key : _order.values())
+			{
+				listener.create(key, _cache.get(key).value, true);
+			}
+		}
+	}
+
+	private long _nextEventSequence()
+	{
+		_lastEventSequence += 1L;
+		return _lastEventSequence;
+	}
+
+	private void _publish(Event<K, V> event)
+	{
+		// Log the event, dropping the oldest if the log is full, and then tell everyone.
+		if (_replayLog.size() == _replayLogSize)
+		{
+			_replayLog.removeFirst();
+		}
+		_replayLog.addLast(event);
+		Iterator<ListenerState<K, V>> iter = _listeners.values().iterator();
+		while (iter.hasNext())
+		{
+			boolean ok = _deliver(iter.next(), event);
+			if (!ok)
+			{
+				iter.remove();
+			}
+		}
+	}
+
+	private boolean _deliver(ListenerState<K, V> listenerState, Event<K, V> event)
+	{
+		// This is used for both live and replayed events, so it only depends on the event and the listener's cursor.
+		IHandoffListener<K, V> listener = listenerState.listener;
+		boolean ok = true;
+		switch (event.type())
+		{
+			case CREATE:
+				if (null == listenerState.oldestPositionSent)
+				{
+					// This listener hasn't been sent anything, so this is now the only key it has seen.
+					listener.beforeEvents(event.sequence());
+					ok = listener.create(event.key(), event.value(), true);
+					listenerState.oldestPositionSent = event.position();
+				}
+				else if (listenerState.hasSeen(event.position()))
+				{
+					// Since this is after the cursor, any newer key is also something the listener has seen.
+					listener.beforeEvents(event.sequence());
+					ok = (null == event.newerKey())
+							? listener.create(event.key(), event.value(), true)
+							: listener.createBefore(event.key(), event.value(), event.newerKey())
+					;
+				}
+				// Otherwise, this is older than anything this listener has seen so it will see it if it scrolls back.
+				break;
+			case UPDATE:
+				// We only want to send this if this listener has actually seen this create.
+				if (listenerState.hasSeen(event.position()))
+				{
+					listener.beforeEvents(event.sequence());
+					ok = listener.update(event.key(), event.value());
+				}
+				break;
+			case DESTROY:
+				// We only want to send this if this listener has actually seen this create.
+				if (listenerState.hasSeen(event.position()))
+				{
+					listener.beforeEvents(event.sequence());
+					ok = listener.destroy(event.key());
+				}
+				break;
+			case SPECIAL:
+				listener.beforeEvents(event.sequence());
+				ok = listener.specialChanged(event.special());
+				break;
+			default:
+				throw Assert.unreachable();
+		}
+		return ok;
+	}
+
+
 	/**
 	 * The general callback interface for listeners.
 	 * The methods are called via the dispatcher.
@@ -323,6 +488,46 @@ public class HandoffConnector<K, V>
 		 */
 		boolean create(K key, V value, boolean isNewest);
 		
+		/**
+		 * Called when a key is set for the first time but belongs between 2 keys the listener has already seen (only
+		 * possible in connectors which are created with sort keys).
+		 * The default implementation treats it as the newest key, for listeners which don't care about order.
+		 * 
+		 * @param key The key being created.
+		 * @param value The initial value.
+		 * @param newerKey The existing key which is immediately newer than this one.
+		 * @return True if this was successful or false to unregister the target.
+		 */
+		default boolean createBefore(K key, V value, K newerKey)
+		{
+			return create(key, value, true);
+		}
+		
+		/**
+		 * Called before the listener is sent the events which bring it up to date with the given sequence number, so
+		 * that it can report that number to a client which may later want to resume.
+		 * The default implementation does nothing, for listeners which never resume.
+		 * 
+		 * @param sequence The sequence number of the event (or, for registration and scroll back, the most recent
+		 * event) which the following calls describe.
+		 */
+		default void beforeEvents(long sequence)
+		{
+		}
+		
+		/**
+		 * Called when a listener asked to resume from a point the connector can no longer replay from.  The listener
+		 * should discard everything it was told before, since it will now be sent the current state as though it had
+		 * just registered.
+		 * The default implementation does nothing, for listeners which never resume.
+		 * 
+		 * @return True if this was successful or false to unregister the target.
+		 */
+		default boolean resync()
+		{
+			return true;
+		}
+		
 		/**
 		 * Called when a key is modified after creation.
 		 * 
@@ -353,13 +558,57 @@ public class HandoffConnector<K, V>
 	private static class ListenerState<K, V>
 	{
 		public final IHandoffListener<K, V> listener;
-		public final Set<K> keysSent;
-		public K oldestKeySent;
+		// The listener has been sent every key with a position at or after this one (null if it has seen nothing).
+		public Position oldestPositionSent;
 		
 		public ListenerState(IHandoffListener<K, V> listener)
 		{
 			this.listener = listener;
-			this.keysSent = new HashSet<>();
+		}
+		
+		public boolean hasSeen(Position position)
+		{
+			return (null != this.oldestPositionSent) && (position.compareTo(this.oldestPositionSent) >= 0);
+		}
+	}
+
+	private static enum EventType
+	{
+		CREATE,
+		UPDATE,
+		DESTROY,
+		SPECIAL,
+	}
+
+	// An entry in the replay log.  The position is that of the key (null for special) and newerKey is the key which was
+	// immediately newer when a key was created (null if it was the newest).
+	private static record Event<K, V>(long sequence, EventType type, K key, V value, Position position, K newerKey, String special) {}
+
+	private static class Element<V>
+	{
+		public final Position position;
+		public V value;
+		
+		public Element(Position position, V value)
+		{
+			this.position = position;
+			this.value = value;
+		}
+	}
+
+	private static record Position(long sortKey, long sequence) implements Comparable<Position>
+	{
+		// Before every position which can be created.
+		public static final Position FIRST = new Position(Long.MIN_VALUE, -1L);
+		
+		@Override
+		public int compareTo(Position other)
+		{
+			int compare = Long.compare(this.sortKey, other.sortKey);
+			return (0 != compare)
+					? compare
+					: Long.compare(this.sequence, other.sequence)
+			;
 		}
 	}
 }
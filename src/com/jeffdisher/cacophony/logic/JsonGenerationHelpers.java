@@ -28,6 +28,10 @@ public class JsonGenerationHelpers
 		dataPrefs.set("followeeRecordThumbnailMaxBytes", prefs.followeeRecordThumbnailMaxBytes);
 		dataPrefs.set("followeeRecordAudioMaxBytes", prefs.followeeRecordAudioMaxBytes);
 		dataPrefs.set("followeeRecordVideoMaxBytes", prefs.followeeRecordVideoMaxBytes);
+		dataPrefs.set("followeeCacheEvictionPolicy", prefs.followeeCacheEvictionPolicy.name());
+		dataPrefs.set("globalCacheBudgetBytes", prefs.globalCacheBudgetBytes);
+		dataPrefs.set("prefetchHopDepth", prefs.prefetchHopDepth);
+		dataPrefs.set("prefetchBudgetBytes", prefs.prefetchBudgetBytes);
 		return dataPrefs;
 	}
 
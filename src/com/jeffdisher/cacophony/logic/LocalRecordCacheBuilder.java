@@ -144,7 +144,7 @@ public class LocalRecordCacheBuilder
 		}
 		for (FutureKey<AbstractRecords> future : followeeRecords)
 		{
-			Map<IpfsFile, FollowingCacheElement> elementsCachedForUser = followees.snapshotAllElementsForFollowee(future.publicKey);
+			Map<IpfsFile, FollowingCacheElement> elementsCachedForUser = followees.readElementsForFollowee(future.publicKey);
 			AbstractRecords followeeRecordsElt;
 			try
 			{
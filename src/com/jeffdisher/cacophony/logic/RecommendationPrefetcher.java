@@ -0,0 +1,295 @@
+package com.jeffdisher.cacophony.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jeffdisher.cacophony.access.IReadingAccess;
+import com.jeffdisher.cacophony.access.StandardAccess;
+import com.jeffdisher.cacophony.data.LocalDataModel;
+import com.jeffdisher.cacophony.data.global.AbstractRecommendations;
+import com.jeffdisher.cacophony.data.global.AbstractRecords;
+import com.jeffdisher.cacophony.projection.CachedRecordInfo;
+import com.jeffdisher.cacophony.projection.ExplicitCacheData;
+import com.jeffdisher.cacophony.projection.IFolloweeReading;
+import com.jeffdisher.cacophony.projection.PrefsData;
+import com.jeffdisher.cacophony.scheduler.INetworkScheduler;
+import com.jeffdisher.cacophony.types.IConnection;
+import com.jeffdisher.cacophony.types.ILogger;
+import com.jeffdisher.cacophony.types.IpfsConnectionException;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.types.IpfsKey;
+import com.jeffdisher.cacophony.types.KeyException;
+import com.jeffdisher.cacophony.types.ProtocolDataException;
+import com.jeffdisher.cacophony.utils.Assert;
+
+
+/**
+ * Warms the explicit cache with the users recommended by the home users and followees, so that following a
+ * recommendation doesn't need a cold resolve of the recommended user.
+ * A "pass" walks the recommendation graph breadth-first, starting from the home users and followees, out to the
+ * prefetchHopDepth pref.  For each user found, the user info and the meta-data of their RECENT_RECORD_COUNT most recent
+ * records are loaded through the ExplicitCacheManager (no leaves are loaded, beyond what the user info requires).  The
+ * pass ends when there are no more users to visit or the prefetchBudgetBytes pref has been used up.
+ * The pass is run in small steps, via runStep(), so that the caller can interleave more important work between
+ * steps.  A step never waits for the network:  It only consumes the loads started by the previous step (which have
+ * completed by then) and submits the next ones, so the prefetch never has more than one user (and its recent records)
+ * in flight in the ExplicitCacheManager at a time.
+ * The loads use the ExplicitCacheManager's prefetch entry-points, so entries which are already cached aren't marked as
+ * recently used, by the prefetch.  Those cache hits also aren't charged against the budget, since it only limits what
+ * the prefetch reads from the network.
+ * NOTE:  This is NOT thread-safe, as it is only expected to be called by the BackgroundOperations thread.
+ */
+public class RecommendationPrefetcher
+{
+	/**
+	 * The number of the most recent records of each prefetched user which will be loaded.
+	 */
+	public static final int RECENT_RECORD_COUNT = 5;
+
+	private final LocalDataModel _sharedDataModel;
+	private final IConnection _basicConnection;
+	private final INetworkScheduler _scheduler;
+	private final ILogger _logger;
+	private final ExplicitCacheManager _explicitCache;
+	private final int _recentRecordCount;
+
+	// The state of the current pass (these are null when there is no pass in progress).
+	private Queue<Hop> _pending;
+	private Set<IpfsKey> _visited;
+	private int _maxDepth;
+	private long _remainingBytes;
+	// The loads submitted by the previous step (at most one of these is non-null).
+	private PendingUser _userLoad;
+	private List<ExplicitCacheManager.FutureRecord> _recordLoads;
+
+	/**
+	 * Creates the prefetcher on top of the given components.
+	 * 
+	 * @param sharedDataModel The shared LocalDataModel instance.
+	 * @param basicConnection The low-level IPFS connection.
+	 * @param scheduler The network scheduler.
+	 * @param logger The logger.
+	 * @param explicitCache The explicit cache to warm.
+	 * @param recentRecordCount The number of the most recent records to load for each user.
+	 */
+	public RecommendationPrefetcher(LocalDataModel sharedDataModel, IConnection basicConnection, INetworkScheduler scheduler, ILogger logger, ExplicitCacheManager explicitCache, int recentRecordCount)
+	{
+		Assert.assertTrue(recentRecordCount >= 0);
+		_sharedDataModel = sharedDataModel;
+		_basicConnection = basicConnection;
+		_scheduler = scheduler;
+		_logger = logger;
+		_explicitCache = explicitCache;
+		_recentRecordCount = recentRecordCount;
+	}
+
+	/**
+	 * Runs the next step of the current pass, starting a new pass if there isn't one in progress.  Each step consumes
+	 * the loads submitted by the previous step and then submits the next loads, without waiting for them.
+	 * If this returns true, the next step must not be run until onReady has been called.  Note that onReady may be
+	 * called on the calling thread, before this returns, or on an ExplicitCacheManager thread, so it shouldn't do much
+	 * work.
+	 * 
+	 * @param onReady Called once the loads submitted by this step have completed (only if this returns true).
+	 * @return True if the pass has more steps to run, false if the pass is done (the next call will start a new pass).
+	 */
+	public boolean runStep(Runnable onReady)
+	{
+		if (null == _pending)
+		{
+			_startPass();
+		}
+		if (null != _userLoad)
+		{
+			_finishUserLoad();
+		}
+		else if (null != _recordLoads)
+		{
+			_finishRecordLoads();
+		}
+		// If we didn't start record loads for the user we just finished, move on to the next user.
+		if ((null == _recordLoads) && !_pending.isEmpty() && (_remainingBytes > 0L))
+		{
+			Hop hop = _pending.remove();
+			_userLoad = new PendingUser(hop, _explicitCache.prefetchUserInfo(hop.publicKey));
+		}
+		
+		boolean moreToDo;
+		if (null != _userLoad)
+		{
+			_userLoad.future.registerCompletion((ExplicitCacheManager.FutureUserInfo ignored) -> onReady.run());
+			moreToDo = true;
+		}
+		else if (null != _recordLoads)
+		{
+			AtomicInteger remaining = new AtomicInteger(_recordLoads.size());
+			for (ExplicitCacheManager.FutureRecord record : _recordLoads)
+			{
+				record.registerCompletion((ExplicitCacheManager.FutureRecord ignored) -> {
+					if (0 == remaining.decrementAndGet())
+					{
+						onReady.run();
+					}
+				});
+			}
+			moreToDo = true;
+		}
+		else
+		{
+			_pending = null;
+			_visited = null;
+			moreToDo = false;
+		}
+		return moreToDo;
+	}
+
+
+	private void _startPass()
+	{
+		_pending = new ArrayDeque<>();
+		_visited = new HashSet<>();
+		try (IReadingAccess access = StandardAccess.readAccess(_basicConnection, _scheduler, _logger, _sharedDataModel, null))
+		{
+			PrefsData prefs = access.readPrefs();
+			_maxDepth = prefs.prefetchHopDepth;
+			_remainingBytes = prefs.prefetchBudgetBytes;
+			if ((_maxDepth > 0) && (_remainingBytes > 0L))
+			{
+				// The home users and followees are always the roots of the walk, so we never prefetch them (their data
+				// is already local).
+				IFolloweeReading followees = access.readableFolloweeData();
+				List<IReadingAccess.HomeUserTuple> homeUsers = access.readHomeUserData();
+				for (IReadingAccess.HomeUserTuple tuple : homeUsers)
+				{
+					_visited.add(tuple.publicKey());
+				}
+				_visited.addAll(followees.getAllKnownFollowees());
+				
+				for (IReadingAccess.HomeUserTuple tuple : homeUsers)
+				{
+					_enqueueLocalRecommendations(access, tuple.publicKey(), tuple.lastRoot());
+				}
+				for (IpfsKey followee : followees.getAllKnownFollowees())
+				{
+					_enqueueLocalRecommendations(access, followee, followees.getLastFetchedRootForFollowee(followee));
+				}
+			}
+		}
+	}
+
+	private void _enqueueLocalRecommendations(IReadingAccess access, IpfsKey publicKey, IpfsFile root)
+	{
+		// A followee which has never been successfully fetched won't have a root.
+		if (null != root)
+		{
+			try
+			{
+				ForeignChannelReader reader = new ForeignChannelReader(access, root, true);
+				_enqueueRecommendations(reader.loadRecommendations(), 1);
+			}
+			catch (ProtocolDataException | IpfsConnectionException e)
+			{
+				_logger.logVerbose("Prefetch failed to read recommendations of " + publicKey + ": " + e.getLocalizedMessage());
+			}
+		}
+	}
+
+	private void _enqueueRecommendations(AbstractRecommendations recommendations, int depth)
+	{
+		for (IpfsKey key : recommendations.getUserList())
+		{
+			// Invalid keys are returned as null.
+			if ((null != key) && _visited.add(key))
+			{
+				_pending.add(new Hop(key, depth));
+			}
+		}
+	}
+
+	private void _finishUserLoad()
+	{
+		Hop hop = _userLoad.hop;
+		ExplicitCacheManager.FutureUserInfo future = _userLoad.future;
+		ExplicitCacheData.UserInfo info;
+		try
+		{
+			// The load has completed so this won't block.
+			info = future.get();
+		}
+		catch (KeyException | ProtocolDataException | IpfsConnectionException e)
+		{
+			// These failures are remembered by the ExplicitCacheManager so we won't retry them too quickly.
+			_logger.logVerbose("Prefetch failed to load " + hop.publicKey + ": " + e.getLocalizedMessage());
+			info = null;
+		}
+		_userLoad = null;
+		if (null != info)
+		{
+			// The budget is only for what we read from the network, so entries which were already cached are free.
+			if (!future.isCacheHit())
+			{
+				_remainingBytes -= info.combinedSizeBytes();
+			}
+			List<IpfsFile> recentRecords = List.of();
+			try (IReadingAccess access = StandardAccess.readAccess(_basicConnection, _scheduler, _logger, _sharedDataModel, null))
+			{
+				// These are pinned by the user info but it could have been purged since we loaded it.
+				if (access.isInPinCached(info.recordsCid()) && access.isInPinCached(info.recommendationsCid()))
+				{
+					List<IpfsFile> records = access.loadCached(info.recordsCid(), AbstractRecords.DESERIALIZER).get().getRecordList();
+					recentRecords = records.subList(Math.max(0, records.size() - _recentRecordCount), records.size());
+					if (hop.depth < _maxDepth)
+					{
+						_enqueueRecommendations(access.loadCached(info.recommendationsCid(), AbstractRecommendations.DESERIALIZER).get(), hop.depth + 1);
+					}
+				}
+			}
+			catch (ProtocolDataException | IpfsConnectionException e)
+			{
+				_logger.logVerbose("Prefetch failed to read lists of " + hop.publicKey + ": " + e.getLocalizedMessage());
+			}
+			
+			// We submit all the recent records together, so the budget is only checked before we start them.
+			if (!recentRecords.isEmpty() && (_remainingBytes > 0L))
+			{
+				_recordLoads = new ArrayList<>();
+				// The record list is ordered oldest to newest so walk it backward, to start the most interesting first.
+				for (int i = recentRecords.size() - 1; i >= 0; --i)
+				{
+					_recordLoads.add(_explicitCache.prefetchRecord(recentRecords.get(i)));
+				}
+			}
+		}
+	}
+
+	private void _finishRecordLoads()
+	{
+		for (ExplicitCacheManager.FutureRecord future : _recordLoads)
+		{
+			try
+			{
+				// The loads have completed so this won't block.
+				CachedRecordInfo record = future.get();
+				if (!future.isCacheHit())
+				{
+					_remainingBytes -= record.combinedSizeBytes();
+				}
+			}
+			catch (ProtocolDataException | IpfsConnectionException e)
+			{
+				_logger.logVerbose("Prefetch failed to load record " + future.recordCid + ": " + e.getLocalizedMessage());
+			}
+		}
+		_recordLoads = null;
+	}
+
+
+	private static record Hop(IpfsKey publicKey, int depth) {}
+
+	private static record PendingUser(Hop hop, ExplicitCacheManager.FutureUserInfo future) {}
+}
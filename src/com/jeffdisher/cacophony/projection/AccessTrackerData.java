@@ -0,0 +1,220 @@
+package com.jeffdisher.cacophony.projection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jeffdisher.cacophony.data.local.v4.OpcodeCodec;
+import com.jeffdisher.cacophony.data.local.v4.Opcode_RecordAccess;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.utils.Assert;
+
+
+/**
+ * Tracks how recently and how often the user has looked at specific CIDs (post views, leaf URLs handed out, reply trees
+ * opened) so that the cache eviction policies have some notion of what is actually being used.
+ * For each CID, we store the last access time and a hit count which decays exponentially, halving every
+ * HALF_LIFE_MILLIS.
+ * Unlike the other projections, this one is updated on read paths, so it is internally synchronized:  the CIDs are
+ * split across a fixed number of stripes, each with its own lock, so concurrent readers rarely contend.
+ * The data is persisted with the rest of the local data, but only when something else causes a write-back, since
+ * losing a few recent accesses is harmless.
+ * Entries which have decayed to the point of being irrelevant are dropped as new accesses are recorded, so the tracker
+ * doesn't grow with every CID ever viewed by a long-running process.
+ */
+public class AccessTrackerData
+{
+	/**
+	 * The time it takes for an access count to decay to half its value.
+	 */
+	public static final long HALF_LIFE_MILLIS = 7L * 24L * 60L * 60L * 1000L;
+	/**
+	 * Entries which have decayed below this count are dropped when serializing, and when a stripe is pruned (a single
+	 * access falls below this after roughly 7 half-lives).
+	 */
+	public static final double MINIMUM_PERSISTED_COUNT = 0.01;
+
+	private static final int STRIPE_COUNT = 16;
+	// A stripe is pruned of decayed entries whenever it doubles in size, so the cost is amortized across the accesses
+	// (this is the smallest size at which we bother).
+	private static final int MINIMUM_PRUNE_SIZE = 64;
+
+	private final Stripe[] _stripes;
+	// The most recent access time we have seen, used as the reference point for decay when queried.
+	private final AtomicLong _latestAccessMillis;
+
+	/**
+	 * Creates an empty tracker.
+	 */
+	public AccessTrackerData()
+	{
+		_stripes = new Stripe[STRIPE_COUNT];
+		for (int i = 0; i < STRIPE_COUNT; ++i)
+		{
+			_stripes[i] = new Stripe();
+		}
+		_latestAccessMillis = new AtomicLong(0L);
+	}
+
+	/**
+	 * Serializes the contents of the receiver into the given writer, dropping any entries which have decayed to the
+	 * point of being irrelevant.
+	 * 
+	 * @param writer The writer which will consume the opcodes.
+	 * @throws IOException The writer encountered an error.
+	 */
+	public void serializeToOpcodeWriter(OpcodeCodec.Writer writer) throws IOException
+	{
+		long referenceMillis = _latestAccessMillis.get();
+		for (Stripe stripe : _stripes)
+		{
+			// We copy out the entries so we don't do I/O while holding the stripe lock.
+			List<Opcode_RecordAccess> opcodes = new ArrayList<>();
+			synchronized (stripe)
+			{
+				for (Map.Entry<IpfsFile, Entry> elt : stripe.entries.entrySet())
+				{
+					Entry entry = elt.getValue();
+					double count = _decay(entry.count, entry.lastAccessMillis, referenceMillis);
+					if (count >= MINIMUM_PERSISTED_COUNT)
+					{
+						opcodes.add(new Opcode_RecordAccess(elt.getKey(), entry.lastAccessMillis, entry.count));
+					}
+				}
+			}
+			for (Opcode_RecordAccess opcode : opcodes)
+			{
+				writer.writeOpcode(opcode);
+			}
+		}
+	}
+
+	/**
+	 * Records a single access to the given CID.
+	 * 
+	 * @param cid The CID which was accessed.
+	 * @param accessMillis The time of the access.
+	 */
+	public void recordAccess(IpfsFile cid, long accessMillis)
+	{
+		Assert.assertTrue(null != cid);
+		_latestAccessMillis.accumulateAndGet(accessMillis, Math::max);
+		Stripe stripe = _stripeFor(cid);
+		synchronized (stripe)
+		{
+			Entry entry = stripe.entries.get(cid);
+			if (null == entry)
+			{
+				stripe.entries.put(cid, new Entry(accessMillis, 1.0));
+			}
+			else
+			{
+				// If the clock went backward, we just count the access without moving the time.
+				long lastAccessMillis = Math.max(entry.lastAccessMillis, accessMillis);
+				double count = _decay(entry.count, entry.lastAccessMillis, lastAccessMillis) + 1.0;
+				stripe.entries.put(cid, new Entry(lastAccessMillis, count));
+			}
+			if (stripe.entries.size() >= stripe.pruneSize)
+			{
+				_prune(stripe, _latestAccessMillis.get());
+			}
+		}
+	}
+
+	/**
+	 * Restores the state of a CID, as read from the opcode stream.  This replaces any existing state for the CID.
+	 * 
+	 * @param cid The CID.
+	 * @param lastAccessMillis The last time the CID was accessed.
+	 * @param count The access count, as of lastAccessMillis.
+	 */
+	public void restoreAccess(IpfsFile cid, long lastAccessMillis, double count)
+	{
+		Assert.assertTrue(null != cid);
+		_latestAccessMillis.accumulateAndGet(lastAccessMillis, Math::max);
+		Stripe stripe = _stripeFor(cid);
+		synchronized (stripe)
+		{
+			stripe.entries.put(cid, new Entry(lastAccessMillis, count));
+		}
+	}
+
+	/**
+	 * Looks up the access state of the given CID.  The count returned is decayed up to the most recent access the
+	 * tracker has seen for any CID, so counts from different CIDs can be directly compared.
+	 * 
+	 * @param cid The CID to look up.
+	 * @return The access state of this CID or null if it has never been accessed (or was since forgotten).
+	 */
+	public AccessRecord getAccess(IpfsFile cid)
+	{
+		long referenceMillis = _latestAccessMillis.get();
+		Stripe stripe = _stripeFor(cid);
+		Entry entry;
+		synchronized (stripe)
+		{
+			entry = stripe.entries.get(cid);
+		}
+		return (null != entry)
+				? new AccessRecord(entry.lastAccessMillis, _decay(entry.count, entry.lastAccessMillis, referenceMillis))
+				: null
+		;
+	}
+
+	/**
+	 * @return The number of CIDs currently being tracked.
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Stripe stripe : _stripes)
+		{
+			synchronized (stripe)
+			{
+				size += stripe.entries.size();
+			}
+		}
+		return size;
+	}
+
+
+	private Stripe _stripeFor(IpfsFile cid)
+	{
+		return _stripes[Math.floorMod(cid.hashCode(), STRIPE_COUNT)];
+	}
+
+	private static void _prune(Stripe stripe, long referenceMillis)
+	{
+		stripe.entries.values().removeIf((Entry entry) -> (_decay(entry.count, entry.lastAccessMillis, referenceMillis) < MINIMUM_PERSISTED_COUNT));
+		stripe.pruneSize = Math.max(MINIMUM_PRUNE_SIZE, 2 * stripe.entries.size());
+	}
+
+	private static double _decay(double count, long fromMillis, long toMillis)
+	{
+		return (toMillis > fromMillis)
+				? (count * Math.pow(0.5, (double)(toMillis - fromMillis) / (double)HALF_LIFE_MILLIS))
+				: count
+		;
+	}
+
+
+	/**
+	 * The access state of a single CID.
+	 * 
+	 * @param lastAccessMillis The last time the CID was accessed.
+	 * @param decayedCount The exponentially-decayed number of accesses.
+	 */
+	public static record AccessRecord(long lastAccessMillis, double decayedCount) {}
+
+	private static record Entry(long lastAccessMillis, double count) {}
+
+	private static class Stripe
+	{
+		public final Map<IpfsFile, Entry> entries = new HashMap<>();
+		// The size at which we will next prune this stripe.
+		public int pruneSize = MINIMUM_PRUNE_SIZE;
+	}
+}
@@ -1,10 +1,9 @@
 package com.jeffdisher.cacophony.projection;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
@@ -22,24 +21,31 @@ import com.jeffdisher.cacophony.utils.Assert;
 /**
  * The explicit data cache for user info and stream records.  Internally, this manages an LRU and can be told to purge
  * down to a certain size.
+ * The LRU is a doubly-linked list threaded through the nodes stored in the maps, so touching, evicting, and walking
+ * the entries in order are all constant-time per entry.
  */
 public class ExplicitCacheData implements IExplicitCacheReading
 {
-	// When something is used, it is removed from the list and re-added at the end.
-	// This means that element 0 is "least recently used".
-	// The same LRU will be used for both IpfsKey and IpfsFile, so a type check is required.
-	private final List<Object> _lru;
+	// When something is used, it is unlinked from the list and re-linked at the tail.
+	// This means that the head is "least recently used".
+	// Both user info and record nodes share this list but each node knows how to serialize and evict itself.
+	private LruNode _lruHead;
+	private LruNode _lruTail;
 	private final Lock _lruLock;
-	private final Map<IpfsKey, UserInfo> _userInfo;
-	private final Map<IpfsFile, CachedRecordInfo> _recordInfo;
+	private final Map<IpfsKey, UserNode> _userInfo;
+	private final Map<IpfsFile, RecordNode> _recordInfo;
 	private long _totalCacheInBytes;
+	// Each new node is stamped with the next generation so a purge can tell which entries were added after it started.
+	// This is ephemeral (not serialized) since it only needs to be ordered within the life of the instance.
+	private long _nextGeneration;
 
 	/**
 	 * Creates the empty cache.
 	 */
 	public ExplicitCacheData()
 	{
-		_lru = new ArrayList<>();
+		_lruHead = null;
+		_lruTail = null;
 		_lruLock = new ReentrantLock();
 		_userInfo = new HashMap<>();
 		_recordInfo = new HashMap<>();
@@ -54,23 +60,9 @@ public class ExplicitCacheData implements IExplicitCacheReading
 	public void serializeToOpcodeWriterV3(OpcodeCodec.Writer writer) throws IOException
 	{
 		// We walk the LRU in-order from least to most recently used since that is how we re-add them.
-		for (Object object : _lru)
+		for (LruNode node = _lruHead; null != node; node = node.newer)
 		{
-			// Check what this is.
-			if (object instanceof IpfsKey)
-			{
-				IpfsKey elt = (IpfsKey) object;
-				Assert.assertTrue(_userInfo.containsKey(elt));
-				UserInfo info = _userInfo.get(elt);
-				writer.writeOpcode(new Opcode_ExplicitUserInfoV3(info.indexCid, info.recommendationsCid, info.descriptionCid, info.userPicCid, info.combinedSizeBytes));
-			}
-			else
-			{
-				IpfsFile elt = (IpfsFile) object;
-				Assert.assertTrue(_recordInfo.containsKey(elt));
-				CachedRecordInfo info = _recordInfo.get(elt);
-				writer.writeOpcode(new Opcode_ExplicitStreamRecordV3(info.streamCid(), info.thumbnailCid(), info.videoCid(), info.audioCid(), info.combinedSizeBytes()));
-			}
+			node.serializeV3(writer);
 		}
 	}
 
@@ -83,37 +75,9 @@ public class ExplicitCacheData implements IExplicitCacheReading
 	public void serializeToOpcodeWriter(OpcodeCodec.Writer writer) throws IOException
 	{
 		// We walk the LRU in-order from least to most recently used since that is how we re-add them.
-		for (Object object : _lru)
+		for (LruNode node = _lruHead; null != node; node = node.newer)
 		{
-			// Check what this is.
-			if (object instanceof IpfsKey)
-			{
-				IpfsKey elt = (IpfsKey) object;
-				Assert.assertTrue(_userInfo.containsKey(elt));
-				UserInfo info = _userInfo.get(elt);
-				Assert.assertTrue(null != info.publicKey);
-				Assert.assertTrue(null != info.indexCid);
-				Assert.assertTrue(null != info.recommendationsCid);
-				Assert.assertTrue(null != info.recordsCid);
-				Assert.assertTrue(null != info.descriptionCid);
-				writer.writeOpcode(new Opcode_ExplicitUserInfo(info.publicKey
-						, info.lastFetchAttemptMillis
-						, info.lastFetchSuccessMillis
-						, info.indexCid
-						, info.recommendationsCid
-						, info.recordsCid
-						, info.descriptionCid
-						, info.userPicCid
-						, info.combinedSizeBytes
-				));
-			}
-			else
-			{
-				IpfsFile elt = (IpfsFile) object;
-				Assert.assertTrue(_recordInfo.containsKey(elt));
-				CachedRecordInfo info = _recordInfo.get(elt);
-				writer.writeOpcode(new Opcode_ExplicitStreamRecord(info.streamCid(), info.hasDataToCache(), info.thumbnailCid(), info.videoCid(), info.audioCid(), info.combinedSizeBytes()));
-			}
+			node.serialize(writer);
 		}
 	}
 
@@ -125,8 +89,9 @@ public class ExplicitCacheData implements IExplicitCacheReading
 	 */
 	public void walkAllPins(Consumer<IpfsFile> pin)
 	{
-		for(UserInfo info : _userInfo.values())
+		for(UserNode node : _userInfo.values())
 		{
+			UserInfo info = node.info;
 			pin.accept(info.indexCid);
 			pin.accept(info.recommendationsCid);
 			pin.accept(info.recordsCid);
@@ -136,8 +101,9 @@ public class ExplicitCacheData implements IExplicitCacheReading
 				pin.accept(info.userPicCid);
 			}
 		}
-		for(CachedRecordInfo info : _recordInfo.values())
+		for(RecordNode node : _recordInfo.values())
 		{
+			CachedRecordInfo info = node.info;
 			pin.accept(info.streamCid());
 			if (null != info.thumbnailCid())
 			{
@@ -186,8 +152,9 @@ public class ExplicitCacheData implements IExplicitCacheReading
 				, userPicCid
 				, combinedSizeBytes
 		);
-		_userInfo.put(publicKey, userInfo);
-		_lru.add(publicKey);
+		UserNode node = new UserNode(userInfo);
+		_userInfo.put(publicKey, node);
+		_linkAsNewest(node);
 		_totalCacheInBytes += combinedSizeBytes;
 		return userInfo;
 	}
@@ -214,7 +181,8 @@ public class ExplicitCacheData implements IExplicitCacheReading
 		Assert.assertTrue(null != recordsCid);
 		Assert.assertTrue(null != descriptionCid);
 		
-		UserInfo oldInfo = _userInfo.get(publicKey);
+		UserNode node = _userInfo.get(publicKey);
+		UserInfo oldInfo = node.info;
 		UserInfo newInfo = new UserInfo(publicKey
 				, currentTimeMillis
 				, currentTimeMillis
@@ -228,8 +196,8 @@ public class ExplicitCacheData implements IExplicitCacheReading
 		_totalCacheInBytes -= oldInfo.combinedSizeBytes;
 		_totalCacheInBytes += combinedSizeBytes;
 		
-		_userInfo.put(publicKey, newInfo);
-		_updateLru(publicKey);
+		node.info = newInfo;
+		_updateLru(node);
 		return newInfo;
 	}
 
@@ -245,7 +213,8 @@ public class ExplicitCacheData implements IExplicitCacheReading
 		Assert.assertTrue(_userInfo.containsKey(publicKey));
 		Assert.assertTrue(null != publicKey);
 		
-		UserInfo oldInfo = _userInfo.get(publicKey);
+		UserNode node = _userInfo.get(publicKey);
+		UserInfo oldInfo = node.info;
 		UserInfo newInfo = new UserInfo(publicKey
 				, currentTimeMillis
 				, oldInfo.lastFetchSuccessMillis
@@ -257,8 +226,8 @@ public class ExplicitCacheData implements IExplicitCacheReading
 				, oldInfo.combinedSizeBytes
 		);
 		
-		_userInfo.put(publicKey, newInfo);
-		_updateLru(publicKey);
+		node.info = newInfo;
+		_updateLru(node);
 		return newInfo;
 	}
 
@@ -274,15 +243,16 @@ public class ExplicitCacheData implements IExplicitCacheReading
 	{
 		// NOTE:  There was a bug in the 4.1 release which allowed duplicate stream records to end up in the opcode stream so we just take the last one we see, since it should be the most populated.
 		// As of 4.1.1-rc1, this bug shouldn't appear but the work-around is in place, for now.
-		if (_recordInfo.containsKey(streamCid))
+		RecordNode stale = _recordInfo.get(streamCid);
+		if (null != stale)
 		{
 			// This is the bogus case so remove this from the old info and proceed.
-			CachedRecordInfo stale = _recordInfo.get(streamCid);
-			_lru.remove(streamCid);
-			_totalCacheInBytes -= stale.combinedSizeBytes();
+			_unlink(stale);
+			_totalCacheInBytes -= stale.info.combinedSizeBytes();
 		}
-		_recordInfo.put(streamCid, recordInfo);
-		_lru.add(streamCid);
+		RecordNode node = new RecordNode(streamCid, recordInfo);
+		_recordInfo.put(streamCid, node);
+		_linkAsNewest(node);
 		_totalCacheInBytes += recordInfo.combinedSizeBytes();
 	}
 
@@ -297,23 +267,24 @@ public class ExplicitCacheData implements IExplicitCacheReading
 	public void replaceStreamRecord(IpfsFile streamCid, CachedRecordInfo recordInfo)
 	{
 		Assert.assertTrue(_recordInfo.containsKey(streamCid));
-		CachedRecordInfo oldInfo = _recordInfo.remove(streamCid);
-		_totalCacheInBytes -= oldInfo.combinedSizeBytes();
-		_recordInfo.put(streamCid, recordInfo);
-		// We want to remove and add this so that is the same as an LRU update - the lock isn't required in this mutable
-		// path but should be harmless since this is rare and avoids duplication.
-		_updateLru(streamCid);
+		RecordNode node = _recordInfo.get(streamCid);
+		_totalCacheInBytes -= node.info.combinedSizeBytes();
+		node.info = recordInfo;
+		// We want to move this to the tail so that is the same as an LRU update - the lock isn't required in this
+		// mutable path but should be harmless since this is rare and avoids duplication.
+		_updateLru(node);
 		_totalCacheInBytes += recordInfo.combinedSizeBytes();
 	}
 
 	@Override
 	public UserInfo getUserInfo(IpfsKey publicKey)
 	{
-		UserInfo info = _userInfo.get(publicKey);
-		if (null != info)
+		UserNode node = _userInfo.get(publicKey);
+		UserInfo info = null;
+		if (null != node)
 		{
 			// Re-sort this as recently used.
-			_updateLru(publicKey);
+			info = _updateLru(node).info;
 		}
 		return info;
 	}
@@ -321,14 +292,35 @@ public class ExplicitCacheData implements IExplicitCacheReading
 	@Override
 	public CachedRecordInfo getRecordInfo(IpfsFile recordCid)
 	{
-		CachedRecordInfo info = _recordInfo.get(recordCid);
-		if (null != info)
+		RecordNode node = _recordInfo.get(recordCid);
+		CachedRecordInfo info = null;
+		if (null != node)
 		{
-			_updateLru(recordCid);
+			info = _updateLru(node).info;
 		}
 		return info;
 	}
 
+	@Override
+	public UserInfo peekUserInfo(IpfsKey publicKey)
+	{
+		UserNode node = _userInfo.get(publicKey);
+		return (null != node)
+				? node.info
+				: null
+		;
+	}
+
+	@Override
+	public CachedRecordInfo peekRecordInfo(IpfsFile recordCid)
+	{
+		RecordNode node = _recordInfo.get(recordCid);
+		return (null != node)
+				? node.info
+				: null
+		;
+	}
+
 	/**
 	 * Removes least recently used elements from the cache until its total size is below the given cacheLimitInBytes.
 	 * 
@@ -337,45 +329,80 @@ public class ExplicitCacheData implements IExplicitCacheReading
 	 */
 	public void purgeCacheToSize(Consumer<IpfsFile> unpin, long cacheLimitInBytes)
 	{
-		while (_totalCacheInBytes > cacheLimitInBytes)
+		purgeCacheToSize(unpin, cacheLimitInBytes, Set.of(), Set.of());
+	}
+
+	/**
+	 * Removes least recently used elements from the cache until its total size is below the given cacheLimitInBytes,
+	 * skipping over any entries for the given users or records.  If the skipped entries are too large, the cache may
+	 * still be above the limit when this returns.
+	 * 
+	 * @param unpin The consumer which will unpin the given CIDs it is given.
+	 * @param cacheLimitInBytes The maximum size of the cache, after this method returns.
+	 * @param retainUsers The users which must not be evicted.
+	 * @param retainRecords The records which must not be evicted.
+	 */
+	public void purgeCacheToSize(Consumer<IpfsFile> unpin, long cacheLimitInBytes, Set<IpfsKey> retainUsers, Set<IpfsFile> retainRecords)
+	{
+		LruNode node = _lruHead;
+		while ((_totalCacheInBytes > cacheLimitInBytes) && (null != node))
 		{
-			Object object = _lru.remove(0);
-			// Check what this is.
-			if (object instanceof IpfsKey)
+			LruNode next = node.newer;
+			if (!node.isRetained(retainUsers, retainRecords))
 			{
-				IpfsKey elt = (IpfsKey) object;
-				Assert.assertTrue(_userInfo.containsKey(elt));
-				UserInfo info = _userInfo.remove(elt);
-				unpin.accept(info.indexCid);
-				unpin.accept(info.recommendationsCid);
-				unpin.accept(info.descriptionCid);
-				if (null != info.userPicCid)
-				{
-					unpin.accept(info.userPicCid);
-				}
-				_totalCacheInBytes -= info.combinedSizeBytes;
+				_unlink(node);
+				_totalCacheInBytes -= node.evict(unpin);
 			}
-			else
+			node = next;
+		}
+	}
+
+	/**
+	 * Removes up to maxEntries of the least recently used elements from the cache, regardless of its size, skipping
+	 * over any entries for the given users or records.  This is used to empty the cache in bounded batches.
+	 * Only the entries added before the given generation (see getNextGeneration()) are removed, so that a purge run
+	 * over several batches doesn't remove entries loaded between them.
+	 * 
+	 * @param unpin The consumer which will unpin the given CIDs it is given.
+	 * @param maxEntries The maximum number of entries to remove.
+	 * @param beforeGeneration Only entries added before this generation will be removed.
+	 * @param retainUsers The users which must not be evicted.
+	 * @param retainRecords The records which must not be evicted.
+	 * @return The number of entries removed (less than maxEntries only if there was nothing else to remove).
+	 */
+	public int purgeOldestEntries(Consumer<IpfsFile> unpin, int maxEntries, long beforeGeneration, Set<IpfsKey> retainUsers, Set<IpfsFile> retainRecords)
+	{
+		int removed = 0;
+		LruNode node = _lruHead;
+		while ((removed < maxEntries) && (null != node))
+		{
+			LruNode next = node.newer;
+			if ((node.generation < beforeGeneration) && !node.isRetained(retainUsers, retainRecords))
 			{
-				IpfsFile elt = (IpfsFile) object;
-				Assert.assertTrue(_recordInfo.containsKey(elt));
-				CachedRecordInfo info = _recordInfo.remove(elt);
-				unpin.accept(info.streamCid());
-				if (null != info.thumbnailCid())
-				{
-					unpin.accept(info.thumbnailCid());
-				}
-				if (null != info.videoCid())
-				{
-					unpin.accept(info.videoCid());
-				}
-				if (null != info.audioCid())
-				{
-					unpin.accept(info.audioCid());
-				}
-				_totalCacheInBytes -= info.combinedSizeBytes();
+				_unlink(node);
+				_totalCacheInBytes -= node.evict(unpin);
+				removed += 1;
 			}
+			node = next;
 		}
+		return removed;
+	}
+
+	/**
+	 * @return The number of entries (users and records) in the cache.
+	 */
+	public int getEntryCount()
+	{
+		return _userInfo.size() + _recordInfo.size();
+	}
+
+	/**
+	 * @return The generation which will be given to the next entry added (every entry already in the cache has an
+	 * older generation).
+	 */
+	public long getNextGeneration()
+	{
+		return _nextGeneration;
 	}
 
 	@Override
@@ -385,20 +412,63 @@ public class ExplicitCacheData implements IExplicitCacheReading
 	};
 
 
-	private void _updateLru(Object object)
+	private <T extends LruNode> T _updateLru(T node)
 	{
+		// Reads can touch the LRU concurrently so this is the one list operation which needs the lock.
 		_lruLock.lock();
 		try
 		{
 			// Re-sort this as recently used.
-			boolean didRemove = _lru.remove(object);
-			Assert.assertTrue(didRemove);
-			_lru.add(object);
+			if (_lruTail != node)
+			{
+				_unlink(node);
+				_linkAsNewest(node);
+			}
 		}
 		finally
 		{
 			_lruLock.unlock();
 		}
+		return node;
+	}
+
+	private void _linkAsNewest(LruNode node)
+	{
+		Assert.assertTrue((null == node.older) && (null == node.newer));
+		node.older = _lruTail;
+		if (null != _lruTail)
+		{
+			_lruTail.newer = node;
+		}
+		else
+		{
+			_lruHead = node;
+		}
+		_lruTail = node;
+	}
+
+	private void _unlink(LruNode node)
+	{
+		if (null != node.older)
+		{
+			node.older.newer = node.newer;
+		}
+		else
+		{
+			Assert.assertTrue(_lruHead == node);
+			_lruHead = node.newer;
+		}
+		if (null != node.newer)
+		{
+			node.newer.older = node.older;
+		}
+		else
+		{
+			Assert.assertTrue(_lruTail == node);
+			_lruTail = node.older;
+		}
+		node.older = null;
+		node.newer = null;
 	}
 
 
@@ -412,4 +482,134 @@ public class ExplicitCacheData implements IExplicitCacheReading
 			, IpfsFile userPicCid
 			, long combinedSizeBytes
 	) {}
+
+
+	/**
+	 * An entry in the LRU list.  The subclasses hold the actual cached data so the list is intrusive:  the map lookup
+	 * finds the node, directly, which can then be moved without searching.
+	 */
+	private abstract class LruNode
+	{
+		public final long generation;
+		public LruNode older;
+		public LruNode newer;
+		
+		public LruNode()
+		{
+			// Nodes are only created under the write lock so this doesn't need to be atomic.
+			this.generation = _nextGeneration;
+			_nextGeneration += 1;
+		}
+		
+		public abstract void serializeV3(OpcodeCodec.Writer writer) throws IOException;
+		public abstract void serialize(OpcodeCodec.Writer writer) throws IOException;
+		/**
+		 * Removes the node's data from the cache maps and unpins its elements.  Note that this does NOT unlink the node.
+		 * 
+		 * @param unpin The consumer which will unpin the given CIDs it is given.
+		 * @return The number of bytes freed.
+		 */
+		public abstract long evict(Consumer<IpfsFile> unpin);
+		public abstract boolean isRetained(Set<IpfsKey> retainUsers, Set<IpfsFile> retainRecords);
+	}
+
+	private final class UserNode extends LruNode
+	{
+		public UserInfo info;
+		
+		public UserNode(UserInfo info)
+		{
+			this.info = info;
+		}
+		@Override
+		public void serializeV3(OpcodeCodec.Writer writer) throws IOException
+		{
+			writer.writeOpcode(new Opcode_ExplicitUserInfoV3(this.info.indexCid, this.info.recommendationsCid, this.info.descriptionCid, this.info.userPicCid, this.info.combinedSizeBytes));
+		}
+		@Override
+		public void serialize(OpcodeCodec.Writer writer) throws IOException
+		{
+			Assert.assertTrue(null != this.info.publicKey);
+			Assert.assertTrue(null != this.info.indexCid);
+			Assert.assertTrue(null != this.info.recommendationsCid);
+			Assert.assertTrue(null != this.info.recordsCid);
+			Assert.assertTrue(null != this.info.descriptionCid);
+			writer.writeOpcode(new Opcode_ExplicitUserInfo(this.info.publicKey
+					, this.info.lastFetchAttemptMillis
+					, this.info.lastFetchSuccessMillis
+					, this.info.indexCid
+					, this.info.recommendationsCid
+					, this.info.recordsCid
+					, this.info.descriptionCid
+					, this.info.userPicCid
+					, this.info.combinedSizeBytes
+			));
+		}
+		@Override
+		public long evict(Consumer<IpfsFile> unpin)
+		{
+			UserNode removed = _userInfo.remove(this.info.publicKey);
+			Assert.assertTrue(this == removed);
+			unpin.accept(this.info.indexCid);
+			unpin.accept(this.info.recommendationsCid);
+			unpin.accept(this.info.descriptionCid);
+			if (null != this.info.userPicCid)
+			{
+				unpin.accept(this.info.userPicCid);
+			}
+			return this.info.combinedSizeBytes;
+		}
+		@Override
+		public boolean isRetained(Set<IpfsKey> retainUsers, Set<IpfsFile> retainRecords)
+		{
+			return retainUsers.contains(this.info.publicKey);
+		}
+	}
+
+	private final class RecordNode extends LruNode
+	{
+		public final IpfsFile streamCid;
+		public CachedRecordInfo info;
+		
+		public RecordNode(IpfsFile streamCid, CachedRecordInfo info)
+		{
+			this.streamCid = streamCid;
+			this.info = info;
+		}
+		@Override
+		public void serializeV3(OpcodeCodec.Writer writer) throws IOException
+		{
+			writer.writeOpcode(new Opcode_ExplicitStreamRecordV3(this.info.streamCid(), this.info.thumbnailCid(), this.info.videoCid(), this.info.audioCid(), this.info.combinedSizeBytes()));
+		}
+		@Override
+		public void serialize(OpcodeCodec.Writer writer) throws IOException
+		{
+			writer.writeOpcode(new Opcode_ExplicitStreamRecord(this.info.streamCid(), this.info.hasDataToCache(), this.info.thumbnailCid(), this.info.videoCid(), this.info.audioCid(), this.info.combinedSizeBytes()));
+		}
+		@Override
+		public long evict(Consumer<IpfsFile> unpin)
+		{
+			RecordNode removed = _recordInfo.remove(this.streamCid);
+			Assert.assertTrue(this == removed);
+			unpin.accept(this.info.streamCid());
+			if (null != this.info.thumbnailCid())
+			{
+				unpin.accept(this.info.thumbnailCid());
+			}
+			if (null != this.info.videoCid())
+			{
+				unpin.accept(this.info.videoCid());
+			}
+			if (null != this.info.audioCid())
+			{
+				unpin.accept(this.info.audioCid());
+			}
+			return this.info.combinedSizeBytes();
+		}
+		@Override
+		public boolean isRetained(Set<IpfsKey> retainUsers, Set<IpfsFile> retainRecords)
+		{
+			return retainRecords.contains(this.streamCid);
+		}
+	}
 }
@@ -1,10 +1,10 @@
 package com.jeffdisher.cacophony.projection;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -18,6 +18,7 @@ import com.jeffdisher.cacophony.logic.HandoffConnector;
 import com.jeffdisher.cacophony.types.IpfsFile;
 import com.jeffdisher.cacophony.types.IpfsKey;
 import com.jeffdisher.cacophony.utils.Assert;
+import com.jeffdisher.cacophony.utils.Pair;
 
 
 /**
@@ -31,15 +32,29 @@ public class FolloweeData implements IFolloweeReading
 	}
 
 
-	private final Map<IpfsKey, List<FollowingCacheElement>> _followeeElements;
+	// The cached elements for each followee, keyed by element CID (LinkedHashMap so that we serialize in insertion order).
+	private final Map<IpfsKey, Map<IpfsFile, FollowingCacheElement>> _followeeElements;
 	private final Map<IpfsKey, Set<IpfsFile>> _temporarilySkippedRecordsByFollowee;
 	private final Map<IpfsKey, Set<IpfsFile>> _permanentlySkippedRecordsByFollowee;
-	private final Map<IpfsKey, Map<IpfsFile, FollowingCacheElement>> _elementsForLookup;
 	private final Map<IpfsKey, IpfsFile> _followeeLastIndices;
 	private final Map<IpfsKey, Long> _followeeLastPollMillis;
+	// The followees ordered by last poll time, so we can find the next one to poll without walking them all.
+	private final FolloweeSchedule _pollSchedule;
 	private final Map<IpfsKey, Long> _followeeLastSuccessMillis;
+	// The running totals of combinedSizeBytes, per-followee, updated as elements are added/removed.
+	private final Map<IpfsKey, Long> _followeeCacheSizeBytes;
+	// The reference counts of the cached leaves (image and leaf CID pair), across all followees, so that the same leaves
+	// cached by multiple elements (rebroadcasts, for example) are only counted once in the overall cache size.
+	private final Map<Pair<IpfsFile, IpfsFile>, LeafReference> _leafReferences;
+	// The order in which the elements were added, across all followees, so the cache can be pruned oldest-first.  This
+	// isn't persisted so, after a restart, it is the order in which the elements were loaded (which is insertion order
+	// within each followee).
+	private final Map<Pair<IpfsKey, IpfsFile>, Long> _elementAddSequences;
+	private long _nextElementAddSequence;
 	// We keep track of the most recent fetch so that we can adjust the time of any updates to make tests more reliable.
 	private long _mostRecentFetchMillis;
+	// The size of the unique leaves in _leafReferences.
+	private long _cacheSizeBytes;
 
 	// Only set in the cases of servers so it is bound late, but can only be bound once.
 	private HandoffConnector<IpfsKey, TimePair> _followeeRefreshConnector;
@@ -49,11 +64,16 @@ public class FolloweeData implements IFolloweeReading
 		_followeeElements = new HashMap<>();
 		_temporarilySkippedRecordsByFollowee = new HashMap<>();
 		_permanentlySkippedRecordsByFollowee = new HashMap<>();
-		_elementsForLookup = new HashMap<>();
 		_followeeLastIndices = new HashMap<>();
 		_followeeLastPollMillis = new HashMap<>();
+		_pollSchedule = new FolloweeSchedule();
 		_followeeLastSuccessMillis = new HashMap<>();
+		_followeeCacheSizeBytes = new HashMap<>();
+		_leafReferences = new HashMap<>();
+		_elementAddSequences = new HashMap<>();
+		_nextElementAddSequence = 0L;
 		_mostRecentFetchMillis = 0;
+		_cacheSizeBytes = 0L;
 	}
 
 	/**
@@ -64,14 +84,14 @@ public class FolloweeData implements IFolloweeReading
 	 */
 	public void serializeToOpcodeWriterV3(OpcodeCodec.Writer writer) throws IOException
 	{
-		for (Map.Entry<IpfsKey, List<FollowingCacheElement>> elt : _followeeElements.entrySet())
+		for (Map.Entry<IpfsKey, Map<IpfsFile, FollowingCacheElement>> elt : _followeeElements.entrySet())
 		{
 			IpfsKey followee = elt.getKey();
 			IpfsFile indexRoot = _followeeLastIndices.get(followee);
 			Assert.assertTrue(null != indexRoot);
 			long lastPollMillis = _followeeLastPollMillis.get(followee);
 			writer.writeOpcode(new Opcode_SetFolloweeStateV3(followee, indexRoot, lastPollMillis));
-			for (FollowingCacheElement record : elt.getValue())
+			for (FollowingCacheElement record : elt.getValue().values())
 			{
 				writer.writeOpcode(new Opcode_AddFolloweeElementV3(followee, record.elementHash(), record.imageHash(), record.leafHash(), record.combinedSizeBytes()));
 			}
@@ -88,7 +108,7 @@ public class FolloweeData implements IFolloweeReading
 	{
 		// NOTE:  V4 uses stateful assumptions in the data stream.  It assumes that the initial followee state will be
 		// set before any of the elements within it.
-		for (Map.Entry<IpfsKey, List<FollowingCacheElement>> elt : _followeeElements.entrySet())
+		for (Map.Entry<IpfsKey, Map<IpfsFile, FollowingCacheElement>> elt : _followeeElements.entrySet())
 		{
 			IpfsKey followee = elt.getKey();
 			IpfsFile indexRoot = _followeeLastIndices.get(followee);
@@ -98,7 +118,7 @@ public class FolloweeData implements IFolloweeReading
 			// Write the followee state, first, to put us in the state where we can describe this followee.
 			writer.writeOpcode(new Opcode_SetFolloweeState(followee, indexRoot, lastPollMillis, lastSuccessMillis));
 			// Write any cached elements for this followee.
-			for (FollowingCacheElement record : elt.getValue())
+			for (FollowingCacheElement record : elt.getValue().values())
 			{
 				writer.writeOpcode(new Opcode_AddFolloweeElement(record.elementHash(), record.imageHash(), record.leafHash(), record.combinedSizeBytes()));
 			}
@@ -120,10 +140,20 @@ public class FolloweeData implements IFolloweeReading
 		return new HashSet<>(_followeeElements.keySet());
 	}
 
+	@Override
+	public Map<IpfsFile, FollowingCacheElement> readElementsForFollowee(IpfsKey publicKey)
+	{
+		Map<IpfsFile, FollowingCacheElement> map = _followeeElements.get(publicKey);
+		return (null != map)
+				? Collections.unmodifiableMap(map)
+				: null
+		;
+	}
+
 	@Override
 	public Map<IpfsFile, FollowingCacheElement> snapshotAllElementsForFollowee(IpfsKey publicKey)
 	{
-		Map<IpfsFile, FollowingCacheElement> map = _elementsForLookup.get(publicKey);
+		Map<IpfsFile, FollowingCacheElement> map = _followeeElements.get(publicKey);
 		return (null != map)
 				? Map.copyOf(map)
 				: null
@@ -142,22 +172,26 @@ public class FolloweeData implements IFolloweeReading
 		return _followeeLastPollMillis.get(publicKey);
 	}
 
+	@Override
+	public long getCurrentCacheSizeBytes()
+	{
+		return _cacheSizeBytes;
+	}
+
+	@Override
+	public long getCacheSizeBytesForFollowee(IpfsKey publicKey)
+	{
+		Long size = _followeeCacheSizeBytes.get(publicKey);
+		return (null != size)
+				? size.longValue()
+				: 0L
+		;
+	}
+
 	@Override
 	public IpfsKey getNextFolloweeToPoll()
 	{
-		// For this query, we won't worry about having a specialized projection but will just walk a list.
-		IpfsKey followee = null;
-		long oldestTime = Long.MAX_VALUE;
-		for (Map.Entry<IpfsKey, Long> elt : _followeeLastPollMillis.entrySet())
-		{
-			long thisTime = elt.getValue();
-			if (thisTime < oldestTime)
-			{
-				followee = elt.getKey();
-				oldestTime = thisTime;
-			}
-		}
-		return followee;
+		return _pollSchedule.getFirst();
 	}
 
 	/**
@@ -170,19 +204,34 @@ public class FolloweeData implements IFolloweeReading
 	public void addElement(IpfsKey followeeKey, FollowingCacheElement element)
 	{
 		// Make sure that the element hasn't been added before.
-		List<FollowingCacheElement> list = _followeeElements.get(followeeKey);
-		for (FollowingCacheElement elt : list)
-		{
-			Assert.assertTrue(!element.elementHash().equals(elt.elementHash()));
-		}
+		Map<IpfsFile, FollowingCacheElement> elements = _followeeElements.get(followeeKey);
+		Assert.assertTrue(!elements.containsKey(element.elementHash()));
 		
 		// Make sure that this isn't being skipped (since we shouldn't have found it, in that case).
 		Assert.assertTrue(!_temporarilySkippedRecordsByFollowee.get(followeeKey).contains(element.elementHash()));
 		Assert.assertTrue(!_permanentlySkippedRecordsByFollowee.get(followeeKey).contains(element.elementHash()));
 		
 		// Add this to the relevant collections.
-		list.add(element);
-		_elementsForLookup.get(followeeKey).put(element.elementHash(), element);
+		elements.put(element.elementHash(), element);
+		_elementAddSequences.put(new Pair<>(followeeKey, element.elementHash()), _nextElementAddSequence);
+		_nextElementAddSequence += 1L;
+		_adjustCacheSize(followeeKey, element, true);
+	}
+
+	/**
+	 * Returns the order in which the given element was added, relative to all other elements across all followees, so
+	 * that the oldest cached elements can be found without loading them.  Note that this order isn't persisted so it is
+	 * only exact between elements added since the data was loaded.
+	 * 
+	 * @param followeeKey The public key of the followee.
+	 * @param elementCid The CID of the StreamRecord (MUST be an element of this followee).
+	 * @return The sequence number of the element (lower numbers were added earlier).
+	 */
+	public long getElementAddSequence(IpfsKey followeeKey, IpfsFile elementCid)
+	{
+		Long sequence = _elementAddSequences.get(new Pair<>(followeeKey, elementCid));
+		Assert.assertTrue(null != sequence);
+		return sequence;
 	}
 
 	/**
@@ -196,13 +245,14 @@ public class FolloweeData implements IFolloweeReading
 	 */
 	public void removeElement(IpfsKey followeeKey, IpfsFile elementCid)
 	{
-		boolean didRemove = _followeeElements.get(followeeKey).removeIf((FollowingCacheElement elt) -> (elementCid.equals(elt.elementHash())));
+		FollowingCacheElement match = _followeeElements.get(followeeKey).remove(elementCid);
 		// Note that it is possible that we were asked to remove something which was never in the list.
 		// (this is because we only record the elements which have images or leaves)
-		if (didRemove)
+		if (null != match)
 		{
-			FollowingCacheElement match = _elementsForLookup.get(followeeKey).remove(elementCid);
-			Assert.assertTrue(null != match);
+			Long sequence = _elementAddSequences.remove(new Pair<>(followeeKey, elementCid));
+			Assert.assertTrue(null != sequence);
+			_adjustCacheSize(followeeKey, match, false);
 		}
 		else
 		{
@@ -293,20 +343,21 @@ public class FolloweeData implements IFolloweeReading
 	 */
 	public void createNewFollowee(IpfsKey followeeKey, IpfsFile indexRoot, long lastPollMillis, long lastSuccessMillis)
 	{
-		List<FollowingCacheElement> match0 = _followeeElements.put(followeeKey, new ArrayList<>());
+		Map<IpfsFile, FollowingCacheElement> match0 = _followeeElements.put(followeeKey, new LinkedHashMap<>());
 		Assert.assertTrue(null == match0);
 		Set<IpfsFile> skipped0 = _temporarilySkippedRecordsByFollowee.put(followeeKey, new HashSet<>());
 		Assert.assertTrue(null == skipped0);
 		Set<IpfsFile> skipped1 = _permanentlySkippedRecordsByFollowee.put(followeeKey, new HashSet<>());
 		Assert.assertTrue(null == skipped1);
-		Map<IpfsFile, FollowingCacheElement> match1 = _elementsForLookup.put(followeeKey, new HashMap<>());
-		Assert.assertTrue(null == match1);
 		IpfsFile match2 = _followeeLastIndices.put(followeeKey, indexRoot);
 		Assert.assertTrue(null == match2);
 		Long match3 = _followeeLastPollMillis.put(followeeKey, lastPollMillis);
 		Assert.assertTrue(null == match3);
+		_pollSchedule.put(followeeKey, lastPollMillis);
 		Long match4 = _followeeLastSuccessMillis.put(followeeKey, lastSuccessMillis);
 		Assert.assertTrue(null == match4);
+		Long match5 = _followeeCacheSizeBytes.put(followeeKey, 0L);
+		Assert.assertTrue(null == match5);
 		
 		if (null != _followeeRefreshConnector)
 		{
@@ -337,6 +388,7 @@ public class FolloweeData implements IFolloweeReading
 		Assert.assertTrue(null != match0);
 		Long match1 = _followeeLastPollMillis.put(followeeKey, pollMillisToSave);
 		Assert.assertTrue(null != match1);
+		_pollSchedule.put(followeeKey, pollMillisToSave);
 		if (isSuccess)
 		{
 			Long match2 = _followeeLastSuccessMillis.put(followeeKey, pollMillisToSave);
@@ -357,7 +409,7 @@ public class FolloweeData implements IFolloweeReading
 	 */
 	public void removeFollowee(IpfsKey followeeKey)
 	{
-		List<FollowingCacheElement> match0 = _followeeElements.remove(followeeKey);
+		Map<IpfsFile, FollowingCacheElement> match0 = _followeeElements.remove(followeeKey);
 		Assert.assertTrue(null != match0);
 		Assert.assertTrue(match0.isEmpty());
 		Set<IpfsFile> skipped0 = _temporarilySkippedRecordsByFollowee.remove(followeeKey);
@@ -366,15 +418,16 @@ public class FolloweeData implements IFolloweeReading
 		Set<IpfsFile> skipped1 = _permanentlySkippedRecordsByFollowee.remove(followeeKey);
 		Assert.assertTrue(null != skipped1);
 		Assert.assertTrue(skipped1.isEmpty());
-		Map<IpfsFile, FollowingCacheElement> match1 = _elementsForLookup.remove(followeeKey);
-		Assert.assertTrue(null != match1);
-		Assert.assertTrue(match1.isEmpty());
 		IpfsFile match2 = _followeeLastIndices.remove(followeeKey);
 		Assert.assertTrue(null != match2);
 		Long match3 = _followeeLastPollMillis.remove(followeeKey);
 		Assert.assertTrue(null != match3);
+		boolean didRemoveSchedule = _pollSchedule.remove(followeeKey);
+		Assert.assertTrue(didRemoveSchedule);
 		Long match4 = _followeeLastSuccessMillis.remove(followeeKey);
 		Assert.assertTrue(null != match4);
+		Long match5 = _followeeCacheSizeBytes.remove(followeeKey);
+		Assert.assertTrue((null != match5) && (0L == match5.longValue()));
 		
 		if (null != _followeeRefreshConnector)
 		{
@@ -403,8 +456,53 @@ public class FolloweeData implements IFolloweeReading
 	}
 
 
+	private void _adjustCacheSize(IpfsKey followeeKey, FollowingCacheElement element, boolean isAdd)
+	{
+		long sizeBytes = element.combinedSizeBytes();
+		if (sizeBytes > 0L)
+		{
+			// The per-followee size counts every element.
+			long followeeBytes = _followeeCacheSizeBytes.get(followeeKey) + (isAdd ? sizeBytes : -sizeBytes);
+			Assert.assertTrue(followeeBytes >= 0L);
+			_followeeCacheSizeBytes.put(followeeKey, followeeBytes);
+			
+			// The overall size only changes when the first reference to these leaves is added or the last is removed.
+			Pair<IpfsFile, IpfsFile> leaves = new Pair<>(element.imageHash(), element.leafHash());
+			LeafReference reference = _leafReferences.get(leaves);
+			if (isAdd)
+			{
+				if (null == reference)
+				{
+					_leafReferences.put(leaves, new LeafReference(1, sizeBytes));
+					_cacheSizeBytes += sizeBytes;
+				}
+				else
+				{
+					_leafReferences.put(leaves, new LeafReference(reference.count + 1, reference.sizeBytes));
+				}
+			}
+			else
+			{
+				Assert.assertTrue(null != reference);
+				if (1 == reference.count)
+				{
+					_leafReferences.remove(leaves);
+					_cacheSizeBytes -= reference.sizeBytes;
+					Assert.assertTrue(_cacheSizeBytes >= 0L);
+				}
+				else
+				{
+					_leafReferences.put(leaves, new LeafReference(reference.count - 1, reference.sizeBytes));
+				}
+			}
+		}
+	}
+
+
 	/**
 	 * A simple tuple to describe polling times, as we want to communicate the last attempt and last success times.
 	 */
 	public static record TimePair(long pollMillis, long successMillis) {}
+
+	private static record LeafReference(int count, long sizeBytes) {}
 }
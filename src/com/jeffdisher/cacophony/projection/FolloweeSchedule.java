@@ -0,0 +1,140 @@
+package com.jeffdisher.cacophony.projection;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import com.jeffdisher.cacophony.types.IpfsKey;
+import com.jeffdisher.cacophony.utils.Assert;
+
+
+/**
+ * A time-ordered index of followees, used to find the followee which is next due for a refresh without walking all of
+ * them.  Each followee has exactly one time associated with it (what that time means is up to the user:  the last poll
+ * time in FolloweeData or the next scheduled refresh time in BackgroundOperations).
+ * Adding, removing, or re-scheduling a followee is O(log n) and finding the first followee is O(log n).
+ * Followees with the same time are ordered by when they were given that time (first-come, first-served).
+ * Note that this class is NOT thread-safe so the caller must provide its own synchronization.
+ */
+public class FolloweeSchedule
+{
+	private final Map<IpfsKey, ScheduledFollowee> _entriesByKey;
+	private final TreeSet<ScheduledFollowee> _orderedEntries;
+	private long _nextSequence;
+
+	/**
+	 * Creates a new, empty, schedule.
+	 */
+	public FolloweeSchedule()
+	{
+		_entriesByKey = new HashMap<>();
+		_orderedEntries = new TreeSet<>(Comparator.comparingLong((ScheduledFollowee entry) -> entry.timeMillis).thenComparingLong((ScheduledFollowee entry) -> entry.sequence));
+		_nextSequence = 0L;
+	}
+
+	/**
+	 * Sets the time for the given followee, adding it if it isn't already in the schedule or re-ordering it if it is.
+	 * 
+	 * @param followeeKey The followee to schedule.
+	 * @param timeMillis The time to associate with the followee.
+	 */
+	public void put(IpfsKey followeeKey, long timeMillis)
+	{
+		Assert.assertTrue(null != followeeKey);
+		ScheduledFollowee existing = _entriesByKey.get(followeeKey);
+		if (null != existing)
+		{
+			boolean didRemove = _orderedEntries.remove(existing);
+			Assert.assertTrue(didRemove);
+		}
+		ScheduledFollowee entry = new ScheduledFollowee(followeeKey, timeMillis, _nextSequence);
+		_nextSequence += 1L;
+		_entriesByKey.put(followeeKey, entry);
+		_orderedEntries.add(entry);
+	}
+
+	/**
+	 * Removes the given followee from the schedule.
+	 * 
+	 * @param followeeKey The followee to remove.
+	 * @return True if the followee was found and removed, false if it wasn't in the schedule.
+	 */
+	public boolean remove(IpfsKey followeeKey)
+	{
+		ScheduledFollowee existing = _entriesByKey.remove(followeeKey);
+		if (null != existing)
+		{
+			boolean didRemove = _orderedEntries.remove(existing);
+			Assert.assertTrue(didRemove);
+		}
+		return (null != existing);
+	}
+
+	/**
+	 * @param followeeKey The followee to look up.
+	 * @return True if this followee is in the schedule.
+	 */
+	public boolean contains(IpfsKey followeeKey)
+	{
+		return _entriesByKey.containsKey(followeeKey);
+	}
+
+	/**
+	 * @param followeeKey The followee to look up.
+	 * @return The time associated with this followee (the followee MUST be in the schedule).
+	 */
+	public long getTimeMillis(IpfsKey followeeKey)
+	{
+		ScheduledFollowee existing = _entriesByKey.get(followeeKey);
+		Assert.assertTrue(null != existing);
+		return existing.timeMillis;
+	}
+
+	/**
+	 * @return The followee with the earliest time, or null if the schedule is empty.
+	 */
+	public IpfsKey getFirst()
+	{
+		return _orderedEntries.isEmpty()
+				? null
+				: _orderedEntries.first().followeeKey
+		;
+	}
+
+	/**
+	 * @return The earliest time in the schedule (the schedule MUST NOT be empty).
+	 */
+	public long getFirstTimeMillis()
+	{
+		Assert.assertTrue(!_orderedEntries.isEmpty());
+		return _orderedEntries.first().timeMillis;
+	}
+
+	/**
+	 * @return True if there is nothing in the schedule.
+	 */
+	public boolean isEmpty()
+	{
+		return _entriesByKey.isEmpty();
+	}
+
+	/**
+	 * Returns the followees in schedule order so that a caller which re-schedules each of them, in this order, will
+	 * preserve the order of any followees which still have the same time.
+	 * 
+	 * @return A copy of the followees in the schedule, in order of their times (ties in first-come, first-served order).
+	 */
+	public List<IpfsKey> getAllFollowees()
+	{
+		return _orderedEntries.stream()
+				.map((ScheduledFollowee entry) -> entry.followeeKey)
+				.collect(Collectors.toList())
+		;
+	}
+
+
+	private static record ScheduledFollowee(IpfsKey followeeKey, long timeMillis, long sequence) {}
+}
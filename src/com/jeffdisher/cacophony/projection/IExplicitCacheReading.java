@@ -29,6 +29,24 @@ public interface IExplicitCacheReading
 	 */
 	CachedRecordInfo getRecordInfo(IpfsFile recordCid);
 
+	/**
+	 * Reads the UserInfo of the given user's publicKey, without changing the LRU order.  This is for speculative
+	 * readers, like the prefetch, which shouldn't make the entry look more valuable than it is.
+	 * 
+	 * @param publicKey The user's public key.
+	 * @return The UserInfo for the user (null if not found).
+	 */
+	ExplicitCacheData.UserInfo peekUserInfo(IpfsKey publicKey);
+
+	/**
+	 * Reads the CachedRecordInfo of the given StreamRecord's recordCid, without changing the LRU order.  This is for
+	 * speculative readers, like the prefetch, which shouldn't make the entry look more valuable than it is.
+	 * 
+	 * @param recordCid The CID of the StreamRecord.
+	 * @return The CachedRecordInfo for the record (null if not found).
+	 */
+	CachedRecordInfo peekRecordInfo(IpfsFile recordCid);
+
 	/**
 	 * @return The total size of the explicit cache, in bytes.
 	 */
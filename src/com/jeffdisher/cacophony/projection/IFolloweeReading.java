@@ -22,8 +22,20 @@ public interface IFolloweeReading
 	Set<IpfsKey> getAllKnownFollowees();
 
 	/**
-	 * Grants access to the internal map of elements known for a given followee.  Note that this returned map is
-	 * NOT connected to the internal state of the callee.
+	 * Returns a read-only view of the internal map of elements known for a given followee, without copying it.  Note
+	 * that this view IS connected to the internal state of the callee so it is only valid while the access used to
+	 * read it is still open (the caller must not hold it across an access boundary).
+	 * 
+	 * @param publicKey The key of the followee.
+	 * @return A read-only view of all the elements cached for the given followee or null, if it is not known.
+	 */
+	Map<IpfsFile, FollowingCacheElement> readElementsForFollowee(IpfsKey publicKey);
+
+	/**
+	 * Returns a copy of the internal map of elements known for a given followee.  Note that this returned map is
+	 * NOT connected to the internal state of the callee, so it can be used after the access has been closed (as is the
+	 * case during a refresh).  Callers which only need to read the elements while holding access should use
+	 * readElementsForFollowee(), instead.
 	 * 
 	 * @param publicKey The key of the followee.
 	 * @return A copy of all the elements cached for the given followee or null, if it is not known.
@@ -45,7 +57,30 @@ public interface IFolloweeReading
 	long getLastPollMillisForFollowee(IpfsKey publicKey);
 
 	/**
-	 * @return The next followee key we should poll.
+	 * Returns the current size of the followee cache, as the sum of combinedSizeBytes of every unique set of cached
+	 * leaves.  This is maintained as elements are added and removed so it doesn't need to walk the cache.
+	 * Note that elements which cache the same leaves (same imageHash and leafHash), across or within followees, are
+	 * reference-counted so they are only counted once, since they only occupy that space once on the node.
+	 * 
+	 * @return The number of bytes of unique leaf data in the followee cache.
+	 */
+	long getCurrentCacheSizeBytes();
+
+	/**
+	 * Returns the size of the data cached for the given followee, as the sum of combinedSizeBytes of all of its cached
+	 * elements.  Like getCurrentCacheSizeBytes(), this is maintained as a running total so it doesn't walk the cache.
+	 * Note that, unlike getCurrentCacheSizeBytes(), leaves shared with other followees are counted here, as well.
+	 * 
+	 * @param publicKey The key of the followee.
+	 * @return The number of bytes of leaf data cached for this followee (0 if the followee is not known).
+	 */
+	long getCacheSizeBytesForFollowee(IpfsKey publicKey);
+
+	/**
+	 * Finds the followee which was least recently polled.  This is backed by an index so it doesn't degrade with the
+	 * number of followees.
+	 * 
+	 * @return The next followee key we should poll (null if there are no followees).
 	 */
 	IpfsKey getNextFolloweeToPoll();
 
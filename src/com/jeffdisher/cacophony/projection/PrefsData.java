@@ -5,6 +5,7 @@ import java.io.IOException;
 import com.jeffdisher.cacophony.data.local.v4.OpcodeCodec;
 import com.jeffdisher.cacophony.data.local.v4.Opcode_SetPrefsInt;
 import com.jeffdisher.cacophony.data.local.v4.Opcode_SetPrefsLong;
+import com.jeffdisher.cacophony.logic.CacheAlgorithm;
 
 
 /**
@@ -23,6 +24,12 @@ public class PrefsData
 	public static final String LONG_FOLLOWEE_THUMBNAIL_BYTES = "LONG_FOLLOWEE_THUMBNAIL_BYTES";
 	public static final String LONG_FOLLOWEE_AUDIO_BYTES = "LONG_FOLLOWEE_AUDIO_BYTES";
 	public static final String LONG_FOLLOWEE_VIDEO_BYTES = "LONG_FOLLOWEE_VIDEO_BYTES";
+	public static final String INT_FOLLOWEE_EVICTION_POLICY = "INT_FOLLOWEE_EVICTION_POLICY";
+
+	public static final String LONG_GLOBAL_CACHE_BYTES = "LONG_GLOBAL_CACHE_BYTES";
+
+	public static final String INT_PREFETCH_HOP_DEPTH = "INT_PREFETCH_HOP_DEPTH";
+	public static final String LONG_PREFETCH_BUDGET_BYTES = "LONG_PREFETCH_BUDGET_BYTES";
 
 	// We will default to 720p, which is 720/1280, so we use 1280 as the edge size.
 	public static final int DEFAULT_VIDEO_EDGE = 1280;
@@ -44,6 +51,18 @@ public class PrefsData
 	public static final long DEFAULT_FOLLOWEE_THUMBNAIL_BYTES = 10_000_000L;
 	public static final long DEFAULT_FOLLOWEE_AUDIO_BYTES = 200_000_000L;
 	public static final long DEFAULT_FOLLOWEE_VIDEO_BYTES = 2_000_000_000L;
+	// We default to the historical random eviction.
+	public static final CacheAlgorithm.EvictionPolicy DEFAULT_FOLLOWEE_EVICTION_POLICY = CacheAlgorithm.EvictionPolicy.RANDOM;
+
+	// The global cache budget is disabled by default (0), so each cache just uses its own target.
+	public static final long DEFAULT_GLOBAL_CACHE_BYTES = 0L;
+
+	// The prefetch is disabled by default (0) since it uses network and explicit cache space the user didn't ask for.
+	// Setting it to 1 only prefetches the users directly recommended by home users and followees.
+	public static final int DEFAULT_PREFETCH_HOP_DEPTH = 0;
+	// The prefetch only fetches meta-data and user pics so 50 MB, once enabled, is enough for quite a few users without
+	// crowding out the explicit requests in the same cache.
+	public static final long DEFAULT_PREFETCH_BUDGET_BYTES = 50_000_000L;
 
 
 	/**
@@ -64,6 +83,12 @@ public class PrefsData
 		prefs.followeeRecordThumbnailMaxBytes = DEFAULT_FOLLOWEE_THUMBNAIL_BYTES;
 		prefs.followeeRecordAudioMaxBytes = DEFAULT_FOLLOWEE_AUDIO_BYTES;
 		prefs.followeeRecordVideoMaxBytes = DEFAULT_FOLLOWEE_VIDEO_BYTES;
+		prefs.followeeCacheEvictionPolicy = DEFAULT_FOLLOWEE_EVICTION_POLICY;
+		
+		prefs.globalCacheBudgetBytes = DEFAULT_GLOBAL_CACHE_BYTES;
+		
+		prefs.prefetchHopDepth = DEFAULT_PREFETCH_HOP_DEPTH;
+		prefs.prefetchBudgetBytes = DEFAULT_PREFETCH_BUDGET_BYTES;
 		
 		return prefs;
 	}
@@ -119,6 +144,26 @@ public class PrefsData
 	 * followee cache.
 	 */
 	public long followeeRecordVideoMaxBytes;
+	/**
+	 * The policy used to decide which cached leaves to evict when the followee cache needs to shrink.
+	 */
+	public CacheAlgorithm.EvictionPolicy followeeCacheEvictionPolicy;
+
+	/**
+	 * The number of bytes shared by all the local caches, or 0 if there is no global budget.  When set, the followee
+	 * and explicit cache targets are treated as their minimum reservations within this budget (see CacheBudget).
+	 */
+	public long globalCacheBudgetBytes;
+
+	/**
+	 * The number of recommendation "hops" away from the home users and followees which the idle-time prefetcher will
+	 * walk when warming the explicit cache, or 0 if prefetching is disabled.
+	 */
+	public int prefetchHopDepth;
+	/**
+	 * The maximum number of bytes the idle-time prefetcher will load into the explicit cache in a single pass.
+	 */
+	public long prefetchBudgetBytes;
 
 	// We keep this private just so the factory is used to explicitly create the defaults.
 	private PrefsData()
@@ -144,5 +189,11 @@ public class PrefsData
 		writer.writeOpcode(new Opcode_SetPrefsLong(LONG_FOLLOWEE_THUMBNAIL_BYTES, Long.valueOf(this.followeeRecordThumbnailMaxBytes)));
 		writer.writeOpcode(new Opcode_SetPrefsLong(LONG_FOLLOWEE_AUDIO_BYTES, Long.valueOf(this.followeeRecordAudioMaxBytes)));
 		writer.writeOpcode(new Opcode_SetPrefsLong(LONG_FOLLOWEE_VIDEO_BYTES, Long.valueOf(this.followeeRecordVideoMaxBytes)));
+		writer.writeOpcode(new Opcode_SetPrefsInt(INT_FOLLOWEE_EVICTION_POLICY, Integer.valueOf(this.followeeCacheEvictionPolicy.code)));
+		
+		writer.writeOpcode(new Opcode_SetPrefsLong(LONG_GLOBAL_CACHE_BYTES, Long.valueOf(this.globalCacheBudgetBytes)));
+		
+		writer.writeOpcode(new Opcode_SetPrefsInt(INT_PREFETCH_HOP_DEPTH, Integer.valueOf(this.prefetchHopDepth)));
+		writer.writeOpcode(new Opcode_SetPrefsLong(LONG_PREFETCH_BUDGET_BYTES, Long.valueOf(this.prefetchBudgetBytes)));
 	}
 }
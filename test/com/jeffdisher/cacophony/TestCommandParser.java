@@ -149,6 +149,10 @@ public class TestCommandParser
 				, "--followeeCacheTargetBytes", "5G"
 				, "--republishIntervalMillis", "2000"
 				, "--followeeRefreshMillis", "3000"
+				, "--followeeEvictionPolicy", "GDSF"
+				, "--globalCacheBudgetBytes", "20G"
+				, "--prefetchHopDepth", "2"
+				, "--prefetchBudgetBytes", "100M"
 		};
 		ByteArrayOutputStream outStream = new ByteArrayOutputStream();
 		PrintStream capture = new PrintStream(outStream);
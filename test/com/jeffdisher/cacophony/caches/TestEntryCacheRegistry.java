@@ -136,16 +136,17 @@ public class TestEntryCacheRegistry
 		
 		Assert.assertEquals(10, listener1.keysInOrder.size());
 		Assert.assertEquals(5, listener2.keysInOrder.size());
+		// The combined view is ordered by publication time (ties in the order they were added).
 		Assert.assertEquals(10, combined.keysInOrder.size());
 		Assert.assertEquals(start[0], combined.keysInOrder.get(0));
-		Assert.assertEquals(start[1], combined.keysInOrder.get(1));
-		Assert.assertEquals(start[2], combined.keysInOrder.get(2));
-		Assert.assertEquals(start[3], combined.keysInOrder.get(3));
-		Assert.assertEquals(start[4], combined.keysInOrder.get(4));
-		Assert.assertEquals(followeeAdded[3], combined.keysInOrder.get(5));
-		Assert.assertEquals(followeeAdded[4], combined.keysInOrder.get(6));
-		Assert.assertEquals(localAdded[0], combined.keysInOrder.get(7));
-		Assert.assertEquals(localAdded[2], combined.keysInOrder.get(8));
+		Assert.assertEquals(localAdded[0], combined.keysInOrder.get(1));
+		Assert.assertEquals(start[1], combined.keysInOrder.get(2));
+		Assert.assertEquals(start[2], combined.keysInOrder.get(3));
+		Assert.assertEquals(localAdded[2], combined.keysInOrder.get(4));
+		Assert.assertEquals(start[3], combined.keysInOrder.get(5));
+		Assert.assertEquals(followeeAdded[3], combined.keysInOrder.get(6));
+		Assert.assertEquals(start[4], combined.keysInOrder.get(7));
+		Assert.assertEquals(followeeAdded[4], combined.keysInOrder.get(8));
 		Assert.assertEquals(localAdded[4], combined.keysInOrder.get(9));
 	}
 
@@ -296,8 +297,7 @@ public class TestEntryCacheRegistry
 	@Test
 	public void interleavedBeforeAfterBootstrap() throws Throwable
 	{
-		// Shows that interleaved timestamps are put in order, before bootstrap, but we only use call order, after.
-		// Show how the combination of multiple users works when built up incrementally.
+		// Shows that interleaved timestamps are put in order, both before and after bootstrap.
 		EntryCacheRegistry registry = new EntryCacheRegistry((Runnable run) -> run.run());
 		registry.createHomeUser(MockKeys.K1);
 		registry.createNewFollowee(MockKeys.K2);
@@ -339,11 +339,46 @@ public class TestEntryCacheRegistry
 		Assert.assertEquals(startHome[1], combined.keysInOrder.get(2));
 		Assert.assertEquals(startFollowee[1], combined.keysInOrder.get(3));
 		Assert.assertEquals(afterHome[0], combined.keysInOrder.get(4));
-		Assert.assertEquals(afterHome[1], combined.keysInOrder.get(5));
-		Assert.assertEquals(afterFollowee[0], combined.keysInOrder.get(6));
+		Assert.assertEquals(afterFollowee[0], combined.keysInOrder.get(5));
+		Assert.assertEquals(afterHome[1], combined.keysInOrder.get(6));
 		Assert.assertEquals(afterFollowee[1], combined.keysInOrder.get(7));
 	}
 
+	@Test
+	public void backfill() throws Throwable
+	{
+		// Shows how posts arriving out of order are placed for a listener with a partial view.
+		IpfsFile[] list = new IpfsFile[6];
+		for (int i = 0; i < list.length; ++i)
+		{
+			list[i] = MockSingleNode.generateHash(new byte[] { (byte)i });
+		}
+		EntryCacheRegistry registry = new EntryCacheRegistry((Runnable run) -> run.run());
+		registry.createHomeUser(MockKeys.K1);
+		registry.createNewFollowee(MockKeys.K2);
+		registry.addLocalElement(MockKeys.K1, list[0], 10L);
+		registry.addLocalElement(MockKeys.K1, list[1], 20L);
+		registry.addLocalElement(MockKeys.K1, list[2], 30L);
+		registry.initializeCombinedView();
+		FakeListener combined = new FakeListener();
+		registry.getCombinedConnector().registerListener(combined, 2);
+		Assert.assertEquals(List.of(list[1], list[2]), combined.keysInOrder);
+		
+		// Something older than the listener's view isn't sent.
+		registry.addFolloweeElement(MockKeys.K2, list[3], 5L);
+		Assert.assertEquals(List.of(list[1], list[2]), combined.keysInOrder);
+		// Something inside the view is placed where it belongs.
+		registry.addFolloweeElement(MockKeys.K2, list[4], 25L);
+		Assert.assertEquals(List.of(list[1], list[4], list[2]), combined.keysInOrder);
+		// Something newer is the newest.
+		registry.addFolloweeElement(MockKeys.K2, list[5], 40L);
+		Assert.assertEquals(List.of(list[1], list[4], list[2], list[5]), combined.keysInOrder);
+		
+		// Scrolling back walks the merged order.
+		registry.getCombinedConnector().requestOlderElements(combined, 5);
+		Assert.assertEquals(List.of(list[3], list[0], list[1], list[4], list[2], list[5]), combined.keysInOrder);
+	}
+
 
 	private static class FakeListener implements IHandoffListener<IpfsFile, Void>
 	{
@@ -365,6 +400,15 @@ public class TestEntryCacheRegistry
 			return true;
 		}
 		@Override
+		public boolean createBefore(IpfsFile key, Void value, IpfsFile newerKey)
+		{
+			Assert.assertFalse(this.keysInOrder.contains(key));
+			int index = this.keysInOrder.indexOf(newerKey);
+			Assert.assertTrue(index >= 0);
+			this.keysInOrder.add(index, key);
+			return true;
+		}
+		@Override
 		public boolean update(IpfsFile key, Void value)
 		{
 			throw new AssertionError("Not Called");
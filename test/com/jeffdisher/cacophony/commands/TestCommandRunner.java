@@ -1,6 +1,7 @@
 package com.jeffdisher.cacophony.commands;
 
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 
 import org.junit.Assert;
@@ -168,6 +169,58 @@ public class TestCommandRunner
 		runner.shutdownThreads();
 	}
 
+	@Test
+	public void completionCallbacks() throws Throwable
+	{
+		// Callbacks registered before completion run on the command thread while those registered after run immediately.
+		Context context = _buildContext();
+		CommandRunner runner = new CommandRunner(context, 1);
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		TestCommand pass = new TestCommand(true, barrier);
+		TestCommand fail = new TestCommand(false, null);
+		FutureCommand<None> passFuture = runner.runCommand(pass, null);
+		FutureCommand<None> failFuture = runner.runCommand(fail, null);
+		CountDownLatch latch = new CountDownLatch(2);
+		Thread[] callbackThreads = new Thread[2];
+		passFuture.registerCompletion((FutureCommand<None> done) -> {
+			try
+			{
+				Assert.assertEquals(None.NONE, done.get());
+			}
+			catch (CacophonyException e)
+			{
+				Assert.fail();
+			}
+			callbackThreads[0] = Thread.currentThread();
+			latch.countDown();
+		});
+		failFuture.registerCompletion((FutureCommand<None> done) -> {
+			try
+			{
+				done.get();
+				Assert.fail();
+			}
+			catch (CacophonyException e)
+			{
+				// Expected.
+			}
+			callbackThreads[1] = Thread.currentThread();
+			latch.countDown();
+		});
+		runner.startThreads();
+		barrier.await();
+		latch.await();
+		Assert.assertNotEquals(Thread.currentThread(), callbackThreads[0]);
+		Assert.assertNotEquals(Thread.currentThread(), callbackThreads[1]);
+		
+		Thread[] lateThread = new Thread[1];
+		passFuture.registerCompletion((FutureCommand<None> done) -> {
+			lateThread[0] = Thread.currentThread();
+		});
+		Assert.assertEquals(Thread.currentThread(), lateThread[0]);
+		runner.shutdownThreads();
+	}
+
 
 	private static Context _buildContext()
 	{
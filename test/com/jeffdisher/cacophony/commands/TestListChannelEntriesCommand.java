@@ -83,7 +83,7 @@ public class TestListChannelEntriesCommand
 		user1.runCommand(null, new PublishCommand("big name", "leaf description", null, null, null, null, new ElementSubCommand[] { new ElementSubCommand("video/webm", video, 720, 1280) } ));
 		
 		// Reduce the cache size and start following the user.
-		user2.runCommand(null, new SetGlobalPrefsCommand(1280, 0L, 0L, 0L, 2L, 0L, 0L, 0L, 0L));
+		user2.runCommand(null, new SetGlobalPrefsCommand(1280, 0L, 0L, 0L, 2L, 0L, 0L, 0L, 0L, null, -1L, -1, -1L));
 		user2.runCommand(null, new StartFollowingCommand(MockKeys.K1));
 		
 		// Check that the output from the listing makes sense.
@@ -5,6 +5,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.jeffdisher.cacophony.logic.CacheAlgorithm;
 import com.jeffdisher.cacophony.projection.PrefsData;
 import com.jeffdisher.cacophony.testutils.MockKeys;
 import com.jeffdisher.cacophony.testutils.MockSingleNode;
@@ -41,6 +42,10 @@ public class TestSetGlobalPrefsCommand
 				, 5000L
 				, 6000L
 				, 7000L
+				, "lru"
+				, 8000L
+				, 2
+				, 9000L
 		);
 		
 		// Now, run the refresh command.
@@ -56,6 +61,10 @@ public class TestSetGlobalPrefsCommand
 		Assert.assertEquals(5000L, updated.followeeRecordThumbnailMaxBytes);
 		Assert.assertEquals(6000L, updated.followeeRecordAudioMaxBytes);
 		Assert.assertEquals(7000L, updated.followeeRecordVideoMaxBytes);
+		Assert.assertEquals(CacheAlgorithm.EvictionPolicy.LRU, updated.followeeCacheEvictionPolicy);
+		Assert.assertEquals(8000L, updated.globalCacheBudgetBytes);
+		Assert.assertEquals(2, updated.prefetchHopDepth);
+		Assert.assertEquals(9000L, updated.prefetchBudgetBytes);
 		user.shutdown();
 	}
 }
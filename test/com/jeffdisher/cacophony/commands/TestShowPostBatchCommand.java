@@ -0,0 +1,134 @@
+package com.jeffdisher.cacophony.commands;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jeffdisher.cacophony.access.IWritingAccess;
+import com.jeffdisher.cacophony.caches.LocalRecordCache;
+import com.jeffdisher.cacophony.data.global.GlobalData;
+import com.jeffdisher.cacophony.data.global.record.DataArray;
+import com.jeffdisher.cacophony.data.global.record.DataElement;
+import com.jeffdisher.cacophony.data.global.record.ElementSpecialType;
+import com.jeffdisher.cacophony.data.global.record.StreamRecord;
+import com.jeffdisher.cacophony.testutils.MockKeys;
+import com.jeffdisher.cacophony.testutils.MockSingleNode;
+import com.jeffdisher.cacophony.testutils.MockSwarm;
+import com.jeffdisher.cacophony.testutils.MockUserNode;
+import com.jeffdisher.cacophony.types.FailedDeserializationException;
+import com.jeffdisher.cacophony.types.IpfsConnectionException;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.types.IpfsKey;
+import com.jeffdisher.cacophony.types.SizeConstraintException;
+import com.jeffdisher.cacophony.utils.SizeLimits;
+
+
+public class TestShowPostBatchCommand
+{
+	@ClassRule
+	public static TemporaryFolder FOLDER = new TemporaryFolder();
+	private static final String KEY_NAME = "keyName";
+
+	@Test
+	public void mixedBatch() throws Throwable
+	{
+		// We want to show that a batch with a mix of local, remote, and broken posts reports each of them.
+		MockSwarm swarm = new MockSwarm();
+		MockUserNode writeNode = new MockUserNode(KEY_NAME, MockKeys.K1, new MockSingleNode(swarm), FOLDER.newFolder());
+		MockUserNode readNode = new MockUserNode(null, null, new MockSingleNode(swarm), FOLDER.newFolder());
+		byte[] fakeImage = "image".getBytes();
+		IpfsFile localPost = _storeRecord(writeNode, "local", fakeImage, MockKeys.K1);
+		IpfsFile remotePost = _storeRecord(writeNode, "remote", fakeImage, MockKeys.K1);
+		IpfsFile corruptPost = writeNode.storeDataToNode(new byte[] { 1, 2, 3, 4 });
+		IpfsFile oversizedPost = writeNode.storeDataToNode(new byte[(int)SizeLimits.MAX_RECORD_SIZE_BYTES + 1]);
+		
+		// Make the local post visible through a record cache, with only the meta-data pinned.
+		LocalRecordCache specialRecordCache = new LocalRecordCache();
+		try (IWritingAccess access = Context.writeAccess(readNode.getContext()))
+		{
+			access.pin(localPost).get();
+		}
+		specialRecordCache.recordMetaDataPinned(localPost, 1);
+		Context specialContext = readNode.getContext().cloneWithExtras(specialRecordCache, null, null, null, readNode.getContext().explicitCacheManager);
+		
+		Map<IpfsFile, ShowPostBatchCommand.PostResult> results = _runBatch(specialContext, new IpfsFile[] { oversizedPost, remotePost, localPost, corruptPost }, false);
+		Assert.assertEquals(4, results.size());
+		// The local post is reported without its leaves, since we didn't force the cache.
+		ShowPostCommand.PostDetails local = results.get(localPost).post();
+		Assert.assertEquals("local", local.name());
+		Assert.assertTrue(local.hasDataToCache());
+		Assert.assertNull(local.cachedThumbnailCid());
+		// The remote post was loaded through the explicit cache (only the meta-data).
+		ShowPostCommand.PostDetails remote = results.get(remotePost).post();
+		Assert.assertEquals("remote", remote.name());
+		Assert.assertTrue(remote.hasDataToCache());
+		Assert.assertNull(results.get(remotePost).error());
+		// The broken posts each report their own error.
+		Assert.assertNull(results.get(corruptPost).post());
+		Assert.assertTrue(results.get(corruptPost).error() instanceof FailedDeserializationException);
+		Assert.assertNull(results.get(oversizedPost).post());
+		Assert.assertTrue(results.get(oversizedPost).error() instanceof SizeConstraintException);
+		
+		// Forcing the cache will populate the leaves of both of the valid posts.
+		results = _runBatch(specialContext, new IpfsFile[] { localPost, remotePost }, true);
+		Assert.assertEquals(2, results.size());
+		for (IpfsFile cid : new IpfsFile[] { localPost, remotePost })
+		{
+			ShowPostCommand.PostDetails details = results.get(cid).post();
+			Assert.assertFalse(details.hasDataToCache());
+			Assert.assertEquals(MockSingleNode.generateHash(fakeImage), details.cachedThumbnailCid());
+		}
+		
+		// A later non-forced batch now reads those fully-cached versions locally.
+		results = _runBatch(specialContext, new IpfsFile[] { localPost, remotePost }, false);
+		for (IpfsFile cid : new IpfsFile[] { localPost, remotePost })
+		{
+			Assert.assertFalse(results.get(cid).post().hasDataToCache());
+		}
+		
+		readNode.shutdown();
+		// Write node never started.
+	}
+
+
+	private static Map<IpfsFile, ShowPostBatchCommand.PostResult> _runBatch(Context context, IpfsFile[] cids, boolean forceCache)
+	{
+		List<ShowPostBatchCommand.PostResult> list = new ArrayList<>();
+		new ShowPostBatchCommand(cids, forceCache, (ShowPostBatchCommand.PostResult result) -> list.add(result)).runInContext(context);
+		// Every post is reported exactly once.
+		Map<IpfsFile, ShowPostBatchCommand.PostResult> map = new HashMap<>();
+		for (ShowPostBatchCommand.PostResult result : list)
+		{
+			Assert.assertNull(map.put(result.elementCid(), result));
+		}
+		return map;
+	}
+
+	private static IpfsFile _storeRecord(MockUserNode node, String title, byte[] thumbnailData, IpfsKey publisher) throws IpfsConnectionException, SizeConstraintException
+	{
+		StreamRecord record = new StreamRecord();
+		record.setName(title);
+		record.setDescription("description");
+		record.setPublishedSecondsUtc(10L);
+		record.setPublisherKey(publisher.toPublicKey());
+		DataArray eltArray = new DataArray();
+		record.setElements(eltArray);
+		if (null != thumbnailData)
+		{
+			IpfsFile eltCid = node.storeDataToNode(thumbnailData);
+			DataElement element = new DataElement();
+			element.setMime("image/jpeg");
+			element.setSpecial(ElementSpecialType.IMAGE);
+			element.setCid(eltCid.toSafeString());
+			eltArray.getElement().add(element);
+		}
+		byte[] serialized = GlobalData.serializeRecord(record);
+		return node.storeDataToNode(serialized);
+	}
+}
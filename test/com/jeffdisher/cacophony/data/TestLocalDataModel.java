@@ -19,6 +19,7 @@ import com.jeffdisher.cacophony.data.local.IConfigFileSystem;
 import com.jeffdisher.cacophony.data.local.v4.FolloweeLoader;
 import com.jeffdisher.cacophony.data.local.v4.OpcodeCodec;
 import com.jeffdisher.cacophony.data.local.v4.OpcodeContext;
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.ChannelData;
 import com.jeffdisher.cacophony.projection.ExplicitCacheData;
 import com.jeffdisher.cacophony.projection.FolloweeData;
@@ -183,6 +184,7 @@ public class TestLocalDataModel
 				, new FolloweeLoader(followees)
 				, null
 				, explicitCache
+				, new AccessTrackerData()
 		);
 		OpcodeCodec.decodeWholeStream(new ByteArrayInputStream(serialized), context);
 		Assert.assertEquals(PrefsData.DEFAULT_VIDEO_EDGE, prefs.videoEdgePixelMax);
@@ -224,6 +226,7 @@ public class TestLocalDataModel
 				, new FolloweeLoader(followees)
 				, null
 				, explicitCache
+				, new AccessTrackerData()
 		);
 		OpcodeCodec.decodeWholeStream(new ByteArrayInputStream(serialized), context);
 		Set<IpfsKey> knownKeys = followees.getAllKnownFollowees();
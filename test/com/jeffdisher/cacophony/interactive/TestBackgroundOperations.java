@@ -47,7 +47,7 @@ public class TestBackgroundOperations
 		SilentLogger logger = new SilentLogger();
 		TestOperations ops = new TestOperations();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.startProcess();
 		back.shutdownProcess();
 	}
@@ -60,7 +60,7 @@ public class TestBackgroundOperations
 		FuturePublish publish = new FuturePublish(F1);
 		TestOperations ops = new TestOperations();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		back.startProcess();
 		
@@ -81,7 +81,7 @@ public class TestBackgroundOperations
 		FuturePublish publish2 = new FuturePublish(F2);
 		TestOperations ops = new TestOperations();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		back.startProcess();
 		
@@ -109,7 +109,7 @@ public class TestBackgroundOperations
 		FuturePublish publishLast = new FuturePublish(F3);
 		TestOperations ops = new TestOperations();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		TestListener beforeListener = new TestListener();
 		back.startProcess();
@@ -149,7 +149,7 @@ public class TestBackgroundOperations
 		FuturePublish publishFirst = new FuturePublish(F1);
 		TestOperations ops = new TestOperations();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		back.startProcess();
 		
@@ -184,7 +184,7 @@ public class TestBackgroundOperations
 			didRun[0] = true;
 		};
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		back.startProcess();
 		
@@ -214,7 +214,7 @@ public class TestBackgroundOperations
 		TestOperations ops = new TestOperations();
 		TestListener listener = new TestListener();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		statusHandoff.registerListener(listener, 0);
 		back.startProcess();
@@ -250,7 +250,7 @@ public class TestBackgroundOperations
 		SilentLogger logger = new SilentLogger();
 		TestOperations ops = new TestOperations();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		
 		// We use a barrier and a reentrant call into the background operations in order to ensure that the next followee refresh value is enqueued before the previous (currently executing) one is finished.
@@ -317,7 +317,7 @@ public class TestBackgroundOperations
 		TestOperations ops = new TestOperations();
 		TestListener listener = new TestListener();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		statusHandoff.registerListener(listener, 0);
 		back.startProcess();
@@ -364,7 +364,7 @@ public class TestBackgroundOperations
 		TestOperations ops = new TestOperations();
 		TestListener listener = new TestListener();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		statusHandoff.registerListener(listener, 0);
 		back.startProcess();
@@ -411,7 +411,7 @@ public class TestBackgroundOperations
 		TestOperations ops = new TestOperations();
 		TestListener listener = new TestListener();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		statusHandoff.registerListener(listener, 0);
 		back.startProcess();
@@ -454,7 +454,7 @@ public class TestBackgroundOperations
 		FuturePublish publish = new FuturePublish(F1);
 		TestOperations ops = new TestOperations();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, republishIntervalMillis, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, republishIntervalMillis, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		back.startProcess();
 		
@@ -489,7 +489,7 @@ public class TestBackgroundOperations
 		FuturePublish publish = new FuturePublish(F1);
 		TestOperations ops = new TestOperations();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, republishIntervalMillis, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, republishIntervalMillis, 20L, 0L);
 		back.addChannel(KEY_NAME, MockKeys.K4, F1);
 		back.startProcess();
 		
@@ -520,7 +520,7 @@ public class TestBackgroundOperations
 		SilentLogger logger = new SilentLogger();
 		TestOperations ops = new TestOperations();
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, republishIntervalMillis, 20L);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, republishIntervalMillis, 20L, 0L);
 		back.startProcess();
 		
 		for (int i = 0; i < 100; ++i)
@@ -548,7 +548,7 @@ public class TestBackgroundOperations
 		TestOperations ops = new TestOperations();
 		ops.incrementalResultCount = 2;
 		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
-		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, republishIntervalMillis, followeeRefreshMillis);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, republishIntervalMillis, followeeRefreshMillis, 0L);
 		TestListener listener = new TestListener();
 		back.startProcess();
 		statusHandoff.registerListener(listener, 0);
@@ -573,6 +573,98 @@ public class TestBackgroundOperations
 		Assert.assertEquals(3, listener.ended);
 	}
 
+	@Test
+	public void cacheMaintenanceAfterRefresh() throws Throwable
+	{
+		MockTimeGenerator generator = new MockTimeGenerator();
+		SilentLogger logger = new SilentLogger();
+		TestOperations ops = new TestOperations();
+		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 0L);
+		TestListener listener = new TestListener();
+		back.startProcess();
+		statusHandoff.registerListener(listener, 0);
+		
+		// Run a refresh which will leave the cache above its high-water mark.
+		int callCount[] = new int[1];
+		Consumer<IpfsKey> refresher = (IpfsKey key) -> {
+			callCount[0] += 1;
+			ops.setCacheNeedsShrinking();
+		};
+		ops.returnFolloweeOn(MockKeys.K1, refresher);
+		back.enqueueFolloweeRefresh(MockKeys.K1, 1L);
+		ops.waitForConsume();
+		back.removeFollowee(MockKeys.K1);
+		
+		// The maintenance should be run as a separate operation.
+		ops.waitForShrinkCount(1);
+		
+		// An explicit request should also run the maintenance.
+		back.requestFolloweeCacheMaintenance();
+		ops.waitForShrinkCount(2);
+		
+		back.shutdownProcess();
+		
+		Assert.assertEquals(1, callCount[0]);
+		Assert.assertEquals(3, listener.started);
+		Assert.assertEquals(3, listener.ended);
+	}
+
+	@Test
+	public void idlePrefetch() throws Throwable
+	{
+		MockTimeGenerator generator = new MockTimeGenerator();
+		SilentLogger logger = new SilentLogger();
+		TestOperations ops = new TestOperations();
+		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 50L);
+		TestListener listener = new TestListener();
+		back.startProcess();
+		statusHandoff.registerListener(listener, 0);
+		
+		// The first pass isn't run until the interval passes, and then runs until the steps are done.
+		ops.prefetchStepsPerPass = 3;
+		generator.incrementTimeAndWaitForObservation(50L);
+		ops.waitForPrefetchCount(3);
+		
+		// The next pass is scheduled relative to when the previous one finished, which could race with our time change,
+		// so just keep advancing the time until we see it.
+		while (ops.getPrefetchCount() < 6)
+		{
+			generator.incrementTimeAndWaitForObservation(50L);
+		}
+		
+		back.shutdownProcess();
+		// Each pass is shown as a single status entry, no matter how many steps it took.
+		Assert.assertEquals(2, listener.started);
+		Assert.assertEquals(listener.started, listener.ended);
+	}
+
+	@Test
+	public void prefetchWaitsForLoads() throws Throwable
+	{
+		MockTimeGenerator generator = new MockTimeGenerator();
+		SilentLogger logger = new SilentLogger();
+		TestOperations ops = new TestOperations();
+		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>(DISPATCHER);
+		BackgroundOperations back = new BackgroundOperations(generator, logger, ops, statusHandoff, 10L, 20L, 50L);
+		back.startProcess();
+		
+		// The next step isn't run until the runner reports that the loads of the previous step are ready (the thread
+		// has nothing else to do so it just waits for that notification).
+		ops.prefetchStepsPerPass = 3;
+		ops.deferPrefetchReady = true;
+		generator.incrementTimeAndWaitForObservation(50L);
+		ops.waitForPrefetchCount(1);
+		Assert.assertEquals(1, ops.getPrefetchCount());
+		ops.releasePrefetchReady();
+		ops.waitForPrefetchCount(2);
+		ops.releasePrefetchReady();
+		ops.waitForPrefetchCount(3);
+		
+		back.shutdownProcess();
+	}
+
 
 	private static class TestOperations implements BackgroundOperations.IOperationRunner
 	{
@@ -581,6 +673,12 @@ public class TestBackgroundOperations
 		private FuturePublish _return;
 		private IpfsKey _expectedFolloweeKey;
 		private Consumer<IpfsKey> _refresher;
+		private boolean _cacheNeedsShrinking;
+		private int _shrinkCount;
+		public int prefetchStepsPerPass;
+		public boolean deferPrefetchReady;
+		private int _prefetchCount;
+		private Runnable _pendingReady;
 		
 		@Override
 		public synchronized FuturePublish startPublish(String keyName, IpfsKey publicKey, IpfsFile newRoot)
@@ -625,6 +723,84 @@ public class TestBackgroundOperations
 			toRun.accept(followeeKey);
 			return result;
 		}
+		@Override
+		public synchronized boolean doesFolloweeCacheNeedShrinking()
+		{
+			return _cacheNeedsShrinking;
+		}
+		@Override
+		public synchronized void shrinkFolloweeCache()
+		{
+			_cacheNeedsShrinking = false;
+			_shrinkCount += 1;
+			this.notifyAll();
+		}
+		@Override
+		public synchronized boolean runPrefetchStep(Runnable onReady)
+		{
+			_prefetchCount += 1;
+			this.notifyAll();
+			boolean moreToDo = (0 != (_prefetchCount % this.prefetchStepsPerPass));
+			if (moreToDo)
+			{
+				// We either pretend that the loads completed immediately or hold them until the test releases them.
+				if (this.deferPrefetchReady)
+				{
+					_pendingReady = onReady;
+				}
+				else
+				{
+					onReady.run();
+				}
+			}
+			return moreToDo;
+		}
+		public void releasePrefetchReady()
+		{
+			Runnable onReady;
+			synchronized (this)
+			{
+				onReady = _pendingReady;
+				_pendingReady = null;
+			}
+			onReady.run();
+		}
+		public synchronized int getPrefetchCount()
+		{
+			return _prefetchCount;
+		}
+		public synchronized void waitForPrefetchCount(int count)
+		{
+			while (_prefetchCount < count)
+			{
+				try
+				{
+					this.wait();
+				}
+				catch (InterruptedException e)
+				{
+					Assert.fail();
+				}
+			}
+		}
+		public synchronized void setCacheNeedsShrinking()
+		{
+			_cacheNeedsShrinking = true;
+		}
+		public synchronized void waitForShrinkCount(int count)
+		{
+			while (_shrinkCount < count)
+			{
+				try
+				{
+					this.wait();
+				}
+				catch (InterruptedException e)
+				{
+					Assert.fail();
+				}
+			}
+		}
 		public synchronized void waitForConsume()
 		{
 			while ((null != _match) || (null != _expectedFolloweeKey))
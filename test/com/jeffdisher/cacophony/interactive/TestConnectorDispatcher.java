@@ -1,5 +1,7 @@
 package com.jeffdisher.cacophony.interactive;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 import org.junit.Assert;
@@ -102,4 +104,78 @@ public class TestConnectorDispatcher
 		latch.await();
 		dispatcher.shutdown();
 	}
+
+	@Test
+	public void testOrderAndBatching() throws Throwable
+	{
+		// Queue many tasks while the background thread is blocked, so they are drained in batches, and check the order.
+		CountDownLatch latch = new CountDownLatch(1);
+		List<Integer> order = new ArrayList<>();
+		ConnectorDispatcher dispatcher = new ConnectorDispatcher();
+		dispatcher.start();
+		dispatcher.accept(() -> {
+			try
+			{
+				latch.await();
+			}
+			catch (InterruptedException e)
+			{
+				throw new AssertionError(e);
+			}
+		});
+		int count = 3 * ConnectorDispatcher.DRAIN_BATCH_SIZE;
+		for (int i = 0; i < count; ++i)
+		{
+			int value = i;
+			dispatcher.accept(() -> order.add(value));
+		}
+		latch.countDown();
+		dispatcher.shutdown();
+		Assert.assertEquals(count, order.size());
+		for (int i = 0; i < count; ++i)
+		{
+			Assert.assertEquals(i, order.get(i).intValue());
+		}
+		Assert.assertEquals(0L, dispatcher.getOverflowCount());
+		Assert.assertTrue(dispatcher.getMaxObservedDepth() >= ConnectorDispatcher.DRAIN_BATCH_SIZE);
+	}
+
+	@Test
+	public void testOverflow() throws Throwable
+	{
+		// Fill a tiny queue while the background thread is blocked and show that the next producer waits.
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch latch = new CountDownLatch(1);
+		int count[] = new int[1];
+		ConnectorDispatcher dispatcher = new ConnectorDispatcher(2);
+		dispatcher.start();
+		dispatcher.accept(() -> {
+			running.countDown();
+			try
+			{
+				latch.await();
+			}
+			catch (InterruptedException e)
+			{
+				throw new AssertionError(e);
+			}
+		});
+		running.await();
+		dispatcher.accept(() -> count[0] += 1);
+		dispatcher.accept(() -> count[0] += 1);
+		Thread t = new Thread(() -> {
+			dispatcher.accept(() -> count[0] += 1);
+		});
+		t.start();
+		while (0L == dispatcher.getOverflowCount())
+		{
+			Thread.sleep(1L);
+		}
+		Assert.assertTrue(t.isAlive());
+		latch.countDown();
+		t.join();
+		dispatcher.shutdown();
+		Assert.assertEquals(3, count[0]);
+		Assert.assertEquals(1L, dispatcher.getOverflowCount());
+	}
 }
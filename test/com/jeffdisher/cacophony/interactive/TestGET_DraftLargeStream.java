@@ -0,0 +1,158 @@
+package com.jeffdisher.cacophony.interactive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jeffdisher.cacophony.data.local.v4.Draft;
+import com.jeffdisher.cacophony.data.local.v4.DraftManager;
+import com.jeffdisher.cacophony.data.local.v4.IDraftWrapper;
+import com.jeffdisher.cacophony.testutils.MockServletResponse;
+import com.jeffdisher.cacophony.testutils.ServletProxy;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+
+public class TestGET_DraftLargeStream
+{
+	@ClassRule
+	public static TemporaryFolder FOLDER = new TemporaryFolder();
+	private static final String MIME = "video/webm";
+	private static final int DRAFT_ID = 1;
+
+	@Test
+	public void ranges() throws Throwable
+	{
+		byte[] data = new byte[100];
+		for (int i = 0; i < data.length; ++i)
+		{
+			data[i] = (byte)i;
+		}
+		GET_DraftLargeStream handler = _createHandler(data);
+		
+		// No range gets the whole file.
+		MockServletResponse whole = _request(handler, null, null);
+		Assert.assertEquals(HttpServletResponse.SC_OK, whole.status);
+		Assert.assertEquals("bytes", whole.headers.get("Accept-Ranges"));
+		Assert.assertEquals(MIME, whole.contentType);
+		Assert.assertEquals(data.length, whole.contentLength);
+		Assert.assertArrayEquals(data, whole.getBody());
+		
+		// A single range.
+		MockServletResponse single = _request(handler, "bytes=10-19", null);
+		Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, single.status);
+		Assert.assertEquals("bytes 10-19/100", single.headers.get("Content-Range"));
+		Assert.assertEquals(MIME, single.contentType);
+		Assert.assertEquals(10L, single.contentLength);
+		Assert.assertArrayEquals(Arrays.copyOfRange(data, 10, 20), single.getBody());
+		
+		// A suffix range.
+		MockServletResponse suffix = _request(handler, "bytes=-5", null);
+		Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, suffix.status);
+		Assert.assertEquals("bytes 95-99/100", suffix.headers.get("Content-Range"));
+		Assert.assertEquals(5L, suffix.contentLength);
+		Assert.assertArrayEquals(Arrays.copyOfRange(data, 95, 100), suffix.getBody());
+		
+		// Multiple ranges are sent as multipart/byteranges, with the exact length.
+		MockServletResponse multi = _request(handler, "bytes=0-1,50-52", null);
+		Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, multi.status);
+		Assert.assertNull(multi.headers.get("Content-Range"));
+		String prefix = "multipart/byteranges; boundary=";
+		Assert.assertTrue(multi.contentType.startsWith(prefix));
+		String boundary = multi.contentType.substring(prefix.length());
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(("--" + boundary + "\r\nContent-Type: " + MIME + "\r\nContent-Range: bytes 0-1/100\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+		expected.write(data, 0, 2);
+		expected.write(("\r\n--" + boundary + "\r\nContent-Type: " + MIME + "\r\nContent-Range: bytes 50-52/100\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+		expected.write(data, 50, 3);
+		expected.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+		Assert.assertArrayEquals(expected.toByteArray(), multi.getBody());
+		Assert.assertEquals(multi.getBody().length, multi.contentLength);
+		
+		// A range which can't be satisfied.
+		MockServletResponse unsatisfiable = _request(handler, "bytes=200-300", null);
+		Assert.assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, unsatisfiable.status);
+		Assert.assertEquals("bytes */100", unsatisfiable.headers.get("Content-Range"));
+		Assert.assertEquals(0, unsatisfiable.getBody().length);
+		
+		// A header without any ranges is ignored, so it gets the whole file.
+		MockServletResponse empty = _request(handler, "bytes=", null);
+		Assert.assertEquals(HttpServletResponse.SC_OK, empty.status);
+		Assert.assertNull(empty.headers.get("Content-Range"));
+		Assert.assertArrayEquals(data, empty.getBody());
+		
+		// Since we don't send validators, If-Range always gets the whole file.
+		MockServletResponse ifRange = _request(handler, "bytes=10-19", "\"something\"");
+		Assert.assertEquals(HttpServletResponse.SC_OK, ifRange.status);
+		Assert.assertNull(ifRange.headers.get("Content-Range"));
+		Assert.assertArrayEquals(data, ifRange.getBody());
+	}
+
+	@Test
+	public void missingFile() throws Throwable
+	{
+		// A draft without this file (or a missing draft) is just not found.
+		DraftManager manager = new DraftManager(FOLDER.newFolder());
+		manager.createNewDraft(DRAFT_ID, null);
+		GET_DraftLargeStream handler = new GET_DraftLargeStream(manager
+				, (IDraftWrapper wrapper) -> null
+				, (Draft draft) -> MIME
+				, (Draft draft) -> 0L
+		);
+		Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, _request(handler, null, null).status);
+		Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, _request(handler, "bytes=0-1", null, DRAFT_ID + 1).status);
+	}
+
+
+	private static GET_DraftLargeStream _createHandler(byte[] data) throws IOException
+	{
+		DraftManager manager = new DraftManager(FOLDER.newFolder());
+		manager.createNewDraft(DRAFT_ID, null);
+		File file = FOLDER.newFile();
+		Files.write(file.toPath(), data);
+		return new GET_DraftLargeStream(manager
+				, (IDraftWrapper wrapper) -> {
+					try
+					{
+						return new FileInputStream(file);
+					}
+					catch (FileNotFoundException e)
+					{
+						throw new AssertionError(e);
+					}
+				}
+				, (Draft draft) -> MIME
+				, (Draft draft) -> (long)data.length
+		);
+	}
+
+	private static MockServletResponse _request(GET_DraftLargeStream handler, String range, String ifRange) throws IOException
+	{
+		return _request(handler, range, ifRange, DRAFT_ID);
+	}
+
+	private static MockServletResponse _request(GET_DraftLargeStream handler, String range, String ifRange, int draftId) throws IOException
+	{
+		HttpServletRequest request = ServletProxy.proxy(HttpServletRequest.class, (String name, Object[] args) -> {
+			Assert.assertEquals("getHeader", name);
+			return "Range".equals(args[0])
+					? range
+					: ("If-Range".equals(args[0]) ? ifRange : null)
+			;
+		});
+		MockServletResponse response = new MockServletResponse();
+		handler.handle(request, response.response, new Object[] { "draft", "originalVideo", draftId });
+		return response;
+	}
+}
@@ -0,0 +1,132 @@
+package com.jeffdisher.cacophony.interactive;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jeffdisher.cacophony.commands.CommandRunner;
+import com.jeffdisher.cacophony.commands.Context;
+import com.jeffdisher.cacophony.data.global.GlobalData;
+import com.jeffdisher.cacophony.data.global.record.DataArray;
+import com.jeffdisher.cacophony.data.global.record.StreamRecord;
+import com.jeffdisher.cacophony.testutils.MockKeys;
+import com.jeffdisher.cacophony.testutils.MockServletResponse;
+import com.jeffdisher.cacophony.testutils.MockSingleNode;
+import com.jeffdisher.cacophony.testutils.MockSwarm;
+import com.jeffdisher.cacophony.testutils.MockUserNode;
+import com.jeffdisher.cacophony.testutils.ServletProxy;
+import com.jeffdisher.cacophony.types.IpfsFile;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+
+public class TestGET_PostStructBatch
+{
+	@ClassRule
+	public static TemporaryFolder FOLDER = new TemporaryFolder();
+
+	@Test
+	public void notModified() throws Throwable
+	{
+		MockSwarm swarm = new MockSwarm();
+		MockUserNode writeNode = new MockUserNode(null, null, new MockSingleNode(swarm), FOLDER.newFolder());
+		MockUserNode readNode = new MockUserNode(null, null, new MockSingleNode(swarm), FOLDER.newFolder());
+		IpfsFile post = _storeRecord(writeNode, "post");
+		Context context = readNode.getContext();
+		CommandRunner runner = new CommandRunner(context, 1);
+		runner.startThreads();
+		GET_PostStructBatch handler = new GET_PostStructBatch(context, runner);
+		String cids = post.toSafeString() + ",bogus";
+		
+		// The post isn't known locally so the first request has no ETag (this loads it into the explicit cache).
+		MockServletResponse first = _request(handler, cids, GET_PostStruct.CACHE_OPTIONAL, null);
+		Assert.assertEquals(HttpServletResponse.SC_OK, first.status);
+		Assert.assertNull(first.headers.get("ETag"));
+		Assert.assertTrue(first.getBodyAsString().contains("{\"cid\":\"bogus\",\"status\":400,\"post\":null}"));
+		Assert.assertTrue(first.getBodyAsString().contains("{\"cid\":\"" + post.toSafeString() + "\",\"status\":200,\"post\":{\"name\":\"post\","));
+		
+		// Now that the post is known locally, the same response is sent with an ETag.
+		MockServletResponse second = _request(handler, cids, GET_PostStruct.CACHE_OPTIONAL, null);
+		Assert.assertEquals(HttpServletResponse.SC_OK, second.status);
+		Assert.assertEquals(first.getBodyAsString(), second.getBodyAsString());
+		String etag = second.headers.get("ETag");
+		Assert.assertNotNull(etag);
+		
+		// Sending that back means that the response is not modified, so nothing is written.
+		MockServletResponse third = _request(handler, cids, GET_PostStruct.CACHE_OPTIONAL, etag);
+		Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, third.status);
+		Assert.assertEquals(etag, third.headers.get("ETag"));
+		Assert.assertEquals("", third.getBodyAsString());
+		
+		// A different list of posts has a different ETag.
+		MockServletResponse fourth = _request(handler, post.toSafeString(), GET_PostStruct.CACHE_OPTIONAL, etag);
+		Assert.assertEquals(HttpServletResponse.SC_OK, fourth.status);
+		Assert.assertNotNull(fourth.headers.get("ETag"));
+		Assert.assertNotEquals(etag, fourth.headers.get("ETag"));
+		
+		// Forcing the cache can change the cache state so it never has an ETag.
+		MockServletResponse fifth = _request(handler, cids, GET_PostStruct.CACHE_FORCE, etag);
+		Assert.assertEquals(HttpServletResponse.SC_OK, fifth.status);
+		Assert.assertNull(fifth.headers.get("ETag"));
+		
+		runner.shutdownThreads();
+		readNode.shutdown();
+		// Write node never started.
+	}
+
+
+	private static MockServletResponse _request(GET_PostStructBatch handler, String cids, String cacheOption, String ifNoneMatch) throws Throwable
+	{
+		CountDownLatch latch = new CountDownLatch(1);
+		boolean[] isAsync = new boolean[1];
+		AsyncContext async = ServletProxy.proxy(AsyncContext.class, (String name, Object[] args) -> {
+			if ("complete".equals(name))
+			{
+				latch.countDown();
+			}
+			else
+			{
+				Assert.assertEquals("setTimeout", name);
+			}
+			return null;
+		});
+		HttpServletRequest request = ServletProxy.proxy(HttpServletRequest.class, (String name, Object[] args) -> {
+			Object result;
+			if ("getHeader".equals(name))
+			{
+				Assert.assertEquals("If-None-Match", args[0]);
+				result = ifNoneMatch;
+			}
+			else
+			{
+				Assert.assertEquals("startAsync", name);
+				isAsync[0] = true;
+				result = async;
+			}
+			return result;
+		});
+		MockServletResponse response = new MockServletResponse();
+		handler.handle(request, response.response, new Object[] { "server", "postStructBatch", cids, cacheOption });
+		if (isAsync[0])
+		{
+			latch.await();
+		}
+		return response;
+	}
+
+	private static IpfsFile _storeRecord(MockUserNode node, String title) throws Throwable
+	{
+		StreamRecord record = new StreamRecord();
+		record.setName(title);
+		record.setDescription("description");
+		record.setPublishedSecondsUtc(10L);
+		record.setPublisherKey(MockKeys.K1.toPublicKey());
+		record.setElements(new DataArray());
+		return node.storeDataToNode(GlobalData.serializeRecord(record));
+	}
+}
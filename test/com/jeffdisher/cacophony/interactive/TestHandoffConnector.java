@@ -242,6 +242,168 @@ public class TestHandoffConnector
 		connector.unregisterListener(listen1);
 	}
 
+	@Test
+	public void testScrollBackCursor() throws Throwable
+	{
+		// A listener registered while empty has only seen new keys, so there is nothing older to scroll back to.
+		HandoffConnector<String, String> connector = new HandoffConnector<>(DISPATCHER);
+		TestListener listen1 = new TestListener();
+		connector.registerListener(listen1, 2);
+		connector.create("one", "1 1");
+		connector.create("two", "2 1");
+		connector.requestOlderElements(listen1, 2);
+		Assert.assertEquals(2, listen1.keyOrder.size());
+		
+		// A later listener scrolls back across deleted keys, including the one its cursor was on.
+		for (int i = 0; i < 100; ++i)
+		{
+			connector.create("k" + i, "v" + i);
+		}
+		TestListener listen2 = new TestListener();
+		connector.registerListener(listen2, 10);
+		Assert.assertEquals("k90", listen2.keyOrder.get(0));
+		connector.destroy("k90");
+		for (int i = 0; i < 90; i += 2)
+		{
+			connector.destroy("k" + i);
+		}
+		connector.requestOlderElements(listen2, 3);
+		Assert.assertEquals(12, listen2.keyOrder.size());
+		Assert.assertEquals("k85", listen2.keyOrder.get(0));
+		Assert.assertEquals("k87", listen2.keyOrder.get(1));
+		Assert.assertEquals("k89", listen2.keyOrder.get(2));
+		Assert.assertEquals("k91", listen2.keyOrder.get(3));
+		// Updates only go to listeners which have seen the key.
+		connector.update("one", "1 2");
+		connector.update("k89", "v89 2");
+		Assert.assertEquals("1 2", listen1.map.get("one"));
+		Assert.assertFalse(listen2.map.containsKey("one"));
+		Assert.assertEquals("v89 2", listen2.map.get("k89"));
+		
+		connector.unregisterListener(listen1);
+		connector.unregisterListener(listen2);
+	}
+
+	@Test
+	public void testSortKeys() throws Throwable
+	{
+		// Keys are ordered by sort key, then creation order, and listeners see them where they belong.
+		HandoffConnector<String, String> connector = new HandoffConnector<>(DISPATCHER);
+		TestListener all = new TestListener();
+		connector.registerListener(all, 0);
+		connector.create("b", "b", 20L);
+		connector.create("a", "a", 10L);
+		connector.create("c", "c", 30L);
+		connector.create("b2", "b2", 20L);
+		Assert.assertEquals(List.of("a", "b", "b2", "c"), all.keyOrder);
+		
+		TestListener recent = new TestListener();
+		connector.registerListener(recent, 2);
+		Assert.assertEquals(List.of("b2", "c"), recent.keyOrder);
+		connector.create("old", "old", 1L);
+		Assert.assertEquals(List.of("b2", "c"), recent.keyOrder);
+		Assert.assertEquals(List.of("old", "a", "b", "b2", "c"), all.keyOrder);
+		connector.requestOlderElements(recent, 10);
+		Assert.assertEquals(List.of("old", "a", "b", "b2", "c"), recent.keyOrder);
+		
+		connector.unregisterListener(all);
+		connector.unregisterListener(recent);
+	}
+
+	@Test
+	public void testResume() throws Throwable
+	{
+		// A listener resuming from where an earlier one left off is only sent what it missed.
+		HandoffConnector<String, String> connector = new HandoffConnector<>(DISPATCHER, 5, 100L);
+		connector.create("a", "a1");
+		connector.create("b", "b1");
+		connector.create("c", "c1");
+		TestListener first = new TestListener();
+		connector.registerListener(first, 2);
+		Assert.assertEquals(List.of("b", "c"), first.keyOrder);
+		Assert.assertEquals(103L, first.sequence);
+		connector.unregisterListener(first);
+		
+		// While disconnected, we see a create, an update to something it has, and an update to something it doesn't.
+		connector.create("d", "d1");
+		connector.update("c", "c2");
+		connector.update("a", "a2");
+		connector.setSpecial("special");
+		
+		// The resumed listener starts with what the earlier one had.
+		TestListener resumed = new TestListener();
+		resumed.map.putAll(first.map);
+		resumed.keyOrder.addAll(first.keyOrder);
+		connector.resumeListener(resumed, 2, first.sequence, "b");
+		Assert.assertEquals(0, resumed.resyncCount);
+		Assert.assertEquals(List.of("b", "c", "d"), resumed.keyOrder);
+		Assert.assertEquals("c2", resumed.map.get("c"));
+		Assert.assertFalse(resumed.map.containsKey("a"));
+		Assert.assertEquals("special", resumed.special);
+		Assert.assertEquals(107L, resumed.sequence);
+		
+		// It continues to scroll back from the same cursor.
+		connector.requestOlderElements(resumed, 5);
+		Assert.assertEquals(List.of("a", "b", "c", "d"), resumed.keyOrder);
+		Assert.assertEquals("a2", resumed.map.get("a"));
+		connector.unregisterListener(resumed);
+		
+		// Resuming a listener which has seen everything works the same way.
+		TestListener all = new TestListener();
+		connector.registerListener(all, 0);
+		connector.unregisterListener(all);
+		connector.destroy("a");
+		connector.create("e", "e1");
+		connector.resumeListener(all, 0, all.sequence, null);
+		Assert.assertEquals(0, all.resyncCount);
+		Assert.assertEquals(List.of("b", "c", "d", "e"), all.keyOrder);
+		connector.unregisterListener(all);
+	}
+
+	@Test
+	public void testResumeFallback() throws Throwable
+	{
+		// Resuming falls back to a resync when the log has been truncated or the sequence or key are unknown.
+		HandoffConnector<String, String> connector = new HandoffConnector<>(DISPATCHER, 2, 0L);
+		connector.create("a", "a1");
+		connector.create("b", "b1");
+		TestListener listener = new TestListener();
+		connector.registerListener(listener, 1);
+		Assert.assertEquals(List.of("b"), listener.keyOrder);
+		Assert.assertEquals(2L, listener.sequence);
+		connector.unregisterListener(listener);
+		
+		// A sequence from the future can't be from this connector.
+		connector.resumeListener(listener, 1, 3L, "b");
+		Assert.assertEquals(1, listener.resyncCount);
+		Assert.assertEquals(List.of("b"), listener.keyOrder);
+		connector.unregisterListener(listener);
+		
+		// An oldest key which no longer exists means we can't reconstruct the cursor.
+		connector.resumeListener(listener, 1, 2L, "missing");
+		Assert.assertEquals(2, listener.resyncCount);
+		Assert.assertEquals(List.of("b"), listener.keyOrder);
+		connector.unregisterListener(listener);
+		
+		// The log only holds 2 events so missing 3 requires a resync.
+		connector.create("c", "c1");
+		connector.create("d", "d1");
+		connector.create("e", "e1");
+		connector.resumeListener(listener, 1, 2L, "b");
+		Assert.assertEquals(3, listener.resyncCount);
+		Assert.assertEquals(List.of("e"), listener.keyOrder);
+		Assert.assertEquals(5L, listener.sequence);
+		connector.unregisterListener(listener);
+		
+		// But missing 2 is fine.
+		connector.create("f", "f1");
+		connector.create("g", "g1");
+		connector.resumeListener(listener, 1, 5L, "e");
+		Assert.assertEquals(3, listener.resyncCount);
+		Assert.assertEquals(List.of("e", "f", "g"), listener.keyOrder);
+		connector.unregisterListener(listener);
+	}
+
 
 	private static class TestListener implements HandoffConnector.IHandoffListener<String, String>
 	{
@@ -249,7 +411,26 @@ public class TestHandoffConnector
 		public List<String> keyOrder = new ArrayList<>();
 		public String special = null;
 		public boolean fail = false;
+		public long sequence = -1L;
+		public int resyncCount = 0;
 		
+		@Override
+		public void beforeEvents(long sequence)
+		{
+			Assert.assertTrue(sequence >= this.sequence);
+			this.sequence = sequence;
+		}
+		@Override
+		public boolean resync()
+		{
+			// Like a client, we discard everything we were told.
+			this.resyncCount += 1;
+			this.map.clear();
+			this.keyOrder.clear();
+			this.special = null;
+			this.sequence = -1L;
+			return !fail;
+		}
 		@Override
 		public boolean create(String key, String value, boolean isNewest)
 		{
@@ -269,6 +450,19 @@ public class TestHandoffConnector
 			return !fail;
 		}
 		@Override
+		public boolean createBefore(String key, String value, String newerKey)
+		{
+			if (!fail)
+			{
+				String old = map.put(key, value);
+				Assert.assertNull(old);
+				int index = keyOrder.indexOf(newerKey);
+				Assert.assertTrue(index >= 0);
+				keyOrder.add(index, key);
+			}
+			return !fail;
+		}
+		@Override
 		public boolean update(String key, String value)
 		{
 			if (!fail)
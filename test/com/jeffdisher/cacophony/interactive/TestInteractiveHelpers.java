@@ -446,6 +446,50 @@ public class TestInteractiveHelpers
 		scheduler.shutdown();
 	}
 
+	@Test
+	public void testEtags() throws Throwable
+	{
+		String etag = InteractiveHelpers.buildEtag("QmCid", "state");
+		Assert.assertTrue(etag.startsWith("\"QmCid-"));
+		Assert.assertTrue(etag.endsWith("\""));
+		Assert.assertEquals(etag, InteractiveHelpers.buildEtag("QmCid", "state"));
+		Assert.assertNotEquals(etag, InteractiveHelpers.buildEtag("QmCid", "other state"));
+		
+		Assert.assertFalse(InteractiveHelpers.doesEtagMatch(null, etag));
+		Assert.assertFalse(InteractiveHelpers.doesEtagMatch("\"QmCid-0\"", etag));
+		Assert.assertTrue(InteractiveHelpers.doesEtagMatch(etag, etag));
+		Assert.assertTrue(InteractiveHelpers.doesEtagMatch("W/" + etag, etag));
+		Assert.assertTrue(InteractiveHelpers.doesEtagMatch("\"QmCid-0\", " + etag, etag));
+		Assert.assertTrue(InteractiveHelpers.doesEtagMatch("*", etag));
+	}
+
+	@Test
+	public void testByteRanges() throws Throwable
+	{
+		// Missing, malformed, or unknown ranges are ignored.
+		Assert.assertNull(InteractiveHelpers.parseByteRanges(null, 100L));
+		Assert.assertNull(InteractiveHelpers.parseByteRanges("items=0-9", 100L));
+		Assert.assertNull(InteractiveHelpers.parseByteRanges("bytes=a-9", 100L));
+		Assert.assertNull(InteractiveHelpers.parseByteRanges("bytes=9-1", 100L));
+		Assert.assertNull(InteractiveHelpers.parseByteRanges("bytes=", 100L));
+		Assert.assertNull(InteractiveHelpers.parseByteRanges("bytes= , ", 100L));
+		Assert.assertNull(InteractiveHelpers.parseByteRanges("bytes=0-1,2-3,4-5,6-7,8-9,10-11,12-13,14-15,16-17,18-19,20-21,22-23,24-25,26-27,28-29,30-31,32-33", 100L));
+		
+		// Simple, open-ended, and suffix ranges.
+		Assert.assertEquals(List.of(new InteractiveHelpers.ByteRange(0L, 9L)), InteractiveHelpers.parseByteRanges("bytes=0-9", 100L));
+		Assert.assertEquals(List.of(new InteractiveHelpers.ByteRange(95L, 99L)), InteractiveHelpers.parseByteRanges("bytes=-5", 100L));
+		Assert.assertEquals(List.of(new InteractiveHelpers.ByteRange(5L, 99L)), InteractiveHelpers.parseByteRanges("bytes=5-", 100L));
+		Assert.assertEquals(List.of(new InteractiveHelpers.ByteRange(90L, 99L)), InteractiveHelpers.parseByteRanges("bytes=90-200", 100L));
+		Assert.assertEquals(10L, InteractiveHelpers.parseByteRanges("bytes=0-9", 100L).get(0).length());
+		
+		// Overlapping ranges are merged while disjoint ones are sorted.
+		Assert.assertEquals(List.of(new InteractiveHelpers.ByteRange(0L, 9L)), InteractiveHelpers.parseByteRanges("bytes=0-4, 3-9", 100L));
+		Assert.assertEquals(List.of(new InteractiveHelpers.ByteRange(0L, 4L), new InteractiveHelpers.ByteRange(20L, 29L)), InteractiveHelpers.parseByteRanges("bytes=20-29,0-4", 100L));
+		
+		// Nothing satisfiable.
+		Assert.assertTrue(InteractiveHelpers.parseByteRanges("bytes=100-", 100L).isEmpty());
+	}
+
 
 	private static IConfigFileSystem _getTestingDraftFiles() throws IOException
 	{
@@ -0,0 +1,137 @@
+package com.jeffdisher.cacophony.interactive;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class TestOutboundSocketQueue
+{
+	@Test
+	public void inlineCompletion() throws Throwable
+	{
+		// An endpoint which completes every write before returning shouldn't cause any recursion.
+		List<String> written = new ArrayList<>();
+		RemoteEndpoint endpoint = _endpoint((String message, WriteCallback callback) -> {
+			written.add(message);
+			callback.writeSuccess();
+		});
+		List<Integer> closes = new ArrayList<>();
+		OutboundSocketQueue queue = new OutboundSocketQueue(endpoint, (Integer code, String reason) -> closes.add(code), 2);
+		for (int i = 0; i < 10; ++i)
+		{
+			Assert.assertTrue(queue.send("m" + i));
+		}
+		Assert.assertEquals(10, written.size());
+		Assert.assertEquals("m9", written.get(9));
+		queue.closeWhenDrained();
+		Assert.assertEquals(1, closes.size());
+		Assert.assertNull(closes.get(0));
+		Assert.assertFalse(queue.send("late"));
+	}
+
+	@Test
+	public void slowClient() throws Throwable
+	{
+		// An endpoint which never completes a write will cause the queue to fill and close for a resync.
+		List<String> written = new ArrayList<>();
+		List<WriteCallback> callbacks = new ArrayList<>();
+		RemoteEndpoint endpoint = _endpoint((String message, WriteCallback callback) -> {
+			written.add(message);
+			callbacks.add(callback);
+		});
+		List<Integer> closes = new ArrayList<>();
+		OutboundSocketQueue queue = new OutboundSocketQueue(endpoint, (Integer code, String reason) -> closes.add(code), 2);
+		// The first is written immediately and the next 2 fill the queue.
+		Assert.assertTrue(queue.send("m0"));
+		Assert.assertTrue(queue.send("m1"));
+		Assert.assertTrue(queue.send("m2"));
+		Assert.assertEquals(1, written.size());
+		
+		// Complete the write and see that the next one starts.
+		callbacks.get(0).writeSuccess();
+		Assert.assertEquals(2, written.size());
+		Assert.assertEquals("m1", written.get(1));
+		
+		Assert.assertTrue(queue.send("m3"));
+		Assert.assertFalse(queue.send("m4"));
+		Assert.assertEquals(List.of(WebSocketCodes.RESYNC_REQUIRED), closes);
+		// Nothing more is written, even once the outstanding write completes.
+		callbacks.get(1).writeSuccess();
+		Assert.assertEquals(2, written.size());
+		Assert.assertFalse(queue.send("m5"));
+		Assert.assertEquals(1, closes.size());
+	}
+
+	@Test
+	public void bootstrapExempt() throws Throwable
+	{
+		// The initial state can be larger than the limit and doesn't count against later messages while it drains.
+		List<String> written = new ArrayList<>();
+		List<WriteCallback> callbacks = new ArrayList<>();
+		RemoteEndpoint endpoint = _endpoint((String message, WriteCallback callback) -> {
+			written.add(message);
+			callbacks.add(callback);
+		});
+		List<Integer> closes = new ArrayList<>();
+		OutboundSocketQueue queue = new OutboundSocketQueue(endpoint, (Integer code, String reason) -> closes.add(code), 2);
+		queue.startBootstrap();
+		for (int i = 0; i < 10; ++i)
+		{
+			Assert.assertTrue(queue.send("b" + i));
+		}
+		queue.endBootstrap();
+		Assert.assertEquals(1, written.size());
+		
+		// Only the messages after the bootstrap count so we can add 2 more before overflowing.
+		Assert.assertTrue(queue.send("m0"));
+		Assert.assertTrue(queue.send("m1"));
+		Assert.assertTrue(closes.isEmpty());
+		
+		// Draining some of the bootstrap doesn't make more room.
+		callbacks.get(0).writeSuccess();
+		callbacks.get(1).writeSuccess();
+		Assert.assertEquals("b2", written.get(2));
+		Assert.assertFalse(queue.send("m2"));
+		Assert.assertEquals(List.of(WebSocketCodes.RESYNC_REQUIRED), closes);
+	}
+
+	@Test
+	public void writeFailure() throws Throwable
+	{
+		List<WriteCallback> callbacks = new ArrayList<>();
+		RemoteEndpoint endpoint = _endpoint((String message, WriteCallback callback) -> {
+			callbacks.add(callback);
+		});
+		OutboundSocketQueue queue = new OutboundSocketQueue(endpoint, (Integer code, String reason) -> Assert.fail(), 10);
+		Assert.assertTrue(queue.send("m0"));
+		Assert.assertTrue(queue.send("m1"));
+		callbacks.get(0).writeFailed(new Exception("closed"));
+		Assert.assertFalse(queue.send("m2"));
+		Assert.assertEquals(1, callbacks.size());
+	}
+
+
+	private static RemoteEndpoint _endpoint(Writer writer)
+	{
+		// We only need the asynchronous sendString so we just proxy the interface.
+		return (RemoteEndpoint) Proxy.newProxyInstance(TestOutboundSocketQueue.class.getClassLoader(), new Class<?>[] { RemoteEndpoint.class }, (Object proxy, Method method, Object[] args) -> {
+			Assert.assertEquals("sendString", method.getName());
+			Assert.assertEquals(2, args.length);
+			writer.write((String) args[0], (WriteCallback) args[1]);
+			return null;
+		});
+	}
+
+
+	private static interface Writer
+	{
+		void write(String message, WriteCallback callback);
+	}
+}
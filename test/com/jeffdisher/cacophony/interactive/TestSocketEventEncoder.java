@@ -0,0 +1,36 @@
+package com.jeffdisher.cacophony.interactive;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.eclipsesource.json.Json;
+
+
+public class TestSocketEventEncoder
+{
+	@Test
+	public void sharedMessages() throws Throwable
+	{
+		SocketEventEncoder<Integer, String> encoder = new SocketEventEncoder<>((Integer key) -> Json.value(key), (String value) -> Json.value(value));
+		String value = "value";
+		String create = encoder.create(1, value, true, 5L);
+		Assert.assertEquals("{\"event\":\"create\",\"key\":1,\"value\":\"value\",\"isNewest\":true,\"seq\":5}", create);
+		// The same event, for the next listener, returns the same instance.
+		Assert.assertSame(create, encoder.create(1, value, true, 5L));
+		// Any difference is encoded again.
+		Assert.assertEquals("{\"event\":\"create\",\"key\":1,\"value\":\"value\",\"isNewest\":false,\"seq\":5}", encoder.create(1, value, false, 5L));
+		Assert.assertEquals("{\"event\":\"create\",\"key\":1,\"value\":\"value\",\"isNewest\":false,\"seq\":6}", encoder.create(1, value, false, 6L));
+		Assert.assertEquals("{\"event\":\"create\",\"key\":2,\"value\":\"value\",\"isNewest\":false,\"seq\":6}", encoder.create(2, value, false, 6L));
+		Assert.assertEquals("{\"event\":\"update\",\"key\":2,\"value\":\"other\",\"isNewest\":false,\"seq\":7}", encoder.update(2, "other", 7L));
+		String delete = encoder.delete(2, 8L);
+		Assert.assertEquals("{\"event\":\"delete\",\"key\":2,\"value\":null,\"isNewest\":false,\"seq\":8}", delete);
+		Assert.assertSame(delete, encoder.delete(2, 8L));
+		Assert.assertEquals("{\"event\":\"special\",\"key\":\"special\",\"value\":null,\"isNewest\":false,\"seq\":9}", encoder.special("special", 9L));
+		String before = encoder.createBefore(3, value, 4, 10L);
+		Assert.assertEquals("{\"event\":\"create\",\"key\":3,\"value\":\"value\",\"isNewest\":false,\"newerKey\":4,\"seq\":10}", before);
+		Assert.assertSame(before, encoder.createBefore(3, value, 4, 10L));
+		// A plain create of the same key isn't confused with the positioned one.
+		Assert.assertEquals("{\"event\":\"create\",\"key\":3,\"value\":\"value\",\"isNewest\":false,\"seq\":10}", encoder.create(3, value, false, 10L));
+		Assert.assertEquals("{\"event\":\"resync\",\"key\":null,\"value\":null,\"isNewest\":false}", SocketEventHelpers.encodeResync());
+	}
+}
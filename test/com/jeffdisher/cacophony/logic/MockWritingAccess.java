@@ -13,6 +13,7 @@ import com.jeffdisher.cacophony.access.ConcurrentTransaction;
 import com.jeffdisher.cacophony.access.IReadingAccess;
 import com.jeffdisher.cacophony.access.IWritingAccess;
 import com.jeffdisher.cacophony.data.global.AbstractIndex;
+import com.jeffdisher.cacophony.projection.AccessTrackerData;
 import com.jeffdisher.cacophony.projection.ExplicitCacheData;
 import com.jeffdisher.cacophony.projection.FavouritesCacheData;
 import com.jeffdisher.cacophony.projection.FolloweeData;
@@ -42,6 +43,7 @@ public class MockWritingAccess implements IWritingAccess
 {
 	public final PrefsData prefsData = PrefsData.defaultPrefs();
 	public final ExplicitCacheData explicitCacheData = new ExplicitCacheData();
+	public final AccessTrackerData accessTracker = new AccessTrackerData();
 	public final Map<IpfsFile, byte[]> data = new HashMap<>();
 	public final Map<IpfsFile, Integer> pins = new HashMap<>();
 	// The root of THIS storage.
@@ -295,6 +297,12 @@ public class MockWritingAccess implements IWritingAccess
 		return this.explicitCacheData;
 	}
 
+	@Override
+	public AccessTrackerData accessTracker()
+	{
+		return this.accessTracker;
+	}
+
 	@Override
 	public boolean isIpfsOnline()
 	{
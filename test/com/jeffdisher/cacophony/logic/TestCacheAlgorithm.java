@@ -67,4 +67,54 @@ public class TestCacheAlgorithm
 		// Make sure there was no overflow.
 		Assert.assertTrue(manager.getBytesAvailable() >= 0);
 	}
+
+	@Test
+	public void testEvictLru()
+	{
+		CacheAlgorithm.Candidate<String> old = new CacheAlgorithm.Candidate<>(5, "old", 100L, 10.0d);
+		CacheAlgorithm.Candidate<String> recent = new CacheAlgorithm.Candidate<>(5, "recent", 300L, 1.0d);
+		CacheAlgorithm.Candidate<String> middle = new CacheAlgorithm.Candidate<>(5, "middle", 200L, 1.0d);
+		CacheAlgorithm manager = new CacheAlgorithm(10, 18, CacheAlgorithm.EvictionPolicy.LRU);
+		List<CacheAlgorithm.Candidate<String>> toRemove = manager.toRemoveInResize(List.of(recent, old, middle));
+		Assert.assertEquals(2, toRemove.size());
+		Assert.assertEquals("old", toRemove.get(0).data());
+		Assert.assertEquals("middle", toRemove.get(1).data());
+		Assert.assertEquals(2, manager.getBytesAvailable());
+	}
+
+	@Test
+	public void testEvictLfu()
+	{
+		CacheAlgorithm.Candidate<String> popular = new CacheAlgorithm.Candidate<>(5, "popular", 100L, 10.0d);
+		CacheAlgorithm.Candidate<String> rare = new CacheAlgorithm.Candidate<>(5, "rare", 300L, 1.0d);
+		CacheAlgorithm.Candidate<String> rareOlder = new CacheAlgorithm.Candidate<>(5, "rareOlder", 200L, 1.0d);
+		CacheAlgorithm manager = new CacheAlgorithm(10, 14, CacheAlgorithm.EvictionPolicy.LFU);
+		List<CacheAlgorithm.Candidate<String>> toRemove = manager.toRemoveInResize(List.of(popular, rare, rareOlder));
+		Assert.assertEquals(1, toRemove.size());
+		Assert.assertEquals("rareOlder", toRemove.get(0).data());
+	}
+
+	@Test
+	public void testEvictGdsf()
+	{
+		// The large element has more hits but far fewer per byte so it should be evicted first.
+		CacheAlgorithm.Candidate<String> large = new CacheAlgorithm.Candidate<>(100, "large", 100L, 4.0d);
+		CacheAlgorithm.Candidate<String> small = new CacheAlgorithm.Candidate<>(5, "small", 100L, 1.0d);
+		CacheAlgorithm manager = new CacheAlgorithm(50, 105, CacheAlgorithm.EvictionPolicy.GDSF);
+		List<CacheAlgorithm.Candidate<String>> toRemove = manager.toRemoveInResize(List.of(small, large));
+		Assert.assertEquals(1, toRemove.size());
+		Assert.assertEquals("large", toRemove.get(0).data());
+	}
+
+	@Test
+	public void testPolicyLookup()
+	{
+		for (CacheAlgorithm.EvictionPolicy policy : CacheAlgorithm.EvictionPolicy.values())
+		{
+			Assert.assertEquals(policy, CacheAlgorithm.EvictionPolicy.fromCode(policy.code));
+			Assert.assertEquals(policy, CacheAlgorithm.EvictionPolicy.fromName(policy.name().toLowerCase()));
+		}
+		Assert.assertNull(CacheAlgorithm.EvictionPolicy.fromCode(-1));
+		Assert.assertNull(CacheAlgorithm.EvictionPolicy.fromName("bogus"));
+	}
 }
@@ -0,0 +1,57 @@
+package com.jeffdisher.cacophony.logic;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class TestCacheBudget
+{
+	@Test
+	public void plentyOfRoom() throws Throwable
+	{
+		// Both caches are used equally so they split the headroom evenly.
+		CacheBudget.Allocation allocation = CacheBudget.allocate(1000L, 0L, 100L, 50L, 100L, 50L);
+		Assert.assertEquals(500L, allocation.followeeTargetBytes());
+		Assert.assertEquals(500L, allocation.explicitTargetBytes());
+	}
+
+	@Test
+	public void idleCacheGivesUpHeadroom() throws Throwable
+	{
+		// The explicit cache is empty so the followee cache gets all the headroom but the explicit reservation stays.
+		CacheBudget.Allocation allocation = CacheBudget.allocate(1000L, 0L, 100L, 400L, 200L, 0L);
+		Assert.assertEquals(800L, allocation.followeeTargetBytes());
+		Assert.assertEquals(200L, allocation.explicitTargetBytes());
+	}
+
+	@Test
+	public void bothIdle() throws Throwable
+	{
+		// With no usage, we fall back to the ratio of the reservations.
+		CacheBudget.Allocation allocation = CacheBudget.allocate(1000L, 0L, 300L, 0L, 100L, 0L);
+		Assert.assertEquals(750L, allocation.followeeTargetBytes());
+		Assert.assertEquals(250L, allocation.explicitTargetBytes());
+	}
+
+	@Test
+	public void favouritesOffTheTop() throws Throwable
+	{
+		CacheBudget.Allocation allocation = CacheBudget.allocate(1000L, 600L, 100L, 10L, 100L, 10L);
+		Assert.assertEquals(200L, allocation.followeeTargetBytes());
+		Assert.assertEquals(200L, allocation.explicitTargetBytes());
+	}
+
+	@Test
+	public void scaleReservations() throws Throwable
+	{
+		// The reservations don't fit so they are scaled down, proportionally.
+		CacheBudget.Allocation allocation = CacheBudget.allocate(1000L, 400L, 600L, 600L, 200L, 200L);
+		Assert.assertEquals(450L, allocation.followeeTargetBytes());
+		Assert.assertEquals(150L, allocation.explicitTargetBytes());
+
+		// Favourites over the budget leave nothing.
+		allocation = CacheBudget.allocate(1000L, 2000L, 600L, 600L, 200L, 200L);
+		Assert.assertEquals(0L, allocation.followeeTargetBytes());
+		Assert.assertEquals(0L, allocation.explicitTargetBytes());
+	}
+}
@@ -0,0 +1,95 @@
+package com.jeffdisher.cacophony.logic;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jeffdisher.cacophony.access.IWritingAccess;
+import com.jeffdisher.cacophony.commands.Context;
+import com.jeffdisher.cacophony.data.global.GlobalData;
+import com.jeffdisher.cacophony.data.global.record.DataArray;
+import com.jeffdisher.cacophony.data.global.record.StreamRecord;
+import com.jeffdisher.cacophony.projection.FolloweeData;
+import com.jeffdisher.cacophony.projection.FollowingCacheElement;
+import com.jeffdisher.cacophony.testutils.MockKeys;
+import com.jeffdisher.cacophony.testutils.MockSingleNode;
+import com.jeffdisher.cacophony.testutils.MockSwarm;
+import com.jeffdisher.cacophony.testutils.MockUserNode;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.types.IpfsKey;
+
+
+public class TestCacheHelpers
+{
+	@ClassRule
+	public static TemporaryFolder FOLDER = new TemporaryFolder();
+
+	@Test
+	public void neverAccessedEvictsOldestFirst() throws Throwable
+	{
+		// With no access history, LRU and LFU should evict the leaves cached first, no matter which followees own them.
+		for (CacheAlgorithm.EvictionPolicy policy : new CacheAlgorithm.EvictionPolicy[] { CacheAlgorithm.EvictionPolicy.LRU, CacheAlgorithm.EvictionPolicy.LFU })
+		{
+			// We try the old post on each followee, since their iteration order is arbitrary.
+			for (IpfsKey oldOwner : new IpfsKey[] { MockKeys.K1, MockKeys.K2 })
+			{
+				_checkOldestEvicted(policy, oldOwner);
+			}
+		}
+	}
+
+
+	private static void _checkOldestEvicted(CacheAlgorithm.EvictionPolicy policy, IpfsKey oldOwner) throws Throwable
+	{
+		MockSwarm swarm = new MockSwarm();
+		MockUserNode writeNode = new MockUserNode(null, null, new MockSingleNode(swarm), FOLDER.newFolder());
+		MockUserNode readNode = new MockUserNode(null, null, new MockSingleNode(swarm), FOLDER.newFolder());
+		IpfsKey newOwner = MockKeys.K1.equals(oldOwner) ? MockKeys.K2 : MockKeys.K1;
+		byte[] oldLeafData = "old leaf".getBytes();
+		byte[] newLeafData = "new leaf".getBytes();
+		IpfsFile oldLeaf = writeNode.storeDataToNode(oldLeafData);
+		IpfsFile newLeaf = writeNode.storeDataToNode(newLeafData);
+		// The order is when the elements were cached, not when they were published.
+		IpfsFile oldRecord = _storeRecord(writeNode, 200L);
+		IpfsFile newRecord = _storeRecord(writeNode, 100L);
+		IpfsFile root = writeNode.storeDataToNode("root".getBytes());
+		
+		try (IWritingAccess access = Context.writeAccess(readNode.getContext()))
+		{
+			for (IpfsFile cid : new IpfsFile[] { oldLeaf, newLeaf, oldRecord, newRecord })
+			{
+				access.pin(cid).get();
+			}
+			FolloweeData followees = access.writableFolloweeData();
+			followees.createNewFollowee(newOwner, root, 1L, 1L);
+			followees.createNewFollowee(oldOwner, root, 1L, 1L);
+			followees.addElement(oldOwner, new FollowingCacheElement(oldRecord, oldLeaf, null, oldLeafData.length));
+			followees.addElement(newOwner, new FollowingCacheElement(newRecord, newLeaf, null, newLeafData.length));
+			
+			// Shrinking by one byte means only one set of leaves must be evicted.
+			long currentSize = followees.getCurrentCacheSizeBytes();
+			CacheHelpers.pruneCache(access, followees, currentSize, currentSize - 1L, policy);
+			
+			Assert.assertNull(followees.readElementsForFollowee(oldOwner).get(oldRecord).imageHash());
+			Assert.assertEquals(newLeaf, followees.readElementsForFollowee(newOwner).get(newRecord).imageHash());
+			Assert.assertEquals(newLeafData.length, followees.getCurrentCacheSizeBytes());
+		}
+		Assert.assertFalse(readNode.isPinnedLocally(oldLeaf));
+		Assert.assertTrue(readNode.isPinnedLocally(newLeaf));
+		
+		readNode.shutdown();
+		// Write node never started.
+	}
+
+	private static IpfsFile _storeRecord(MockUserNode node, long publishedSecondsUtc) throws Throwable
+	{
+		StreamRecord record = new StreamRecord();
+		record.setName("post " + publishedSecondsUtc);
+		record.setDescription("description");
+		record.setPublishedSecondsUtc(publishedSecondsUtc);
+		record.setPublisherKey(MockKeys.K1.toPublicKey());
+		record.setElements(new DataArray());
+		return node.storeDataToNode(GlobalData.serializeRecord(record));
+	}
+}
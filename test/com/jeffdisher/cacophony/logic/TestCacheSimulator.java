@@ -0,0 +1,96 @@
+package com.jeffdisher.cacophony.logic;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jeffdisher.cacophony.testutils.MockSingleNode;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.types.UsageException;
+
+
+public class TestCacheSimulator
+{
+	public static final IpfsFile F1 = MockSingleNode.generateHash(new byte[] {1});
+	public static final IpfsFile F2 = MockSingleNode.generateHash(new byte[] {2});
+	public static final IpfsFile F3 = MockSingleNode.generateHash(new byte[] {3});
+	public static final IpfsFile F4 = MockSingleNode.generateHash(new byte[] {4});
+
+	@Test
+	public void parse() throws Throwable
+	{
+		String trace = "# Comment\n"
+				+ "REFRESH 1 " + F1.toSafeString() + ":10 " + F2.toSafeString() + ":0\n"
+				+ "\n"
+				+ "VIEW 2 " + F1.toSafeString() + "\n"
+		;
+		List<CacheSimulator.Event> events = CacheSimulator.parseTrace(new StringReader(trace));
+		Assert.assertEquals(2, events.size());
+		Assert.assertFalse(events.get(0).isView());
+		Assert.assertEquals(List.of(new CacheSimulator.Post(F1, 10L), new CacheSimulator.Post(F2, 0L)), events.get(0).refreshedPosts());
+		Assert.assertTrue(events.get(1).isView());
+		Assert.assertEquals(F1, events.get(1).viewedCid());
+		Assert.assertEquals(2L, events.get(1).timeMillis());
+	}
+
+	@Test(expected = UsageException.class)
+	public void parseError() throws Throwable
+	{
+		CacheSimulator.parseTrace(new StringReader("VIEW later " + F1.toSafeString() + "\n"));
+	}
+
+	@Test
+	public void everythingFits() throws Throwable
+	{
+		// A cache large enough for everything will hit every view of a refreshed post.
+		String trace = "REFRESH 1 " + F1.toSafeString() + ":10 " + F2.toSafeString() + ":10\n"
+				+ "VIEW 2 " + F1.toSafeString() + "\n"
+				+ "VIEW 3 " + F2.toSafeString() + "\n"
+				+ "VIEW 4 " + F3.toSafeString() + "\n"
+		;
+		List<CacheSimulator.Event> events = CacheSimulator.parseTrace(new StringReader(trace));
+		CacheSimulator.Result result = CacheSimulator.simulate(events, 1000L, CacheAlgorithm.EvictionPolicy.LRU, 1L);
+		Assert.assertEquals(3L, result.views());
+		Assert.assertEquals(2L, result.hits());
+		Assert.assertEquals(20L, result.bytesFetched());
+		Assert.assertEquals(0L, result.evictions());
+		Assert.assertEquals(20L, result.finalSizeBytes());
+	}
+
+	@Test
+	public void lruKeepsViewed() throws Throwable
+	{
+		// Fill the cache, view the oldest entry, then force a shrink:  LRU should evict the unviewed entries first.
+		String trace = "REFRESH 1 " + F1.toSafeString() + ":30 " + F2.toSafeString() + ":30 " + F3.toSafeString() + ":35\n"
+				+ "VIEW 2 " + F1.toSafeString() + "\n"
+				+ "REFRESH 3 " + F4.toSafeString() + ":1\n"
+				+ "VIEW 4 " + F1.toSafeString() + "\n"
+		;
+		List<CacheSimulator.Event> events = CacheSimulator.parseTrace(new StringReader(trace));
+		CacheSimulator.Result result = CacheSimulator.simulate(events, 100L, CacheAlgorithm.EvictionPolicy.LRU, 1L);
+		Assert.assertEquals(2L, result.views());
+		Assert.assertEquals(2L, result.hits());
+		Assert.assertTrue(result.evictions() > 0L);
+		Assert.assertTrue(result.bytesEvicted() > 0L);
+	}
+
+	@Test
+	public void seedIsReproducible() throws Throwable
+	{
+		StringBuilder trace = new StringBuilder();
+		IpfsFile[] posts = new IpfsFile[50];
+		for (int i = 0; i < posts.length; ++i)
+		{
+			posts[i] = MockSingleNode.generateHash(new byte[] {(byte)i, 1});
+			trace.append("REFRESH " + i + " " + posts[i].toSafeString() + ":" + (10 + i) + "\n");
+			trace.append("VIEW " + i + " " + posts[i / 2].toSafeString() + "\n");
+		}
+		List<CacheSimulator.Event> events = CacheSimulator.parseTrace(new StringReader(trace.toString()));
+		CacheSimulator.Result first = CacheSimulator.simulate(events, 200L, CacheAlgorithm.EvictionPolicy.RANDOM, 42L);
+		CacheSimulator.Result second = CacheSimulator.simulate(events, 200L, CacheAlgorithm.EvictionPolicy.RANDOM, 42L);
+		Assert.assertEquals(first, second);
+		Assert.assertEquals(50L, first.views());
+	}
+}
@@ -1,5 +1,7 @@
 package com.jeffdisher.cacophony.logic;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CyclicBarrier;
 
 import org.junit.Assert;
@@ -37,7 +39,7 @@ public class TestExplicitCacheManager
 		MockNodeHelpers.createAndPublishEmptyChannelWithDescription(node, MockKeys.K0, "user", "pic".getBytes());
 		
 		// Test that we can read the user.
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		ExplicitCacheData.UserInfo info = manager.loadUserInfo(MockKeys.K0).get();
 		Assert.assertEquals(MockSingleNode.generateHash("pic".getBytes()), info.userPicCid());
 		// While we pin all for elements (index, recommendations, records, description, picture), we don't actually load the picture.
@@ -60,7 +62,7 @@ public class TestExplicitCacheManager
 		
 		// Test that we fail to find the user.
 		int startPin = node.pinCalls;
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		boolean didLoad;
 		try
 		{
@@ -93,7 +95,7 @@ public class TestExplicitCacheManager
 		IpfsFile cid = MockNodeHelpers.storeStreamRecord(node, MockKeys.K0, "title", "pic".getBytes(), null, 0, null);
 		
 		// Test that we can read the post.
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		CachedRecordInfo info = manager.loadRecord(cid, true).get();
 		Assert.assertEquals(MockSingleNode.generateHash("pic".getBytes()), info.thumbnailCid());
 		
@@ -110,7 +112,7 @@ public class TestExplicitCacheManager
 		
 		// Test that we fail to read the post.
 		int startPin = node.pinCalls;
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		boolean didLoad;
 		try
 		{
@@ -132,13 +134,41 @@ public class TestExplicitCacheManager
 		network.shutdown();
 	}
 
+	@Test
+	public void negativeCache() throws Throwable
+	{
+		MockSingleNode node = new MockSingleNode(new MockSwarm());
+		MultiThreadedScheduler network = new MultiThreadedScheduler(node, 1);
+		Context context = MockNodeHelpers.createWallClockContext(node, network);
+		IpfsFile bogus = MockSingleNode.generateHash("bogus".getBytes());
+		
+		// The first failure goes to the network.
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
+		Assert.assertFalse(_didLoadRecord(manager, bogus));
+		Assert.assertEquals(1, node.sizeCalls);
+		Assert.assertEquals(1, manager.getNegativeCacheSize());
+		
+		// The second is satisfied by the negative cache.
+		Assert.assertFalse(_didLoadRecord(manager, bogus));
+		Assert.assertEquals(1, node.sizeCalls);
+		
+		// Purging the cache also clears the negative cache so we will try again.
+		manager.purgeCacheFullyAndGc().get();
+		Assert.assertEquals(0, manager.getNegativeCacheSize());
+		Assert.assertFalse(_didLoadRecord(manager, bogus));
+		Assert.assertEquals(2, node.sizeCalls);
+		
+		manager.shutdown();
+		network.shutdown();
+	}
+
 	@Test
 	public void existingPostData() throws Throwable
 	{
 		MockSingleNode node = new MockSingleNode(new MockSwarm());
 		MultiThreadedScheduler network = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, network);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		
 		// Define a post.
 		IpfsFile cid = MockNodeHelpers.storeStreamRecord(node, MockKeys.K0, "title", "pic".getBytes(), null, 0, null);
@@ -180,7 +210,7 @@ public class TestExplicitCacheManager
 		IpfsFile cid = MockNodeHelpers.storeStreamRecord(upstream, MockKeys.K0, "title", "pic".getBytes(), null, 0, null);
 		
 		// Test that we can read the user and post in an async manager.
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, true);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 1);
 		ExplicitCacheData.UserInfo user = manager.loadUserInfo(MockKeys.K0).get();
 		Assert.assertEquals(MockSingleNode.generateHash("pic".getBytes()), user.userPicCid());
 		CachedRecordInfo post = manager.loadRecord(cid, true).get();
@@ -190,6 +220,57 @@ public class TestExplicitCacheManager
 		network.shutdown();
 	}
 
+	@Test
+	public void asyncMultipleWorkers() throws Throwable
+	{
+		MockSwarm swarm = new MockSwarm();
+		MockSingleNode upstream = new MockSingleNode(swarm);
+		MockSingleNode node = new MockSingleNode(swarm);
+		MultiThreadedScheduler network = new MultiThreadedScheduler(node, 4);
+		Context context = MockNodeHelpers.createWallClockContext(node, network);
+		
+		// Define some users and posts.
+		MockNodeHelpers.createAndPublishEmptyChannelWithDescription(upstream, MockKeys.K0, "user", "pic".getBytes());
+		MockNodeHelpers.createAndPublishEmptyChannelWithDescription(upstream, MockKeys.K1, "user1", "pic1".getBytes());
+		IpfsFile[] cids = new IpfsFile[8];
+		for (int i = 0; i < cids.length; ++i)
+		{
+			cids[i] = MockNodeHelpers.storeStreamRecord(upstream, MockKeys.K0, "title" + i, ("thumb" + i).getBytes(), null, 0, null);
+		}
+		
+		// Issue everything at once, including duplicates, then wait for them all.
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 4);
+		ExplicitCacheManager.FutureUserInfo user0 = manager.loadUserInfo(MockKeys.K0);
+		ExplicitCacheManager.FutureUserInfo user1 = manager.loadUserInfo(MockKeys.K1);
+		ExplicitCacheManager.FutureRecord[] metaOnly = new ExplicitCacheManager.FutureRecord[cids.length];
+		ExplicitCacheManager.FutureRecord[] withLeaves = new ExplicitCacheManager.FutureRecord[cids.length];
+		for (int i = 0; i < cids.length; ++i)
+		{
+			metaOnly[i] = manager.loadRecord(cids[i], false);
+			withLeaves[i] = manager.loadRecord(cids[i], true);
+		}
+		ExplicitCacheManager.FutureUserInfo user0Again = manager.loadUserInfo(MockKeys.K0);
+		Assert.assertEquals(MockSingleNode.generateHash("pic".getBytes()), user0.get().userPicCid());
+		Assert.assertEquals(MockSingleNode.generateHash("pic1".getBytes()), user1.get().userPicCid());
+		Assert.assertEquals(user0.get(), user0Again.get());
+		for (int i = 0; i < cids.length; ++i)
+		{
+			Assert.assertEquals(cids[i], metaOnly[i].get().streamCid());
+			CachedRecordInfo full = withLeaves[i].get();
+			Assert.assertEquals(MockSingleNode.generateHash(("thumb" + i).getBytes()), full.thumbnailCid());
+			Assert.assertFalse(full.hasDataToCache());
+		}
+		
+		// Everything should now be a cache hit, with leaves.
+		for (int i = 0; i < cids.length; ++i)
+		{
+			Assert.assertFalse(manager.getExistingRecord(cids[i]).hasDataToCache());
+		}
+		
+		manager.shutdown();
+		network.shutdown();
+	}
+
 	@Test
 	public void missingUserPic() throws Throwable
 	{
@@ -205,7 +286,7 @@ public class TestExplicitCacheManager
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
 		
 		int startPin = node.pinCalls;
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		boolean didLoad;
 		try
 		{
@@ -245,7 +326,7 @@ public class TestExplicitCacheManager
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
 		
 		int startPin = node.pinCalls;
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		boolean didLoad;
 		try
 		{
@@ -279,7 +360,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		
 		CachedRecordInfo record = manager.loadRecord(cid, true).get();
 		Assert.assertNotNull(record);
@@ -306,7 +387,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		
 		CachedRecordInfo record = manager.loadRecord(cid, true).get();
 		Assert.assertNotNull(record);
@@ -333,7 +414,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		
 		CachedRecordInfo record = manager.loadRecord(cid, true).get();
 		Assert.assertNotNull(record);
@@ -363,7 +444,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		
 		int startPin = node.getStoredFileSet().size();
 		boolean didFail;
@@ -399,7 +480,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		
 		Assert.assertNull(manager.getExistingRecord(cid));
 		CachedRecordInfo record = manager.loadRecord(cid, true).get();
@@ -423,7 +504,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		
 		Thread[] threads = new Thread[10];
 		for (int i = 0; i < threads.length; ++i)
@@ -491,7 +572,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		
 		Thread[] threads = new Thread[10];
 		for (int i = 0; i < threads.length; ++i)
@@ -549,7 +630,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, false);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
 		
 		// Populate the cache.
 		CachedRecordInfo record = manager.loadRecord(cid, true).get();
@@ -573,6 +654,115 @@ public class TestExplicitCacheManager
 		scheduler.shutdown();
 	}
 
+	@Test
+	public void incrementalPurge() throws Throwable
+	{
+		// Fill the cache with enough records that the purge needs several batches, and watch it report progress.
+		MockSwarm swarm = new MockSwarm();
+		MockSingleNode node = new MockSingleNode(swarm);
+		MockSingleNode upstream = new MockSingleNode(swarm);
+		IpfsFile[] cids = new IpfsFile[2 * ExplicitCacheManager.PURGE_BATCH_ENTRIES + 5];
+		for (int i = 0; i < cids.length; ++i)
+		{
+			cids[i] = MockNodeHelpers.storeStreamRecord(upstream, MockKeys.K0, "title" + i, null, null, 0, null);
+		}
+		
+		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
+		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 1);
+		List<String> statusEvents = new ArrayList<>();
+		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>((Runnable run) -> run.run());
+		statusHandoff.registerListener(new StatusListener(statusEvents), 0);
+		manager.attachStatusConnector(statusHandoff);
+		for (IpfsFile cid : cids)
+		{
+			manager.loadRecord(cid, false).get();
+		}
+		Assert.assertTrue(manager.getExplicitCacheSize() > 0L);
+		
+		// A second request while the purge is running shares its future.
+		FutureVoid purge = manager.purgeCacheFullyAndGc();
+		FutureVoid second = manager.purgeCacheFullyAndGc();
+		purge.get();
+		second.get();
+		Assert.assertEquals(0L, manager.getExplicitCacheSize());
+		for (IpfsFile cid : cids)
+		{
+			Assert.assertNull(manager.getExistingRecord(cid));
+		}
+		
+		// We expect the create, one update per batch, and the destroy.
+		Assert.assertEquals(List.of("create Purging explicit cache"
+				, "update Purging explicit cache: 20 of 45 entries"
+				, "update Purging explicit cache: 40 of 45 entries"
+				, "update Purging explicit cache: 45 of 45 entries"
+				, "destroy"
+		), statusEvents);
+		
+		manager.shutdown();
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void purgeSparesNewEntries() throws Throwable
+	{
+		// Entries loaded between purge batches must survive the purge, even if older entries are touched after them.
+		MockSwarm swarm = new MockSwarm();
+		MockSingleNode node = new MockSingleNode(swarm);
+		MockSingleNode upstream = new MockSingleNode(swarm);
+		IpfsFile[] cids = new IpfsFile[2 * ExplicitCacheManager.PURGE_BATCH_ENTRIES + 5];
+		for (int i = 0; i < cids.length; ++i)
+		{
+			cids[i] = MockNodeHelpers.storeStreamRecord(upstream, MockKeys.K0, "title" + i, null, null, 0, null);
+		}
+		IpfsFile lateCid = MockNodeHelpers.storeStreamRecord(upstream, MockKeys.K0, "late", null, null, 0, null);
+		
+		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
+		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
+		// We use the synchronous mode so that the status callback runs between the batches, on our thread.
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
+		List<String> statusEvents = new ArrayList<>();
+		HandoffConnector<Integer, String> statusHandoff = new HandoffConnector<>((Runnable run) -> run.run());
+		statusHandoff.registerListener(new StatusListener(statusEvents) {
+			@Override
+			public boolean update(Integer key, String value)
+			{
+				if (value.endsWith(" 20 of 45 entries"))
+				{
+					try
+					{
+						// Load a new entry and then touch one of the remaining old ones, so it is newer.
+						manager.loadRecord(lateCid, false).get();
+						manager.loadRecord(cids[cids.length - 1], false).get();
+					}
+					catch (ProtocolDataException | IpfsConnectionException e)
+					{
+						throw new AssertionError(e);
+					}
+				}
+				return super.update(key, value);
+			}
+		}, 0);
+		manager.attachStatusConnector(statusHandoff);
+		for (IpfsFile cid : cids)
+		{
+			manager.loadRecord(cid, false).get();
+		}
+		
+		manager.purgeCacheFullyAndGc().get();
+		for (IpfsFile cid : cids)
+		{
+			Assert.assertNull(manager.getExistingRecord(cid));
+		}
+		CachedRecordInfo late = manager.getExistingRecord(lateCid);
+		Assert.assertNotNull(late);
+		Assert.assertEquals(late.combinedSizeBytes(), manager.getExplicitCacheSize());
+		Assert.assertEquals("update Purging explicit cache: 45 of 45 entries", statusEvents.get(statusEvents.size() - 2));
+		
+		manager.shutdown();
+		scheduler.shutdown();
+	}
+
 	@Test
 	public void uniqueAndBackground() throws Throwable
 	{
@@ -588,7 +778,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, true);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 1);
 		
 		// We want to install a barrier in the upstream node, waiting on us and the single scheduler thread, so we can queue up multiple requests and see them de-duplicate.
 		CyclicBarrier barrier = new CyclicBarrier(2);
@@ -669,7 +859,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, true);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 1);
 		
 		// We do the initial look-up to prime the cache.
 		ExplicitCacheData.UserInfo startInfo = manager.loadUserInfo(MockKeys.K0).get();
@@ -719,6 +909,43 @@ public class TestExplicitCacheManager
 		scheduler.shutdown();
 	}
 
+	@Test
+	public void userInfoRequireFresh() throws Throwable
+	{
+		// A stale hit is returned immediately, unless the caller requires fresh data.
+		MockSwarm swarm = new MockSwarm();
+		MockSingleNode node = new MockSingleNode(swarm);
+		MockSingleNode upstream = new MockSingleNode(swarm);
+		MockNodeHelpers.createAndPublishEmptyChannelWithDescription(upstream, MockKeys.K0, "user0", "userPic".getBytes());
+		
+		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
+		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 1);
+		IpfsFile startIndex = manager.loadUserInfo(MockKeys.K0).get().indexCid();
+		
+		// Make everything stale and change the user info.
+		try (IWritingAccess access = Context.writeAccess(context))
+		{
+			PrefsData prefs = access.readPrefs();
+			prefs.explicitUserInfoRefreshMillis = 1L;
+			access.writePrefs(prefs);
+		}
+		MockNodeHelpers.updateAndPublishChannelDescription(upstream, MockKeys.K0, "updated name", "updated pic".getBytes());
+		Thread.sleep(2L);
+		
+		// Block the upstream so the stale read must return without the refresh, then release it.
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		upstream.installSingleUseBarrier(barrier);
+		ExplicitCacheManager.FutureUserInfo stale = manager.loadUserInfo(MockKeys.K0, false);
+		ExplicitCacheManager.FutureUserInfo fresh = manager.loadUserInfo(MockKeys.K0, true);
+		Assert.assertEquals(startIndex, stale.get().indexCid());
+		barrier.await();
+		Assert.assertNotEquals(startIndex, fresh.get().indexCid());
+		
+		manager.shutdown();
+		scheduler.shutdown();
+	}
+
 	@Test
 	public void requestUpgrade() throws Throwable
 	{
@@ -730,7 +957,7 @@ public class TestExplicitCacheManager
 		
 		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
 		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
-		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, true);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 1);
 		
 		// Make one request to verify that it thinks there is more data.
 		CachedRecordInfo start = manager.loadRecord(cid0, false).get();
@@ -768,4 +995,55 @@ public class TestExplicitCacheManager
 		manager.shutdown();
 		scheduler.shutdown();
 	}
+
+
+	private static boolean _didLoadRecord(ExplicitCacheManager manager, IpfsFile cid) throws ProtocolDataException
+	{
+		boolean didLoad;
+		try
+		{
+			manager.loadRecord(cid, true).get();
+			didLoad = true;
+		}
+		catch (IpfsConnectionException e)
+		{
+			didLoad = false;
+		}
+		return didLoad;
+	}
+
+
+	private static class StatusListener implements HandoffConnector.IHandoffListener<Integer, String>
+	{
+		private final List<String> _events;
+		
+		public StatusListener(List<String> events)
+		{
+			_events = events;
+		}
+		@Override
+		public boolean create(Integer key, String value, boolean isNewest)
+		{
+			Assert.assertEquals(ExplicitCacheManager.PURGE_STATUS_KEY, key.intValue());
+			_events.add("create " + value);
+			return true;
+		}
+		@Override
+		public boolean update(Integer key, String value)
+		{
+			_events.add("update " + value);
+			return true;
+		}
+		@Override
+		public boolean destroy(Integer key)
+		{
+			_events.add("destroy");
+			return true;
+		}
+		@Override
+		public boolean specialChanged(String special)
+		{
+			throw new AssertionError("Not used");
+		}
+	}
 }
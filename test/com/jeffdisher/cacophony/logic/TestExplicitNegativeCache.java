@@ -0,0 +1,72 @@
+package com.jeffdisher.cacophony.logic;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jeffdisher.cacophony.testutils.MockKeys;
+import com.jeffdisher.cacophony.testutils.MockSingleNode;
+import com.jeffdisher.cacophony.types.IpfsConnectionException;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.types.KeyException;
+import com.jeffdisher.cacophony.types.SizeConstraintException;
+
+
+public class TestExplicitNegativeCache
+{
+	public static final IpfsFile F1 = MockSingleNode.generateHash(new byte[] {1});
+	public static final IpfsFile F2 = MockSingleNode.generateHash(new byte[] {2});
+	public static final IpfsFile F3 = MockSingleNode.generateHash(new byte[] {3});
+
+	@Test
+	public void ttlByErrorClass() throws Throwable
+	{
+		ExplicitNegativeCache cache = new ExplicitNegativeCache(10);
+		IpfsConnectionException connection = new IpfsConnectionException("get", "bogus", null);
+		SizeConstraintException size = new SizeConstraintException("record", 2L, 1L);
+		KeyException key = new KeyException(MockKeys.K0, connection);
+		cache.recordFailed(F1, false, connection, 0L);
+		cache.recordFailed(F2, false, size, 0L);
+		cache.userFailed(MockKeys.K0, key, 0L);
+		Assert.assertEquals(3, cache.size());
+
+		long afterConnection = ExplicitNegativeCache.CONNECTION_FAILURE_TTL_MILLIS;
+		Assert.assertNull(cache.checkRecord(F1, false, afterConnection));
+		Assert.assertEquals(size, cache.checkRecord(F2, false, afterConnection));
+		Assert.assertEquals(key, cache.checkUser(MockKeys.K0, afterConnection));
+
+		long afterKey = ExplicitNegativeCache.KEY_FAILURE_TTL_MILLIS;
+		Assert.assertEquals(size, cache.checkRecord(F2, false, afterKey));
+		Assert.assertNull(cache.checkUser(MockKeys.K0, afterKey));
+
+		Assert.assertNull(cache.checkRecord(F2, false, ExplicitNegativeCache.DATA_FAILURE_TTL_MILLIS));
+		// Expired entries are dropped when observed.
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void leafFailures() throws Throwable
+	{
+		// A failure loading the leaves shouldn't block a meta-data request.
+		ExplicitNegativeCache cache = new ExplicitNegativeCache(10);
+		SizeConstraintException size = new SizeConstraintException("leaf", 2L, 1L);
+		cache.recordFailed(F1, true, size, 0L);
+		Assert.assertNull(cache.checkRecord(F1, false, 1L));
+		Assert.assertEquals(size, cache.checkRecord(F1, true, 1L));
+	}
+
+	@Test
+	public void bounded() throws Throwable
+	{
+		ExplicitNegativeCache cache = new ExplicitNegativeCache(2);
+		IpfsConnectionException connection = new IpfsConnectionException("get", "bogus", null);
+		cache.recordFailed(F1, false, connection, 0L);
+		cache.recordFailed(F2, false, connection, 0L);
+		cache.recordFailed(F3, false, connection, 0L);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNull(cache.checkRecord(F1, false, 1L));
+		Assert.assertNotNull(cache.checkRecord(F2, false, 1L));
+		Assert.assertNotNull(cache.checkRecord(F3, false, 1L));
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+	}
+}
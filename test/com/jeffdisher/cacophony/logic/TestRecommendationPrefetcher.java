@@ -0,0 +1,190 @@
+package com.jeffdisher.cacophony.logic;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jeffdisher.cacophony.access.IReadingAccess;
+import com.jeffdisher.cacophony.access.IWritingAccess;
+import com.jeffdisher.cacophony.commands.Context;
+import com.jeffdisher.cacophony.data.global.AbstractIndex;
+import com.jeffdisher.cacophony.projection.PrefsData;
+import com.jeffdisher.cacophony.scheduler.MultiThreadedScheduler;
+import com.jeffdisher.cacophony.testutils.MockKeys;
+import com.jeffdisher.cacophony.testutils.MockNodeHelpers;
+import com.jeffdisher.cacophony.testutils.MockSingleNode;
+import com.jeffdisher.cacophony.testutils.MockSwarm;
+import com.jeffdisher.cacophony.types.IpfsFile;
+import com.jeffdisher.cacophony.types.IpfsKey;
+
+
+public class TestRecommendationPrefetcher
+{
+	@Test
+	public void twoHops() throws Throwable
+	{
+		MockSwarm swarm = new MockSwarm();
+		MockSingleNode node = new MockSingleNode(swarm);
+		MockSingleNode upstream = new MockSingleNode(swarm);
+		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
+		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
+		Graph graph = _buildGraph(node, upstream, context);
+		_setPrefs(context, 2, PrefsData.DEFAULT_PREFETCH_BUDGET_BYTES);
+		
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
+		RecommendationPrefetcher prefetcher = new RecommendationPrefetcher(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, manager, 1);
+		// The pass loads K1, then its records, then K2 (which recommends nobody and has no records).
+		Assert.assertEquals(4, _runPass(prefetcher));
+		
+		Assert.assertTrue(_isUserCached(context, MockKeys.K1));
+		Assert.assertTrue(_isUserCached(context, MockKeys.K2));
+		// The followee isn't prefetched since it is already local.
+		Assert.assertFalse(_isUserCached(context, MockKeys.K0));
+		// We only asked for the most recent record.
+		Assert.assertNull(manager.getExistingRecord(graph.oldPost));
+		Assert.assertNotNull(manager.getExistingRecord(graph.newPost));
+		
+		manager.shutdown();
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void limits() throws Throwable
+	{
+		MockSwarm swarm = new MockSwarm();
+		MockSingleNode node = new MockSingleNode(swarm);
+		MockSingleNode upstream = new MockSingleNode(swarm);
+		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
+		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
+		Graph graph = _buildGraph(node, upstream, context);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
+		RecommendationPrefetcher prefetcher = new RecommendationPrefetcher(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, manager, 1);
+		
+		// Disabled means nothing is loaded.
+		_setPrefs(context, 0, PrefsData.DEFAULT_PREFETCH_BUDGET_BYTES);
+		Assert.assertEquals(1, _runPass(prefetcher));
+		Assert.assertEquals(0L, manager.getExplicitCacheSize());
+		
+		// A single hop doesn't reach K2.
+		_setPrefs(context, 1, PrefsData.DEFAULT_PREFETCH_BUDGET_BYTES);
+		Assert.assertEquals(3, _runPass(prefetcher));
+		Assert.assertTrue(_isUserCached(context, MockKeys.K1));
+		Assert.assertFalse(_isUserCached(context, MockKeys.K2));
+		Assert.assertNotNull(manager.getExistingRecord(graph.newPost));
+		
+		// A tiny budget stops after the first user, before its records.
+		manager.purgeCacheFullyAndGc().get();
+		_setPrefs(context, 2, 1L);
+		Assert.assertEquals(2, _runPass(prefetcher));
+		Assert.assertTrue(_isUserCached(context, MockKeys.K1));
+		Assert.assertFalse(_isUserCached(context, MockKeys.K2));
+		Assert.assertNull(manager.getExistingRecord(graph.newPost));
+		
+		// K1 is now cached so it doesn't use any of that budget, meaning that its records are loaded, on the next pass.
+		Assert.assertEquals(3, _runPass(prefetcher));
+		Assert.assertNotNull(manager.getExistingRecord(graph.newPost));
+		Assert.assertFalse(_isUserCached(context, MockKeys.K2));
+		
+		manager.shutdown();
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void hitsDontTouchLru() throws Throwable
+	{
+		MockSwarm swarm = new MockSwarm();
+		MockSingleNode node = new MockSingleNode(swarm);
+		MockSingleNode upstream = new MockSingleNode(swarm);
+		MultiThreadedScheduler scheduler = new MultiThreadedScheduler(node, 1);
+		Context context = MockNodeHelpers.createWallClockContext(node, scheduler);
+		Graph graph = _buildGraph(node, upstream, context);
+		_setPrefs(context, 1, PrefsData.DEFAULT_PREFETCH_BUDGET_BYTES);
+		ExplicitCacheManager manager = new ExplicitCacheManager(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, context.currentTimeMillisGenerator, 0);
+		RecommendationPrefetcher prefetcher = new RecommendationPrefetcher(context.sharedDataModel, context.basicConnection, context.scheduler, context.logger, manager, 1);
+		
+		// Prefetch K1 and its post, then explicitly load K2 so that it is the most recently used.
+		_runPass(prefetcher);
+		manager.loadUserInfo(MockKeys.K2).get();
+		
+		// Another pass hits on K1 and its post but that shouldn't make them more recent than K2.
+		_runPass(prefetcher);
+		try (IWritingAccess access = Context.writeAccess(context))
+		{
+			access.writableExplicitCache().purgeOldestEntries((IpfsFile ignored) -> {}, 2, Long.MAX_VALUE, Set.of(), Set.of());
+		}
+		Assert.assertFalse(_isUserCached(context, MockKeys.K1));
+		Assert.assertNull(manager.getExistingRecord(graph.newPost));
+		Assert.assertTrue(_isUserCached(context, MockKeys.K2));
+		
+		manager.shutdown();
+		scheduler.shutdown();
+	}
+
+
+	private static int _runPass(RecommendationPrefetcher prefetcher) throws InterruptedException
+	{
+		// Runs a whole pass, waiting for each step's loads as the BackgroundOperations would, returning the step count.
+		int steps = 0;
+		boolean moreToDo = true;
+		while (moreToDo)
+		{
+			CountDownLatch ready = new CountDownLatch(1);
+			moreToDo = prefetcher.runStep(() -> ready.countDown());
+			steps += 1;
+			if (moreToDo)
+			{
+				ready.await();
+			}
+		}
+		return steps;
+	}
+
+	private static Graph _buildGraph(MockSingleNode node, MockSingleNode upstream, Context context) throws Throwable
+	{
+		// K1 has 2 posts and recommends K2, who recommends nobody.
+		MockNodeHelpers.createAndPublishEmptyChannelWithDescription(upstream, MockKeys.K2, "user 2", "pic2".getBytes());
+		IpfsFile root = MockNodeHelpers.createAndPublishEmptyChannelWithDescription(upstream, MockKeys.K1, "user 1", "pic1".getBytes());
+		IpfsFile oldPost = MockNodeHelpers.storeStreamRecord(upstream, MockKeys.K1, "old", null, null, 0, null);
+		root = MockNodeHelpers.attachPostToUserAndPublish(upstream, MockKeys.K1, root, oldPost);
+		IpfsFile newPost = MockNodeHelpers.storeStreamRecord(upstream, MockKeys.K1, "new", null, null, 0, null);
+		root = MockNodeHelpers.attachPostToUserAndPublish(upstream, MockKeys.K1, root, newPost);
+		upstream.publish(MockKeys.K1.toPublicKey(), MockKeys.K1, root);
+		MockNodeHelpers.recommendAndPublish(upstream, MockKeys.K1, MockKeys.K2);
+		
+		// K0 is a followee, recommending K1, so their root and recommendations must be pinned locally.
+		MockNodeHelpers.createAndPublishEmptyChannelWithDescription(node, MockKeys.K0, "user 0", "pic0".getBytes());
+		IpfsFile followeeRoot = MockNodeHelpers.recommendAndPublish(node, MockKeys.K0, MockKeys.K1);
+		try (IWritingAccess access = Context.writeAccess(context))
+		{
+			access.pin(followeeRoot).get();
+			AbstractIndex index = access.loadCached(followeeRoot, AbstractIndex.DESERIALIZER).get();
+			access.pin(index.recommendationsCid).get();
+			access.writableFolloweeData().createNewFollowee(MockKeys.K0, followeeRoot, 1L, 1L);
+		}
+		return new Graph(oldPost, newPost);
+	}
+
+	private static void _setPrefs(Context context, int hopDepth, long budgetBytes)
+	{
+		try (IWritingAccess access = Context.writeAccess(context))
+		{
+			PrefsData prefs = access.readPrefs();
+			prefs.prefetchHopDepth = hopDepth;
+			prefs.prefetchBudgetBytes = budgetBytes;
+			access.writePrefs(prefs);
+		}
+	}
+
+	private static boolean _isUserCached(Context context, IpfsKey publicKey)
+	{
+		try (IReadingAccess access = Context.readAccess(context))
+		{
+			return (null != access.readableExplicitCache().getUserInfo(publicKey));
+		}
+	}
+
+
+	private static record Graph(IpfsFile oldPost, IpfsFile newPost) {}
+}
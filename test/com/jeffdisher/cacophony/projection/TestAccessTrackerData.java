@@ -0,0 +1,155 @@
+package com.jeffdisher.cacophony.projection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jeffdisher.cacophony.data.local.v4.OpcodeCodec;
+import com.jeffdisher.cacophony.data.local.v4.OpcodeContext;
+import com.jeffdisher.cacophony.testutils.MockSingleNode;
+import com.jeffdisher.cacophony.types.IpfsFile;
+
+
+public class TestAccessTrackerData
+{
+	public static final IpfsFile F1 = MockSingleNode.generateHash(new byte[] {1});
+	public static final IpfsFile F2 = MockSingleNode.generateHash(new byte[] {2});
+	public static final IpfsFile F3 = MockSingleNode.generateHash(new byte[] {3});
+
+	@Test
+	public void empty() throws Throwable
+	{
+		AccessTrackerData tracker = new AccessTrackerData();
+		Assert.assertNull(tracker.getAccess(F1));
+		Assert.assertEquals(0, tracker.size());
+		AccessTrackerData read = _codec(tracker);
+		Assert.assertEquals(0, read.size());
+	}
+
+	@Test
+	public void decay() throws Throwable
+	{
+		AccessTrackerData tracker = new AccessTrackerData();
+		tracker.recordAccess(F1, 1000L);
+		tracker.recordAccess(F1, 1000L);
+		Assert.assertEquals(2.0, tracker.getAccess(F1).decayedCount(), 0.0001);
+		
+		// Another access, one half-life later, should see the original count halved.
+		long later = 1000L + AccessTrackerData.HALF_LIFE_MILLIS;
+		tracker.recordAccess(F2, later);
+		Assert.assertEquals(1.0, tracker.getAccess(F1).decayedCount(), 0.0001);
+		Assert.assertEquals(1000L, tracker.getAccess(F1).lastAccessMillis());
+		tracker.recordAccess(F1, later);
+		Assert.assertEquals(2.0, tracker.getAccess(F1).decayedCount(), 0.0001);
+		Assert.assertEquals(later, tracker.getAccess(F1).lastAccessMillis());
+		
+		// An access from the past counts but doesn't move the time.
+		tracker.recordAccess(F1, 5L);
+		Assert.assertEquals(3.0, tracker.getAccess(F1).decayedCount(), 0.0001);
+		Assert.assertEquals(later, tracker.getAccess(F1).lastAccessMillis());
+	}
+
+	@Test
+	public void codec() throws Throwable
+	{
+		AccessTrackerData tracker = new AccessTrackerData();
+		tracker.recordAccess(F1, 1000L);
+		tracker.recordAccess(F1, 2000L);
+		tracker.recordAccess(F2, 3000L);
+		AccessTrackerData read = _codec(tracker);
+		Assert.assertEquals(2, read.size());
+		Assert.assertEquals(tracker.getAccess(F1), read.getAccess(F1));
+		Assert.assertEquals(tracker.getAccess(F2), read.getAccess(F2));
+		Assert.assertNull(read.getAccess(F3));
+	}
+
+	@Test
+	public void dropDecayed() throws Throwable
+	{
+		// Entries which haven't been accessed in a long time are dropped when serialized.
+		AccessTrackerData tracker = new AccessTrackerData();
+		tracker.recordAccess(F1, 0L);
+		tracker.recordAccess(F2, 0L);
+		tracker.recordAccess(F2, 0L);
+		tracker.recordAccess(F3, 7L * AccessTrackerData.HALF_LIFE_MILLIS);
+		AccessTrackerData read = _codec(tracker);
+		Assert.assertEquals(2, read.size());
+		Assert.assertNull(read.getAccess(F1));
+		Assert.assertNotNull(read.getAccess(F2));
+		Assert.assertNotNull(read.getAccess(F3));
+	}
+
+	@Test
+	public void pruneWhileRecording() throws Throwable
+	{
+		// Entries which have decayed away are dropped as more accesses are recorded, not just when serialized.
+		AccessTrackerData tracker = new AccessTrackerData();
+		int count = 2000;
+		for (int i = 0; i < count; ++i)
+		{
+			tracker.recordAccess(_cid(i), 0L);
+		}
+		Assert.assertEquals(count, tracker.size());
+		
+		// Recording a larger, later, batch of new CIDs is enough to prune every stripe, pushing out all the old ones.
+		long later = 8L * AccessTrackerData.HALF_LIFE_MILLIS;
+		for (int i = 0; i < (2 * count); ++i)
+		{
+			tracker.recordAccess(_cid(count + i), later);
+		}
+		Assert.assertEquals(2 * count, tracker.size());
+		Assert.assertNull(tracker.getAccess(_cid(0)));
+		Assert.assertEquals(1.0, tracker.getAccess(_cid(count)).decayedCount(), 0.0001);
+	}
+
+	@Test
+	public void concurrentAccess() throws Throwable
+	{
+		AccessTrackerData tracker = new AccessTrackerData();
+		int iterations = 1000;
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; ++i)
+		{
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < iterations; ++j)
+				{
+					tracker.recordAccess(F1, 1L);
+					tracker.recordAccess(F2, 1L);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		Assert.assertEquals((double)(threads.length * iterations), tracker.getAccess(F1).decayedCount(), 0.0001);
+		Assert.assertEquals((double)(threads.length * iterations), tracker.getAccess(F2).decayedCount(), 0.0001);
+	}
+
+
+	private static IpfsFile _cid(int i)
+	{
+		return MockSingleNode.generateHash(Integer.toString(i).getBytes());
+	}
+
+	private static AccessTrackerData _codec(AccessTrackerData start) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (OpcodeCodec.Writer writer = OpcodeCodec.createOutputWriter(out))
+		{
+			start.serializeToOpcodeWriter(writer);
+		}
+		
+		AccessTrackerData tracker = new AccessTrackerData();
+		OpcodeContext context = new OpcodeContext(null, null, null, null, null, tracker);
+		try (ByteArrayInputStream input = new ByteArrayInputStream(out.toByteArray()))
+		{
+			OpcodeCodec.decodeWholeStream(input, context);
+		}
+		return tracker;
+	}
+}
@@ -105,6 +105,24 @@ public class TestExplicitCacheData
 		Assert.assertEquals(F4, unpins.get(5));
 	}
 
+	@Test
+	public void peekingLeavesLru() throws Throwable
+	{
+		ExplicitCacheData explicitCache = new ExplicitCacheData();
+		_addStreamRecord(explicitCache, F1, null, null, null, 5L);
+		_addStreamRecord(explicitCache, F2, null, null, null, 5L);
+		explicitCache.addUserInfo(MockKeys.K0, 1L, F3, F4, F5, F6, null, 5L);
+		// Peeking finds the entries but doesn't change the order so the oldest is still purged first.
+		Assert.assertEquals(5L, explicitCache.peekRecordInfo(F1).combinedSizeBytes());
+		Assert.assertEquals(F5, explicitCache.peekUserInfo(MockKeys.K0).recordsCid());
+		Assert.assertNull(explicitCache.peekRecordInfo(F3));
+		Assert.assertNull(explicitCache.peekUserInfo(MockKeys.K1));
+		List<IpfsFile> unpins = new ArrayList<>();
+		explicitCache.purgeCacheToSize((IpfsFile unpin) -> unpins.add(unpin), 10L);
+		Assert.assertEquals(List.of(F1), unpins);
+		Assert.assertNull(explicitCache.peekRecordInfo(F1));
+	}
+
 	@Test
 	public void pinCounts() throws Throwable
 	{
@@ -172,6 +190,34 @@ public class TestExplicitCacheData
 		Assert.assertEquals(info.combinedSizeBytes(), read.combinedSizeBytes());
 	}
 
+	@Test
+	public void mixedLruOrder() throws Throwable
+	{
+		ExplicitCacheData start = new ExplicitCacheData();
+		_addStreamRecord(start, F1, null, null, null, 1L);
+		start.addUserInfo(MockKeys.K0, 1L, F2, F2, F2, F2, null, 1L);
+		_addStreamRecord(start, F3, null, null, null, 1L);
+		start.addUserInfo(MockKeys.K1, 1L, F4, F4, F4, F4, null, 1L);
+		// The duplicate add (only possible from an old bug) replaces the original and moves it to the end.
+		_addStreamRecord(start, F1, null, null, null, 2L);
+		// Touch the first user so it moves to the end.
+		Assert.assertNotNull(start.getUserInfo(MockKeys.K0));
+		Assert.assertEquals(5L, start.getCacheSizeBytes());
+
+		// The order must survive serialization:  F3, K1, F1, K0.
+		ExplicitCacheData explicitCache = _codec(start);
+		Assert.assertEquals(5L, explicitCache.getCacheSizeBytes());
+		List<IpfsFile> unpins = new ArrayList<>();
+		explicitCache.purgeCacheToSize((IpfsFile unpin) -> unpins.add(unpin), 3L);
+		Assert.assertEquals(List.of(F3, F4, F4, F4), unpins);
+		unpins.clear();
+		explicitCache.purgeCacheToSize((IpfsFile unpin) -> unpins.add(unpin), 0L);
+		Assert.assertEquals(List.of(F1, F2, F2, F2), unpins);
+		Assert.assertEquals(0L, explicitCache.getCacheSizeBytes());
+		Assert.assertNull(explicitCache.getRecordInfo(F1));
+		Assert.assertNull(explicitCache.getUserInfo(MockKeys.K0));
+	}
+
 
 	private static byte[] _serialize(ExplicitCacheData start) throws IOException
 	{
@@ -187,7 +233,7 @@ public class TestExplicitCacheData
 	{
 		byte[] bytes = _serialize(start);
 		ExplicitCacheData explicitCache = new ExplicitCacheData();
-		OpcodeContext context = new OpcodeContext(null, null, null, null, explicitCache);
+		OpcodeContext context = new OpcodeContext(null, null, null, null, explicitCache, null);
 		try (ByteArrayInputStream input = new ByteArrayInputStream(bytes))
 		{
 			OpcodeCodec.decodeWholeStream(input, context);
@@ -299,6 +299,104 @@ public class TestFolloweeData
 		Assert.assertTrue(map.isEmpty());
 	}
 
+	@Test
+	public void runningCacheSize() throws Throwable
+	{
+		FolloweeData data = FolloweeData.createEmpty();
+		data.createNewFollowee(MockKeys.K1, F1, 0L, 0L);
+		data.createNewFollowee(MockKeys.K2, F1, 0L, 0L);
+		Assert.assertEquals(0L, data.getCurrentCacheSizeBytes());
+		data.addElement(MockKeys.K1, new FollowingCacheElement(F1, F2, null, 5L));
+		data.addElement(MockKeys.K1, new FollowingCacheElement(F2, null, F3, 7L));
+		data.addElement(MockKeys.K2, new FollowingCacheElement(F1, F2, F3, 11L));
+		data.addElement(MockKeys.K2, new FollowingCacheElement(F3, null, null, 0L));
+		Assert.assertEquals(23L, data.getCurrentCacheSizeBytes());
+		Assert.assertEquals(12L, data.getCacheSizeBytesForFollowee(MockKeys.K1));
+		Assert.assertEquals(11L, data.getCacheSizeBytesForFollowee(MockKeys.K2));
+		Assert.assertEquals(0L, data.getCacheSizeBytesForFollowee(MockKeys.K3));
+		
+		// Removing an element, or something never added, should only change the relevant totals.
+		data.removeElement(MockKeys.K1, F1);
+		data.removeElement(MockKeys.K2, F2);
+		Assert.assertEquals(18L, data.getCurrentCacheSizeBytes());
+		Assert.assertEquals(7L, data.getCacheSizeBytesForFollowee(MockKeys.K1));
+		Assert.assertEquals(11L, data.getCacheSizeBytesForFollowee(MockKeys.K2));
+		
+		// The totals should be rebuilt when loading.
+		FolloweeData latest = _decodeOpcodeStream(_serializeAsOpcodeStream(data));
+		Assert.assertEquals(18L, latest.getCurrentCacheSizeBytes());
+		Assert.assertEquals(7L, latest.getCacheSizeBytesForFollowee(MockKeys.K1));
+		Assert.assertEquals(11L, latest.getCacheSizeBytesForFollowee(MockKeys.K2));
+		
+		// Removing the followee should account for it being removed.
+		data.removeElement(MockKeys.K1, F2);
+		data.removeFollowee(MockKeys.K1);
+		Assert.assertEquals(11L, data.getCurrentCacheSizeBytes());
+		Assert.assertEquals(0L, data.getCacheSizeBytesForFollowee(MockKeys.K1));
+	}
+
+	@Test
+	public void sharedLeavesCountedOnce() throws Throwable
+	{
+		FolloweeData data = FolloweeData.createEmpty();
+		data.createNewFollowee(MockKeys.K1, F1, 0L, 0L);
+		data.createNewFollowee(MockKeys.K2, F1, 0L, 0L);
+		// K2 rebroadcasts the same element as K1, and K1 also has a different element which references the same leaves.
+		data.addElement(MockKeys.K1, new FollowingCacheElement(F1, F2, F3, 10L));
+		data.addElement(MockKeys.K1, new FollowingCacheElement(F2, F2, F3, 10L));
+		data.addElement(MockKeys.K2, new FollowingCacheElement(F1, F2, F3, 10L));
+		data.addElement(MockKeys.K2, new FollowingCacheElement(F3, null, F3, 4L));
+		Assert.assertEquals(14L, data.getCurrentCacheSizeBytes());
+		Assert.assertEquals(20L, data.getCacheSizeBytesForFollowee(MockKeys.K1));
+		Assert.assertEquals(14L, data.getCacheSizeBytesForFollowee(MockKeys.K2));
+		
+		// The shared leaves are only released once the last reference is removed.
+		data.removeElement(MockKeys.K1, F1);
+		data.removeElement(MockKeys.K2, F1);
+		Assert.assertEquals(14L, data.getCurrentCacheSizeBytes());
+		data.removeElement(MockKeys.K1, F2);
+		Assert.assertEquals(4L, data.getCurrentCacheSizeBytes());
+		Assert.assertEquals(0L, data.getCacheSizeBytesForFollowee(MockKeys.K1));
+		
+		// The counts should be rebuilt when loading.
+		data.addElement(MockKeys.K1, new FollowingCacheElement(F1, null, F3, 4L));
+		FolloweeData latest = _decodeOpcodeStream(_serializeAsOpcodeStream(data));
+		Assert.assertEquals(4L, latest.getCurrentCacheSizeBytes());
+	}
+
+	@Test
+	public void readViewVersusSnapshot() throws Throwable
+	{
+		FolloweeData data = FolloweeData.createEmpty();
+		data.createNewFollowee(MockKeys.K1, F1, 0L, 0L);
+		Assert.assertNull(data.readElementsForFollowee(MockKeys.K2));
+		data.addElement(MockKeys.K1, new FollowingCacheElement(F1, F2, null, 5L));
+		Map<IpfsFile, FollowingCacheElement> view = data.readElementsForFollowee(MockKeys.K1);
+		Map<IpfsFile, FollowingCacheElement> snapshot = data.snapshotAllElementsForFollowee(MockKeys.K1);
+		Assert.assertEquals(1, view.size());
+		Assert.assertEquals(1, snapshot.size());
+
+		// The view sees later changes but the snapshot doesn't.
+		data.addElement(MockKeys.K1, new FollowingCacheElement(F2, null, F3, 7L));
+		Assert.assertEquals(2, view.size());
+		Assert.assertEquals(1, snapshot.size());
+		data.removeElement(MockKeys.K1, F1);
+		Assert.assertEquals(1, view.size());
+		Assert.assertTrue(view.containsKey(F2));
+
+		// The view can't be used to modify the data.
+		try
+		{
+			view.remove(F2);
+			Assert.fail();
+		}
+		catch (UnsupportedOperationException e)
+		{
+			// Expected.
+		}
+		Assert.assertEquals(7L, data.getCurrentCacheSizeBytes());
+	}
+
 
 	private byte[] _serializeAsOpcodeStream(FolloweeData data) throws IOException
 	{
@@ -322,6 +420,7 @@ public class TestFolloweeData
 				, new FolloweeLoader(followees)
 				, favouritesCache
 				, explicitCache
+				, null
 		);
 		OpcodeCodec.decodeWholeStream(new ByteArrayInputStream(byteArray), context);
 		return followees;
@@ -0,0 +1,80 @@
+package com.jeffdisher.cacophony.projection;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jeffdisher.cacophony.testutils.MockKeys;
+import com.jeffdisher.cacophony.types.IpfsKey;
+
+
+public class TestFolloweeSchedule
+{
+	@Test
+	public void empty() throws Throwable
+	{
+		FolloweeSchedule schedule = new FolloweeSchedule();
+		Assert.assertTrue(schedule.isEmpty());
+		Assert.assertNull(schedule.getFirst());
+		Assert.assertFalse(schedule.remove(MockKeys.K1));
+	}
+
+	@Test
+	public void ordering() throws Throwable
+	{
+		FolloweeSchedule schedule = new FolloweeSchedule();
+		schedule.put(MockKeys.K1, 10L);
+		schedule.put(MockKeys.K2, 5L);
+		schedule.put(MockKeys.K3, 20L);
+		Assert.assertEquals(MockKeys.K2, schedule.getFirst());
+		Assert.assertEquals(5L, schedule.getFirstTimeMillis());
+
+		// Re-scheduling should move the followee.
+		schedule.put(MockKeys.K2, 30L);
+		Assert.assertEquals(MockKeys.K1, schedule.getFirst());
+		schedule.put(MockKeys.K3, 1L);
+		Assert.assertEquals(MockKeys.K3, schedule.getFirst());
+		Assert.assertEquals(30L, schedule.getTimeMillis(MockKeys.K2));
+
+		// Removing should expose the next one.
+		Assert.assertTrue(schedule.remove(MockKeys.K3));
+		Assert.assertFalse(schedule.contains(MockKeys.K3));
+		Assert.assertEquals(MockKeys.K1, schedule.getFirst());
+		Assert.assertEquals(2, schedule.getAllFollowees().size());
+	}
+
+	@Test
+	public void ties() throws Throwable
+	{
+		// Followees with the same time should come out in the order they were given that time.
+		FolloweeSchedule schedule = new FolloweeSchedule();
+		schedule.put(MockKeys.K3, 0L);
+		schedule.put(MockKeys.K1, 0L);
+		schedule.put(MockKeys.K2, 0L);
+		Assert.assertEquals(MockKeys.K3, schedule.getFirst());
+		schedule.put(MockKeys.K3, 0L);
+		Assert.assertEquals(MockKeys.K1, schedule.getFirst());
+		schedule.remove(MockKeys.K1);
+		Assert.assertEquals(MockKeys.K2, schedule.getFirst());
+	}
+
+	@Test
+	public void rescheduleAll() throws Throwable
+	{
+		// Re-scheduling every followee, in the order returned, should keep ties in their original order.
+		FolloweeSchedule schedule = new FolloweeSchedule();
+		schedule.put(MockKeys.K3, 10L);
+		schedule.put(MockKeys.K1, 10L);
+		schedule.put(MockKeys.K2, 10L);
+		for (int i = 0; i < 3; ++i)
+		{
+			for (IpfsKey followee : schedule.getAllFollowees())
+			{
+				schedule.put(followee, schedule.getTimeMillis(followee) + 5L);
+			}
+			Assert.assertEquals(List.of(MockKeys.K3, MockKeys.K1, MockKeys.K2), schedule.getAllFollowees());
+		}
+		Assert.assertEquals(25L, schedule.getFirstTimeMillis());
+	}
+}
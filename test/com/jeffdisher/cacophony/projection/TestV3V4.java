@@ -163,7 +163,7 @@ public class TestV3V4
 		PrefsData prefs = PrefsData.defaultPrefs();
 		try (ByteArrayInputStream input = new ByteArrayInputStream(bytes))
 		{
-			OpcodeContext context = new OpcodeContext(null, prefs, null, null, null);
+			OpcodeContext context = new OpcodeContext(null, prefs, null, null, null, null);
 			OpcodeCodec.decodeWholeStream(input, context);
 		}
 		Assert.assertEquals(5, prefs.videoEdgePixelMax);
@@ -209,6 +209,7 @@ public class TestV3V4
 					, new FolloweeLoader(v4Followees)
 					, null
 					, null
+					, null
 			);
 			OpcodeCodec.decodeWholeStream(input, context);
 		}
@@ -261,7 +262,7 @@ public class TestV3V4
 	{
 		byte[] bytes = _serializeV4(start);
 		ExplicitCacheData explicitCache = new ExplicitCacheData();
-		OpcodeContext context = new OpcodeContext(null, null, null, null, explicitCache);
+		OpcodeContext context = new OpcodeContext(null, null, null, null, explicitCache, null);
 		try (ByteArrayInputStream input = new ByteArrayInputStream(bytes))
 		{
 			OpcodeCodec.decodeWholeStream(input, context);
@@ -161,6 +161,10 @@ public class TestCacheSaturation
 						, 0L
 						, 0L
 						, 0L
+						, null
+						, -1L
+						, -1
+						, -1L
 				));
 			}
 			catch (Throwable e)
@@ -43,7 +43,7 @@ public class MockNodeHelpers
 		}
 		LongSupplier currentTimeMillisGenerator = () -> System.currentTimeMillis();
 		// WARNING:  This is not shut down so it MUST be synchronous.
-		ExplicitCacheManager explicitCacheManager = new ExplicitCacheManager(model, connection, network, null, currentTimeMillisGenerator, false);
+		ExplicitCacheManager explicitCacheManager = new ExplicitCacheManager(model, connection, network, null, currentTimeMillisGenerator, 0);
 		Context context = new Context(null
 				, model
 				, connection
@@ -189,6 +189,30 @@ public class MockNodeHelpers
 		return newRoot;
 	}
 
+	public static IpfsFile recommendAndPublish(MockSingleNode node, IpfsKey publishKey, IpfsKey... recommendedKeys) throws IpfsConnectionException
+	{
+		IpfsFile oldRoot = node.resolve(publishKey);
+		IpfsFile newRoot;
+		try
+		{
+			StreamIndex index = GlobalData.deserializeIndex(node.loadData(oldRoot));
+			StreamRecommendations recommendations = new StreamRecommendations();
+			for (IpfsKey key : recommendedKeys)
+			{
+				recommendations.getUser().add(key.toPublicKey());
+			}
+			index.setRecommendations(_storeWithString(node, GlobalData.serializeRecommendations(recommendations)));
+			newRoot = _storeData(node, GlobalData.serializeIndex(index));
+		}
+		catch (FailedDeserializationException | SizeConstraintException e)
+		{
+			throw Assert.unexpected(e);
+		}
+		
+		node.publish(publishKey.toPublicKey(), publishKey, newRoot);
+		return newRoot;
+	}
+
 	public static IpfsFile storeData(MockSingleNode node, byte[] data)
 	{
 		return _storeData(node, data);
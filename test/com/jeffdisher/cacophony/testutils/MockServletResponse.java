@@ -0,0 +1,107 @@
+package com.jeffdisher.cacophony.testutils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+
+
+/**
+ * Records what a REST end-point does to its HttpServletResponse, so tests can check the status, headers, and body.
+ * Only the methods our end-points use are supported, any others failing the test.
+ */
+public class MockServletResponse
+{
+	public int status;
+	public final Map<String, String> headers = new HashMap<>();
+	public String contentType;
+	public long contentLength = -1L;
+	public final HttpServletResponse response;
+	private final ByteArrayOutputStream _body;
+	private final PrintWriter _writer;
+	private final ServletOutputStream _output;
+
+	public MockServletResponse()
+	{
+		_body = new ByteArrayOutputStream();
+		_writer = new PrintWriter(new OutputStreamWriter(_body, StandardCharsets.UTF_8));
+		_output = new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException
+			{
+				_body.write(b);
+			}
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException
+			{
+				_body.write(b, off, len);
+			}
+			@Override
+			public boolean isReady()
+			{
+				return true;
+			}
+			@Override
+			public void setWriteListener(WriteListener writeListener)
+			{
+				throw new AssertionError("Not used");
+			}
+		};
+		this.response = ServletProxy.proxy(HttpServletResponse.class, (String name, Object[] args) -> {
+			Object result = null;
+			if ("setHeader".equals(name))
+			{
+				this.headers.put((String) args[0], (String) args[1]);
+			}
+			else if ("setStatus".equals(name))
+			{
+				this.status = (Integer) args[0];
+			}
+			else if ("setContentType".equals(name))
+			{
+				this.contentType = (String) args[0];
+			}
+			else if ("setContentLengthLong".equals(name))
+			{
+				this.contentLength = (Long) args[0];
+			}
+			else if ("getWriter".equals(name))
+			{
+				result = _writer;
+			}
+			else if ("getOutputStream".equals(name))
+			{
+				result = _output;
+			}
+			else
+			{
+				throw new AssertionError("Unexpected call: " + name);
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * @return The bytes written to the response, by either its writer or output stream.
+	 */
+	public byte[] getBody()
+	{
+		_writer.flush();
+		return _body.toByteArray();
+	}
+
+	/**
+	 * @return The bytes written to the response, as a UTF-8 string.
+	 */
+	public String getBodyAsString()
+	{
+		return new String(getBody(), StandardCharsets.UTF_8);
+	}
+}
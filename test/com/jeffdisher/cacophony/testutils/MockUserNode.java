@@ -309,7 +309,7 @@ public class MockUserNode
 			}
 			LongSupplier currentTimeMillisGenerator = () -> System.currentTimeMillis();
 			// WARNING:  This is not shut down so it MUST be synchronous.
-			ExplicitCacheManager explicitCacheManager = new ExplicitCacheManager(model, _sharedConnection, _lazyScheduler, _logger, currentTimeMillisGenerator, false);
+			ExplicitCacheManager explicitCacheManager = new ExplicitCacheManager(model, _sharedConnection, _lazyScheduler, _logger, currentTimeMillisGenerator, 0);
 			_lazyContext = new Context(new DraftManager(_fileSystem.getDraftsTopLevelDirectory())
 					, model
 					, _sharedConnection
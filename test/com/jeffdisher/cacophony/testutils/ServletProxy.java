@@ -0,0 +1,34 @@
+package com.jeffdisher.cacophony.testutils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+
+/**
+ * The REST end-point tests only need a few methods of the large servlet interfaces so this proxies them, handing each
+ * call to a handler which only sees the method name and arguments.
+ */
+public class ServletProxy
+{
+	/**
+	 * Creates a proxy of the given interface which passes every call to handler.
+	 * 
+	 * @param <T> The interface type.
+	 * @param type The interface to proxy.
+	 * @param handler Called with the name and arguments of each call, returning the result (null for void methods).
+	 * @return The proxy instance.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T proxy(Class<T> type, IHandler handler)
+	{
+		return (T) Proxy.newProxyInstance(ServletProxy.class.getClassLoader(), new Class<?>[] { type }, (Object proxy, Method method, Object[] args) -> {
+			return handler.invoke(method.getName(), args);
+		});
+	}
+
+
+	public static interface IHandler
+	{
+		Object invoke(String name, Object[] args);
+	}
+}